@@ -0,0 +1,342 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.common.io;
+
+import java.text.DateFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Parses and formats timestamps of a fixed pattern like <code>ddMMyy HHmmss.SSS</code>
+ * in UTC directly from and to milliseconds since the epoch without using a {@link java.util.Calendar}.
+ * <p/>
+ * Supports the pattern letters <code>y</code>, <code>M</code>, <code>d</code>, <code>H</code>,
+ * <code>m</code>, <code>s</code> and <code>S</code>, everything else is a literal. The parsing rules
+ * follow {@link java.text.SimpleDateFormat}: numbers without a fixed width are read until the next non-digit,
+ * two digit years are adjusted to the century around today, month names are accepted for <code>MMM</code>
+ * and trailing characters are ignored.
+ * <p/>
+ * Instances are immutable and may be shared by many threads.
+ *
+ * @author Christian Pesch
+ */
+
+public class TimestampFormat {
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    private static final int MAXIMUM_DIGITS = 9;
+    private static final char LITERAL = 0;
+    private static final long CENTURY_START = minusEightyYears(System.currentTimeMillis());
+    private static final int CENTURY_START_YEAR = (int) (toYearMonthDay(floorDiv(CENTURY_START, MILLIS_PER_DAY)) / 10000);
+
+    private final String pattern;
+    private final boolean lenient;
+    private final char[] fields;
+    private final int[] counts;
+    private final int[] widths;
+    private final String[] literals;
+    private final String[] months, shortMonths, englishMonths, englishShortMonths;
+
+    public TimestampFormat(String pattern) {
+        this(pattern, true);
+    }
+
+    public TimestampFormat(String pattern, boolean lenient) {
+        this.pattern = pattern;
+        this.lenient = lenient;
+
+        char[] fields = new char[pattern.length()];
+        int[] counts = new int[pattern.length()];
+        String[] literals = new String[pattern.length()];
+        int elements = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            boolean field = isField(c);
+            char type = field ? c : LITERAL;
+            if (elements == 0 || fields[elements - 1] != type) {
+                fields[elements] = type;
+                literals[elements] = field ? null : "";
+                elements++;
+            }
+            counts[elements - 1]++;
+            if (!field)
+                literals[elements - 1] += c;
+        }
+        this.fields = Arrays.copyOf(fields, elements);
+        this.counts = Arrays.copyOf(counts, elements);
+        this.literals = Arrays.copyOf(literals, elements);
+        this.widths = new int[elements];
+
+        // a number abutting the next number is read with the width of its pattern
+        for (int i = 0; i < elements; i++) {
+            boolean abutting = i + 1 < elements && this.fields[i + 1] != LITERAL && !isMonthName(i + 1);
+            widths[i] = abutting ? this.counts[i] : MAXIMUM_DIGITS;
+        }
+
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance();
+        DateFormatSymbols englishSymbols = DateFormatSymbols.getInstance(Locale.ENGLISH);
+        months = symbols.getMonths();
+        shortMonths = symbols.getShortMonths();
+        englishMonths = englishSymbols.getMonths();
+        englishShortMonths = englishSymbols.getShortMonths();
+    }
+
+    private static boolean isField(char c) {
+        switch (c) {
+            case 'y':
+            case 'M':
+            case 'd':
+            case 'H':
+            case 'm':
+            case 's':
+            case 'S':
+                return true;
+            default:
+                if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')
+                    throw new IllegalArgumentException("Unsupported pattern letter '" + c + "'");
+                return false;
+        }
+    }
+
+    private boolean isMonthName(int element) {
+        return fields[element] == 'M' && counts[element] >= 3;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Parses the given string to milliseconds since the epoch in UTC.
+     *
+     * @param string the string to parse
+     * @return the milliseconds or {@link #INVALID} if the string doesn't match the pattern
+     */
+    public long parseMillis(String string) {
+        if (string == null)
+            return INVALID;
+
+        int year = 1970, month = 1, day = 1, hour = 0, minute = 0, second = 0, millisecond = 0;
+        boolean twoDigitYear = false;
+        int index = 0;
+        for (int i = 0; i < fields.length; i++) {
+            char field = fields[i];
+            if (field == LITERAL) {
+                String literal = literals[i];
+                if (!string.startsWith(literal, index))
+                    return INVALID;
+                index += literal.length();
+                continue;
+            }
+
+            if (isMonthName(i)) {
+                int length = 0;
+                for (int j = 0; j < 12; j++) {
+                    int matched = Math.max(
+                            Math.max(matchLength(string, index, months[j]), matchLength(string, index, shortMonths[j])),
+                            Math.max(matchLength(string, index, englishMonths[j]), matchLength(string, index, englishShortMonths[j])));
+                    if (matched > length) {
+                        length = matched;
+                        month = j + 1;
+                    }
+                }
+                if (length == 0)
+                    return INVALID;
+                index += length;
+                continue;
+            }
+
+            int start = index, value = 0;
+            while (index < string.length() && index - start < widths[i]) {
+                char c = string.charAt(index);
+                if (c < '0' || c > '9')
+                    break;
+                value = value * 10 + (c - '0');
+                index++;
+            }
+            if (index == start)
+                return INVALID;
+            // more digits than fit into an int
+            if (index - start == MAXIMUM_DIGITS && index < string.length() && Character.isDigit(string.charAt(index)))
+                return INVALID;
+
+            switch (field) {
+                case 'y':
+                    twoDigitYear = counts[i] <= 2 && index - start == 2;
+                    year = twoDigitYear ? CENTURY_START_YEAR / 100 * 100 + value : value;
+                    break;
+                case 'M':
+                    month = value;
+                    break;
+                case 'd':
+                    day = value;
+                    break;
+                case 'H':
+                    hour = value;
+                    break;
+                case 'm':
+                    minute = value;
+                    break;
+                case 's':
+                    second = value;
+                    break;
+                case 'S':
+                    millisecond = value;
+                    break;
+            }
+        }
+
+        if (!lenient && (month < 1 || month > 12 || day < 1 || day > getDaysOfMonth(year, month) ||
+                hour > 23 || minute > 59 || second > 59 || millisecond > 999))
+            return INVALID;
+        long millis = toMillis(year, month, day, hour, minute, second, millisecond);
+        // two digit years are within 80 years before and 20 years after today
+        if (twoDigitYear && millis < CENTURY_START)
+            millis = toMillis(year + 100, month, day, hour, minute, second, millisecond);
+        return millis;
+    }
+
+    private static int matchLength(String string, int index, String name) {
+        return name.length() > 0 && string.regionMatches(true, index, name, 0, name.length()) ? name.length() : 0;
+    }
+
+    /**
+     * Parses the given string to a calendar in UTC.
+     *
+     * @param string the string to parse
+     * @return the calendar or null if the string doesn't match the pattern
+     */
+    public CompactCalendar parse(String string) {
+        long millis = parseMillis(string);
+        return millis != INVALID ? CompactCalendar.fromMillisAndTimeZone(millis, "UTC") : null;
+    }
+
+    public String format(CompactCalendar time) {
+        return format(time.getTimeInMillis());
+    }
+
+    public String format(long millis) {
+        long epochDay = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - epochDay * MILLIS_PER_DAY);
+        long yearMonthDay = toYearMonthDay(epochDay);
+        int year = (int) (yearMonthDay / 10000), month = (int) (yearMonthDay / 100 % 100), day = (int) (yearMonthDay % 100);
+
+        StringBuilder buffer = new StringBuilder(pattern.length() + 8);
+        for (int i = 0; i < fields.length; i++) {
+            switch (fields[i]) {
+                case LITERAL:
+                    buffer.append(literals[i]);
+                    break;
+                case 'y':
+                    append(buffer, counts[i] == 2 ? year % 100 : year, counts[i]);
+                    break;
+                case 'M':
+                    if (isMonthName(i))
+                        buffer.append(counts[i] >= 4 ? months[month - 1] : shortMonths[month - 1]);
+                    else
+                        append(buffer, month, counts[i]);
+                    break;
+                case 'd':
+                    append(buffer, day, counts[i]);
+                    break;
+                case 'H':
+                    append(buffer, millisOfDay / 3600000, counts[i]);
+                    break;
+                case 'm':
+                    append(buffer, millisOfDay / 60000 % 60, counts[i]);
+                    break;
+                case 's':
+                    append(buffer, millisOfDay / 1000 % 60, counts[i]);
+                    break;
+                case 'S':
+                    append(buffer, millisOfDay % 1000, counts[i]);
+                    break;
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static void append(StringBuilder buffer, int value, int digits) {
+        if (value < 0) {
+            buffer.append('-');
+            value = -value;
+        }
+        int length = buffer.length();
+        buffer.append(value);
+        for (int i = buffer.length() - length; i < digits; i++)
+            buffer.insert(length, '0');
+    }
+
+
+    static long floorDiv(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        return dividend % divisor < 0 ? quotient - 1 : quotient;
+    }
+
+    /**
+     * Returns the days since 1970-01-01 of the given date of the proleptic Gregorian calendar.
+     * Months out of the range from 1 to 12 and days out of the month roll over like a lenient calendar.
+     */
+    public static long toEpochDay(long year, long month, long day) {
+        year += floorDiv(month - 1, 12);
+        month = month - 1 - floorDiv(month - 1, 12) * 12 + 1;
+        if (month <= 2)
+            year--;
+        long era = floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468 + day - 1;
+    }
+
+    /**
+     * Returns the date for the given days since 1970-01-01 encoded as <code>year * 10000 + month * 100 + day</code>.
+     */
+    public static long toYearMonthDay(long epochDay) {
+        long days = epochDay + 719468;
+        long era = floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    public static long toMillis(long year, long month, long day, long hour, long minute, long second, long millisecond) {
+        return toEpochDay(year, month, day) * MILLIS_PER_DAY +
+                hour * 3600000 + minute * 60000 + second * 1000 + millisecond;
+    }
+
+    private static long minusEightyYears(long millis) {
+        long epochDay = floorDiv(millis, MILLIS_PER_DAY);
+        long yearMonthDay = toYearMonthDay(epochDay);
+        return toEpochDay(yearMonthDay / 10000 - 80, yearMonthDay / 100 % 100, yearMonthDay % 100) * MILLIS_PER_DAY +
+                millis - epochDay * MILLIS_PER_DAY;
+    }
+
+    private static int getDaysOfMonth(int year, int month) {
+        return (int) (toEpochDay(year, month + 1, 1) - toEpochDay(year, month, 1));
+    }
+}
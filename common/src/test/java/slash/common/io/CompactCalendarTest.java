@@ -0,0 +1,102 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.common.io;
+
+import slash.common.TestCase;
+
+import java.util.Calendar;
+import java.util.Random;
+
+public class CompactCalendarTest extends TestCase {
+    private static final String[] TIME_ZONE_IDS = new String[]{
+            "UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Kiritimati"
+    };
+
+    private static long randomMillis(Random random) {
+        return (long) ((random.nextDouble() - 0.3) * 4000000000000L);
+    }
+
+    public void testFieldsLikeCalendar() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            CompactCalendar compactCalendar = CompactCalendar.fromMillisAndTimeZone(randomMillis(random),
+                    TIME_ZONE_IDS[random.nextInt(TIME_ZONE_IDS.length)]);
+            Calendar calendar = compactCalendar.getCalendar();
+            String message = compactCalendar.getTimeZoneId() + " " + compactCalendar.getTimeInMillis();
+            assertEquals(message, calendar.get(Calendar.YEAR), compactCalendar.getYear());
+            assertEquals(message, calendar.get(Calendar.MONTH) + 1, compactCalendar.getMonth());
+            assertEquals(message, calendar.get(Calendar.DAY_OF_MONTH), compactCalendar.getDayOfMonth());
+            assertEquals(message, calendar.get(Calendar.DAY_OF_YEAR), compactCalendar.getDayOfYear());
+            assertEquals(message, ((calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE)) * 60 +
+                    calendar.get(Calendar.SECOND)) * 1000 + calendar.get(Calendar.MILLISECOND), compactCalendar.getMillisOfDay());
+        }
+    }
+
+    public void testWithDateOfLikeCalendar() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            CompactCalendar time = CompactCalendar.fromMillisAndTimeZone(randomMillis(random),
+                    TIME_ZONE_IDS[random.nextInt(TIME_ZONE_IDS.length)]);
+            CompactCalendar startDate = CompactCalendar.fromMillisAndTimeZone(randomMillis(random),
+                    TIME_ZONE_IDS[random.nextInt(TIME_ZONE_IDS.length)]);
+
+            Calendar calendar = time.getCalendar();
+            Calendar startDateCalendar = startDate.getCalendar();
+            calendar.set(Calendar.YEAR, startDateCalendar.get(Calendar.YEAR));
+            calendar.set(Calendar.MONTH, startDateCalendar.get(Calendar.MONTH));
+            calendar.set(Calendar.DAY_OF_MONTH, startDateCalendar.get(Calendar.DAY_OF_MONTH));
+            CompactCalendar expected = CompactCalendar.fromCalendar(calendar);
+            CompactCalendar actual = time.withDateOf(startDate);
+
+            // wall clock times skipped or repeated by daylight saving time are resolved differently
+            if (!expected.equals(actual))
+                assertEquals(time.getTimeZoneId() + " " + time.getTimeInMillis() + " " + startDate.getTimeZoneId() + " " + startDate.getTimeInMillis(), expected.getLocalTimeInMillis(), actual.getLocalTimeInMillis(), 3600000);
+            else
+                assertEquals(expected, actual);
+            assertEquals(startDate.getYear(), actual.getYear());
+            assertEquals(startDate.getDayOfYear(), actual.getDayOfYear());
+        }
+    }
+
+    public void testSameDay() {
+        CompactCalendar morning = CompactCalendar.fromFields(2010, 3, 28, 0, 30, 0, 0);
+        CompactCalendar evening = CompactCalendar.fromFields(2010, 3, 28, 23, 30, 0, 0);
+        assertTrue(morning.isSameDay(evening));
+        assertTrue(morning.before(evening));
+        assertTrue(evening.after(morning));
+        assertEquals(-1, morning.compareTo(evening));
+        assertEquals(0, morning.compareTo(CompactCalendar.fromMillis(morning.getTimeInMillis())));
+
+        CompactCalendar berlin = CompactCalendar.fromMillisAndTimeZone(evening.getTimeInMillis(), "Europe/Berlin");
+        assertEquals(29, berlin.getDayOfMonth());
+        assertFalse(berlin.isSameDay(evening));
+    }
+
+    public void testFromFields() {
+        CompactCalendar calendar = CompactCalendar.fromFields(1970, 1, 1, 0, 0, 0, 0);
+        assertEquals(0, calendar.getTimeInMillis());
+        assertEquals(1, calendar.getDayOfYear());
+        calendar = CompactCalendar.fromFields(2008, 12, 31, 12, 34, 56, 789);
+        assertEquals(366, calendar.getDayOfYear());
+        assertEquals(((12 * 60 + 34) * 60 + 56) * 1000 + 789, calendar.getMillisOfDay());
+        assertEquals("UTC", calendar.getTimeZoneId());
+    }
+}
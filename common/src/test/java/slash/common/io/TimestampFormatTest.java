@@ -0,0 +1,139 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.common.io;
+
+import slash.common.TestCase;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Random;
+
+public class TimestampFormatTest extends TestCase {
+    private static final String[] PATTERNS = new String[]{
+            "ddMMyy HHmmss.SSS", "ddMMyy HHmmss", "ddMMyy", "HHmmss.SSS", "HHmmss", "dd", "MM", "yy",
+            "yyMMdd HHmmss", "yyMMdd", "HH:mm:ss", "HH:mm", "HH:mm:ss.SSS", "dd/MM/yyyy HH:mm:ss",
+            "yyMMdd HH:mm:ss", "yyyy/MM/dd HH:mm:ss", "yyyy-MM-dd HH:mm:ss", "yyyyMMdd HHmmss",
+            "dd.MM.yy HH:mm:ss", "yy/MM/dd HH:mm:ss", "dd-MMMMM-yy HH:mm:ss"
+    };
+
+    private static DateFormat createDateFormat(String pattern, boolean lenient) {
+        DateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(CompactCalendar.UTC);
+        format.setLenient(lenient);
+        return format;
+    }
+
+    private static Long parse(DateFormat format, String string) {
+        try {
+            return format.parse(string).getTime();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private void assertParsesLikeDateFormat(String pattern, String string, boolean lenient) {
+        Long expected = parse(createDateFormat(pattern, lenient), string);
+        long actual = new TimestampFormat(pattern, lenient).parseMillis(string);
+        assertEquals(pattern + " " + string, expected, actual != TimestampFormat.INVALID ? actual : null);
+    }
+
+    public void testFormatLikeDateFormat() {
+        Random random = new Random(42);
+        for (String pattern : PATTERNS) {
+            DateFormat expected = createDateFormat(pattern, true);
+            TimestampFormat actual = new TimestampFormat(pattern);
+            for (int i = 0; i < 1000; i++) {
+                long millis = (long) (random.nextDouble() * 4000000000000L);
+                assertEquals(pattern, expected.format(millis), actual.format(millis));
+            }
+        }
+    }
+
+    public void testParseFormattedLikeDateFormat() {
+        Random random = new Random(4711);
+        for (String pattern : PATTERNS) {
+            DateFormat format = createDateFormat(pattern, true);
+            for (int i = 0; i < 1000; i++) {
+                String string = format.format((long) (random.nextDouble() * 2500000000000L));
+                assertParsesLikeDateFormat(pattern, string, true);
+                assertParsesLikeDateFormat(pattern, string, false);
+            }
+        }
+    }
+
+    public void testParseLikeDateFormat() {
+        assertParsesLikeDateFormat("HHmmss.SSS", "130441.89", true);
+        assertParsesLikeDateFormat("HHmmss.SSS", "130441", true);
+        assertParsesLikeDateFormat("HHmmss", "130441.89", true);
+        assertParsesLikeDateFormat("HHmmss", "13044", true);
+        assertParsesLikeDateFormat("ddMMyy HHmmss.SSS", "160607 130441.89", true);
+        assertParsesLikeDateFormat("ddMMyy HHmmss", "160607 130441", true);
+        assertParsesLikeDateFormat("HH:mm:ss", "9:05:00", true);
+        assertParsesLikeDateFormat("HH:mm:ss", "25:61:61", true);
+        assertParsesLikeDateFormat("HH:mm:ss", "12:23:10 Start", true);
+        assertParsesLikeDateFormat("HH:mm:ss", "12:23", true);
+        assertParsesLikeDateFormat("HH:mm:ss", "", true);
+        assertParsesLikeDateFormat("HH:mm:ss.SSS", "12:23:10.123", false);
+        assertParsesLikeDateFormat("HH:mm:ss.SSS", "24:23:10.123", false);
+        assertParsesLikeDateFormat("HH:mm:ss.SSS", "12:23:60.123", false);
+        assertParsesLikeDateFormat("dd/MM/yyyy HH:mm:ss", "31/02/2007 12:00:00", true);
+        assertParsesLikeDateFormat("dd/MM/yyyy HH:mm:ss", "31/13/2007 12:00:00", true);
+        assertParsesLikeDateFormat("dd/MM/yyyy HH:mm:ss", "29/02/2008 12:00:00", false);
+        assertParsesLikeDateFormat("dd/MM/yyyy HH:mm:ss", "29/02/2007 12:00:00", false);
+        assertParsesLikeDateFormat("dd/MM/yyyy HH:mm:ss", "30/09/2007 09:34:55 : Abtsgmuend", true);
+        assertParsesLikeDateFormat("dd.MM.yy HH:mm:ss", "01.02.2003 04:05:06", true);
+        assertParsesLikeDateFormat("yyMMdd HH:mm:ss", "090314 08:05:55", true);
+        assertParsesLikeDateFormat("yy/MM/dd HH:mm:ss", "99/12/31 23:59:59", true);
+        assertParsesLikeDateFormat("yyyyMMdd HHmmss", "20100226 150120", true);
+        assertParsesLikeDateFormat("dd-MMMMM-yy HH:mm:ss", "05-September-10 10:11:56", true);
+        assertParsesLikeDateFormat("dd-MMMMM-yy HH:mm:ss", "05-Sep-10 10:11:56", true);
+        assertParsesLikeDateFormat("dd-MMMMM-yy HH:mm:ss", "05-march-10 10:11:56", true);
+        assertParsesLikeDateFormat("dd-MMMMM-yy HH:mm:ss", "05-Hugo-10 10:11:56", true);
+    }
+
+    public void testParseToCalendar() {
+        assertEquals(calendar(1970, 1, 1, 13, 4, 41, 89), new TimestampFormat("HHmmss.SSS").parse("130441.89"));
+        assertEquals(calendar(2007, 6, 16, 13, 4, 41), new TimestampFormat("ddMMyy HHmmss").parse("160607 130441"));
+        assertNull(new TimestampFormat("ddMMyy HHmmss").parse("Hugo"));
+        assertNull(new TimestampFormat("ddMMyy HHmmss").parse(null));
+    }
+
+    public void testEpochDay() {
+        for (long epochDay = -700000; epochDay < 800000; epochDay += 7) {
+            long yearMonthDay = TimestampFormat.toYearMonthDay(epochDay);
+            assertEquals(epochDay, TimestampFormat.toEpochDay(yearMonthDay / 10000, yearMonthDay / 100 % 100, yearMonthDay % 100));
+        }
+        assertEquals(0, TimestampFormat.toEpochDay(1970, 1, 1));
+        assertEquals(19700101, TimestampFormat.toYearMonthDay(0));
+        assertEquals(20000229, TimestampFormat.toYearMonthDay(TimestampFormat.toEpochDay(2000, 2, 29)));
+        assertEquals(TimestampFormat.toEpochDay(2001, 1, 1), TimestampFormat.toEpochDay(2000, 13, 1));
+        assertEquals(TimestampFormat.toEpochDay(1999, 12, 31), TimestampFormat.toEpochDay(2000, 1, 0));
+    }
+
+    public void testUnsupportedPattern() {
+        try {
+            new TimestampFormat("yyyy-MM-dd'T'HH:mm:ss");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
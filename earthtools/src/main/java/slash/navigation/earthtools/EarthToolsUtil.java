@@ -22,19 +22,18 @@ package slash.navigation.earthtools;
 
 import slash.navigation.earthtools.binding.Height;
 import slash.navigation.earthtools.binding.ObjectFactory;
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.StringReader;
 
 class EarthToolsUtil {
-    private static final JAXBContext CONTEXT = JaxbUtils.newContext(ObjectFactory.class);
+    private static final PooledContext CONTEXT = new PooledContext(ObjectFactory.class);
 
     private static Unmarshaller newUnmarshaller() {
-        return JaxbUtils.newUnmarshaller(CONTEXT);
+        return CONTEXT.getUnmarshaller();
     }
 
     private static Height unmarshal(StringReader reader) throws JAXBException {
@@ -27,6 +27,7 @@ import slash.navigation.rest.Get;
 import javax.xml.bind.JAXBException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.prefs.Preferences;
 
@@ -39,6 +40,7 @@ import java.util.prefs.Preferences;
 public class GeoNamesService {
     private static final Preferences preferences = Preferences.userNodeForPackage(GeoNamesService.class);
     private static final String GEONAMES_URL_PREFERENCE = "geonamesUrl";
+    private static final int MAXIMUM_ELEVATIONS_PER_REQUEST = 20;
 
     private static String getGeoNamesUrlPreference() {
         return preferences.get(GEONAMES_URL_PREFERENCE, "http://ws.geonames.org/");
@@ -75,6 +77,70 @@ public class GeoNamesService {
             return getGtopo30ElevationFor(longitude, latitude);
     }
 
+    static void parseElevations(String result, int[] indices, int startIndex, int endIndex,
+                                int nullValue, double[] elevations) throws IOException {
+        String[] lines = result.trim().split("\\s+");
+        if (lines.length != endIndex - startIndex)
+            throw new IOException("Expected " + (endIndex - startIndex) + " elevations but got " + result);
+        for (int i = startIndex; i < endIndex; i++) {
+            try {
+                Integer elevation = Transfer.parseInt(lines[i - startIndex]);
+                if (elevation != null && elevation != nullValue)
+                    elevations[indices[i]] = elevation;
+            } catch (NumberFormatException e) {
+                IOException io = new IOException("Cannot unmarshall " + result + ": " + e.getMessage());
+                io.setStackTrace(e.getStackTrace());
+                throw io;
+            }
+        }
+    }
+
+    private void getElevationsFor(String uri, double[] longitudes, double[] latitudes, int[] indices, int count,
+                                  int nullValue, double[] elevations) throws IOException {
+        for (int startIndex = 0; startIndex < count; startIndex += MAXIMUM_ELEVATIONS_PER_REQUEST) {
+            int endIndex = Math.min(startIndex + MAXIMUM_ELEVATIONS_PER_REQUEST, count);
+            StringBuilder lats = new StringBuilder();
+            StringBuilder lngs = new StringBuilder();
+            for (int i = startIndex; i < endIndex; i++) {
+                if (i > startIndex) {
+                    lats.append(',');
+                    lngs.append(',');
+                }
+                lats.append(latitudes[indices[i]]);
+                lngs.append(longitudes[indices[i]]);
+            }
+
+            Get get = new Get(getGeoNamesUrlPreference() + uri + "?lats=" + lats + "&lngs=" + lngs);
+            String result = get.execute();
+            if (get.isSuccessful())
+                parseElevations(result, indices, startIndex, endIndex, nullValue, elevations);
+        }
+    }
+
+    /**
+     * Returns the elevations for the given positions with one request for up to
+     * twenty positions; positions without elevation result in {@link Double#NaN}.
+     */
+    public double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        double[] elevations = new double[longitudes.length];
+        Arrays.fill(elevations, Double.NaN);
+
+        int[] srtm3Indices = new int[longitudes.length];
+        int srtm3Count = 0;
+        int[] gtopo30Indices = new int[longitudes.length];
+        int gtopo30Count = 0;
+        for (int i = 0; i < longitudes.length; i++) {
+            if (latitudes[i] < 60.0 && latitudes[i] > -56.0)
+                srtm3Indices[srtm3Count++] = i;
+            else
+                gtopo30Indices[gtopo30Count++] = i;
+        }
+
+        getElevationsFor("srtm3", longitudes, latitudes, srtm3Indices, srtm3Count, -32768, elevations);
+        getElevationsFor("gtopo30", longitudes, latitudes, gtopo30Indices, gtopo30Count, -9999, elevations);
+        return elevations;
+    }
+
     private Geonames getGeonamesFor(String uri) throws IOException {
         Get get = new Get(getGeoNamesUrlPreference() + uri);
         String result = get.execute();
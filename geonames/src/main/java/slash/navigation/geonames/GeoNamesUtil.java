@@ -22,18 +22,17 @@ package slash.navigation.geonames;
 
 import slash.navigation.geonames.binding.Geonames;
 import slash.navigation.geonames.binding.ObjectFactory;
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.StringReader;
 
 class GeoNamesUtil {
-    private static final JAXBContext CONTEXT = JaxbUtils.newContext(ObjectFactory.class);
+    private static final PooledContext CONTEXT = new PooledContext(ObjectFactory.class);
 
     private static Unmarshaller newUnmarshaller() {
-        return JaxbUtils.newUnmarshaller(CONTEXT);
+        return CONTEXT.getUnmarshaller();
     }
 
     private static Geonames unmarshal(StringReader reader) throws JAXBException {
@@ -42,6 +42,15 @@ public class GeoNamesServiceIT extends TestCase {
         assertEquals(null, service.getSrtm3ElevationFor(-68.0, -57.0));
     }
 
+    public void testElevationsFor() throws IOException {
+        double[] elevations = service.getElevationsFor(new double[]{10.2, 11.2, 0.0, 11.2}, new double[]{50.001, 61.0, 0.0, 59.0});
+        assertEquals(4, elevations.length);
+        assertEquals(209.0, elevations[0]);
+        assertEquals(648.0, elevations[1]);
+        assertTrue(Double.isNaN(elevations[2]));
+        assertEquals(40.0, elevations[3]);
+    }
+
     public void testGtopo30ElevationFor() throws IOException {
         assertEquals(205, service.getGtopo30ElevationFor(10.2, 50.001).intValue());
         assertEquals(1789, service.getGtopo30ElevationFor(11.06561, 47.42428).intValue());
@@ -20,7 +20,7 @@
 
 package slash.navigation.kml;
 
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 import slash.navigation.kml.binding20.Kml;
 
 import javax.xml.bind.*;
@@ -28,52 +28,52 @@ import javax.xml.namespace.QName;
 import java.io.*;
 
 public class KmlUtil {
-    private static final JAXBContext CONTEXT_20 = JaxbUtils.newContext(slash.navigation.kml.binding20.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_21 = JaxbUtils.newContext(slash.navigation.kml.binding21.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_22_BETA = JaxbUtils.newContext(slash.navigation.kml.binding22beta.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_22 = JaxbUtils.newContext(slash.navigation.kml.binding22.ObjectFactory.class);
-
-    private static final String KML_20_NAMESPACE_URI = "http://earth.google.com/kml/2.0";
-    private static final String KML_21_NAMESPACE_URI = "http://earth.google.com/kml/2.1";
-    private static final String KML_22_BETA_NAMESPACE_URI = "http://earth.google.com/kml/2.2";
-    private static final String KML_22_NAMESPACE_URI = "http://www.opengis.net/kml/2.2";
-    private static final String ATOM_2005_NAMESPACE_URI = "http://www.w3.org/2005/Atom";
+    private static final PooledContext CONTEXT_20 = new PooledContext(slash.navigation.kml.binding20.ObjectFactory.class);
+    private static final PooledContext CONTEXT_21 = new PooledContext(slash.navigation.kml.binding21.ObjectFactory.class);
+    private static final PooledContext CONTEXT_22_BETA = new PooledContext(slash.navigation.kml.binding22beta.ObjectFactory.class);
+    private static final PooledContext CONTEXT_22 = new PooledContext(slash.navigation.kml.binding22.ObjectFactory.class);
+
+    static final String KML_20_NAMESPACE_URI = "http://earth.google.com/kml/2.0";
+    static final String KML_21_NAMESPACE_URI = "http://earth.google.com/kml/2.1";
+    static final String KML_22_BETA_NAMESPACE_URI = "http://earth.google.com/kml/2.2";
+    static final String KML_22_NAMESPACE_URI = "http://www.opengis.net/kml/2.2";
+    static final String ATOM_2005_NAMESPACE_URI = "http://www.w3.org/2005/Atom";
     private static final String XAL_20_NAMESPACE_URI = "urn:oasis:names:tc:ciq:xsdschema:xAL:2.0";
-    private static final String KML_22_EXT_NAMESPACE_URI = "http://www.google.com/kml/ext/2.2";
+    static final String KML_22_EXT_NAMESPACE_URI = "http://www.google.com/kml/ext/2.2";
 
     public static Unmarshaller newUnmarshaller20() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_20);
+        return CONTEXT_20.getUnmarshaller();
     }
 
     private static Unmarshaller newUnmarshaller21() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_21);
+        return CONTEXT_21.getUnmarshaller();
     }
 
     private static Unmarshaller newUnmarshaller22Beta() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_22_BETA);
+        return CONTEXT_22_BETA.getUnmarshaller();
     }
 
     private static Unmarshaller newUnmarshaller22() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_22);
+        return CONTEXT_22.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller20() {
-        return JaxbUtils.newMarshaller(CONTEXT_20);
+        return CONTEXT_20.getMarshaller();
     }
 
     private static Marshaller newMarshaller21() {
-        return JaxbUtils.newMarshaller(CONTEXT_21);
+        return CONTEXT_21.getMarshaller();
     }
 
     private static Marshaller newMarshaller22Beta() {
-        return JaxbUtils.newMarshaller(CONTEXT_22_BETA,
+        return CONTEXT_22_BETA.getMarshaller(
                 ATOM_2005_NAMESPACE_URI, "atom",
                 XAL_20_NAMESPACE_URI, "xal"
         );
     }
 
     private static Marshaller newMarshaller22() {
-        return JaxbUtils.newMarshaller(CONTEXT_22,
+        return CONTEXT_22.getMarshaller(
                 ATOM_2005_NAMESPACE_URI, "atom",
                 XAL_20_NAMESPACE_URI, "xal",
                 KML_22_EXT_NAMESPACE_URI, "gx"
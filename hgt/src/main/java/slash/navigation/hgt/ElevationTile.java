@@ -22,18 +22,38 @@ package slash.navigation.hgt;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
 
 /**
- * A tile with elevation data.
+ * A tile with elevation data which is read from a memory mapped buffer.
  *
  * @author Robert "robekas", Christian Pesch
  */
 
 public class ElevationTile {
-    private RandomAccessFile elevationFile;
+    private final ShortBuffer elevations;
+    private final int intervals;
 
-    public ElevationTile(RandomAccessFile elevationFile) {
-        this.elevationFile = elevationFile;
+    public ElevationTile(ShortBuffer elevations) {
+        this.elevations = elevations;
+        this.intervals = elevations != null ? (int) Math.sqrt(elevations.capacity()) - 1 : 0;
+    }
+
+    /**
+     * Maps the given file into memory; the file may be closed afterwards
+     * since the mapping stays valid until the tile is garbage collected.
+     */
+    public ElevationTile(RandomAccessFile elevationFile) throws IOException {
+        this(elevationFile != null ? elevationFile.getChannel().map(READ_ONLY, 0, elevationFile.length()).asShortBuffer() : null);
+    }
+
+    /**
+     * Returns the number of bytes held by this tile.
+     */
+    public long getSize() {
+        return elevations != null ? elevations.capacity() * 2L : 0;
     }
 
     /**
@@ -50,15 +70,24 @@ public class ElevationTile {
     }
 
     public Integer getElevationFor(Double longitude, Double latitude) throws IOException {
-        if (elevationFile == null)
-            return null;
+        double elevation = getElevation(longitude, latitude);
+        return Double.isNaN(elevation) ? null : (int) elevation;
+    }
+
+    /**
+     * Returns the rounded elevation for the given position or {@link Double#NaN}
+     * if there is no valid elevation data; does not box its arguments.
+     */
+    public double getElevation(double longitude, double latitude) {
+        if (elevations == null || intervals <= 0)
+            return Double.NaN;
 
         double dElevation;
         double dLon = longitude;
         double dLat = latitude;
         int nLon = (int) dLon;                    // Cut off the decimal places
         int nLat = (int) dLat;                    // Cut off the decimal places
-        int nAS = 1200;                            // 1200 Intervals (means 1201 positions per line and column)
+        int nAS = intervals;                       // 1200 Intervals for SRTM3 (means 1201 positions per line and column)
 
         if (dLon < 0) {                                        // If it's west longitude (negative value)
             nLon = (nLon - 1) * -1;                            // Make a positive number (left edge)
@@ -70,15 +99,15 @@ public class ElevationTile {
             dLat = ((double) nLat + dLat) + (double) nLat;    // Make positive double latitude (needed for later calculation)
         }
 
-        int nLonIndex = (int) ((dLon - (double) nLon) * 1200.0); // Calculate the interval index for longitude
-        int nLatIndex = (int) ((dLat - (double) nLat) * 1200.0); // Calculate the interval index for latitude
+        int nLonIndex = (int) ((dLon - (double) nLon) * (double) nAS); // Calculate the interval index for longitude
+        int nLatIndex = (int) ((dLat - (double) nLat) * (double) nAS); // Calculate the interval index for latitude
 
-        if (nLonIndex >= 1200) {
-            nLonIndex = 1200 - 1;
+        if (nLonIndex >= nAS) {
+            nLonIndex = nAS - 1;
         }
 
-        if (nLatIndex >= 1200) {
-            nLatIndex = 1200 - 1;
+        if (nLatIndex >= nAS) {
+            nLatIndex = nAS - 1;
         }
 
         double dOffLon = dLon - (double) nLon;                      // The lon value offset within a tile
@@ -91,26 +120,22 @@ public class ElevationTile {
         int pos;                                                    // The index of the elevation into the hgt file
 
         pos = (((nAS - nLatIndex) - 1) * (nAS + 1)) + nLonIndex;    // The index for the left top elevation
-        elevationFile.seek(pos * 2);                            // We have 16-bit values for elevation, so multiply by 2
-        dLeftTop = elevationFile.readShort();                // Now read the left top elevation from hgt file
+        dLeftTop = elevations.get(pos);                             // Absolute get of the big endian 16-bit value
 
-        pos = ((nAS - nLatIndex) * (nAS + 1)) + nLonIndex;            // The index for the left bottom elevation
-        elevationFile.seek(pos * 2);                            // We have 16-bit values for elevation, so multiply by 2
-        dLeftBottom = elevationFile.readShort();                // Now read the left bottom elevation from hgt file
+        pos = ((nAS - nLatIndex) * (nAS + 1)) + nLonIndex;          // The index for the left bottom elevation
+        dLeftBottom = elevations.get(pos);                          // Absolute get of the big endian 16-bit value
 
         pos = (((nAS - nLatIndex) - 1) * (nAS + 1)) + nLonIndex + 1;// The index for the right top elevation
-        elevationFile.seek(pos * 2);                            // We have 16-bit values for elevation, so multiply by 2
-        dRightTop = elevationFile.readShort();                // Now read the right top elevation from hgt file
+        dRightTop = elevations.get(pos);                            // Absolute get of the big endian 16-bit value
 
-        pos = ((nAS - nLatIndex) * (nAS + 1)) + nLonIndex + 1;         // The index for the right bottom elevation
-        elevationFile.seek(pos * 2);                            // We have 16-bit values for elevation, so multiply by 2
-        dRightBottom = elevationFile.readShort();                // Now read the right bottom top elevation from hgt file
+        pos = ((nAS - nLatIndex) * (nAS + 1)) + nLonIndex + 1;      // The index for the right bottom elevation
+        dRightBottom = elevations.get(pos);                         // Absolute get of the big endian 16-bit value
 
         if ((dLeftTop < 0) ||                                        // If one of the elevation values
                 (dLeftBottom < 0) ||                                    // we read from
                 (dRightTop < 0) ||                                        // the hgt file is
                 (dRightBottom < 0)) {                                    // not valid
-            return null;                                            // we can't interpolate
+            return Double.NaN;                                      // we can't interpolate
         }
 
         double dDeltaLat;         // The delta between top lat value and wanted lat (delta within a sub tile)
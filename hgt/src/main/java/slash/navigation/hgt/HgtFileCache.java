@@ -37,11 +37,24 @@ public class HgtFileCache {
     private static final Preferences preferences = Preferences.userNodeForPackage(HgtFileCache.class);
     private static final String HGT_CACHE_DIRECTORY_PREFERENCE = "hgtCacheDirectory";
 
-    private static File getHgtCacheDirectory() {
-        String directoryName = preferences.get(HGT_CACHE_DIRECTORY_PREFERENCE, new File(System.getProperty("user.home"), ".hgt").getAbsolutePath());
-        File directory = new File(directoryName);
+    private final File directory;
+
+    public HgtFileCache() {
+        this(null);
+    }
+
+    HgtFileCache(File directory) {
+        this.directory = directory;
+    }
+
+    private File getHgtCacheDirectory() {
+        File directory = this.directory;
+        if (directory == null) {
+            String directoryName = preferences.get(HGT_CACHE_DIRECTORY_PREFERENCE, new File(System.getProperty("user.home"), ".hgt").getAbsolutePath());
+            directory = new File(directoryName);
+        }
         if (!directory.exists()) {
-            if (!directory.mkdirs())
+            if (!directory.mkdirs() && !directory.exists())
                 throw new IllegalArgumentException("Cannot create hgt cache directory " + directory);
         }
         return directory;
@@ -79,8 +92,21 @@ public class HgtFileCache {
     }
 
     public void put(String key, File source) throws IOException {
+        put(key, new FileInputStream(source));
+    }
+
+    public void put(String key, InputStream source) throws IOException {
         File target = put(key);
-        InputOutput.copy(new FileInputStream(source), new FileOutputStream(target));
+        // copy to a temporary file first so that concurrent readers never see a partial file
+        File temp = File.createTempFile(key, ".tmp", target.getParentFile());
+        InputOutput.copy(source, new FileOutputStream(temp));
+        if (!temp.renameTo(target)) {
+            boolean exists = target.exists();
+            if (!temp.delete())
+                log.warning("Cannot delete temporary file " + temp);
+            if (!exists)
+                throw new IOException("Cannot rename " + temp + " to " + target);
+        }
     }
 
     public void putAsObject(String key, Object value) throws IOException {
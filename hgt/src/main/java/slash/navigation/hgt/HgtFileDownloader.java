@@ -20,18 +20,31 @@
 
 package slash.navigation.hgt;
 
-import slash.common.io.InputOutput;
 import slash.common.io.NotClosingUnderlyingInputStream;
 import slash.navigation.rest.Get;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 import java.util.zip.ZipEntry;
@@ -40,6 +53,10 @@ import java.util.zip.ZipInputStream;
 /**
  * Downloads HGT files.
  *
+ * Every file is downloaded at most once at a time, either on demand or prefetched
+ * by a bounded pool of threads. The continent directory that contained a file is
+ * remembered and otherwise guessed from the position of the tile.
+ *
  * @author Christian Pesch
  */
 
@@ -48,19 +65,37 @@ public class HgtFileDownloader {
     private static final Preferences preferences = Preferences.userNodeForPackage(HgtFiles.class);
     private static final String HGT_FILES_URL_PREFERENCE = "hgtFilesUrl";
     private static final String HGT_FILES_URL_FAILURES = "hgtFilesUrl.failures";
+    private static final String HGT_FILES_URL_CONTINENTS = "hgtFilesUrl.continents";
+    private static final String MAXIMUM_DOWNLOAD_COUNT_PREFERENCE = "maximumDownloadCount";
+    private static final String EURASIA = "Eurasia", NORTH_AMERICA = "North_America", AUSTRALIA = "Australia",
+            SOUTH_AMERICA = "South_America", AFRICA = "Africa", ISLANDS = "Islands";
     private static final List<String> CONTINENTS = Arrays.
-            asList("Eurasia", "North_America", "Australia", "South_America", "Africa", "Islands");
+            asList(EURASIA, NORTH_AMERICA, AUSTRALIA, SOUTH_AMERICA, AFRICA, ISLANDS);
 
-    private HgtFileCache fileCache;
+    private final HgtFileCache fileCache;
+    private final String url;
     private Set<String> downloadFailures = new HashSet<String>();
+    private Map<String, String> continents = new HashMap<String, String>();
+    private final Set<String> missingFiles = Collections.synchronizedSet(new HashSet<String>());
+    private final ConcurrentMap<String, FutureTask<File>> downloads = new ConcurrentHashMap<String, FutureTask<File>>();
+    private ExecutorService executor;
 
     public HgtFileDownloader(HgtFileCache fileCache) {
+        this(fileCache, null);
+    }
+
+    HgtFileDownloader(HgtFileCache fileCache, String url) {
         this.fileCache = fileCache;
+        this.url = url;
         initialize();
     }
 
-    private static String getHgtFilesUrl() {
-        return preferences.get(HGT_FILES_URL_PREFERENCE, "http://dds.cr.usgs.gov/srtm/version2_1/SRTM3/");
+    private String getHgtFilesUrl() {
+        return url != null ? url : preferences.get(HGT_FILES_URL_PREFERENCE, "http://dds.cr.usgs.gov/srtm/version2_1/SRTM3/");
+    }
+
+    private static int getMaximumDownloadCount() {
+        return preferences.getInt(MAXIMUM_DOWNLOAD_COUNT_PREFERENCE, 4);
     }
 
     @SuppressWarnings({"unchecked"})
@@ -72,6 +107,14 @@ public class HgtFileDownloader {
         }
         if (downloadFailures == null)
             downloadFailures = new HashSet<String>();
+
+        try {
+            continents = (Map<String, String>) fileCache.getFileAsObject(HGT_FILES_URL_CONTINENTS);
+        } catch (IOException e) {
+            log.warning("Could not deserialize continents: " + e.getMessage());
+        }
+        if (continents == null)
+            continents = new HashMap<String, String>();
     }
 
     private synchronized boolean hasDownloadAlreadyFailed(String key) {
@@ -87,6 +130,51 @@ public class HgtFileDownloader {
         }
     }
 
+    private synchronized String getContinent(String key) {
+        return continents.get(key);
+    }
+
+    private synchronized void addContinent(String key, String continent) {
+        continents.put(key, continent);
+        try {
+            fileCache.putAsObject(HGT_FILES_URL_CONTINENTS, continents);
+        } catch (IOException e) {
+            log.warning("Could not serialize continents: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guesses the continent directory of the SRTM3 server from the name of the
+     * HGT file, i.e. from the south west corner of the tile.
+     */
+    static String guessContinent(String key) {
+        int latitude = Integer.parseInt(key.substring(1, 3)) * (key.charAt(0) == 'S' ? -1 : 1);
+        int longitude = Integer.parseInt(key.substring(4, 7)) * (key.charAt(3) == 'W' ? -1 : 1);
+
+        if (longitude < -30)
+            return latitude >= 15 ? NORTH_AMERICA : SOUTH_AMERICA;
+        if (longitude >= 110 && latitude < -10)
+            return AUSTRALIA;
+        if (latitude < 38 && longitude < 60 && (longitude < 35 || latitude < 12))
+            return AFRICA;
+        return EURASIA;
+    }
+
+    List<String> getContinentsFor(String key) {
+        List<String> result = new ArrayList<String>(CONTINENTS.size());
+        String continent = getContinent(key);
+        if (continent != null)
+            result.add(continent);
+        continent = guessContinent(key);
+        if (!result.contains(continent))
+            result.add(continent);
+        for (String other : CONTINENTS) {
+            if (!result.contains(other))
+                result.add(other);
+        }
+        return result;
+    }
+
     private InputStream downloadFromUrl(String url) throws IOException {
         Get get = new Get(url);
         InputStream inputStream = get.executeAsStream(true);
@@ -97,43 +185,36 @@ public class HgtFileDownloader {
     }
 
     private File extractFileFrom(InputStream inputStream, String key) throws IOException {
-        File file = null;
-
-        ZipInputStream zipInputStream = null;
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
         try {
-            zipInputStream = new ZipInputStream(inputStream);
             ZipEntry entry = zipInputStream.getNextEntry();
             while (entry != null) {
-                if (!entry.isDirectory()) {
-                    File extracted = File.createTempFile("routeconverter", ".hgt");
-                    InputOutput.copy(new NotClosingUnderlyingInputStream(zipInputStream), new FileOutputStream(extracted));
-                    zipInputStream.closeEntry();
-
-                    if (entry.getName().equals(key))
-                        file = extracted;
+                if (!entry.isDirectory() && entry.getName().equals(key)) {
+                    fileCache.put(key, new NotClosingUnderlyingInputStream(zipInputStream));
+                    return fileCache.get(key);
                 }
                 entry = zipInputStream.getNextEntry();
             }
         }
         finally {
-            if (zipInputStream != null)
-                zipInputStream.close();
+            zipInputStream.close();
         }
-        return file;
+        return null;
     }
 
-    public File download(String key) {
-        File file = null;
-
-        for (String continent : CONTINENTS) {
+    File downloadFile(String key) {
+        for (String continent : getContinentsFor(key)) {
             String url = String.format("%s%s/%s.zip", getHgtFilesUrl(), continent, key);
             if (!hasDownloadAlreadyFailed(url)) {
                 try {
                     InputStream inputStream = downloadFromUrl(url);
                     if (inputStream != null) {
-                        file = extractFileFrom(inputStream, key);
-                        if (file != null)
+                        File file = extractFileFrom(inputStream, key);
+                        if (file != null) {
+                            if (!continent.equals(getContinent(key)))
+                                addContinent(key, continent);
                             return file;
+                        }
                     }
                 } catch (IOException e) {
                     log.warning("Cannot download from '" + url + "': " + e.getMessage());
@@ -141,7 +222,89 @@ public class HgtFileDownloader {
                 }
             }
         }
+        return null;
+    }
+
+    /**
+     * Downloads the HGT file with the given name into the cache or waits for
+     * another thread which is already downloading it.
+     *
+     * @return the file in the cache or null if it is not available
+     */
+    public File download(final String key) {
+        FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+            public File call() throws Exception {
+                File file = fileCache.get(key);
+                if (file != null || missingFiles.contains(key))
+                    return file;
+                file = downloadFile(key);
+                if (file == null)
+                    missingFiles.add(key);
+                return file;
+            }
+        });
+
+        FutureTask<File> running = downloads.putIfAbsent(key, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                downloads.remove(key, task);
+            }
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warning("Cannot download " + key + ": " + e.getCause().getMessage());
+            return null;
+        }
+    }
 
-        return file;
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(getMaximumDownloadCount(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "HgtFileDownloader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Starts to download the given HGT files which are not yet in the cache with
+     * a bounded number of concurrent downloads.
+     *
+     * @return the futures of the downloads that have been started
+     */
+    public List<Future<File>> prefetch(Collection<String> keys) {
+        List<Future<File>> result = new ArrayList<Future<File>>();
+        for (final String key : keys) {
+            if (fileCache.get(key) != null || missingFiles.contains(key))
+                continue;
+
+            result.add(getExecutor().submit(new Callable<File>() {
+                public File call() throws Exception {
+                    return download(key);
+                }
+            }));
+        }
+        return result;
+    }
+
+    public synchronized void dispose() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
     }
 }
\ No newline at end of file
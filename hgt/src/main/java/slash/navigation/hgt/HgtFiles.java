@@ -23,32 +23,67 @@ package slash.navigation.hgt;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.prefs.Preferences;
 
 /**
  * Encapsulates access to HGT files.
  *
+ * The tiles are memory mapped and kept in a least recently used cache which is
+ * bounded by the number of tiles and the number of mapped bytes.
+ *
+ * Instances may be queried by many threads concurrently: a missing tile is
+ * downloaded and mapped at most once while the other threads wait for it.
+ *
  * @author Robert "robekas", Christian Pesch
  */
 
 public class HgtFiles {
-    private Map<Integer, ElevationTile> tileCache = new HashMap<Integer, ElevationTile>();
-    private static HgtFileCache fileCache = new HgtFileCache();
-    private Map<String, RandomAccessFile> randomAccessFileCache = new HashMap<String, RandomAccessFile>();
-    private static HgtFileDownloader downloader;
+    private static final Preferences preferences = Preferences.userNodeForPackage(HgtFiles.class);
+    private static final String MAXIMUM_TILE_COUNT_PREFERENCE = "maximumTileCount";
+    private static final String MAXIMUM_TILE_BYTES_PREFERENCE = "maximumTileBytes";
+
+    private final Map<String, ElevationTile> tileCache = new LinkedHashMap<String, ElevationTile>(16, 0.75f, true);
+    private long tileCacheBytes = 0;
+    private final ConcurrentMap<String, FutureTask<ElevationTile>> loadingTiles = new ConcurrentHashMap<String, FutureTask<ElevationTile>>();
+    private final HgtFileCache fileCache;
+    private final HgtFileDownloader downloader;
 
     public HgtFiles() {
-        downloader = new HgtFileDownloader(fileCache);
+        this(new HgtFileCache());
+    }
+
+    private HgtFiles(HgtFileCache fileCache) {
+        this(fileCache, new HgtFileDownloader(fileCache));
+    }
+
+    HgtFiles(HgtFileCache fileCache, HgtFileDownloader downloader) {
+        this.fileCache = fileCache;
+        this.downloader = downloader;
     }
 
-    private Integer createTileKey(double longitude, double latitude) {
-        int longitudeAsInteger = (int) longitude;   // values from -180 to +180: 0 - 360
-        int latitudeAsInteger = (int) latitude;     // values from  -90 to  +90: 0 - 180
-        return (latitudeAsInteger + 180) * 100000 + (longitudeAsInteger + 90);
+    static int getMaximumTileCount() {
+        return preferences.getInt(MAXIMUM_TILE_COUNT_PREFERENCE, 64);
     }
 
-    private String createFileKey(double longitude, double latitude) {
+    static long getMaximumTileBytes() {
+        return preferences.getLong(MAXIMUM_TILE_BYTES_PREFERENCE, 256 * 1024 * 1024L);
+    }
+
+    String createFileKey(double longitude, double latitude) {
         int longitudeAsInteger = (int) longitude;
         int latitudeAsInteger = (int) latitude;
 
@@ -58,41 +93,210 @@ public class HgtFiles {
                 (longitude < 0) ? ((longitudeAsInteger - 1) * -1) : longitudeAsInteger);
     }
 
+    /**
+     * Returns a number which is equal for all positions in the tile that
+     * {@link #createFileKey(double, double)} names, without creating a string.
+     */
+    static int createTileCode(double longitude, double latitude) {
+        int longitudeCode = longitude < 0 ? 1000 + 1 - (int) longitude : (int) longitude;
+        int latitudeCode = latitude < 0 ? 1000 + 1 - (int) latitude : (int) latitude;
+        return latitudeCode * 10000 + longitudeCode;
+    }
+
+    /**
+     * Returns the names of the HGT files which cover the given positions.
+     */
+    public Set<String> createFileKeys(double[] longitudes, double[] latitudes) {
+        Set<String> result = new LinkedHashSet<String>();
+        Set<Integer> tileCodes = new LinkedHashSet<Integer>();
+        for (int i = 0; i < longitudes.length; i++) {
+            if (tileCodes.add(createTileCode(longitudes[i], latitudes[i])))
+                result.add(createFileKey(longitudes[i], latitudes[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the HGT files which cover the given bounding box.
+     */
+    public Set<String> createFileKeys(double minimumLongitude, double minimumLatitude,
+                                      double maximumLongitude, double maximumLatitude) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (int latitude = (int) Math.floor(minimumLatitude); latitude <= (int) Math.floor(maximumLatitude); latitude++) {
+            for (int longitude = (int) Math.floor(minimumLongitude); longitude <= (int) Math.floor(maximumLongitude); longitude++) {
+                // use the center of the tile to avoid the special cases at its edges
+                result.add(createFileKey(longitude + 0.5, latitude + 0.5));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts to download the given HGT files in the background.
+     *
+     * @return the futures of the downloads that have been started
+     */
+    public List<Future<File>> prefetch(Collection<String> fileKeys) {
+        return downloader.prefetch(fileKeys);
+    }
+
+    private ElevationTile getTile(String fileKey) {
+        synchronized (tileCache) {
+            return tileCache.get(fileKey);
+        }
+    }
+
+    private void putTile(String fileKey, ElevationTile tile) {
+        int maximumCount = getMaximumTileCount();
+        long maximumBytes = getMaximumTileBytes();
+
+        synchronized (tileCache) {
+            ElevationTile previous = tileCache.put(fileKey, tile);
+            if (previous != null)
+                tileCacheBytes -= previous.getSize();
+            tileCacheBytes += tile.getSize();
+
+            Iterator<ElevationTile> iterator = tileCache.values().iterator();
+            while ((tileCache.size() > maximumCount || tileCacheBytes > maximumBytes) && tileCache.size() > 1) {
+                ElevationTile eldest = iterator.next();
+                tileCacheBytes -= eldest.getSize();
+                iterator.remove();
+            }
+        }
+    }
+
+    private ElevationTile createTile(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return new ElevationTile(randomAccessFile);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private ElevationTile loadTile(String fileKey) throws IOException {
+        // another thread may have finished loading since the first lookup
+        ElevationTile tile = getTile(fileKey);
+        if (tile != null)
+            return tile;
+
+        File file = fileCache.get(fileKey);
+        if (file == null) {
+            file = downloader.download(fileKey);
+            if (file == null)
+                return null;
+        }
+
+        tile = createTile(file);
+        putTile(fileKey, tile);
+        return tile;
+    }
+
+    private ElevationTile waitForTile(final String fileKey) throws IOException {
+        FutureTask<ElevationTile> task = new FutureTask<ElevationTile>(new Callable<ElevationTile>() {
+            public ElevationTile call() throws Exception {
+                return loadTile(fileKey);
+            }
+        });
+
+        FutureTask<ElevationTile> loading = loadingTiles.putIfAbsent(fileKey, task);
+        if (loading == null) {
+            loading = task;
+            try {
+                task.run();
+            } finally {
+                loadingTiles.remove(fileKey, task);
+            }
+        }
+
+        try {
+            return loading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + fileKey);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException("Cannot load " + fileKey + ": " + cause.getMessage());
+        }
+    }
+
     public Integer getElevationFor(double longitude, double latitude) throws IOException {
-        Integer tileKey = createTileKey(longitude, latitude);
-        ElevationTile tile = tileCache.get(tileKey);
+        String fileKey = createFileKey(longitude, latitude);
+        ElevationTile tile = getTile(fileKey);
         if (tile == null) {
+            tile = waitForTile(fileKey);
+            if (tile == null)
+                return null;
+        }
+        return tile.getElevationFor(longitude, latitude);
+    }
+
+    /**
+     * Returns the elevations for the given positions. The positions are grouped
+     * by tile so that every tile is looked up once; positions without elevation
+     * data result in {@link Double#NaN}.
+     */
+    public double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        if (longitudes.length != latitudes.length)
+            throw new IllegalArgumentException("Got " + longitudes.length + " longitudes but " + latitudes.length + " latitudes");
+
+        long[] tileCodeAndIndex = new long[longitudes.length];
+        for (int i = 0; i < longitudes.length; i++)
+            tileCodeAndIndex[i] = ((long) createTileCode(longitudes[i], latitudes[i]) << 32) | i;
+        Arrays.sort(tileCodeAndIndex);
+
+        // download the missing tiles concurrently, the loop below waits for them
+        Set<String> missingFileKeys = new LinkedHashSet<String>();
+        for (int i = 0; i < tileCodeAndIndex.length; i++) {
+            if (i > 0 && tileCodeAndIndex[i] >>> 32 == tileCodeAndIndex[i - 1] >>> 32)
+                continue;
+            int index = (int) tileCodeAndIndex[i];
+            String fileKey = createFileKey(longitudes[index], latitudes[index]);
+            if (getTile(fileKey) == null)
+                missingFileKeys.add(fileKey);
+        }
+        if (missingFileKeys.size() > 1)
+            prefetch(missingFileKeys);
 
-            String fileKey = createFileKey(longitude, latitude);
-            RandomAccessFile randomAccessFile = randomAccessFileCache.get(fileKey);
-            if (randomAccessFile == null) {
+        double[] result = new double[longitudes.length];
+        int start = 0;
+        while (start < tileCodeAndIndex.length) {
+            long tileCode = tileCodeAndIndex[start] >>> 32;
+            int end = start + 1;
+            while (end < tileCodeAndIndex.length && tileCodeAndIndex[end] >>> 32 == tileCode)
+                end++;
 
-                File file = fileCache.get(fileKey);
-                if (file == null) {
-                    file = downloader.download(fileKey);
-                    if (file == null)
-                        return null;
-                    fileCache.put(fileKey, file);
-                }
+            int first = (int) tileCodeAndIndex[start];
+            String fileKey = createFileKey(longitudes[first], latitudes[first]);
+            ElevationTile tile = getTile(fileKey);
+            if (tile == null)
+                tile = waitForTile(fileKey);
 
-                randomAccessFile = new RandomAccessFile(file, "r");
-                randomAccessFileCache.put(fileKey, randomAccessFile);
+            for (int i = start; i < end; i++) {
+                int index = (int) tileCodeAndIndex[i];
+                result[index] = tile != null ? tile.getElevation(longitudes[index], latitudes[index]) : Double.NaN;
             }
+            start = end;
+        }
+        return result;
+    }
 
-            tile = new ElevationTile(randomAccessFile);
-            tileCache.put(tileKey, tile);
+    int getTileCount() {
+        synchronized (tileCache) {
+            return tileCache.size();
         }
-        return tile.getElevationFor(longitude, latitude);
     }
 
     public void dispose() {
-        for (RandomAccessFile randomAccessFile : randomAccessFileCache.values())
-            try {
-                randomAccessFile.close();
-            } catch (IOException e) {
-                throw new IllegalArgumentException("Cannot close random access file" + randomAccessFile);
-            }
-        randomAccessFileCache.clear();
-        tileCache.clear();
+        if (downloader != null)
+            downloader.dispose();
+        synchronized (tileCache) {
+            tileCache.clear();
+            tileCacheBytes = 0;
+        }
     }
 }
@@ -0,0 +1,92 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.hgt;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ElevationTileTest {
+    private static final int INTERVALS = 1200;
+
+    private static short elevation(int row, int column) {
+        return (short) (column + INTERVALS - row);
+    }
+
+    private static ShortBuffer createElevations() {
+        ShortBuffer buffer = ShortBuffer.allocate((INTERVALS + 1) * (INTERVALS + 1));
+        for (int row = 0; row <= INTERVALS; row++)
+            for (int column = 0; column <= INTERVALS; column++)
+                buffer.put(elevation(row, column));
+        return buffer;
+    }
+
+    @Test
+    public void testInterpolation() throws IOException {
+        ElevationTile tile = new ElevationTile(createElevations());
+        assertEquals(900, tile.getElevationFor(11.5, 59.25).intValue());
+        assertEquals(0, tile.getElevationFor(11.0, 59.0).intValue());
+        assertEquals(1, tile.getElevationFor(11.0005, 59.0005).intValue());
+        assertEquals(1200, tile.getElevationFor(11.5, 59.5).intValue());
+        assertEquals(2 * 1200, tile.getElevationFor(11.9999, 59.9999).intValue());
+    }
+
+    @Test
+    public void testInvalidElevation() throws IOException {
+        ShortBuffer elevations = createElevations();
+        elevations.put((INTERVALS - 300) * (INTERVALS + 1) + 600, (short) -32768);
+        ElevationTile tile = new ElevationTile(elevations);
+        assertNull(tile.getElevationFor(11.5, 59.25));
+        assertNull(new ElevationTile((ShortBuffer) null).getElevationFor(11.5, 59.25));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File file = File.createTempFile("elevationtile", ".hgt");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+            try {
+                for (int row = 0; row <= INTERVALS; row++)
+                    for (int column = 0; column <= INTERVALS; column++)
+                        out.writeShort(elevation(row, column));
+            } finally {
+                out.close();
+            }
+
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            ElevationTile tile = new ElevationTile(randomAccessFile);
+            randomAccessFile.close();
+            assertEquals((INTERVALS + 1) * (INTERVALS + 1) * 2L, tile.getSize());
+            assertEquals(900, tile.getElevationFor(11.5, 59.25).intValue());
+            assertEquals(900, tile.getElevationFor(-11.5, -59.75).intValue());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.hgt;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static slash.common.io.InputOutput.readBytes;
+
+public class HgtFileDownloaderTest {
+    private HttpServer server;
+    private File directory;
+    private final Map<String, byte[]> responses = new HashMap<String, byte[]>();
+    private final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private static byte[] content(String key) {
+        return ("elevations of " + key).getBytes();
+    }
+
+    private static byte[] zip(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(bytes);
+        zip.putNextEntry(new ZipEntry("readme.txt"));
+        zip.write("not an elevation".getBytes());
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry(key));
+        zip.write(content(key));
+        zip.closeEntry();
+        zip.close();
+        return bytes.toByteArray();
+    }
+
+    private void serve(String continent, String key) throws IOException {
+        responses.put("/srtm/" + continent + "/" + key + ".zip", zip(key));
+    }
+
+    private int getRequestCount(String key) {
+        int count = 0;
+        for (Map.Entry<String, AtomicInteger> entry : requests.entrySet()) {
+            if (entry.getKey().endsWith("/" + key + ".zip"))
+                count += entry.getValue().get();
+        }
+        return count;
+    }
+
+    private HgtFileDownloader createDownloader() {
+        return new HgtFileDownloader(new HgtFileCache(directory), "http://localhost:" + server.getAddress().getPort() + "/srtm/");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("hgtfiledownloader", ".dir");
+        directory.delete();
+        directory.mkdirs();
+
+        serve("Eurasia", "N59E011.hgt");
+        serve("South_America", "S55W068.hgt");
+        serve("Islands", "N00E000.hgt");
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                requests.putIfAbsent(path, new AtomicInteger());
+                requests.get(path).incrementAndGet();
+
+                byte[] response = responses.get(path);
+                if (response != null) {
+                    exchange.sendResponseHeaders(200, response.length);
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(response);
+                    body.close();
+                } else {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                }
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = directory.listFiles();
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testGuessContinent() {
+        assertEquals("Eurasia", HgtFileDownloader.guessContinent("N59E011.hgt"));
+        assertEquals("Eurasia", HgtFileDownloader.guessContinent("N25E045.hgt"));
+        assertEquals("North_America", HgtFileDownloader.guessContinent("N40W100.hgt"));
+        assertEquals("South_America", HgtFileDownloader.guessContinent("S23W044.hgt"));
+        assertEquals("Australia", HgtFileDownloader.guessContinent("S34E151.hgt"));
+        assertEquals("Africa", HgtFileDownloader.guessContinent("N00E030.hgt"));
+        assertEquals("Africa", HgtFileDownloader.guessContinent("S19E047.hgt"));
+    }
+
+    @Test
+    public void testPrefetchDownloadsEveryFileOnce() throws Exception {
+        final HgtFileDownloader downloader = createDownloader();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> futures = new ArrayList<Future<File>>();
+            futures.addAll(downloader.prefetch(Arrays.asList("N59E011.hgt", "S55W068.hgt")));
+            for (int i = 0; i < 16; i++) {
+                final String key = i % 2 == 0 ? "N59E011.hgt" : "S55W068.hgt";
+                futures.add(executor.submit(new Callable<File>() {
+                    public File call() throws Exception {
+                        return downloader.download(key);
+                    }
+                }));
+            }
+            for (Future<File> future : futures)
+                assertNotNull(future.get());
+        } finally {
+            executor.shutdown();
+            downloader.dispose();
+        }
+
+        assertEquals(1, getRequestCount("N59E011.hgt"));
+        assertEquals(1, getRequestCount("S55W068.hgt"));
+        assertArrayEquals(content("N59E011.hgt"), readBytes(new FileInputStream(new File(directory, "N59E011.hgt"))));
+        assertArrayEquals(content("S55W068.hgt"), readBytes(new FileInputStream(new File(directory, "S55W068.hgt"))));
+        assertEquals(0, downloader.prefetch(Arrays.asList("N59E011.hgt", "S55W068.hgt")).size());
+    }
+
+    @Test
+    public void testContinentIsRemembered() throws Exception {
+        HgtFileDownloader downloader = createDownloader();
+        File file = downloader.download("N00E000.hgt");
+        assertNotNull(file);
+        assertEquals(6, getRequestCount("N00E000.hgt"));
+        assertEquals("Islands", downloader.getContinentsFor("N00E000.hgt").get(0));
+        assertEquals("Africa", downloader.getContinentsFor("N00E001.hgt").get(0));
+
+        assertEquals("Islands", createDownloader().getContinentsFor("N00E000.hgt").get(0));
+    }
+
+    @Test
+    public void testMissingFileIsNotRequestedAgain() throws Exception {
+        HgtFileDownloader downloader = createDownloader();
+        assertNull(downloader.download("N10E010.hgt"));
+        assertEquals(6, getRequestCount("N10E010.hgt"));
+        assertNull(downloader.download("N10E010.hgt"));
+        assertEquals(0, downloader.prefetch(Arrays.asList("N10E010.hgt")).size());
+        assertEquals(6, getRequestCount("N10E010.hgt"));
+    }
+}
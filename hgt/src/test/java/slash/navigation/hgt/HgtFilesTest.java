@@ -0,0 +1,186 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.hgt;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HgtFilesTest {
+    private static final int INTERVALS = 1200;
+    private final List<File> files = new ArrayList<File>();
+
+    private class MemoryFileCache extends HgtFileCache {
+        private final Map<String, File> cache = new ConcurrentHashMap<String, File>();
+
+        public File get(String key) {
+            return cache.get(key);
+        }
+
+        public void put(String key, File source) {
+            cache.put(key, source);
+        }
+
+        public Object getFileAsObject(String key) {
+            return null;
+        }
+
+        public void putAsObject(String key, Object value) {
+        }
+    }
+
+    private class CountingDownloader extends HgtFileDownloader {
+        private final AtomicInteger downloads = new AtomicInteger();
+        private final HgtFileCache fileCache;
+
+        public CountingDownloader(HgtFileCache fileCache) {
+            super(fileCache);
+            this.fileCache = fileCache;
+        }
+
+        File downloadFile(String key) {
+            downloads.incrementAndGet();
+            if (key.startsWith("S"))
+                return null;
+            try {
+                Thread.sleep(50);
+                File file = createTile(key.startsWith("N59") ? 100 : 200);
+                fileCache.put(key, file);
+                return file;
+            } catch (Exception e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    private File createTile(int elevation) throws IOException {
+        File file = File.createTempFile("hgtfiles", ".hgt");
+        files.add(file);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < (INTERVALS + 1) * (INTERVALS + 1); i++)
+                out.writeShort(elevation);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : files)
+            file.delete();
+    }
+
+    @Test
+    public void testCreateFileKey() {
+        HgtFiles hgtFiles = new HgtFiles(new MemoryFileCache(), null);
+        assertEquals("N59E011.hgt", hgtFiles.createFileKey(11.2, 59.0));
+        assertEquals("S55W068.hgt", hgtFiles.createFileKey(-67.5, -54.5));
+        assertEquals("N00E000.hgt", hgtFiles.createFileKey(0.5, 0.5));
+        assertEquals("S01W001.hgt", hgtFiles.createFileKey(-0.5, -0.5));
+    }
+
+    @Test
+    public void testCreateTileCode() {
+        assertEquals(HgtFiles.createTileCode(11.2, 59.0), HgtFiles.createTileCode(11.9, 59.9));
+        assertFalse(HgtFiles.createTileCode(0.5, 0.5) == HgtFiles.createTileCode(-0.5, 0.5));
+        assertFalse(HgtFiles.createTileCode(0.5, 0.5) == HgtFiles.createTileCode(0.5, -0.5));
+        assertEquals(HgtFiles.createTileCode(-67.5, -54.5), HgtFiles.createTileCode(-67.1, -54.9));
+    }
+
+    @Test
+    public void testElevationsForGroupsByTile() throws Exception {
+        MemoryFileCache fileCache = new MemoryFileCache();
+        CountingDownloader downloader = new CountingDownloader(fileCache);
+        HgtFiles hgtFiles = new HgtFiles(fileCache, downloader);
+
+        double[] longitudes = new double[]{11.5, 11.2, -67.5, 11.9, 11.5};
+        double[] latitudes = new double[]{59.5, 60.5, -54.5, 59.1, 60.9};
+        double[] elevations = hgtFiles.getElevationsFor(longitudes, latitudes);
+        assertEquals(100.0, elevations[0], 0.0);
+        assertEquals(200.0, elevations[1], 0.0);
+        assertTrue(Double.isNaN(elevations[2]));
+        assertEquals(100.0, elevations[3], 0.0);
+        assertEquals(200.0, elevations[4], 0.0);
+        assertEquals(3, downloader.downloads.get());
+        assertEquals(0, hgtFiles.getElevationsFor(new double[0], new double[0]).length);
+    }
+
+    @Test
+    public void testCreateFileKeys() {
+        HgtFiles hgtFiles = new HgtFiles(new MemoryFileCache(), null);
+        assertEquals(new HashSet<String>(Arrays.asList("N59E011.hgt", "N60E011.hgt", "S55W068.hgt")),
+                hgtFiles.createFileKeys(new double[]{11.2, 11.9, 11.5, -67.5}, new double[]{59.1, 59.9, 60.5, -54.5}));
+        assertEquals(new HashSet<String>(Arrays.asList("N59E010.hgt", "N59E011.hgt", "N60E010.hgt", "N60E011.hgt")),
+                hgtFiles.createFileKeys(10.5, 59.5, 11.5, 60.5));
+        assertEquals(new HashSet<String>(Arrays.asList("S01W001.hgt", "S01E000.hgt", "N00W001.hgt", "N00E000.hgt")),
+                hgtFiles.createFileKeys(-0.5, -0.5, 0.5, 0.5));
+    }
+
+    @Test
+    public void testConcurrentLookupsDownloadOnce() throws Exception {
+        MemoryFileCache fileCache = new MemoryFileCache();
+        CountingDownloader downloader = new CountingDownloader(fileCache);
+        final HgtFiles hgtFiles = new HgtFiles(fileCache, downloader);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 200; i++) {
+                final double latitude = i % 2 == 0 ? 59.5 : 60.5;
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        return hgtFiles.getElevationFor(11.5, latitude);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++)
+                assertEquals(i % 2 == 0 ? 100 : 200, results.get(i).get().intValue());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(2, downloader.downloads.get());
+        assertEquals(2, hgtFiles.getTileCount());
+        assertNull(hgtFiles.getElevationFor(-67.5, -54.5));
+    }
+}
@@ -49,10 +49,14 @@ public class JaxbUtils {
         }
     }
 
+    public static boolean isFormattedOutput() {
+        return preferences.getBoolean("prettyPrintXml", true);
+    }
+
     public static Marshaller newMarshaller(JAXBContext context, String ... uriToPrefix) {
         try {
             Marshaller result = context.createMarshaller();
-            result.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, preferences.getBoolean("prettyPrintXml", true));
+            result.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, isFormattedOutput());
             try {
                 result.setProperty(JAXB_IMPL_NAMESPACE_PREFIX_MAPPER, new NamespacePrefixMapperImpl(map(uriToPrefix)));
             }
@@ -66,6 +70,28 @@ public class JaxbUtils {
         }
     }
 
+    /**
+     * Creates a {@link Marshaller} for fragments that are written into a document
+     * whose ancestor elements already declare the given namespaces.
+     */
+    public static Marshaller newFragmentMarshaller(JAXBContext context, String ... uriToPrefix) {
+        try {
+            Marshaller result = context.createMarshaller();
+            result.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            result.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.FALSE);
+            try {
+                result.setProperty(JAXB_IMPL_NAMESPACE_PREFIX_MAPPER, new NamespacePrefixMapperImpl(map(uriToPrefix), true));
+            }
+            catch (Throwable t) {
+                t.printStackTrace();
+                log.severe("Could not set namespace prefix mapper: " + t.getMessage());
+            }
+            return result;
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static Unmarshaller newUnmarshaller(JAXBContext context) {
         try {
             return context.createUnmarshaller();
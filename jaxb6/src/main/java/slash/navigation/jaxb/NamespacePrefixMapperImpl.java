@@ -26,9 +26,15 @@ import java.util.Map;
 
 class NamespacePrefixMapperImpl extends NamespacePrefixMapper {
     private final Map<String, String> uriToPrefix;
+    private final boolean declaredByAncestors;
 
     public NamespacePrefixMapperImpl(Map<String, String> uriToPrefix) {
+        this(uriToPrefix, false);
+    }
+
+    public NamespacePrefixMapperImpl(Map<String, String> uriToPrefix, boolean declaredByAncestors) {
         this.uriToPrefix = uriToPrefix;
+        this.declaredByAncestors = declaredByAncestors;
     }
 
     public String getPreferredPrefix(String namespaceUri, String suggestion, boolean requirePrefix) {
@@ -36,6 +42,20 @@ class NamespacePrefixMapperImpl extends NamespacePrefixMapper {
     }
 
     public String[] getPreDeclaredNamespaceUris() {
+        if (declaredByAncestors)
+            return new String[0];
         return uriToPrefix.keySet().toArray(new String[uriToPrefix.size()]);
     }
+
+    public String[] getContextualNamespaceDecls() {
+        if (!declaredByAncestors)
+            return new String[0];
+        String[] result = new String[uriToPrefix.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> entry : uriToPrefix.entrySet()) {
+            result[i++] = entry.getValue();
+            result[i++] = entry.getKey();
+        }
+        return result;
+    }
 }
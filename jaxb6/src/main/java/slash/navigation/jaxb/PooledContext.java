@@ -0,0 +1,212 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.jaxb;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.ValidationEventHandler;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A {@link JAXBContext} that is created on first use and hands out
+ * {@link Unmarshaller}s and {@link Marshaller}s which are reused per thread.
+ * <p/>
+ * A reused (un)marshaller is reset to the defaults of {@link JaxbUtils} before it is
+ * handed out again. Callers must not keep it beyond the current (un)marshalling and
+ * must use {@link JaxbUtils#newUnmarshaller} or {@link JaxbUtils#newMarshaller}
+ * with {@link #getContext()} to get an instance of their own.
+ *
+ * @author Christian Pesch
+ */
+
+public class PooledContext {
+    private static final Logger log = Logger.getLogger(PooledContext.class.getName());
+
+    private static final AtomicInteger contextCount = new AtomicInteger();
+    private static final AtomicLong contextCreationMillis = new AtomicLong();
+    private static final AtomicLong unmarshallerHits = new AtomicLong(), unmarshallerMisses = new AtomicLong();
+    private static final AtomicLong marshallerHits = new AtomicLong(), marshallerMisses = new AtomicLong();
+
+    private static final ExecutorService backgroundCreator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "PooledContext");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final Class<?>[] classes;
+    private final FutureTask<JAXBContext> context;
+    private final ThreadLocal<Pooled<Unmarshaller>> unmarshaller = new ThreadLocal<Pooled<Unmarshaller>>();
+    private final ThreadLocal<Map<List<String>, Pooled<Marshaller>>> marshallers = new ThreadLocal<Map<List<String>, Pooled<Marshaller>>>() {
+        protected Map<List<String>, Pooled<Marshaller>> initialValue() {
+            return new HashMap<List<String>, Pooled<Marshaller>>();
+        }
+    };
+
+    /**
+     * Remembers the event handler an (un)marshaller was created with to restore it on reuse.
+     */
+    private static class Pooled<T> {
+        private final T instance;
+        private final ValidationEventHandler eventHandler;
+
+        private Pooled(T instance, ValidationEventHandler eventHandler) {
+            this.instance = instance;
+            this.eventHandler = eventHandler;
+        }
+    }
+
+    public PooledContext(Class<?>... classes) {
+        this.classes = classes;
+        this.context = new FutureTask<JAXBContext>(new Callable<JAXBContext>() {
+            public JAXBContext call() throws Exception {
+                return createContext();
+            }
+        });
+    }
+
+    private JAXBContext createContext() {
+        long start = System.currentTimeMillis();
+        JAXBContext result = JaxbUtils.newContext(classes);
+        long millis = System.currentTimeMillis() - start;
+        contextCount.incrementAndGet();
+        contextCreationMillis.addAndGet(millis);
+        log.fine("Created JAXB context for " + Arrays.asList(classes) + " in " + millis + " ms");
+        return result;
+    }
+
+    /**
+     * Starts to create the context in a background thread, if that has not happened yet.
+     */
+    public void createInBackground() {
+        if (!context.isDone())
+            backgroundCreator.execute(context);
+    }
+
+    public JAXBContext getContext() {
+        // runs the creation in this thread unless it is already running or done
+        context.run();
+        try {
+            return context.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    public Unmarshaller getUnmarshaller() {
+        Pooled<Unmarshaller> pooled = unmarshaller.get();
+        try {
+            if (pooled == null) {
+                unmarshallerMisses.incrementAndGet();
+                Unmarshaller result = JaxbUtils.newUnmarshaller(getContext());
+                unmarshaller.set(new Pooled<Unmarshaller>(result, result.getEventHandler()));
+                return result;
+            }
+
+            unmarshallerHits.incrementAndGet();
+            Unmarshaller result = pooled.instance;
+            result.setEventHandler(pooled.eventHandler);
+            result.setListener(null);
+            result.setSchema(null);
+            return result;
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Marshaller getMarshaller(String... uriToPrefix) {
+        Map<List<String>, Pooled<Marshaller>> map = marshallers.get();
+        List<String> key = Arrays.asList(uriToPrefix);
+        Pooled<Marshaller> pooled = map.get(key);
+        try {
+            if (pooled == null) {
+                marshallerMisses.incrementAndGet();
+                Marshaller result = JaxbUtils.newMarshaller(getContext(), uriToPrefix);
+                map.put(key, new Pooled<Marshaller>(result, result.getEventHandler()));
+                return result;
+            }
+
+            marshallerHits.incrementAndGet();
+            Marshaller result = pooled.instance;
+            result.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, JaxbUtils.isFormattedOutput());
+            result.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.FALSE);
+            result.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+            result.setEventHandler(pooled.eventHandler);
+            result.setListener(null);
+            result.setSchema(null);
+            return result;
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static int getContextCount() {
+        return contextCount.get();
+    }
+
+    public static long getContextCreationMillis() {
+        return contextCreationMillis.get();
+    }
+
+    public static long getUnmarshallerHits() {
+        return unmarshallerHits.get();
+    }
+
+    public static long getUnmarshallerMisses() {
+        return unmarshallerMisses.get();
+    }
+
+    public static long getMarshallerHits() {
+        return marshallerHits.get();
+    }
+
+    public static long getMarshallerMisses() {
+        return marshallerMisses.get();
+    }
+
+    public static String getStatistics() {
+        return getContextCount() + " contexts created in " + getContextCreationMillis() + " ms, unmarshallers " +
+                getUnmarshallerHits() + " reused/" + getUnmarshallerMisses() + " created, marshallers " +
+                getMarshallerHits() + " reused/" + getMarshallerMisses() + " created";
+    }
+}
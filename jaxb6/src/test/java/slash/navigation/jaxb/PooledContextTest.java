@@ -0,0 +1,134 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.jaxb;
+
+import org.junit.Test;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class PooledContextTest {
+    @XmlRootElement(name = "point")
+    public static class Point {
+        public String name;
+        public Integer count;
+    }
+
+    private static Point createPoint(String name) {
+        Point point = new Point();
+        point.name = name;
+        return point;
+    }
+
+    private static String marshal(Marshaller marshaller, Point point) throws JAXBException {
+        StringWriter writer = new StringWriter();
+        marshaller.marshal(point, writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void testContextIsCreatedOnFirstUse() {
+        int count = PooledContext.getContextCount();
+        PooledContext context = new PooledContext(Point.class);
+        assertEquals(count, PooledContext.getContextCount());
+        assertSame(context.getContext(), context.getContext());
+        assertEquals(count + 1, PooledContext.getContextCount());
+    }
+
+    @Test
+    public void testContextIsCreatedInBackground() {
+        int count = PooledContext.getContextCount();
+        PooledContext context = new PooledContext(Point.class);
+        context.createInBackground();
+        assertNotNull(context.getContext());
+        context.createInBackground();
+        assertSame(context.getContext(), context.getContext());
+        assertEquals(count + 1, PooledContext.getContextCount());
+    }
+
+    @Test
+    public void testUnmarshallerIsReusedPerThread() throws Exception {
+        final PooledContext context = new PooledContext(Point.class);
+        Unmarshaller unmarshaller = context.getUnmarshaller();
+        Point point = (Point) unmarshaller.unmarshal(new StringReader("<point><name>a</name></point>"));
+        assertEquals("a", point.name);
+        long hits = PooledContext.getUnmarshallerHits();
+        assertSame(unmarshaller, context.getUnmarshaller());
+        assertEquals(hits + 1, PooledContext.getUnmarshallerHits());
+
+        final Unmarshaller[] other = new Unmarshaller[1];
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                other[0] = context.getUnmarshaller();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotNull(other[0]);
+        assertNotSame(unmarshaller, other[0]);
+    }
+
+    @Test
+    public void testUnmarshallerKeepsEventHandlerOnReuse() throws Exception {
+        PooledContext context = new PooledContext(Point.class);
+        Unmarshaller unmarshaller = context.getUnmarshaller();
+        Point point = (Point) unmarshaller.unmarshal(new StringReader("<point><name>a</name><count>abc</count></point>"));
+        assertEquals("a", point.name);
+        assertNull(point.count);
+
+        Unmarshaller reused = context.getUnmarshaller();
+        assertSame(unmarshaller, reused);
+        point = (Point) reused.unmarshal(new StringReader("<point><name>b</name><count>abc</count></point>"));
+        assertEquals("b", point.name);
+        assertNull(point.count);
+    }
+
+    @Test
+    public void testMarshallerIsResetBeforeReuse() throws Exception {
+        PooledContext context = new PooledContext(Point.class);
+        Marshaller marshaller = context.getMarshaller();
+        String expected = marshal(marshaller, createPoint("b"));
+        assertTrue(expected.startsWith("<?xml"));
+
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "ISO-8859-1");
+        assertFalse(marshal(marshaller, createPoint("b")).startsWith("<?xml"));
+
+        Marshaller reused = context.getMarshaller();
+        assertSame(marshaller, reused);
+        assertEquals(expected, marshal(reused, createPoint("b")));
+    }
+
+    @Test
+    public void testMarshallersDifferByNamespacePrefixes() {
+        PooledContext context = new PooledContext(Point.class);
+        Marshaller plain = context.getMarshaller();
+        Marshaller prefixed = context.getMarshaller("http://www.w3.org/2001/XMLSchema-instance", "xsi");
+        assertNotSame(plain, prefixed);
+        assertSame(prefixed, context.getMarshaller("http://www.w3.org/2001/XMLSchema-instance", "xsi"));
+    }
+}
@@ -33,7 +33,10 @@ import slash.navigation.converter.gui.models.PositionsModel;
 import slash.navigation.converter.gui.models.PositionsSelectionModel;
 import slash.navigation.gui.Application;
 import slash.navigation.nmn.NavigatingPoiWarnerFormat;
+import slash.navigation.util.EncodedPolyline;
+import slash.navigation.util.PositionIndex;
 import slash.navigation.util.Positions;
+import slash.navigation.util.SignificanceIndex;
 
 import javax.swing.*;
 import javax.swing.event.ListDataEvent;
@@ -54,7 +57,6 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -85,11 +87,12 @@ public abstract class BaseMapView implements MapView {
     private static final String CLEAN_ELEVATION_ON_MOVE_PREFERENCE = "cleanElevationOnMove";
     private static final String CLEAN_TIME_ON_MOVE_PREFERENCE = "cleanTimeOnMove";
 
-    private static final int MAXIMUM_POLYLINE_SEGMENT_LENGTH = preferences.getInt("maximumTrackSegmentLength", 35);
-    private static final int MAXIMUM_POLYLINE_POSITION_COUNT = preferences.getInt("maximumTrackPositionCount", 1500);
+    private static final int MAXIMUM_POLYLINE_SEGMENT_LENGTH = preferences.getInt("maximumTrackSegmentLength", 100);
+    private static final int MAXIMUM_POLYLINE_POSITION_COUNT = preferences.getInt("maximumTrackPositionCount", 5000);
+    // the highest of the 18 levels of encoded polylines shows a position on every zoom level
+    private static final int POLYLINE_LEVEL = 17;
     private static final int MAXIMUM_DIRECTIONS_SEGMENT_LENGTH = preferences.getInt("maximumRouteSegmentLength", 22);
     private static final int MAXIMUM_DIRECTIONS_POSITION_COUNT = preferences.getInt("maximumRoutePositionCount", 500);
-    private static final int MAXIMUM_MARKER_SEGMENT_LENGTH = preferences.getInt("maximumWaypointSegmentLength", 5);
     private static final int MAXIMUM_MARKER_POSITION_COUNT = preferences.getInt("maximumWaypointPositionCount", 40);
     private static final int MAXIMUM_SELECTION_COUNT = preferences.getInt("maximumSelectionCount", 10);
     private static final int[] ZOOMLEVEL_SCALE = {
@@ -112,7 +115,6 @@ public abstract class BaseMapView implements MapView {
             6400,
             3200
     };
-    private static final int MAXIMUM_ZOOMLEVEL_FOR_SIGNIFICANCE_CALCULATION = 16;
 
     private PositionsModel positionsModel;
     private List<BaseNavigationPosition> positions;
@@ -129,7 +131,8 @@ public abstract class BaseMapView implements MapView {
             haveToUpdateRoute = false, haveToReplaceRoute = false,
             haveToRepaintSelection = false, ignoreNextZoomCallback = false;
     private String routeUpdateReason = "?", selectionUpdateReason = "?";
-    private final Map<Integer, BitSet> significantPositionCache = new HashMap<Integer, BitSet>(ZOOMLEVEL_SCALE.length);
+    private final SignificanceIndex significanceIndex = new SignificanceIndex();
+    private final PositionIndex positionIndex = new PositionIndex();
     private int meters = 0, seconds = 0;
     private PositionAugmenter positionAugmenter;
     private ExecutorService executor = Executors.newCachedThreadPool();
@@ -692,40 +695,27 @@ public abstract class BaseMapView implements MapView {
     // reduction of positions
 
     private BitSet calculateSignificantPositionsForZoomLevel(List<BaseNavigationPosition> positions, int zoomLevel) {
-        BitSet significant = significantPositionCache.get(zoomLevel);
-        if (significant == null) {
-            significant = new BitSet(positions.size());
-
-            if (zoomLevel <= MAXIMUM_ZOOMLEVEL_FOR_SIGNIFICANCE_CALCULATION) {
-                double threshold = ZOOMLEVEL_SCALE[zoomLevel] / 2500.0;
-                long start = System.currentTimeMillis();
-                int[] significantPositions = Positions.getSignificantPositions(positions, threshold);
-                long end = System.currentTimeMillis();
-                log.info("zoomLevel " + zoomLevel + " < " + MAXIMUM_ZOOMLEVEL_FOR_SIGNIFICANCE_CALCULATION +
-                        ": threshold " + threshold + ", significant positions " + significantPositions.length +
-                        ", calculated in " + (end - start) + " milliseconds");
-                for (int significantPosition : significantPositions)
-                    significant.set(significantPosition);
-            } else {
-                // on all zoom level about MAXIMUM_ZOOMLEVEL_FOR_SIGNIFICANCE_CALCULATION
-                // use all positions since the calculation is too expensive
-                log.info("zoomLevel " + zoomLevel + " use all " + positions.size() + " positions");
-                significant.set(0, positions.size(), true);
-            }
-            significantPositionCache.put(zoomLevel, significant);
-        }
+        double threshold = getThresholdForZoomLevel(zoomLevel);
+        long start = System.currentTimeMillis();
+        // recomputes only the range of the positions that changed since the last call
+        significanceIndex.update(positions);
+        BitSet significant = significanceIndex.getSignificantPositions(threshold);
+        long end = System.currentTimeMillis();
+        log.info("zoomLevel " + zoomLevel + ": threshold " + threshold + ", significant positions " +
+                significant.cardinality() + ", calculated in " + (end - start) + " milliseconds");
         return significant;
     }
 
-    private List<BaseNavigationPosition> filterSignificantPositions(List<BaseNavigationPosition> positions, boolean recenter) {
-        int zoomLevel = recenter ? getBoundsZoomLevel(positions) : getCurrentZoomLevel();
-
-        BitSet pointStatus = calculateSignificantPositionsForZoomLevel(positions, zoomLevel);
+    private double getThresholdForZoomLevel(int zoomLevel) {
+        int index = Math.max(0, Math.min(zoomLevel, ZOOMLEVEL_SCALE.length - 1));
+        // the scale halves with every zoom level beyond the table
+        return ZOOMLEVEL_SCALE[index] / 2500.0 / Math.pow(2, Math.max(0, zoomLevel - index));
+    }
 
-        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>();
-        for (int i = 0; i < positions.size(); i++)
-            if (pointStatus.get(i))
-                result.add(positions.get(i));
+    private List<BaseNavigationPosition> filterPositions(List<BaseNavigationPosition> positions, BitSet pointStatus) {
+        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>(pointStatus.cardinality());
+        for (int i = pointStatus.nextSetBit(0); i >= 0 && i < positions.size(); i = pointStatus.nextSetBit(i + 1))
+            result.add(positions.get(i));
         return result;
     }
 
@@ -734,11 +724,13 @@ public abstract class BaseMapView implements MapView {
             return positions;
 
         // determine significant positions for this zoom level
-        positions = filterSignificantPositions(positions, recenter);
+        int zoomLevel = recenter ? getBoundsZoomLevel(positions) : getCurrentZoomLevel();
+        BitSet pointStatus = calculateSignificantPositionsForZoomLevel(positions, zoomLevel);
 
         // reduce the number of significant positions by a visibility heuristic
-        if (positions.size() > maximumPositionCount)
-            positions = filterVisiblePositions(positions, 2.5);
+        if (pointStatus.cardinality() > maximumPositionCount)
+            filterVisiblePositions(positions, pointStatus, 2.5);
+        positions = filterPositions(positions, pointStatus);
 
         // reduce the number of visible positions by a JS-stability heuristic
         if (positions.size() > maximumPositionCount)
@@ -749,11 +741,12 @@ public abstract class BaseMapView implements MapView {
 
     private List<BaseNavigationPosition> reducePositions(List<BaseNavigationPosition> positions, int[] indices) {
         // reduced selected positions if they're not selected
-        positions = filterSelectedPositions(positions, indices);
+        BitSet pointStatus = calculateSelectedPositions(positions, indices);
 
         // reduce the number of selected positions by a visibility heuristic
-        if (positions.size() > MAXIMUM_SELECTION_COUNT)
-            positions = filterVisiblePositions(positions, 1.25);
+        if (pointStatus.cardinality() > MAXIMUM_SELECTION_COUNT)
+            filterVisiblePositions(positions, pointStatus, 1.25);
+        positions = filterPositions(positions, pointStatus);
 
         // reduce the number of visible positions by a JS-stability heuristic
         if (positions.size() > MAXIMUM_SELECTION_COUNT)
@@ -766,11 +759,11 @@ public abstract class BaseMapView implements MapView {
 
     protected abstract int getCurrentZoomLevel();
 
-    private List<BaseNavigationPosition> filterVisiblePositions(List<BaseNavigationPosition> positions, double factor) {
+    private void filterVisiblePositions(List<BaseNavigationPosition> positions, BitSet pointStatus, double factor) {
         BaseNavigationPosition northEast = getNorthEastBounds();
         BaseNavigationPosition southWest = getSouthWestBounds();
         if (northEast == null || southWest == null)
-            return positions;
+            return;
 
         // heuristic: increase bounds for visible positions to enable dragging the map
         // at the same zoom level, with a factor of 2 you hardly see the cropping even
@@ -782,20 +775,18 @@ public abstract class BaseMapView implements MapView {
         southWest.setLongitude(southWest.getLongitude() - width);
         southWest.setLatitude(southWest.getLatitude() + height);
 
-        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>();
-        result.add(positions.get(0));
-
-        for (int i = 1; i < positions.size() - 1; i += 1) {
-            BaseNavigationPosition position = positions.get(i);
-            if (Positions.contains(northEast, southWest, position)) {
-                result.add(position);
-            }
+        BitSet visible;
+        synchronized (positionIndex) {
+            // reindexes only the range of the positions that changed since the last call
+            positionIndex.update(positions);
+            visible = positionIndex.getPositionsWithin(northEast, southWest);
         }
+        visible.set(pointStatus.nextSetBit(0));
+        visible.set(pointStatus.length() - 1);
 
-        result.add(positions.get(positions.size() - 1));
-
-        log.info("Filtered visible positions to reduce " + positions.size() + " positions to " + result.size());
-        return result;
+        int count = pointStatus.cardinality();
+        pointStatus.and(visible);
+        log.info("Filtered visible positions to reduce " + count + " positions to " + pointStatus.cardinality());
     }
 
     private List<BaseNavigationPosition> filterEveryNthPosition(List<BaseNavigationPosition> positions, int maximumPositionCount) {
@@ -813,12 +804,12 @@ public abstract class BaseMapView implements MapView {
         return result;
     }
 
-    private List<BaseNavigationPosition> filterSelectedPositions(List<BaseNavigationPosition> positions, int[] selectedIndices) {
-        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>();
+    private BitSet calculateSelectedPositions(List<BaseNavigationPosition> positions, int[] selectedIndices) {
+        BitSet result = new BitSet(positions.size());
         for (int selectedIndex : selectedIndices) {
             if (selectedIndex >= positions.size())
                 continue;
-            result.add(positions.get(selectedIndex));
+            result.set(selectedIndex);
         }
         return result;
     }
@@ -849,7 +840,6 @@ public abstract class BaseMapView implements MapView {
                 routeUpdateReason = "replace route";
                 this.haveToRepaintSelection = true;
                 selectionUpdateReason = "replace route";
-                significantPositionCache.clear();
             }
             notificationMutex.notifyAll();
         }
@@ -860,7 +850,6 @@ public abstract class BaseMapView implements MapView {
         synchronized (notificationMutex) {
             haveToRepaintRouteImmediately = true;
             routeUpdateReason = "update route but don't recenter";
-            significantPositionCache.clear();
             notificationMutex.notifyAll();
         }
     }
@@ -873,8 +862,15 @@ public abstract class BaseMapView implements MapView {
         }
     }
 
-    private void removeOverlays() {
-        executeScript("removeOverlays();\nremoveDirections();");
+    private String createRemoveOverlaysScript() {
+        return "removeOverlays();\nremoveDirections();";
+    }
+
+    private String createRemovePolylinesScript() {
+        if (displayedPolylines.isEmpty())
+            return "";
+        displayedPolylines = new ArrayList<String>();
+        return "updatePolylines(0, polylines.length, []);\n";
     }
 
     private void addDirectionsToMap(List<BaseNavigationPosition> positions) {
@@ -887,9 +883,10 @@ public abstract class BaseMapView implements MapView {
             return;
         }
 
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(createRemovePolylinesScript());
         int directionsCount = Transfer.ceiling(positions.size(), MAXIMUM_DIRECTIONS_SEGMENT_LENGTH, false);
         for (int j = 0; j < directionsCount; j++) {
-            StringBuffer buffer = new StringBuffer();
             buffer.append("var latlngs = [");
             int maximum = Math.min(positions.size(), (j + 1) * MAXIMUM_DIRECTIONS_SEGMENT_LENGTH + 1);
             for (int i = j * MAXIMUM_DIRECTIONS_SEGMENT_LENGTH; i < maximum; i++) {
@@ -902,10 +899,38 @@ public abstract class BaseMapView implements MapView {
             buffer.append("createDirections().loadFromWaypoints(latlngs, ").
                     append("{ preserveViewport: true, getPolyline: true, avoidHighways: ").append(avoidHighways).
                     append(", travelMode: ").append(pedestrians ? "G_TRAVEL_MODE_WALKING" : "G_TRAVEL_MODE_DRIVING").
-                    append(", locale: '").append(Locale.getDefault()).append("' });");
-            executeScript(buffer.toString());
+                    append(", locale: '").append(Locale.getDefault()).append("' });\n");
         }
-        removeOverlays();
+        buffer.append(createRemoveOverlaysScript());
+        executeScript(buffer.toString());
+    }
+
+    private List<String> displayedPolylines = new ArrayList<String>();
+
+    private static int hashCoordinates(BaseNavigationPosition position) {
+        Double longitude = position.getLongitude(), latitude = position.getLatitude();
+        int result = longitude != null ? longitude.hashCode() : 0;
+        result = 31 * result + (latitude != null ? latitude.hashCode() : 0);
+        // spread the bits as the coordinates of neighbouring positions differ in few bits only
+        result ^= (result >>> 20) ^ (result >>> 12);
+        return result ^ (result >>> 7) ^ (result >>> 4);
+    }
+
+    private List<String> encodePolylines(List<BaseNavigationPosition> positions) {
+        List<String> result = new ArrayList<String>();
+        int divisor = Math.max(MAXIMUM_POLYLINE_SEGMENT_LENGTH / 2, 1);
+        int start = 0;
+        for (int i = 1; i < positions.size(); i++) {
+            // the coordinates determine where a polyline ends, thus an edit changes only the polylines around it
+            if (i == positions.size() - 1 || i - start >= MAXIMUM_POLYLINE_SEGMENT_LENGTH ||
+                    (hashCoordinates(positions.get(i)) & Integer.MAX_VALUE) % divisor == 0) {
+                List<BaseNavigationPosition> polyline = positions.subList(start, i + 1);
+                result.add("[\"" + EncodedPolyline.encode(polyline).replace("\\", "\\\\") + "\",\"" +
+                        EncodedPolyline.encodeLevels(polyline.size(), POLYLINE_LEVEL) + "\"]");
+                start = i;
+            }
+        }
+        return result;
     }
 
     private void addPolylinesToMap(final List<BaseNavigationPosition> positions) {
@@ -915,41 +940,44 @@ public abstract class BaseMapView implements MapView {
             return;
         }
 
-        int polylinesCount = Transfer.ceiling(positions.size(), MAXIMUM_POLYLINE_SEGMENT_LENGTH, true);
-        for (int j = 0; j < polylinesCount; j++) {
-            StringBuffer buffer = new StringBuffer();
-            buffer.append("var latlngs = [");
-            int maximum = Math.min(positions.size(), (j + 1) * MAXIMUM_POLYLINE_SEGMENT_LENGTH + 1);
-            for (int i = j * MAXIMUM_POLYLINE_SEGMENT_LENGTH; i < maximum; i++) {
-                BaseNavigationPosition position = positions.get(i);
-                buffer.append("new GLatLng(").append(position.getLatitude()).append(",").append(position.getLongitude()).append(")");
-                if (i < maximum - 1)
-                    buffer.append(",");
-            }
-            buffer.append("];\n");
-            buffer.append("addOverlay(new GPolyline(latlngs,\"#0033FF\",2,1));");
-            executeScript(buffer.toString());
+        // replace only the polylines that changed since the last update
+        List<String> polylines = encodePolylines(positions);
+        int minimumSize = Math.min(polylines.size(), displayedPolylines.size());
+        int prefix = 0;
+        while (prefix < minimumSize && polylines.get(prefix).equals(displayedPolylines.get(prefix)))
+            prefix++;
+        int suffix = 0;
+        while (suffix < minimumSize - prefix && polylines.get(polylines.size() - 1 - suffix).
+                equals(displayedPolylines.get(displayedPolylines.size() - 1 - suffix)))
+            suffix++;
+
+        StringBuffer buffer = new StringBuffer();
+        buffer.append("updatePolylines(").append(prefix).append(",").
+                append(displayedPolylines.size() - prefix - suffix).append(",[");
+        for (int i = prefix; i < polylines.size() - suffix; i++) {
+            buffer.append(polylines.get(i));
+            if (i < polylines.size() - suffix - 1)
+                buffer.append(",");
         }
-        removeOverlays();
+        buffer.append("]);\n");
+        buffer.append(createRemoveOverlaysScript());
+        executeScript(buffer.toString());
+        displayedPolylines = polylines;
+        log.info("Replaced " + (polylines.size() - prefix - suffix) + " of " + polylines.size() + " polylines");
     }
 
     private void addMarkersToMap(List<BaseNavigationPosition> positions) {
-        int markersCount = Transfer.ceiling(positions.size(), MAXIMUM_MARKER_SEGMENT_LENGTH, false);
-        for (int j = 0; j < markersCount; j++) {
-            StringBuffer buffer = new StringBuffer();
-
-            int maximum = Math.min(positions.size(), (j + 1) * MAXIMUM_MARKER_SEGMENT_LENGTH);
-            for (int i = j * MAXIMUM_MARKER_SEGMENT_LENGTH; i < maximum; i++) {
-                BaseNavigationPosition position = positions.get(i);
-                buffer.append("var marker = new GMarker(new GLatLng(").
-                        append(position.getLatitude()).append(",").append(position.getLongitude()).
-                        append("), { title: \"").append(escape(position.getComment())).append("\", ").
-                        append("clickable: false, icon: markerIcon });\n");
-                buffer.append("addOverlay(marker);\n");
-            }
-            executeScript(buffer.toString());
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(createRemovePolylinesScript());
+        for (BaseNavigationPosition position : positions) {
+            buffer.append("var marker = new GMarker(new GLatLng(").
+                    append(position.getLatitude()).append(",").append(position.getLongitude()).
+                    append("), { title: \"").append(escape(position.getComment())).append("\", ").
+                    append("clickable: false, icon: markerIcon });\n");
+            buffer.append("addOverlay(marker);\n");
         }
-        removeOverlays();
+        buffer.append(createRemoveOverlaysScript());
+        executeScript(buffer.toString());
     }
 
     private void setCenterOfMap(List<BaseNavigationPosition> positions, boolean recenter) {
@@ -983,16 +1011,12 @@ public abstract class BaseMapView implements MapView {
 
     private void selectPositions(List<BaseNavigationPosition> selectedPositions, boolean recenter) {
         // delete old
-        if (lastSelectedPositionCount >= 0) {
-            StringBuffer buffer = new StringBuffer();
-            for (int i = 0; i < lastSelectedPositionCount; i++) {
-                buffer.append("map.removeOverlay(selected").append(i).append(");\n");
-            }
-            executeScript(buffer.toString());
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < lastSelectedPositionCount; i++) {
+            buffer.append("map.removeOverlay(selected").append(i).append(");\n");
         }
 
         // build up new
-        StringBuffer buffer = new StringBuffer();
         lastSelectedPositionCount = selectedPositions.size();
         lastSelectedPositions = selectedPositions;
         for (int i = 0; i < lastSelectedPositionCount; i++) {
@@ -1214,9 +1238,9 @@ public abstract class BaseMapView implements MapView {
 
         Matcher insertPositionMatcher = INSERT_POSITION_PATTERN.matcher(callback);
         if (insertPositionMatcher.matches()) {
-            final int row = getInsertRow();
             final Double latitude = Transfer.parseDouble(insertPositionMatcher.group(1));
             final Double longitude = Transfer.parseDouble(insertPositionMatcher.group(2));
+            final int row = getInsertRow(longitude, latitude);
             SwingUtilities.invokeLater(new Runnable() {
                 public void run() {
                     insertPosition(row, longitude, latitude);
@@ -1357,9 +1381,7 @@ public abstract class BaseMapView implements MapView {
             Double longitude = coordinates.get(i - 2);
             Double latitude = coordinates.get(i - 3);
             if (seconds != null && time != null) {
-                Calendar calendar = time.getCalendar();
-                calendar.add(Calendar.SECOND, -seconds.intValue());
-                time = CompactCalendar.fromCalendar(calendar);
+                time = time.plusMillis(-seconds.intValue() * 1000L);
             }
             int positionNumber = positionsModel.getRowCount() + (positionInsertionCount - route.getPositionCount()) - 1;
             BaseNavigationPosition position = route.createPosition(longitude, latitude, null, null, seconds != null ? time : null, MessageFormat.format(Application.getInstance().getContext().getBundle().getString("new-position-name"), positionNumber));
@@ -1399,21 +1421,36 @@ public abstract class BaseMapView implements MapView {
         positionAugmenter.complementTime(row, null);
     }
 
-    private int getInsertRow() {
+    private int getInsertRow(Double longitude, Double latitude) {
         BaseNavigationPosition position = lastSelectedPositions.size() > 0 ? lastSelectedPositions.get(lastSelectedPositions.size() - 1) : null;
+        // without selection insert into the nearest segment unless the new position is beyond the end of the route
+        if (position == null && longitude != null && latitude != null) {
+            synchronized (positionIndex) {
+                int segment = positionIndex.getNearestSegment(longitude, latitude);
+                if (segment != -1 && !(segment + 2 == positionIndex.size() &&
+                        positionIndex.getNearestPosition(longitude, latitude) == segment + 1))
+                    position = positionIndex.getPosition(segment);
+            }
+        }
         // quite crude logic to be as robust as possible on failures
         if (position == null && positionsModel.getRowCount() > 0)
             position = positionsModel.getPosition(positionsModel.getRowCount() - 1);
-        return position != null ? positionsModel.getIndex(position) + 1 : 0;
+        return position != null ? getRow(position) + 1 : 0;
     }
 
     private int getMoveRow(int index) {
         BaseNavigationPosition position = lastSelectedPositions.get(index);
-        final int row;
+        return getRow(position);
+    }
+
+    private int getRow(BaseNavigationPosition position) {
+        // the position index equals the row unless the route contains positions without coordinates
+        int index = positionIndex.getIndex(position);
         synchronized (notificationMutex) {
-            row = positions.indexOf(position);
+            if (index != -1 && index < positions.size() && positions.get(index) == position)
+                return index;
+            return positions.indexOf(position);
         }
-        return row;
     }
 
     private void movePosition(int row, Double longitude, Double latitude) {
@@ -1431,7 +1468,6 @@ public abstract class BaseMapView implements MapView {
             size = positions.size() - 1;
             haveToRepaintRouteImmediately = true;
             routeUpdateReason = "move position";
-            significantPositionCache.clear();
             haveToRepaintSelectionImmediately = true;
             selectionUpdateReason = "move position";
         }
@@ -1441,7 +1477,7 @@ public abstract class BaseMapView implements MapView {
     private void removePosition(int index) {
         BaseNavigationPosition position = lastSelectedPositions.size() > index ? lastSelectedPositions.get(index) : null;
         if (position != null) {
-            int row = positionsModel.getIndex(position);
+            int row = getRow(position);
             positionsModel.remove(new int[]{row});
 
             executor.execute(new Runnable() {
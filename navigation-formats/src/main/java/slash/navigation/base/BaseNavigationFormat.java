@@ -20,6 +20,7 @@
 
 package slash.navigation.base;
 
+import slash.common.io.CompactCalendar;
 import slash.common.io.Transfer;
 
 import java.util.ArrayList;
@@ -113,10 +114,30 @@ public abstract class BaseNavigationFormat<R extends BaseRoute> implements Navig
 
     public abstract <P extends BaseNavigationPosition> R createRoute(RouteCharacteristics characteristics, String name, List<P> positions);
 
+    public Recognition recognize(FileHead head) {
+        return Recognition.Possible;
+    }
+
     public List<R> read(InputStream source) throws IOException {
         return read(source, null);
     }
 
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return pushRoutes(read(source, startDate), sink);
+    }
+
+    protected boolean pushRoutes(List<R> routes, PositionSink sink) {
+        if (routes == null || routes.size() == 0)
+            return false;
+        for (R route : routes) {
+            sink.startRoute(route.getCharacteristics(), route.getName());
+            for (Object position : route.getPositions())
+                sink.position((BaseNavigationPosition) position);
+            sink.endRoute();
+        }
+        return true;
+    }
+
     public int hashCode() {
         return getClass().getName().hashCode();
     }
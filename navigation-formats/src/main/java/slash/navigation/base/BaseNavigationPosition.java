@@ -30,8 +30,9 @@ import slash.navigation.nmea.NmeaPosition;
 import slash.navigation.nmn.NmnPosition;
 import slash.navigation.tour.TourPosition;
 import slash.navigation.util.Bearing;
+import slash.navigation.util.Geodesy;
 
-import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The base of all navigation positions.
@@ -40,9 +41,13 @@ import java.util.Calendar;
  */
 
 public abstract class BaseNavigationPosition {
+    private static final AtomicLong modificationCount = new AtomicLong(1);
+
     protected Double elevation;
     private Double speed;
     protected CompactCalendar time;
+    // 0 while no route caches values of this position, the modification count of the last change otherwise
+    private long modification = 0;
 
     protected BaseNavigationPosition(Double elevation, Double speed, CompactCalendar time) {
         setElevation(elevation);
@@ -83,6 +88,7 @@ public abstract class BaseNavigationPosition {
 
     public void setElevation(Double elevation) {
         this.elevation = elevation;
+        modified();
     }
 
     /**
@@ -96,6 +102,7 @@ public abstract class BaseNavigationPosition {
 
     public void setTime(CompactCalendar time) {
         this.time = time;
+        modified();
     }
 
     /**
@@ -117,14 +124,35 @@ public abstract class BaseNavigationPosition {
      * @param startDate the day/month/year-offset
      */
     public void setStartDate(CompactCalendar startDate) {
-        if (time != null && startDate != null) {
-            Calendar calendar = time.getCalendar();
-            Calendar startDateCalendar = startDate.getCalendar();
-            calendar.set(Calendar.YEAR, startDateCalendar.get(Calendar.YEAR));
-            calendar.set(Calendar.MONTH, startDateCalendar.get(Calendar.MONTH));
-            calendar.set(Calendar.DAY_OF_MONTH, startDateCalendar.get(Calendar.DAY_OF_MONTH));
-            time = CompactCalendar.fromCalendar(calendar);
-        }
+        CompactCalendar time = getTime();
+        if (time != null && startDate != null)
+            setTime(time.withDateOf(startDate));
+    }
+
+    /**
+     * Records a change of the coordinates, the elevation or the time of this position
+     * for the routes that cache values calculated from them.
+     */
+    protected void modified() {
+        if (modification != 0)
+            modification = modificationCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the modification count of the last change of this position and
+     * records the changes from now on.
+     */
+    long observeModification() {
+        if (modification == 0)
+            modification = 1;
+        return modification;
+    }
+
+    /**
+     * Returns the modification count of the last change of any observed position.
+     */
+    static long getModificationCount() {
+        return modificationCount.get();
     }
 
     public abstract String getComment();
@@ -139,13 +167,22 @@ public abstract class BaseNavigationPosition {
      *         or null if the distance cannot be calculated
      */
     public Double calculateDistance(BaseNavigationPosition other) {
-        if (hasCoordinates() && other.hasCoordinates()) {
-            Bearing bearing = Bearing.calculateBearing(getLongitude(), getLatitude(), other.getLongitude(), other.getLatitude());
-            double distance = bearing.getDistance();
-            if (!Double.isNaN(distance))
-                return distance;
-        }
-        return null;
+        double distance = distanceTo(other);
+        return !Double.isNaN(distance) ? distance : null;
+    }
+
+    /**
+     * Calculate the distance in meter between this and the other position
+     * like {@link #calculateDistance} but without boxing the result.
+     *
+     * @param other the other position
+     * @return the distance in meter between this and the other position
+     *         or NaN if the distance cannot be calculated
+     */
+    public double distanceTo(BaseNavigationPosition other) {
+        if (hasCoordinates() && other.hasCoordinates())
+            return Geodesy.distance(getLongitude(), getLatitude(), other.getLongitude(), other.getLatitude());
+        return Double.NaN;
     }
 
     /**
@@ -184,10 +221,8 @@ public abstract class BaseNavigationPosition {
      *         or null if the angle cannot be calculated
      */
     public Double calculateAngle(BaseNavigationPosition other) {
-        if (hasCoordinates() && other.hasCoordinates()) {
-            Bearing bearing = Bearing.calculateBearing(getLongitude(), getLatitude(), other.getLongitude(), other.getLatitude());
-            return bearing.getAngle();
-        }
+        if (hasCoordinates() && other.hasCoordinates())
+            return Geodesy.azimuth(getLongitude(), getLatitude(), other.getLongitude(), other.getLatitude());
         return null;
     }
 
@@ -206,10 +241,11 @@ public abstract class BaseNavigationPosition {
      */
     public Double calculateOrthogonalDistance(BaseNavigationPosition pointA, BaseNavigationPosition pointB) {
         if (hasCoordinates() && pointA.hasCoordinates() && pointB.hasCoordinates()) {
-            Double distanceAtoD = calculateDistance(pointA);
-            if (distanceAtoD != null) {
-                double courseAtoD = Math.toRadians(pointA.calculateAngle(this));
-                double courseAtoB = Math.toRadians(pointA.calculateAngle(pointB));
+            double distanceAtoD = distanceTo(pointA);
+            if (!Double.isNaN(distanceAtoD)) {
+                double longitudeA = pointA.getLongitude(), latitudeA = pointA.getLatitude();
+                double courseAtoD = Math.toRadians(Geodesy.azimuth(longitudeA, latitudeA, getLongitude(), getLatitude()));
+                double courseAtoB = Math.toRadians(Geodesy.azimuth(longitudeA, latitudeA, pointB.getLongitude(), pointB.getLatitude()));
                 return Math.asin(Math.sin(distanceAtoD / Bearing.EARTH_RADIUS) *
                         Math.sin(courseAtoD - courseAtoB)) * Bearing.EARTH_RADIUS;
             }
@@ -51,6 +51,7 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
 
     private final F format;
     protected RouteCharacteristics characteristics;
+    private final CumulativeValues cumulativeValues = new CumulativeValues();
 
     protected BaseRoute(F format, RouteCharacteristics characteristics) {
         this.format = format;
@@ -79,43 +80,157 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
 
     public abstract int getPositionCount();
 
-    private void move(int index, int upOrDown) {
-        List<P> positions = getPositions();
-        P move = positions.get(index);
-        P replace = positions.get(index + upOrDown);
-        positions.set(index + upOrDown, move);
-        positions.set(index, replace);
+    /**
+     * Notifies the route that the position at the given index and maybe the following
+     * ones have been modified so that cached distances, elevations and times become invalid.
+     */
+    public void invalidateCumulativeValues(int index) {
+        cumulativeValues.invalidate(index);
     }
 
     public void top(int index, int topOffset) {
-        while (index > topOffset) {
-            up(index, index - 1);
-            index--;
-        }
+        up(index, topOffset);
     }
 
     public void down(int fromIndex, int toIndex) {
-        while (fromIndex < toIndex)
-            move(fromIndex++, +1);
+        if (fromIndex >= toIndex)
+            return;
+        Collections.rotate(getPositions().subList(fromIndex, toIndex + 1), -1);
+        invalidateCumulativeValues(fromIndex);
     }
 
     public void up(int fromIndex, int toIndex) {
-        while (fromIndex > toIndex)
-            move(fromIndex--, -1);
+        if (fromIndex <= toIndex)
+            return;
+        Collections.rotate(getPositions().subList(toIndex, fromIndex + 1), 1);
+        invalidateCumulativeValues(toIndex);
     }
 
     public void bottom(int index, int bottomOffset) {
-        while (index < getPositionCount() - 1 - bottomOffset) {
-            down(index, index + 1);
-            index++;
+        down(index, getPositionCount() - 1 - bottomOffset);
+    }
+
+    /**
+     * Reorders the {@link #getPositions() positions} of this route in a single pass
+     * so that afterwards the position at index <code>i</code> is the one that has been
+     * at index <code>permutation[i]</code> before.
+     *
+     * @throws IllegalArgumentException if the given indices are no permutation of the
+     * indices of the positions
+     */
+    public void applyPermutation(int[] permutation) {
+        List<P> positions = getPositions();
+        if (permutation.length != positions.size())
+            throw new IllegalArgumentException("Permutation of " + permutation.length +
+                    " indices does not match " + positions.size() + " positions");
+        BitSet permuted = new BitSet(permutation.length);
+        for (int index : permutation) {
+            if (index < 0 || index >= permutation.length || permuted.get(index))
+                throw new IllegalArgumentException("Permutation contains invalid or repeated index " + index);
+            permuted.set(index);
         }
+
+        List<P> previous = new ArrayList<P>(positions);
+        int firstModified = -1;
+        for (int i = 0; i < permutation.length; i++) {
+            P position = previous.get(permutation[i]);
+            if (positions.get(i) != position) {
+                positions.set(i, position);
+                if (firstModified == -1)
+                    firstModified = i;
+            }
+        }
+        if (firstModified != -1)
+            invalidateCumulativeValues(firstModified);
     }
 
     public abstract void add(int index, P position);
 
+    public void addAll(int index, List<P> positions) {
+        getPositions().addAll(index, positions);
+        invalidateCumulativeValues(index);
+    }
+
+    /**
+     * Inserts the given positions so that afterwards they are found at the given
+     * ascending indices. This is the inverse of {@link #removeAll(int[])}.
+     */
+    public void addAll(int[] indices, List<P> positions) {
+        if (indices.length != positions.size())
+            throw new IllegalArgumentException(indices.length + " indices do not match " + positions.size() + " positions");
+        if (indices.length == 0)
+            return;
+
+        List<P> existing = getPositions();
+        int[] permutation = new int[existing.size() + indices.length];
+        int existingIndex = 0, addedIndex = existing.size(), next = 0;
+        for (int i = 0; i < permutation.length; i++) {
+            if (next < indices.length && indices[next] == i) {
+                permutation[i] = addedIndex++;
+                next++;
+            } else
+                permutation[i] = existingIndex++;
+        }
+        if (next != indices.length)
+            throw new IllegalArgumentException("Indices are not ascending or exceed " + (permutation.length - 1));
+
+        existing.addAll(positions);
+        applyPermutation(permutation);
+        invalidateCumulativeValues(indices[0]);
+    }
+
     public P remove(int index) {
         List<P> positions = getPositions();
-        return positions.remove(index);
+        P result = positions.remove(index);
+        invalidateCumulativeValues(index);
+        return result;
+    }
+
+    public List<P> removeRange(int fromIndex, int toIndex) {
+        List<P> range = getPositions().subList(fromIndex, toIndex);
+        List<P> removed = new ArrayList<P>(range);
+        range.clear();
+        invalidateCumulativeValues(fromIndex);
+        return removed;
+    }
+
+    /**
+     * Removes the positions at the given indices by compacting the remaining
+     * {@link #getPositions() positions} in a single pass.
+     *
+     * @param indices the distinct indices of the positions to remove in any order
+     * @return the removed positions in ascending order of their former indices
+     * @throws IllegalArgumentException if an index is given more than once
+     */
+    public List<P> removeAll(int[] indices) {
+        List<P> positions = getPositions();
+        int[] sorted = indices.clone();
+        Arrays.sort(sorted);
+        List<P> removed = new ArrayList<P>(sorted.length);
+        if (sorted.length == 0)
+            return removed;
+
+        int size = positions.size();
+        if (sorted[0] < 0 || sorted[sorted.length - 1] >= size)
+            throw new IndexOutOfBoundsException("Indices from " + sorted[0] + " to " + sorted[sorted.length - 1] + ", Size: " + size);
+        // every index has to match a removed position to be restored by addAll(int[], List)
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1])
+                throw new IllegalArgumentException("Index " + sorted[i] + " is given more than once");
+        }
+
+        int target = sorted[0], next = 0;
+        for (int source = sorted[0]; source < size; source++) {
+            P position = positions.get(source);
+            if (next < sorted.length && sorted[next] == source) {
+                removed.add(position);
+                next++;
+            } else
+                positions.set(target++, position);
+        }
+        positions.subList(target, size).clear();
+        invalidateCumulativeValues(sorted[0]);
+        return removed;
     }
 
     /**
@@ -124,16 +239,19 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
      */
     public void removeDuplicates() {
         List<P> positions = getPositions();
+        List<Integer> duplicates = new ArrayList<Integer>();
         P previous = null;
-        int index = 0;
-        while (index < positions.size()) {
-            P next = positions.get(index);
-            if (previous != null && (!next.hasCoordinates() || next.calculateDistance(previous) <= 0.0)) {
-                positions.remove(index);
-            } else
-                index++;
+        for (int i = 0; i < positions.size(); i++) {
+            P next = positions.get(i);
+            if (previous != null && (!next.hasCoordinates() || isDuplicate(next, previous)))
+                duplicates.add(i);
             previous = next;
         }
+        removeAll(Range.toArray(duplicates));
+    }
+
+    private boolean isDuplicate(P next, P previous) {
+        return next.distanceTo(previous) <= 0.0;
     }
 
     public void ensureIncreasingTime() {
@@ -146,8 +264,10 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
 
         List<P> positions = getPositions();
         P first = positions.get(0);
-        if(first.getTime() == null)
-            first.setTime(CompactCalendar.fromCalendar(Calendar.getInstance(CompactCalendar.UTC)));
+        if(first.getTime() == null) {
+            first.setTime(CompactCalendar.now());
+            invalidateCumulativeValues(0);
+        }
 
         P previous = first;
         for (int i = 1; i < positions.size(); i++) {
@@ -158,7 +278,8 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
                 Long millis = distance != null ? new Double(distance / averageSpeed * 1000).longValue() : null;
                 if(millis == null || millis < 1000)
                     millis = 1000L;
-                next.setTime(CompactCalendar.fromMillisAndTimeZone(previous.getTime().getTimeInMillis() + millis, previous.getTime().getTimeZoneId()));
+                next.setTime(previous.getTime().plusMillis(millis));
+                invalidateCumulativeValues(i);
             }
             previous = next;
         }
@@ -172,7 +293,7 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         P previous = positions.get(0);
         for (int i = 1; i < positions.size() - 1; i++) {
             P next = positions.get(i);
-            if (!next.hasCoordinates() || next.calculateDistance(previous) <= distance)
+            if (!next.hasCoordinates() || next.distanceTo(previous) <= distance)
                 result.add(i);
             else
                 previous = next;
@@ -181,16 +302,12 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public int[] getInsignificantPositions(double threshold) {
-        int[] significantPositions = Positions.getSignificantPositions(getPositions(), threshold);
-        BitSet bitset = new BitSet(getPositionCount());
-        for (int significantPosition : significantPositions)
-            bitset.set(significantPosition);
-
-        int[] result = new int[getPositionCount() - significantPositions.length];
+        BitSet significant = Positions.getSignificantPositionSet(getPositions(), threshold);
+        int positionCount = getPositionCount();
+        int[] result = new int[positionCount - significant.cardinality()];
         int index = 0;
-        for (int i = 0; i < getPositionCount(); i++)
-            if (!bitset.get(i))
-                result[index++] = i;
+        for (int i = significant.nextClearBit(0); i < positionCount; i = significant.nextClearBit(i + 1))
+            result[index++] = i;
         return result;
     }
 
@@ -209,30 +326,7 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public long getTime() {
-        Calendar minimum = null, maximum = null;
-        long totalTimeMilliSeconds = 0;
-        List<P> positions = getPositions();
-        P previous = null;
-        for (P next : positions) {
-            if (previous != null) {
-                Long time = previous.calculateTime(next);
-                if (time != null && time > 0)
-                    totalTimeMilliSeconds += time;
-            }
-
-            Calendar calendar = next.getTime() != null ? next.getTime().getCalendar() : null;
-            if (calendar == null)
-                continue;
-            if (minimum == null || calendar.before(minimum))
-                minimum = calendar;
-            if (maximum == null || calendar.after(maximum))
-                maximum = calendar;
-
-            previous = next;
-        }
-
-        long maxMinusMin = minimum != null ? maximum.getTimeInMillis() - minimum.getTimeInMillis() : 0;
-        return Math.max(maxMinusMin, totalTimeMilliSeconds);
+        return cumulativeValues.getTime(getPositions());
     }
 
     public double getDistance() {
@@ -240,39 +334,13 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public double getDistance(int startIndex, int endIndex) {
-        double result = 0;
-        List<P> positions = getPositions();
-        BaseNavigationPosition previous = null;
-        for (int i = startIndex; i <= endIndex; i++) {
-            BaseNavigationPosition next = positions.get(i);
-            if (previous != null) {
-                Double distance = previous.calculateDistance(next);
-                if (distance != null)
-                    result += distance;
-            }
-            previous = next;
-        }
-        return result;
+        return cumulativeValues.getDistance(getPositions(), startIndex, endIndex);
     }
 
     public double[] getDistancesFromStart(int startIndex, int endIndex) {
         double[] result = new double[endIndex - startIndex + 1];
-        List<P> positions = getPositions();
-        int index = 0;
-        double distance = 0.0;
-        BaseNavigationPosition previous = positions.size() > 0 ? positions.get(0) : null;
-        while (index <= endIndex) {
-            BaseNavigationPosition next = positions.get(index);
-            if (previous != null) {
-                Double delta = previous.calculateDistance(next);
-                if (delta != null)
-                    distance += delta;
-                if (index >= startIndex)
-                    result[index - startIndex] = distance;
-            }
-            index++;
-            previous = next;
-        }
+        if (endIndex >= startIndex)
+            cumulativeValues.getDistancesFromStart(getPositions(), startIndex, endIndex, result);
         return result;
     }
 
@@ -281,29 +349,18 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         if (indices.length > 0 && getPositionCount() > 0) {
             Arrays.sort(indices);
             int endIndex = Math.min(indices[indices.length - 1], getPositionCount() - 1);
-
-            int index = 0;
-            double distance = 0.0;
-            List<P> positions = getPositions();
-            BaseNavigationPosition previous = positions.get(0);
-            while (index <= endIndex) {
-                BaseNavigationPosition next = positions.get(index);
-                if (previous != null) {
-                    Double delta = previous.calculateDistance(next);
-                    if (delta != null)
-                        distance += delta;
-                    int indexInIndices = Arrays.binarySearch(indices, index);
-                    if (indexInIndices >= 0)
-                        result[indexInIndices] = distance;
-                }
-                index++;
-                previous = next;
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] >= 0 && indices[i] <= endIndex)
+                    result[i] = cumulativeValues.getDistanceFromStart(getPositions(), indices[i]);
             }
         }
         return result;
     }
 
     public double getElevationAscend(int startIndex, int endIndex) {
+        if (startIndex == 0 && endIndex >= 0)
+            return cumulativeValues.getElevationAscendFromStart(getPositions(), endIndex);
+
         double result = 0;
         List<P> positions = getPositions();
         BaseNavigationPosition previous = null;
@@ -320,6 +377,9 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public double getElevationDescend(int startIndex, int endIndex) {
+        if (startIndex == 0 && endIndex >= 0)
+            return cumulativeValues.getElevationDescendFromStart(getPositions(), endIndex);
+
         double result = 0;
         List<P> positions = getPositions();
         BaseNavigationPosition previous = null;
@@ -336,14 +396,8 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public void revert() {
-        List<P> positions = getPositions();
-        List<P> reverted = new ArrayList<P>();
-        for (P position : positions) {
-            reverted.add(0, position);
-        }
-        for (int i = 0; i < reverted.size(); i++) {
-            positions.set(i, reverted.get(i));
-        }
+        Collections.reverse(getPositions());
+        invalidateCumulativeValues(0);
 
         String routeName = getName();
         if (!routeName.endsWith(REVERSE_ROUTE_NAME_POSTFIX))
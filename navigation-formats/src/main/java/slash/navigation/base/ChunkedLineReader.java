@@ -0,0 +1,226 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.prefs.Preferences;
+
+/**
+ * Reads the lines of a {@link BufferedReader} and returns the results of a {@link LineParser}
+ * in the order of the lines.
+ * <p/>
+ * The first lines up to a threshold are parsed on the calling thread. The rest of large
+ * inputs is split into chunks of lines at line boundaries which are parsed concurrently while
+ * further chunks are read. Thus a {@link LineParser} must not depend on the lines before;
+ * state that is carried from line to line belongs to the caller of {@link #read()} which
+ * sees the same results in the same order as a sequential parser would produce them.
+ *
+ * @author Christian Pesch
+ */
+
+public abstract class ChunkedLineReader<T> {
+    private static final Preferences preferences = Preferences.userNodeForPackage(ChunkedLineReader.class);
+    private static final int PROCESSOR_COUNT = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor;
+
+    public interface LineParser<T> {
+        /**
+         * Parses the given line.
+         *
+         * @param line the line to parse
+         * @return the result or null if the line is to be skipped
+         */
+        T parse(String line);
+    }
+
+    private final BufferedReader reader;
+    private final int threshold, chunkSize, maximumPendingChunks;
+    private final LinkedList<Future<Chunk>> pendingChunks = new LinkedList<Future<Chunk>>();
+    private LineParser<T> parser;
+    private Chunk current;
+    private int lineCount;
+    private boolean endOfInput;
+
+    protected ChunkedLineReader(BufferedReader reader) {
+        this(reader, preferences.getInt("parallelReadThreshold", 100000),
+                preferences.getInt("parallelReadChunkSize", 10000), PROCESSOR_COUNT);
+    }
+
+    ChunkedLineReader(BufferedReader reader, int threshold, int chunkSize, int threadCount) {
+        this.reader = reader;
+        this.threshold = threadCount > 1 ? threshold : Integer.MAX_VALUE;
+        this.chunkSize = chunkSize;
+        this.maximumPendingChunks = 2 * threadCount;
+    }
+
+    /**
+     * Creates a parser for the lines. A parser is used by only one thread at a time.
+     */
+    protected abstract LineParser<T> createLineParser();
+
+    /**
+     * Returns the result of the next line that is not skipped.
+     *
+     * @return the result or null at the end of the input
+     * @throws IOException if the input cannot be read
+     * @throws RuntimeException if parsing the line has thrown it
+     */
+    public T read() throws IOException {
+        while (true) {
+            if (current != null) {
+                T result = current.next();
+                if (result != null)
+                    return result;
+                current = null;
+            }
+
+            if (lineCount < threshold) {
+                String line = reader.readLine();
+                if (line == null)
+                    return null;
+                lineCount++;
+
+                if (parser == null)
+                    parser = createLineParser();
+                T result = parser.parse(line);
+                if (result != null)
+                    return result;
+                continue;
+            }
+
+            submitChunks();
+            if (pendingChunks.isEmpty())
+                return null;
+            current = waitFor(pendingChunks.removeFirst());
+        }
+    }
+
+    /**
+     * Stops parsing the chunks which have been read ahead.
+     */
+    public void close() {
+        for (Future<Chunk> future : pendingChunks)
+            future.cancel(true);
+        pendingChunks.clear();
+        current = null;
+    }
+
+    private void submitChunks() throws IOException {
+        while (!endOfInput && pendingChunks.size() < maximumPendingChunks) {
+            String[] lines = new String[chunkSize];
+            int count = 0;
+            while (count < chunkSize) {
+                String line = reader.readLine();
+                if (line == null) {
+                    endOfInput = true;
+                    break;
+                }
+                lines[count++] = line;
+            }
+            lineCount += count;
+            if (count > 0)
+                pendingChunks.add(getExecutor().submit(new Chunk(lines, count)));
+        }
+    }
+
+    private Chunk waitFor(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing lines");
+        } catch (ExecutionException e) {
+            close();
+            Throwable cause = e.getCause();
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException("Cannot parse lines: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(PROCESSOR_COUNT, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ChunkedLineReader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private class Chunk implements Callable<Chunk> {
+        private String[] lines;
+        private final int count;
+        private final Object[] results;
+        private RuntimeException[] exceptions;
+        private int index;
+
+        Chunk(String[] lines, int count) {
+            this.lines = lines;
+            this.count = count;
+            this.results = new Object[count];
+        }
+
+        public Chunk call() {
+            LineParser<T> parser = createLineParser();
+            for (int i = 0; i < count; i++) {
+                try {
+                    results[i] = parser.parse(lines[i]);
+                } catch (RuntimeException e) {
+                    // thrown once the line is reached in the order of the lines
+                    if (exceptions == null)
+                        exceptions = new RuntimeException[count];
+                    exceptions[i] = e;
+                }
+            }
+            lines = null;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        T next() {
+            while (index < count) {
+                int i = index++;
+                if (exceptions != null && exceptions[i] != null)
+                    throw exceptions[i];
+                if (results[i] != null)
+                    return (T) results[i];
+            }
+            return null;
+        }
+    }
+}
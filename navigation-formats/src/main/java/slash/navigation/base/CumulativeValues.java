@@ -0,0 +1,246 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.io.CompactCalendar;
+
+import java.util.List;
+
+/**
+ * Caches the distances, elevation ascends and descends and times between the
+ * positions of a {@link BaseRoute} and their sums from the first position.
+ *
+ * The values are computed lazily up to the requested index and are invalidated
+ * from the first modified index on; the position references and their modification
+ * counts are kept to detect modifications of the positions list and of the positions
+ * that bypassed the route. A {@link Wgs84PositionList} is read without creating
+ * positions and reports its modifications itself.
+ *
+ * @author Christian Pesch
+ */
+
+class CumulativeValues {
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private BaseNavigationPosition[] positions = new BaseNavigationPosition[0];
+    private long[] modifications = new long[0];
+    private double[] distances = new double[0];
+    private double[] distancesFromStart = new double[0];
+    private double[] ascendsFromStart = new double[0];
+    private double[] descendsFromStart = new double[0];
+    private long[] timesFromStart = new long[0];
+    private long[] lastTimes = new long[0];
+    private long[] minimumTimes = new long[0];
+    private long[] maximumTimes = new long[0];
+    private int valid = 0;
+    private long modificationCount;
+    private Wgs84PositionList columns;
+    private long columnsModificationCount;
+
+    synchronized void invalidate(int index) {
+        if (index < valid)
+            valid = Math.max(index, 0);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= positions.length)
+            return;
+
+        int capacity = Math.max(size, positions.length * 2);
+        BaseNavigationPosition[] newPositions = new BaseNavigationPosition[capacity];
+        System.arraycopy(positions, 0, newPositions, 0, valid);
+        positions = newPositions;
+        modifications = copyOf(modifications, capacity);
+        distances = copyOf(distances, capacity);
+        distancesFromStart = copyOf(distancesFromStart, capacity);
+        ascendsFromStart = copyOf(ascendsFromStart, capacity);
+        descendsFromStart = copyOf(descendsFromStart, capacity);
+        timesFromStart = copyOf(timesFromStart, capacity);
+        lastTimes = copyOf(lastTimes, capacity);
+        minimumTimes = copyOf(minimumTimes, capacity);
+        maximumTimes = copyOf(maximumTimes, capacity);
+    }
+
+    private double[] copyOf(double[] array, int capacity) {
+        double[] result = new double[capacity];
+        System.arraycopy(array, 0, result, 0, valid);
+        return result;
+    }
+
+    private long[] copyOf(long[] array, int capacity) {
+        long[] result = new long[capacity];
+        System.arraycopy(array, 0, result, 0, valid);
+        return result;
+    }
+
+    private void verify(List<? extends BaseNavigationPosition> list, int index) {
+        if (list instanceof Wgs84PositionList) {
+            verify((Wgs84PositionList) list);
+            return;
+        }
+        columns = null;
+
+        if (valid > list.size())
+            valid = list.size();
+        if (index >= valid)
+            index = valid - 1;
+        long modificationCount = BaseNavigationPosition.getModificationCount();
+        if (modificationCount == this.modificationCount && (index < 0 || positions[index] == list.get(index)))
+            return;
+
+        this.modificationCount = modificationCount;
+        for (int i = 0; i < valid; i++) {
+            BaseNavigationPosition position = list.get(i);
+            if (positions[i] != position || modifications[i] != position.observeModification()) {
+                valid = i;
+                return;
+            }
+        }
+    }
+
+    private void verify(Wgs84PositionList list) {
+        if (list != columns) {
+            columns = list;
+            valid = 0;
+        } else
+            valid = Math.min(valid, list.getFirstModifiedIndex(columnsModificationCount));
+        columnsModificationCount = list.getModificationCount();
+        if (valid > list.size())
+            valid = list.size();
+    }
+
+    private void update(List<? extends BaseNavigationPosition> list, int endIndex) {
+        verify(list, endIndex);
+        if (endIndex < valid)
+            return;
+
+        ensureCapacity(endIndex + 1);
+        if (columns != null)
+            columns.calculateDistances(valid, endIndex + 1, distances);
+        for (int i = valid; i <= endIndex; i++) {
+            BaseNavigationPosition next = columns == null ? list.get(i) : null;
+            long millis;
+            if (next != null) {
+                CompactCalendar time = next.getTime();
+                millis = time != null ? time.getTimeInMillis() : NO_TIME;
+            } else
+                millis = columns.hasTime(i) ? columns.getTimeInMillis(i) : NO_TIME;
+
+            if (i == 0) {
+                distances[0] = 0.0;
+                distancesFromStart[0] = 0.0;
+                ascendsFromStart[0] = 0.0;
+                descendsFromStart[0] = 0.0;
+                timesFromStart[0] = 0;
+                lastTimes[0] = millis;
+                minimumTimes[0] = millis;
+                maximumTimes[0] = millis;
+
+            } else {
+                Double elevation;
+                if (next != null) {
+                    BaseNavigationPosition previous = list.get(i - 1);
+                    distances[i] = previous.distanceTo(next);
+                    elevation = previous.calculateElevation(next);
+                } else
+                    elevation = calculateElevation(columns, i - 1, i);
+                if (Double.isNaN(distances[i]))
+                    distances[i] = 0.0;
+                distancesFromStart[i] = distancesFromStart[i - 1] + distances[i];
+
+                ascendsFromStart[i] = ascendsFromStart[i - 1] + (elevation != null && elevation > 0 ? elevation : 0.0);
+                descendsFromStart[i] = descendsFromStart[i - 1] + (elevation != null && elevation < 0 ? -elevation : 0.0);
+
+                long lastTime = lastTimes[i - 1];
+                timesFromStart[i] = timesFromStart[i - 1];
+                lastTimes[i] = lastTime;
+                minimumTimes[i] = minimumTimes[i - 1];
+                maximumTimes[i] = maximumTimes[i - 1];
+                if (millis != NO_TIME) {
+                    if (lastTime != NO_TIME && millis - lastTime > 0)
+                        timesFromStart[i] += millis - lastTime;
+                    lastTimes[i] = millis;
+                    if (minimumTimes[i] == NO_TIME || millis < minimumTimes[i])
+                        minimumTimes[i] = millis;
+                    if (maximumTimes[i] == NO_TIME || millis > maximumTimes[i])
+                        maximumTimes[i] = millis;
+                }
+            }
+            positions[i] = next;
+            modifications[i] = next != null ? next.observeModification() : 0;
+        }
+        valid = endIndex + 1;
+    }
+
+    private static Double calculateElevation(Wgs84PositionList list, int first, int second) {
+        // like BaseNavigationPosition#calculateElevation
+        if (list.hasElevation(first) && list.hasElevation(second))
+            return list.getElevation(second) - list.getElevation(first);
+        return null;
+    }
+
+    synchronized double getDistance(List<? extends BaseNavigationPosition> list, int startIndex, int endIndex) {
+        if (endIndex <= startIndex)
+            return 0.0;
+        update(list, endIndex);
+        if (startIndex <= 0)
+            return distancesFromStart[endIndex];
+
+        // sum up in the same order as from the start index to get exactly the same result
+        double result = 0.0;
+        for (int i = startIndex + 1; i <= endIndex; i++)
+            result += distances[i];
+        return result;
+    }
+
+    synchronized double getDistanceFromStart(List<? extends BaseNavigationPosition> list, int index) {
+        update(list, index);
+        return distancesFromStart[index];
+    }
+
+    synchronized void getDistancesFromStart(List<? extends BaseNavigationPosition> list, int startIndex, int endIndex, double[] result) {
+        update(list, endIndex);
+        System.arraycopy(distancesFromStart, startIndex, result, 0, endIndex - startIndex + 1);
+    }
+
+    synchronized double getElevationAscendFromStart(List<? extends BaseNavigationPosition> list, int index) {
+        update(list, index);
+        return ascendsFromStart[index];
+    }
+
+    synchronized double getElevationDescendFromStart(List<? extends BaseNavigationPosition> list, int index) {
+        update(list, index);
+        return descendsFromStart[index];
+    }
+
+    /**
+     * Returns the maximum of the time between the earliest and the latest position
+     * and the sum of the positive times between the positions with a time.
+     */
+    synchronized long getTime(List<? extends BaseNavigationPosition> list) {
+        int endIndex = list.size() - 1;
+        if (endIndex < 0)
+            return 0;
+        update(list, endIndex);
+        long maxMinusMin = minimumTimes[endIndex] != NO_TIME ? maximumTimes[endIndex] - minimumTimes[endIndex] : 0;
+        return Math.max(maxMinusMin, timesFromStart[endIndex]);
+    }
+}
@@ -0,0 +1,284 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contains the first bytes of a file which are inspected once to
+ * {@link NavigationFormat#recognize(FileHead) recognize} its format.
+ *
+ * @author Christian Pesch
+ */
+
+public class FileHead {
+    public static final int HEAD_SIZE = 16 * 1024;
+
+    private static final String XMLNS_ATTRIBUTE = "xmlns";
+
+    private final byte[] bytes;
+    private final boolean complete;
+    private final Map<String, List<String>> lines = new HashMap<String, List<String>>();
+    private boolean xmlParsed = false;
+    private boolean xml = false;
+    private String xmlRootElement, xmlRootNamespace;
+
+    public FileHead(byte[] bytes, boolean complete) {
+        this.bytes = bytes;
+        this.complete = complete;
+    }
+
+    public static FileHead read(InputStream source, int maximumSize) throws IOException {
+        byte[] buffer = new byte[Math.max(0, maximumSize)];
+        int length = 0;
+        boolean complete = false;
+        while (length < buffer.length) {
+            int count = source.read(buffer, length, buffer.length - length);
+            if (count == -1) {
+                complete = true;
+                break;
+            }
+            length += count;
+        }
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, 0, bytes, 0, length);
+        return new FileHead(bytes, complete);
+    }
+
+    public int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * @return true if the head contains the whole file
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean startsWith(byte[] magic) {
+        if (bytes.length < magic.length)
+            return false;
+        for (int i = 0; i < magic.length; i++) {
+            if (bytes[i] != magic[i])
+                return false;
+        }
+        return true;
+    }
+
+    public ByteBuffer getBytes(int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.position(0);
+        buffer.put(bytes, 0, Math.min(length, bytes.length));
+        return buffer;
+    }
+
+    /**
+     * Returns the lines of the head as {@link java.io.BufferedReader#readLine()} would
+     * return them for the {@link BaseNavigationFormat#DEFAULT_ENCODING}. The last line
+     * is omitted if it might be cut off.
+     *
+     * @return the lines of the head
+     */
+    public List<String> getLines() {
+        return getLines(BaseNavigationFormat.DEFAULT_ENCODING);
+    }
+
+    /**
+     * Returns the lines of the head as {@link java.io.BufferedReader#readLine()} would
+     * return them for the given encoding. The last line is omitted if it might be cut off.
+     *
+     * @param encoding the encoding to decode the head with
+     * @return the lines of the head
+     */
+    public List<String> getLines(String encoding) {
+        List<String> result = lines.get(encoding);
+        if (result == null) {
+            int length = encoding.startsWith("UTF-16") && !complete ? bytes.length & ~1 : bytes.length;
+            result = splitLines(decode(0, length, encoding));
+            lines.put(encoding, result);
+        }
+        return result;
+    }
+
+    private List<String> splitLines(String text) {
+        List<String> result = new ArrayList<String>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                result.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    i++;
+                start = i + 1;
+            }
+        }
+        if (complete && start < text.length())
+            result.add(text.substring(start));
+        return result;
+    }
+
+    private String decode(int offset, int length, String encoding) {
+        try {
+            return new String(bytes, offset, length, encoding);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException("Cannot decode with " + encoding, e);
+        }
+    }
+
+    private String decodeXml() {
+        if (startsWith(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}))
+            return decode(3, bytes.length - 3, BaseNavigationFormat.UTF8_ENCODING);
+        if (startsWith(new byte[]{(byte) 0xFE, (byte) 0xFF}))
+            return decode(2, (bytes.length - 2) & ~1, "UTF-16BE");
+        if (startsWith(new byte[]{(byte) 0xFF, (byte) 0xFE}))
+            return decode(2, (bytes.length - 2) & ~1, BaseNavigationFormat.UTF16LE_ENCODING);
+        if (bytes.length > 1 && bytes[0] == 0 && bytes[1] != 0)
+            return decode(0, bytes.length & ~1, "UTF-16BE");
+        if (bytes.length > 1 && bytes[0] != 0 && bytes[1] == 0)
+            return decode(0, bytes.length & ~1, BaseNavigationFormat.UTF16LE_ENCODING);
+        return decode(0, bytes.length, BaseNavigationFormat.DEFAULT_ENCODING);
+    }
+
+    /**
+     * @return true if the first markup of the head is a XML declaration, comment or element
+     */
+    public boolean isXml() {
+        parseXml();
+        return xml;
+    }
+
+    /**
+     * @return the local name of the root element or null if it is not contained in the head
+     */
+    public String getXmlRootElement() {
+        parseXml();
+        return xmlRootElement;
+    }
+
+    /**
+     * @return the namespace URI of the root element or null if it is not declared in the head
+     */
+    public String getXmlRootNamespace() {
+        parseXml();
+        return xmlRootNamespace;
+    }
+
+    private void parseXml() {
+        if (xmlParsed)
+            return;
+        xmlParsed = true;
+
+        String text = decodeXml();
+        int index = skipWhitespace(text, 0);
+        while (index < text.length()) {
+            if (text.charAt(index) != '<')
+                return;
+            xml = true;
+
+            if (text.startsWith("<?", index))
+                index = skipBehind(text, index, "?>");
+            else if (text.startsWith("<!--", index))
+                index = skipBehind(text, index, "-->");
+            else if (text.startsWith("<!", index))
+                index = skipDocumentType(text, index);
+            else {
+                parseRootElement(text, index + 1);
+                return;
+            }
+            if (index == -1)
+                return;
+            index = skipWhitespace(text, index);
+        }
+    }
+
+    private int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index)))
+            index++;
+        return index;
+    }
+
+    private int skipBehind(String text, int index, String end) {
+        int found = text.indexOf(end, index);
+        return found != -1 ? found + end.length() : -1;
+    }
+
+    private int skipDocumentType(String text, int index) {
+        boolean internalSubset = false;
+        for (int i = index; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '[')
+                internalSubset = true;
+            else if (c == ']')
+                internalSubset = false;
+            else if (c == '>' && !internalSubset)
+                return i + 1;
+        }
+        return -1;
+    }
+
+    private void parseRootElement(String text, int index) {
+        int end = text.indexOf('>', index);
+        if (end == -1)
+            return;
+        String tag = text.substring(index, end);
+        String[] tokens = tag.split("[\\s/]+");
+        if (tokens.length == 0 || tokens[0].length() == 0)
+            return;
+
+        String name = tokens[0];
+        int colon = name.indexOf(':');
+        String prefix = colon != -1 ? name.substring(0, colon) : null;
+        xmlRootElement = colon != -1 ? name.substring(colon + 1) : name;
+
+        String namespaceAttribute = prefix != null ? XMLNS_ATTRIBUTE + ":" + prefix : XMLNS_ATTRIBUTE;
+        xmlRootNamespace = parseAttribute(tag, namespaceAttribute);
+    }
+
+    private String parseAttribute(String tag, String attribute) {
+        int index = 0;
+        while ((index = tag.indexOf(attribute, index)) != -1) {
+            int start = index;
+            index += attribute.length();
+            if (start > 0 && !Character.isWhitespace(tag.charAt(start - 1)))
+                continue;
+            int equals = skipWhitespace(tag, index);
+            if (equals >= tag.length() || tag.charAt(equals) != '=')
+                continue;
+            int quote = skipWhitespace(tag, equals + 1);
+            if (quote >= tag.length())
+                return null;
+            char quoteCharacter = tag.charAt(quote);
+            if (quoteCharacter != '"' && quoteCharacter != '\'')
+                return null;
+            int endQuote = tag.indexOf(quoteCharacter, quote + 1);
+            return endQuote != -1 ? tag.substring(quote + 1, endQuote) : null;
+        }
+        return null;
+    }
+}
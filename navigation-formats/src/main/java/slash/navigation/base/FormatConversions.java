@@ -0,0 +1,613 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.io.Transfer;
+import slash.navigation.babel.BabelFormat;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts positions and routes into the ones of a {@link NavigationFormat}
+ * by calling the matching as...() method directly.
+ *
+ * @author Christian Pesch
+ */
+
+class FormatConversions {
+    interface PositionConversion {
+        BaseNavigationPosition convert(BaseNavigationPosition position);
+    }
+
+    interface RouteConversion {
+        BaseRoute convert(BaseRoute route);
+    }
+
+    private static final Map<String, PositionConversion> POSITION_CONVERSIONS = new HashMap<String, PositionConversion>();
+    private static final Map<String, RouteConversion> ROUTE_CONVERSIONS = new HashMap<String, RouteConversion>();
+
+    static {
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asMTPPosition();
+            }
+        }, "MTP0607Format", "MTP0809Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asCoPilotPosition();
+            }
+        }, "CoPilot6Format", "CoPilot7Format", "CoPilot8Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asGoPalRoutePosition();
+            }
+        }, "GoPal3RouteFormat", "GoPal5RouteFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asGoPalTrackPosition();
+            }
+        }, "GoPalTrackFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenGpxPosition();
+            }
+        }, "BrokenGpx10Format", "BrokenGpx11Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asGpxPosition();
+            }
+        }, "Gpx10Format", "Gpx11Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asTomTomRoutePosition();
+            }
+        }, "TomTom5RouteFormat", "TomTom8RouteFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKlickTelRoutePosition();
+            }
+        }, "KlickTelRouteFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenKmlPosition();
+            }
+        }, "BrokenKml21Format", "BrokenKml22Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenKmlLittleEndianPosition();
+            }
+        }, "BrokenKml21LittleEndianFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenKmlBetaPosition();
+            }
+        }, "BrokenKml22BetaFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenKmzPosition();
+            }
+        }, "BrokenKmz21Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asBrokenKmzLittleEndianPosition();
+            }
+        }, "BrokenKmz21LittleEndianFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKmlPosition();
+            }
+        }, "Kml20Format", "Kml21Format", "Kml22Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKmlBetaPosition();
+            }
+        }, "Kml22BetaFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKmzPosition();
+            }
+        }, "Kmz20Format", "Kmz21Format", "Kmz22Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKmzBetaPosition();
+            }
+        }, "Kmz22BetaFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asNokiaLandmarkExchangePosition();
+            }
+        }, "NokiaLandmarkExchangeFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asMagicMapsIktPosition();
+            }
+        }, "MagicMapsIktFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asMagicMapsPthPosition();
+            }
+        }, "MagicMapsPthFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asMagellanExploristPosition();
+            }
+        }, "MagellanExploristFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asMagellanRoutePosition();
+            }
+        }, "MagellanRouteFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asNmeaPosition();
+            }
+        }, "NmeaFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asNavigatingPoiWarnerPosition();
+            }
+        }, "NavigatingPoiWarnerFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asNmnPosition();
+            }
+        }, "Nmn4Format", "Nmn5Format", "Nmn6Format", "Nmn7Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asNmnFavoritesPosition();
+            }
+        }, "Nmn6FavoritesFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asOvlPosition();
+            }
+        }, "OvlFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asColumbusVProfessionalPosition();
+            }
+        }, "ColumbusV900ProfessionalFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asColumbusVStandardPosition();
+            }
+        }, "ColumbusV900StandardFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asGlopusPosition();
+            }
+        }, "GlopusFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asGpsTunerPosition();
+            }
+        }, "GpsTunerFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asHaicomLoggerPosition();
+            }
+        }, "HaicomLoggerFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asKompassPosition();
+            }
+        }, "KompassFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asQstarzQPosition();
+            }
+        }, "QstarzQ1000Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asRoutePosition();
+            }
+        }, "Route66Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asSygicUnicodePosition();
+            }
+        }, "SygicUnicodeFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asiBluePosition();
+            }
+        }, "iBlue747Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asTcxPosition();
+            }
+        }, "Tcx1Format", "Tcx2Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asTourPosition();
+            }
+        }, "TourFormat");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asWintecWbtTkPosition();
+            }
+        }, "WintecWbt201Tk1Format", "WintecWbt201Tk2Format");
+
+        addPositionConversion(new PositionConversion() {
+            public BaseNavigationPosition convert(BaseNavigationPosition position) {
+                return position.asWintecWbtTesPosition();
+            }
+        }, "WintecWbt202TesFormat");
+
+        addRouteConversion("MTP0607Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMTP0607Format();
+            }
+        });
+        addRouteConversion("MTP0809Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMTP0809Format();
+            }
+        });
+        addRouteConversion("CoPilot6Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asCoPilot6Format();
+            }
+        });
+        addRouteConversion("CoPilot7Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asCoPilot7Format();
+            }
+        });
+        addRouteConversion("CoPilot8Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asCoPilot8Format();
+            }
+        });
+        addRouteConversion("GoPal3RouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGoPal3RouteFormat();
+            }
+        });
+        addRouteConversion("GoPal5RouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGoPal5RouteFormat();
+            }
+        });
+        addRouteConversion("GoPalTrackFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGoPalTrackFormat();
+            }
+        });
+        addRouteConversion("Gpx10Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGpx10Format();
+            }
+        });
+        addRouteConversion("Gpx11Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGpx11Format();
+            }
+        });
+        addRouteConversion("TomTom5RouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asTomTom5RouteFormat();
+            }
+        });
+        addRouteConversion("TomTom8RouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asTomTom8RouteFormat();
+            }
+        });
+        addRouteConversion("KlickTelRouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKlickTelRouteFormat();
+            }
+        });
+        addRouteConversion("Kml20Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKml20Format();
+            }
+        });
+        addRouteConversion("Kml21Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKml21Format();
+            }
+        });
+        addRouteConversion("Kml22BetaFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKml22BetaFormat();
+            }
+        });
+        addRouteConversion("Kml22Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKml22Format();
+            }
+        });
+        addRouteConversion("Kmz20Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKmz20Format();
+            }
+        });
+        addRouteConversion("Kmz21Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKmz21Format();
+            }
+        });
+        addRouteConversion("Kmz22BetaFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKmz22BetaFormat();
+            }
+        });
+        addRouteConversion("Kmz22Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKmz22Format();
+            }
+        });
+        addRouteConversion("NokiaLandmarkExchangeFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNokiaLandmarkExchangeFormat();
+            }
+        });
+        addRouteConversion("MagicMaps2GoFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMagicMaps2GoFormat();
+            }
+        });
+        addRouteConversion("MagicMapsIktFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMagicMapsIktFormat();
+            }
+        });
+        addRouteConversion("MagicMapsPthFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMagicMapsPthFormat();
+            }
+        });
+        addRouteConversion("MagellanExploristFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMagellanExploristFormat();
+            }
+        });
+        addRouteConversion("MagellanRouteFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asMagellanRouteFormat();
+            }
+        });
+        addRouteConversion("NmeaFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmeaFormat();
+            }
+        });
+        addRouteConversion("NavigatingPoiWarnerFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNavigatingPoiWarnerFormat();
+            }
+        });
+        addRouteConversion("Nmn4Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmn4Format();
+            }
+        });
+        addRouteConversion("Nmn5Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmn5Format();
+            }
+        });
+        addRouteConversion("Nmn6FavoritesFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmn6FavoritesFormat();
+            }
+        });
+        addRouteConversion("Nmn6Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmn6Format();
+            }
+        });
+        addRouteConversion("Nmn7Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmn7Format();
+            }
+        });
+        addRouteConversion("NmnUrlFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asNmnUrlFormat();
+            }
+        });
+        addRouteConversion("OvlFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asOvlFormat();
+            }
+        });
+        addRouteConversion("ColumbusV900ProfessionalFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asColumbusV900ProfessionalFormat();
+            }
+        });
+        addRouteConversion("ColumbusV900StandardFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asColumbusV900StandardFormat();
+            }
+        });
+        addRouteConversion("GlopusFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGlopusFormat();
+            }
+        });
+        addRouteConversion("GoogleMapsUrlFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGoogleMapsUrlFormat();
+            }
+        });
+        addRouteConversion("GpsTunerFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGpsTunerFormat();
+            }
+        });
+        addRouteConversion("GroundTrackFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asGroundTrackFormat();
+            }
+        });
+        addRouteConversion("HaicomLoggerFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asHaicomLoggerFormat();
+            }
+        });
+        addRouteConversion("KompassFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asKompassFormat();
+            }
+        });
+        addRouteConversion("QstarzQ1000Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asQstarzQ1000Format();
+            }
+        });
+        addRouteConversion("Route66Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asRoute66Format();
+            }
+        });
+        addRouteConversion("SygicUnicodeFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asSygicUnicodeFormat();
+            }
+        });
+        addRouteConversion("WebPageFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asWebPageFormat();
+            }
+        });
+        addRouteConversion("iBlue747Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asiBlue747Format();
+            }
+        });
+        addRouteConversion("Tcx1Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asTcx1Format();
+            }
+        });
+        addRouteConversion("Tcx2Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asTcx2Format();
+            }
+        });
+        addRouteConversion("TourFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asTourFormat();
+            }
+        });
+        addRouteConversion("ViaMichelinFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asViaMichelinFormat();
+            }
+        });
+        addRouteConversion("WintecWbt201Tk1Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asWintecWbt201Tk1Format();
+            }
+        });
+        addRouteConversion("WintecWbt201Tk2Format", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asWintecWbt201Tk2Format();
+            }
+        });
+        addRouteConversion("WintecWbt202TesFormat", new RouteConversion() {
+            public BaseRoute convert(BaseRoute route) {
+                return route.asWintecWbt202TesFormat();
+            }
+        });
+    }
+
+    private static void addPositionConversion(PositionConversion conversion, String... formatNames) {
+        for (String formatName : formatNames)
+            POSITION_CONVERSIONS.put(formatName, conversion);
+    }
+
+    private static void addRouteConversion(String formatName, RouteConversion conversion) {
+        ROUTE_CONVERSIONS.put(formatName, conversion);
+    }
+
+    private static String getFormatName(NavigationFormat format) {
+        Class<? extends NavigationFormat> formatClass = format.getClass();
+        String formatName = formatClass.getSimpleName();
+        if (Transfer.trim(formatName) == null && formatClass.getSuperclass() != null)
+            formatName = formatClass.getSuperclass().getSimpleName();
+        // shortcut to prevent lots of as... methods
+        if (format instanceof BabelFormat)
+            formatName = "Gpx10Format";
+        return formatName;
+    }
+
+    static PositionConversion getPositionConversion(NavigationFormat format) throws IOException {
+        String formatName = getFormatName(format);
+        PositionConversion conversion = POSITION_CONVERSIONS.get(formatName);
+        if (conversion == null)
+            throw new IOException("Cannot convert positions to " + formatName);
+        return conversion;
+    }
+
+    static RouteConversion getRouteConversion(NavigationFormat format) throws IOException {
+        String formatName = getFormatName(format);
+        RouteConversion conversion = ROUTE_CONVERSIONS.get(formatName);
+        if (conversion == null)
+            throw new IOException("Cannot convert routes to " + formatName);
+        return conversion;
+    }
+}
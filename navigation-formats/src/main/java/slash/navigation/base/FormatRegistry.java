@@ -0,0 +1,105 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.util.*;
+
+/**
+ * An immutable snapshot of the supported navigation formats with one
+ * instance per format and indexes by extension and class name.
+ *
+ * @author Christian Pesch
+ */
+
+class FormatRegistry {
+    private final List<NavigationFormat> readFormats, writeFormats;
+    private final List<NavigationFormat> readFormatsSortedByName, writeFormatsSortedByName;
+    private final Map<String, List<NavigationFormat>> readFormatsByExtension = new HashMap<String, List<NavigationFormat>>();
+    private final Map<String, NavigationFormat> formatsByClassName = new HashMap<String, NavigationFormat>();
+
+    FormatRegistry(List<Class<? extends NavigationFormat>> formatClasses) {
+        List<NavigationFormat> readFormats = new ArrayList<NavigationFormat>();
+        List<NavigationFormat> writeFormats = new ArrayList<NavigationFormat>();
+        for (Class<? extends NavigationFormat> formatClass : formatClasses) {
+            NavigationFormat format;
+            try {
+                format = formatClass.newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Cannot instantiate " + formatClass, e);
+            }
+
+            if (format.isSupportsReading()) {
+                readFormats.add(format);
+                List<NavigationFormat> formats = readFormatsByExtension.get(format.getExtension());
+                if (formats == null) {
+                    formats = new ArrayList<NavigationFormat>();
+                    readFormatsByExtension.put(format.getExtension(), formats);
+                }
+                formats.add(format);
+            }
+            if (format.isSupportsWriting())
+                writeFormats.add(format);
+
+            if (!formatsByClassName.containsKey(formatClass.getSimpleName()))
+                formatsByClassName.put(formatClass.getSimpleName(), format);
+            formatsByClassName.put(formatClass.getName(), format);
+        }
+        this.readFormats = Collections.unmodifiableList(readFormats);
+        this.writeFormats = Collections.unmodifiableList(writeFormats);
+        this.readFormatsSortedByName = sortByName(readFormats);
+        this.writeFormatsSortedByName = sortByName(writeFormats);
+    }
+
+    private static List<NavigationFormat> sortByName(List<NavigationFormat> formats) {
+        NavigationFormat[] formatsArray = formats.toArray(new NavigationFormat[formats.size()]);
+        Arrays.sort(formatsArray, new Comparator<NavigationFormat>() {
+            public int compare(NavigationFormat f1, NavigationFormat f2) {
+                return f1.getName().toLowerCase().compareTo(f2.getName().toLowerCase());
+            }
+        });
+        return Collections.unmodifiableList(Arrays.asList(formatsArray));
+    }
+
+    List<NavigationFormat> getReadFormats() {
+        return readFormats;
+    }
+
+    List<NavigationFormat> getWriteFormats() {
+        return writeFormats;
+    }
+
+    List<NavigationFormat> getReadFormatsSortedByName() {
+        return readFormatsSortedByName;
+    }
+
+    List<NavigationFormat> getWriteFormatsSortedByName() {
+        return writeFormatsSortedByName;
+    }
+
+    List<NavigationFormat> getReadFormatsWithExtension(String extension) {
+        List<NavigationFormat> formats = readFormatsByExtension.get(extension);
+        return formats != null ? Collections.unmodifiableList(formats) : Collections.<NavigationFormat>emptyList();
+    }
+
+    NavigationFormat getFormatByClassName(String className) {
+        return formatsByClassName.get(className);
+    }
+}
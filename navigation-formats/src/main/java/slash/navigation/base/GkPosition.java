@@ -75,6 +75,7 @@ public class GkPosition extends BaseNavigationPosition {
     public void setLongitude(Double longitude) {
         double[] gk = Conversion.wgs84LongitudeLatitudeToGaussKruegerRightHeight(longitude, getLatitude());
         setRight(gk[0]);
+        modified();
     }
 
     public Double getLatitude() {
@@ -84,6 +85,7 @@ public class GkPosition extends BaseNavigationPosition {
     public void setLatitude(Double latitude) {
         double[] gk = Conversion.wgs84LongitudeLatitudeToGaussKruegerRightHeight(getLongitude(), latitude);
         setHeight(gk[1]);
+        modified();
     }
 
     public String getComment() {
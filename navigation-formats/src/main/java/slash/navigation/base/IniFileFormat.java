@@ -35,6 +35,16 @@ public abstract class IniFileFormat<R extends BaseRoute> extends TextNavigationF
     protected static final char NAME_VALUE_SEPARATOR = '=';
     protected static final Pattern NAME_VALUE_PATTERN = Pattern.compile("(.+?)\\s*" + NAME_VALUE_SEPARATOR + "\\s*(.+)");
 
+    public Recognition recognize(FileHead head) {
+        for (String line : head.getLines()) {
+            if (isSectionTitle(line))
+                return Recognition.Match;
+        }
+        return Recognition.Possible;
+    }
+
+    protected abstract boolean isSectionTitle(String line);
+
     protected boolean isNameValue(String line) {
         Matcher matcher = NAME_VALUE_PATTERN.matcher(line);
         return matcher.matches();
@@ -58,6 +58,7 @@ public class MercatorPosition extends BaseNavigationPosition {
 
     public void setLongitude(Double longitude) {
         this.x = asX(longitude);
+        modified();
     }
 
     public Double getLatitude() {
@@ -66,6 +67,7 @@ public class MercatorPosition extends BaseNavigationPosition {
 
     public void setLatitude(Double latitude) {
         this.y = asY(latitude);
+        modified();
     }
 
     public Long getX() {
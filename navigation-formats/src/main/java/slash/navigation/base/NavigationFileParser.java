@@ -41,6 +41,7 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
+import java.util.prefs.Preferences;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -52,7 +53,9 @@ import java.util.zip.ZipInputStream;
 
 public class NavigationFileParser {
     private static final Logger log = Logger.getLogger(NavigationFileParser.class.getName());
+    private static final Preferences preferences = Preferences.userNodeForPackage(NavigationFileParser.class);
     private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
 
     private final List<NavigationFileParserListener> navigationFileParserListeners = new CopyOnWriteArrayList<NavigationFileParserListener>();
     private FormatAndRoutes formatAndRoutes;
@@ -102,21 +105,54 @@ public class NavigationFileParser {
         }
     }
 
+    private List<NavigationFormat> recognizeFormats(InputStream buffer, int readBufferSize,
+                                                    List<NavigationFormat> formats) throws IOException {
+        FileHead head = FileHead.read(buffer, Math.min(FileHead.HEAD_SIZE, readBufferSize));
+        buffer.reset();
+        return recognizeFormats(head, formats);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<NavigationFormat> recognizeFormats(FileHead head, List<NavigationFormat> formats) {
+        List<NavigationFormat> matches = new ArrayList<NavigationFormat>();
+        List<NavigationFormat> possibles = new ArrayList<NavigationFormat>();
+        List<NavigationFormat> mismatches = new ArrayList<NavigationFormat>();
+        for (NavigationFormat format : formats) {
+            switch (format.recognize(head)) {
+                case Match:
+                    matches.add(format);
+                    break;
+                case Possible:
+                    possibles.add(format);
+                    break;
+                case Mismatch:
+                    mismatches.add(format);
+                    break;
+            }
+        }
+        log.fine("Recognized " + matches.size() + " matching, " + possibles.size() + " possible and " +
+                mismatches.size() + " mismatching formats within " + head.getLength() + " bytes");
+
+        List<NavigationFormat> result = new ArrayList<NavigationFormat>(formats.size());
+        result.addAll(matches);
+        result.addAll(possibles);
+        // fall back to the formats that could not be recognized if no other format reads the file
+        if (preferences.getBoolean("readMismatchingFormats", true))
+            result.addAll(mismatches);
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     private FormatAndRoutes internalRead(InputStream buffer, int readBufferSize, Calendar startDate,
                                          List<NavigationFormat> formats) throws IOException {
         try {
             CompactCalendar compactStartDate = startDate != null ? CompactCalendar.fromCalendar(startDate) : null;
-            for (NavigationFormat<BaseRoute> format : formats) {
+            for (NavigationFormat<BaseRoute> format : recognizeFormats(buffer, readBufferSize, formats)) {
                 notifyReading(format);
 
                 List<BaseRoute> routes = format.read(buffer, compactStartDate);
-                if (routes != null && routes.size() > 0) {
-                    log.info("Detected '" + format.getName() + "' file with " + routes.size() + " route(s) and " +
-                            getPositionCounts(routes) + " positions");
-                    commentRoutes(routes);
-                    return new FormatAndRoutes(format, routes);
-                }
+                if (routes != null && routes.size() > 0)
+                    return createFormatAndRoutes(format, routes);
 
                 try {
                     buffer.reset();
@@ -133,6 +169,58 @@ public class NavigationFileParser {
         return null;
     }
 
+    @SuppressWarnings("unchecked")
+    private FormatAndRoutes internalRead(File source, Calendar startDate, List<NavigationFormat> formats) throws IOException {
+        CompactCalendar compactStartDate = CompactCalendar.fromCalendar(startDate);
+        for (NavigationFormat<BaseRoute> format : recognizeFormats(readHead(source), formats)) {
+            notifyReading(format);
+
+            // open the file again for every format instead of keeping all of it in a buffer to reset to
+            InputStream input = openFile(source);
+            try {
+                List<BaseRoute> routes = format.read(input, compactStartDate);
+                if (routes != null && routes.size() > 0)
+                    return createFormatAndRoutes(format, routes);
+            }
+            finally {
+                input.close();
+            }
+        }
+        return null;
+    }
+
+    private InputStream openFile(File source) throws IOException {
+        return new BufferedInputStream(new FileInputStream(source), FILE_BUFFER_SIZE);
+    }
+
+    private boolean read(File source, NavigationFormat format, CompactCalendar startDate, PositionSink sink) throws IOException {
+        InputStream input = openFile(source);
+        try {
+            return format.read(input, startDate, sink);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private FileHead readHead(File source) throws IOException {
+        InputStream input = new FileInputStream(source);
+        try {
+            return FileHead.read(input, FileHead.HEAD_SIZE);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private FormatAndRoutes createFormatAndRoutes(NavigationFormat format, List<BaseRoute> routes) {
+        log.info("Detected '" + format.getName() + "' file with " + routes.size() + " route(s) and " +
+                getPositionCounts(routes) + " positions");
+        commentRoutes(routes);
+        return new FormatAndRoutes(format, routes);
+    }
+
     @SuppressWarnings("unchecked")
     private void commentRoutes(List<BaseRoute> routes) {
         for (BaseRoute<BaseNavigationPosition, BaseNavigationFormat> route : routes) {
@@ -145,22 +233,73 @@ public class NavigationFileParser {
         log.info("Reading '" + source.getAbsolutePath() + "' by " + formats.size() + " formats");
         Calendar startDate = Calendar.getInstance(CompactCalendar.UTC);
         startDate.setTimeInMillis(source.lastModified());
-        FileInputStream fis = new FileInputStream(source);
-        NotClosingUnderlyingInputStream buffer = new NotClosingUnderlyingInputStream(new BufferedInputStream(fis, (int)source.length() + 1));
-        buffer.mark((int)source.length() + 1);
-        try {
-            this.formatAndRoutes = internalRead(buffer, (int) source.length(), startDate, formats);
-            return formatAndRoutes != null;
-        }
-        finally {
-            buffer.closeUnderlyingInputStream();
-        }
+        this.formatAndRoutes = internalRead(source, startDate, formats);
+        return formatAndRoutes != null;
     }
 
     public boolean read(File source) throws IOException {
         return read(source, NavigationFormats.getReadFormats());
     }
 
+    /**
+     * Reads the given file and pushes its routes and positions to the given sink
+     * without keeping them in memory. The file is read only once per format: the first
+     * format that pushes a route to the sink is the format of the file, formats that
+     * fail before are skipped. If this format fails later on, the sink has to discard
+     * what it received and null is returned. In contrast to the other read methods
+     * the positions are passed as the format reads them, i.e. without comments added.
+     * Returns the format that read the file or null if no format could read it.
+     */
+    @SuppressWarnings("unchecked")
+    public NavigationFormat read(File source, List<NavigationFormat> formats, PositionSink sink) throws IOException {
+        log.info("Reading '" + source.getAbsolutePath() + "' by " + formats.size() + " formats into " + sink);
+        Calendar startDate = Calendar.getInstance(CompactCalendar.UTC);
+        startDate.setTimeInMillis(source.lastModified());
+        CompactCalendar compactStartDate = CompactCalendar.fromCalendar(startDate);
+
+        for (NavigationFormat<BaseRoute> format : recognizeFormats(readHead(source), formats)) {
+            notifyReading(format);
+
+            StartDetectingPositionSink detector = new StartDetectingPositionSink(sink);
+            if (read(source, format, compactStartDate, detector)) {
+                log.info("Detected '" + format.getName() + "' file");
+                return format;
+            }
+            // the sink cannot take back what it received, thus no other format may push to it
+            if (detector.isStarted()) {
+                log.info("Failed to read '" + format.getName() + "' file after pushing routes");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static class StartDetectingPositionSink implements PositionSink {
+        private final PositionSink delegate;
+        private boolean started = false;
+
+        private StartDetectingPositionSink(PositionSink delegate) {
+            this.delegate = delegate;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public void startRoute(RouteCharacteristics characteristics, String name) {
+            started = true;
+            delegate.startRoute(characteristics, name);
+        }
+
+        public void position(BaseNavigationPosition position) {
+            delegate.position(position);
+        }
+
+        public void endRoute() {
+            delegate.endRoute();
+        }
+    }
+
     private int getSize(URL url) throws IOException {
         try {
             if (url.getProtocol().equals("file"))
@@ -46,7 +46,10 @@ public interface NavigationFormat<R extends BaseRoute> {
 
     <P extends BaseNavigationPosition> R createRoute(RouteCharacteristics characteristics, String name, List<P> positions);
 
+    Recognition recognize(FileHead head);
+
     List<R> read(InputStream source) throws IOException;
     List<R> read(InputStream source, CompactCalendar startDate) throws IOException;
+    boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException;
     void write(R route, OutputStream target, int startIndex, int endIndex) throws IOException;
 }
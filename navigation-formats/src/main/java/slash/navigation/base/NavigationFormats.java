@@ -20,7 +20,6 @@
 
 package slash.navigation.base;
 
-import slash.common.io.Transfer;
 import slash.navigation.babel.*;
 import slash.navigation.bcr.MTP0607Format;
 import slash.navigation.bcr.MTP0809Format;
@@ -59,20 +58,20 @@ import slash.navigation.wbt.WintecWbt201Tk2Format;
 import slash.navigation.wbt.WintecWbt202TesFormat;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
 
 /**
  * Contains a list of all navigation formats.
+ * <p/>
+ * The formats are instantiated once on first use and shared afterwards.
  *
  * @author Christian Pesch
  */
 
 public final class NavigationFormats {
     private static final List<Class<? extends NavigationFormat>> SUPPORTED_FORMATS = new ArrayList<Class<? extends NavigationFormat>>();
+    private static volatile FormatRegistry registry;
 
     static {
         // self-implemented formats
@@ -174,59 +173,55 @@ public final class NavigationFormats {
         addFormat(GarminPoiDbFormat.class);
     }
 
-    public static void addFormat(Class<? extends NavigationFormat> format) {
+    public static synchronized void addFormat(Class<? extends NavigationFormat> format) {
         SUPPORTED_FORMATS.add(format);
+        registry = null;
     }
 
-    private static List<NavigationFormat> getFormatInstances(boolean restrictToWritableFormats) {
-        List<NavigationFormat> formats = new ArrayList<NavigationFormat>();
-        for (Class<? extends NavigationFormat> formatClass : SUPPORTED_FORMATS) {
-            try {
-                NavigationFormat format = formatClass.newInstance();
-                if (restrictToWritableFormats && format.isSupportsWriting() ||
-                        !restrictToWritableFormats && format.isSupportsReading())
-                    formats.add(format);
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Cannot instantiate " + formatClass, e);
+    private static FormatRegistry getRegistry() {
+        FormatRegistry result = registry;
+        if (result == null) {
+            synchronized (NavigationFormats.class) {
+                result = registry;
+                if (result == null) {
+                    result = new FormatRegistry(SUPPORTED_FORMATS);
+                    registry = result;
+                }
             }
         }
-        return formats;
+        return result;
     }
 
     public static List<NavigationFormat> getReadFormats() {
-        return getFormatInstances(false);
+        return getRegistry().getReadFormats();
     }
 
     public static List<NavigationFormat> getWriteFormats() {
-        return getFormatInstances(true);
-    }
-
-    private static List<NavigationFormat> sortByName(List<NavigationFormat> formats) {
-        NavigationFormat[] formatsArray = formats.toArray(new NavigationFormat[formats.size()]);
-        Arrays.sort(formatsArray, new Comparator<NavigationFormat>() {
-            public int compare(NavigationFormat f1, NavigationFormat f2) {
-                return f1.getName().toLowerCase().compareTo(f2.getName().toLowerCase());
-            }
-        });
-        return Arrays.asList(formatsArray);
+        return getRegistry().getWriteFormats();
     }
 
     public static List<NavigationFormat> getReadFormatsSortedByName() {
-        return sortByName(getReadFormats());
+        return getRegistry().getReadFormatsSortedByName();
     }
 
     public static List<NavigationFormat> getWriteFormatsSortedByName() {
-        return sortByName(getWriteFormats());
+        return getRegistry().getWriteFormatsSortedByName();
     }
 
-    public static List<NavigationFormat> getReadFormatsPreferredByExtension(String preferredExtension) {
-        List<NavigationFormat> preferredFormats = new ArrayList<NavigationFormat>();
-        for(NavigationFormat format : getReadFormats()) {
-            if(format.getExtension().equals(preferredExtension))
-                preferredFormats.add(format);
-        }
+    /**
+     * Returns the format with the given simple or fully qualified class name.
+     *
+     * @param className the simple or fully qualified class name of the format
+     * @return the format or null if there is no such format
+     */
+    public static NavigationFormat getFormatByClassName(String className) {
+        return getRegistry().getFormatByClassName(className);
+    }
 
-        List<NavigationFormat> result = new ArrayList<NavigationFormat>(getReadFormats());
+    public static List<NavigationFormat> getReadFormatsPreferredByExtension(String preferredExtension) {
+        FormatRegistry registry = getRegistry();
+        List<NavigationFormat> preferredFormats = registry.getReadFormatsWithExtension(preferredExtension);
+        List<NavigationFormat> result = new ArrayList<NavigationFormat>(registry.getReadFormats());
         result.removeAll(preferredFormats);
         result.addAll(0, preferredFormats);
         return result;
@@ -241,63 +236,25 @@ public final class NavigationFormats {
         return formats;
     }
 
-    private static String removeDigits(String string) {
-        StringBuffer buffer = new StringBuffer(string);
-        for (int i = 0; i < buffer.length(); i++) {
-            char c = buffer.charAt(i);
-            if (Character.isDigit(c)) {
-                buffer.deleteCharAt(i);
-                i--;
-            }
-        }
-        return buffer.toString();
-    }
-
     /* package local for tests */static BaseNavigationPosition asFormat(BaseNavigationPosition position, NavigationFormat format) throws IOException {
-        BaseNavigationPosition result;
-        String formatName = getFormatName(format);
-        formatName = formatName.replace("Format", "Position");
-        formatName = removeDigits(formatName);
-        try {
-            Method method = position.getClass().getMethod("as" + formatName, new Class[0]);
-            result = (BaseNavigationPosition) method.invoke(position);
-        } catch (Exception e) {
-            throw new IOException("Cannot call as" + formatName + "() on " + position, e);
-        }
-        return result;
+        return FormatConversions.getPositionConversion(format).convert(position);
     }
 
     public static List<BaseNavigationPosition> asFormat(List<BaseNavigationPosition> positions, NavigationFormat format) throws IOException {
-        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>();
+        FormatConversions.PositionConversion conversion = FormatConversions.getPositionConversion(format);
+        List<BaseNavigationPosition> result = new ArrayList<BaseNavigationPosition>(positions.size());
         for (BaseNavigationPosition position : positions) {
-            result.add(asFormat(position, format));
+            result.add(conversion.convert(position));
         }
         return result;
     }
 
     @SuppressWarnings("unchecked")
     public static BaseRoute<BaseNavigationPosition, BaseNavigationFormat> asFormat(BaseRoute route, NavigationFormat format) throws IOException {
-        BaseRoute<BaseNavigationPosition, BaseNavigationFormat> result;
-        String formatName = getFormatName(format);
-        try {
-            Method method = route.getClass().getMethod("as" + formatName, new Class[0]);
-            result = (BaseRoute<BaseNavigationPosition, BaseNavigationFormat>) method.invoke(route);
-            RouteComments.commentPositions(result.getPositions());
-            RouteComments.commentRouteName(result);
-        } catch (Exception e) {
-            throw new IOException("Cannot call as" + formatName + "() on " + route, e);
-        }
+        BaseRoute<BaseNavigationPosition, BaseNavigationFormat> result =
+                (BaseRoute<BaseNavigationPosition, BaseNavigationFormat>) FormatConversions.getRouteConversion(format).convert(route);
+        RouteComments.commentPositions(result.getPositions());
+        RouteComments.commentRouteName(result);
         return result;
     }
-
-    private static String getFormatName(NavigationFormat format) {
-        Class<? extends NavigationFormat> formatClass = format.getClass();
-        String formatName = formatClass.getSimpleName();
-        if (Transfer.trim(formatName) == null && formatClass.getSuperclass() != null)
-            formatName = formatClass.getSuperclass().getSimpleName();
-        // shortcut to prevent lots of as... methods
-        if (format instanceof BabelFormat)
-            formatName = "Gpx10Format";
-        return formatName;
-    }
 }
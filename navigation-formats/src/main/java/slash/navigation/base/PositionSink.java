@@ -0,0 +1,37 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+package slash.navigation.base;
+
+/**
+ * Receives the routes and positions a {@link NavigationFormat} reads
+ * one after the other instead of as complete lists of routes.
+ * <p/>
+ * Positions are pushed between {@link #startRoute} and {@link #endRoute}.
+ * If the format finally reports that it could not read the source, everything
+ * received so far has to be discarded.
+ *
+ * @author Christian Pesch
+ */
+
+public interface PositionSink {
+    void startRoute(RouteCharacteristics characteristics, String name);
+    void position(BaseNavigationPosition position);
+    void endRoute();
+}
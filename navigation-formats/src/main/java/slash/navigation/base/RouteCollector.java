@@ -0,0 +1,69 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+package slash.navigation.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PositionSink} that collects the pushed positions into routes
+ * of a {@link NavigationFormat}.
+ *
+ * @author Christian Pesch
+ */
+
+public class RouteCollector<R extends BaseRoute> implements PositionSink {
+    private final NavigationFormat<R> format;
+    private final List<R> routes = new ArrayList<R>();
+    private RouteCharacteristics characteristics;
+    private String name;
+    private List<BaseNavigationPosition> positions;
+
+    public RouteCollector(NavigationFormat<R> format) {
+        this.format = format;
+    }
+
+    public void startRoute(RouteCharacteristics characteristics, String name) {
+        this.characteristics = characteristics;
+        this.name = name;
+        this.positions = createPositions();
+    }
+
+    protected List<BaseNavigationPosition> createPositions() {
+        return new ArrayList<BaseNavigationPosition>();
+    }
+
+    public void position(BaseNavigationPosition position) {
+        positions.add(position);
+    }
+
+    public void endRoute() {
+        routes.add(createRoute(characteristics, name, positions));
+        positions = null;
+    }
+
+    protected R createRoute(RouteCharacteristics characteristics, String name, List<BaseNavigationPosition> positions) {
+        return format.createRoute(characteristics, name, positions);
+    }
+
+    public List<R> getRoutes() {
+        return routes;
+    }
+}
@@ -23,9 +23,8 @@ import slash.common.io.CompactCalendar;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -35,44 +34,115 @@ import java.util.List;
  */
 
 public abstract class SimpleLineBasedFormat<R extends SimpleRoute> extends SimpleFormat<R> {
+    private static final Wgs84Position GARBLED = new Wgs84Position(null, null, null, null, null, null);
 
     public int getMaximumPositionCount() {
         return UNLIMITED_MAXIMUM_POSITION_COUNT;
     }
 
-    @SuppressWarnings("unchecked")
-    public List<R> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
-        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+    public Recognition recognize(FileHead head) {
+        return recognize(head.getLines(), head.isComplete());
+    }
 
+    protected Recognition recognize(List<String> lines, boolean complete) {
+        // mirrors the line checks of read() for the lines within the head
         int lineCount = 0;
-        while (true) {
-            String line = reader.readLine();
-            if (line == null)
-                break;
+        boolean foundPosition = false;
+        for (String line : lines) {
             if (line.length() == 0)
                 continue;
 
             if (isValidLine(line)) {
-                if (isPosition(line)) {
-                    Wgs84Position position = parsePosition(line, startDate);
-                    positions.add(position);
-                }
+                if (isPosition(line))
+                    foundPosition = true;
             } else {
                 if (lineCount++ > getGarbleCount())
-                    return null;
+                    return Recognition.Mismatch;
             }
         }
+        // the line patterns are no signature, thus reading might only succeed
+        return foundPosition || !complete ? Recognition.Possible : Recognition.Mismatch;
+    }
+
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return read(source, startDate, DEFAULT_ENCODING, sink);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<R> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
+        RouteCollector<R> collector = new RouteCollector<R>(this) {
+            protected List<BaseNavigationPosition> createPositions() {
+                return (List<BaseNavigationPosition>) (List) createPositionList();
+            }
+
+            protected R createRoute(RouteCharacteristics characteristics, String name, List<BaseNavigationPosition> positions) {
+                return SimpleLineBasedFormat.this.createRoute(characteristics, (List<Wgs84Position>) (List) positions);
+            }
+        };
+        if (!read(reader, startDate, encoding, collector))
+            return null;
 
-        if (shouldCreateRoute(positions))
-            return Arrays.asList(createRoute(getRouteCharacteristics(), positions));
+        List<R> routes = collector.getRoutes();
+        if (shouldCreateRoute(routes.get(0).getPositions()))
+            return routes;
         else
             return null;
     }
 
+    protected boolean read(BufferedReader reader, final CompactCalendar startDate, String encoding, PositionSink sink) throws IOException {
+        ChunkedLineReader<Wgs84Position> lines = new ChunkedLineReader<Wgs84Position>(reader) {
+            protected LineParser<Wgs84Position> createLineParser() {
+                return new LineParser<Wgs84Position>() {
+                    public Wgs84Position parse(String line) {
+                        if (line.length() == 0)
+                            return null;
+                        if (!isValidLine(line))
+                            return GARBLED;
+                        return isPosition(line) ? parsePosition(line, startDate) : null;
+                    }
+                };
+            }
+        };
+
+        try {
+            boolean routeStarted = false;
+            int lineCount = 0;
+            Wgs84Position position;
+            while ((position = lines.read()) != null) {
+                if (position == GARBLED) {
+                    if (lineCount++ > getGarbleCount())
+                        return false;
+                    continue;
+                }
+
+                if (!routeStarted) {
+                    sink.startRoute(getRouteCharacteristics(), null);
+                    routeStarted = true;
+                }
+                sink.position(position);
+            }
+
+            if (routeStarted)
+                sink.endRoute();
+            return routeStarted;
+        }
+        finally {
+            lines.close();
+        }
+    }
+
     protected int getGarbleCount() {
         return 0;
     }
 
+    /**
+     * Creates the list the positions are read into. It stores plain {@link Wgs84Position}s
+     * in primitive arrays; formats that read subclasses must keep them as objects.
+     */
+    protected List<Wgs84Position> createPositionList() {
+        return new Wgs84PositionList();
+    }
+
     protected boolean shouldCreateRoute(List<Wgs84Position> positions) {
         return positions.size() > 0;
     }
@@ -99,7 +169,8 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute> extends Simpl
         writeHeader(writer);
         for (int i = startIndex; i < endIndex; i++) {
             Wgs84Position position = positions.get(i);
-            writePosition(position, writer, i, i == startIndex);
+            Wgs84Position previousPosition = i > startIndex ? positions.get(i - 1) : null;
+            writePosition(position, previousPosition, writer, i, i == startIndex);
         }
         writeFooter(writer, endIndex - startIndex);
     }
@@ -107,7 +178,7 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute> extends Simpl
     protected void writeHeader(PrintWriter writer) {
     }
 
-    protected abstract void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition);
+    protected abstract void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition);
 
     protected void writeFooter(PrintWriter writer, int positionCount) {
     }
@@ -23,7 +23,6 @@ package slash.navigation.base;
 import slash.common.io.CompactCalendar;
 
 import java.io.*;
-import java.util.Calendar;
 import java.util.List;
 
 /**
@@ -37,8 +36,7 @@ public abstract class TextNavigationFormat<R extends BaseRoute> extends BaseNavi
     protected boolean isValidStartDate(CompactCalendar startDate) {
         if(startDate == null)
             return false;
-        Calendar calendar = startDate.getCalendar();
-        return !(calendar.get(Calendar.YEAR) == 1970 && calendar.get(Calendar.DAY_OF_YEAR) == 1);
+        return !(startDate.getYear() == 1970 && startDate.getDayOfYear() == 1);
     }
 
     public List<R> read(InputStream source, CompactCalendar startDate) throws IOException {
@@ -59,6 +57,21 @@ public abstract class TextNavigationFormat<R extends BaseRoute> extends BaseNavi
     // encoding currently only used in GoogleMapsUrlFormat
     public abstract List<R> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException;
 
+    protected boolean read(InputStream source, CompactCalendar startDate, String encoding, PositionSink sink) throws IOException {
+        Reader reader = new InputStreamReader(source, encoding);
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        try {
+            return read(bufferedReader, startDate, encoding, sink);
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    protected boolean read(BufferedReader reader, CompactCalendar startDate, String encoding, PositionSink sink) throws IOException {
+        return pushRoutes(read(reader, startDate, encoding), sink);
+    }
+
     protected void write(R route, OutputStream target, String encoding, int startIndex, int endIndex) throws IOException {
         PrintWriter writer = new PrintWriter(new OutputStreamWriter(target, encoding));
         try {
@@ -50,6 +50,7 @@ public class Wgs84Position extends BaseNavigationPosition {
 
     public void setLongitude(Double longitude) {
         this.longitude = longitude;
+        modified();
     }
 
     public Double getLatitude() {
@@ -58,6 +59,7 @@ public class Wgs84Position extends BaseNavigationPosition {
 
     public void setLatitude(Double latitude) {
         this.latitude = latitude;
+        modified();
     }
 
     public String getComment() {
@@ -0,0 +1,728 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.io.CompactCalendar;
+import slash.navigation.util.Geodesy;
+import slash.navigation.util.RouteComments;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list of {@link Wgs84Position}s that stores the positions in primitive arrays,
+ * one array per attribute, instead of one object per position.
+ * <p/>
+ * Comments, time zones other than UTC, headings, dilutions of precision and satellites
+ * are stored in arrays that are allocated once the first value is set. The numbered default
+ * comments of {@link RouteComments#commentPositions} are stored as numbers. The positions are
+ * views on the arrays that are created once a position is requested and that read and write
+ * through. The list references them weakly, so they exist only as long as they are used.
+ * A view that is removed from the list keeps its values; it moves to its new index
+ * when it is added or set to this list again. Other positions are copied into the arrays.
+ * Views are equal to other views with the same values but never to other positions.
+ * <p/>
+ * Scans over many positions should use the methods with an index, like
+ * {@link #getLongitude(int)}, that don't create views.
+ *
+ * @author Christian Pesch
+ */
+
+public class Wgs84PositionList extends AbstractList<Wgs84Position> implements RandomAccess {
+    private static final long NULL_BITS = 0x7ff800000000f00dL;
+    private static final double NULL = Double.longBitsToDouble(NULL_BITS);
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_SATELLITES = Integer.MIN_VALUE;
+    private static final String UTC = "UTC";
+    private static final int MODIFICATION_HISTORY = 64;
+
+    private int size;
+    private double[] longitudes, latitudes, elevations, speeds;
+    private long[] times;
+    private String[] timeZoneIds, comments;
+    private double[] headings, hdops, vdops, pdops;
+    private int[] satellites, commentNumbers;
+    private WeakReference<View>[] views;
+    private long modificationCount;
+    private final int[] modifiedIndices = new int[MODIFICATION_HISTORY];
+
+    public Wgs84PositionList() {
+        this(10);
+    }
+
+    public Wgs84PositionList(int initialCapacity) {
+        longitudes = new double[initialCapacity];
+        latitudes = new double[initialCapacity];
+        elevations = new double[initialCapacity];
+        speeds = new double[initialCapacity];
+        times = new long[initialCapacity];
+    }
+
+    private static double encode(Double value) {
+        return value != null ? value : NULL;
+    }
+
+    private static Double decode(double value) {
+        return Double.doubleToRawLongBits(value) == NULL_BITS ? null : value;
+    }
+
+    private static boolean isNull(double value) {
+        return Double.doubleToRawLongBits(value) == NULL_BITS;
+    }
+
+    private static double[] createColumn(int capacity) {
+        double[] column = new double[capacity];
+        Arrays.fill(column, NULL);
+        return column;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasCoordinates(int index) {
+        return !isNull(longitudes[index]) && !isNull(latitudes[index]);
+    }
+
+    /**
+     * Returns the longitude of the position at the given index which is undefined
+     * if the position has no {@link #hasCoordinates(int) coordinates}.
+     */
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * Returns the latitude of the position at the given index which is undefined
+     * if the position has no {@link #hasCoordinates(int) coordinates}.
+     */
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    /**
+     * Computes the distances between the neighbouring positions from the given index
+     * (inclusive) to the given index (exclusive) like {@link Geodesy#distances} without
+     * creating positions.
+     */
+    public void calculateDistances(int fromIndex, int toIndex, double[] distances) {
+        if (toIndex <= fromIndex)
+            return;
+        checkIndex(toIndex - 1, size);
+        Geodesy.distances(longitudes, latitudes, fromIndex, toIndex, distances, 0.0);
+    }
+
+    public boolean hasElevation(int index) {
+        return !isNull(elevations[index]);
+    }
+
+    /**
+     * Returns the elevation of the position at the given index which is undefined
+     * if the position has no {@link #hasElevation(int) elevation}.
+     */
+    public double getElevation(int index) {
+        return elevations[index];
+    }
+
+    public boolean hasTime(int index) {
+        return times[index] != NO_TIME;
+    }
+
+    /**
+     * Returns the time of the position at the given index which is undefined
+     * if the position has no {@link #hasTime(int) time}.
+     */
+    public long getTimeInMillis(int index) {
+        return times[index];
+    }
+
+    long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Returns the lowest index that has been modified since the given modification count.
+     *
+     * @param modificationCount a value of {@link #getModificationCount()}
+     * @return the lowest modified index, 0 if the modification count is too old to know
+     *         or {@link Integer#MAX_VALUE} if nothing has been modified
+     */
+    int getFirstModifiedIndex(long modificationCount) {
+        if (this.modificationCount - modificationCount > MODIFICATION_HISTORY)
+            return 0;
+        int result = Integer.MAX_VALUE;
+        for (long i = modificationCount; i < this.modificationCount; i++)
+            result = Math.min(result, modifiedIndices[((int) (i % MODIFICATION_HISTORY))]);
+        return result;
+    }
+
+    private void modified(int index) {
+        modifiedIndices[((int) (modificationCount++ % MODIFICATION_HISTORY))] = index;
+    }
+
+    private void checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    private void ensureCapacity(int minimumCapacity) {
+        int capacity = longitudes.length;
+        if (minimumCapacity <= capacity)
+            return;
+
+        capacity = Math.max(minimumCapacity, capacity * 3 / 2 + 1);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        elevations = Arrays.copyOf(elevations, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        times = Arrays.copyOf(times, capacity);
+        if (timeZoneIds != null)
+            timeZoneIds = Arrays.copyOf(timeZoneIds, capacity);
+        if (comments != null)
+            comments = Arrays.copyOf(comments, capacity);
+        if (commentNumbers != null)
+            commentNumbers = Arrays.copyOf(commentNumbers, capacity);
+        if (headings != null)
+            headings = Arrays.copyOf(headings, capacity);
+        if (hdops != null)
+            hdops = Arrays.copyOf(hdops, capacity);
+        if (vdops != null)
+            vdops = Arrays.copyOf(vdops, capacity);
+        if (pdops != null)
+            pdops = Arrays.copyOf(pdops, capacity);
+        if (satellites != null)
+            satellites = Arrays.copyOf(satellites, capacity);
+        if (views != null)
+            views = Arrays.copyOf(views, capacity);
+    }
+
+    private void moveRows(int from, int to, int count) {
+        System.arraycopy(longitudes, from, longitudes, to, count);
+        System.arraycopy(latitudes, from, latitudes, to, count);
+        System.arraycopy(elevations, from, elevations, to, count);
+        System.arraycopy(speeds, from, speeds, to, count);
+        System.arraycopy(times, from, times, to, count);
+        if (timeZoneIds != null)
+            System.arraycopy(timeZoneIds, from, timeZoneIds, to, count);
+        if (comments != null)
+            System.arraycopy(comments, from, comments, to, count);
+        if (commentNumbers != null)
+            System.arraycopy(commentNumbers, from, commentNumbers, to, count);
+        if (headings != null)
+            System.arraycopy(headings, from, headings, to, count);
+        if (hdops != null)
+            System.arraycopy(hdops, from, hdops, to, count);
+        if (vdops != null)
+            System.arraycopy(vdops, from, vdops, to, count);
+        if (pdops != null)
+            System.arraycopy(pdops, from, pdops, to, count);
+        if (satellites != null)
+            System.arraycopy(satellites, from, satellites, to, count);
+        if (views != null) {
+            System.arraycopy(views, from, views, to, count);
+            for (int i = to; i < to + count; i++) {
+                View view = peekView(i);
+                if (view != null)
+                    view.index = i;
+            }
+        }
+    }
+
+    private void clearRows(int from, int to) {
+        if (timeZoneIds != null)
+            Arrays.fill(timeZoneIds, from, to, null);
+        if (comments != null)
+            Arrays.fill(comments, from, to, null);
+        if (commentNumbers != null)
+            Arrays.fill(commentNumbers, from, to, 0);
+        if (views != null)
+            Arrays.fill(views, from, to, null);
+    }
+
+    private void setTime(int index, CompactCalendar time) {
+        times[index] = time != null ? time.getTimeInMillis() : NO_TIME;
+        String timeZoneId = time != null ? time.getTimeZoneId() : UTC;
+        if (timeZoneIds == null && !UTC.equals(timeZoneId))
+            timeZoneIds = new String[longitudes.length];
+        if (timeZoneIds != null)
+            timeZoneIds[index] = UTC.equals(timeZoneId) ? null : timeZoneId;
+    }
+
+    private CompactCalendar getTime(int index) {
+        long time = times[index];
+        if (time == NO_TIME)
+            return null;
+        String timeZoneId = timeZoneIds != null ? timeZoneIds[index] : null;
+        return CompactCalendar.fromMillisAndTimeZone(time, timeZoneId != null ? timeZoneId : UTC);
+    }
+
+    private void setComment(int index, String comment) {
+        if (comments == null && comment != null)
+            comments = new String[longitudes.length];
+        if (comments != null)
+            comments[index] = comment;
+        if (commentNumbers != null)
+            commentNumbers[index] = 0;
+    }
+
+    private String getComment(int index) {
+        String comment = comments != null ? comments[index] : null;
+        if (comment == null && commentNumbers != null && commentNumbers[index] != 0)
+            comment = RouteComments.getPositionComment(commentNumbers[index] - 1);
+        return comment;
+    }
+
+    /**
+     * Numbers the comments of the positions like {@link RouteComments#commentPositions}
+     * without creating views. Missing comments are stored as numbers.
+     */
+    public void commentPositions() {
+        for (int i = 0; i < size; i++) {
+            String comment = comments != null ? comments[i] : null;
+            if (RouteComments.isMissingComment(comment)) {
+                if (comment != null)
+                    comments[i] = null;
+                if (commentNumbers == null)
+                    commentNumbers = new int[longitudes.length];
+                commentNumbers[i] = i + 1;
+            } else {
+                String numbered = RouteComments.getPositionComment(comment, i);
+                if (!numbered.equals(comment))
+                    get(i).setComment(numbered);
+            }
+        }
+    }
+
+    private void setHeading(int index, Double heading) {
+        if (headings == null && heading != null)
+            headings = createColumn(longitudes.length);
+        if (headings != null)
+            headings[index] = encode(heading);
+    }
+
+    private void setHdop(int index, Double hdop) {
+        if (hdops == null && hdop != null)
+            hdops = createColumn(longitudes.length);
+        if (hdops != null)
+            hdops[index] = encode(hdop);
+    }
+
+    private void setVdop(int index, Double vdop) {
+        if (vdops == null && vdop != null)
+            vdops = createColumn(longitudes.length);
+        if (vdops != null)
+            vdops[index] = encode(vdop);
+    }
+
+    private void setPdop(int index, Double pdop) {
+        if (pdops == null && pdop != null)
+            pdops = createColumn(longitudes.length);
+        if (pdops != null)
+            pdops[index] = encode(pdop);
+    }
+
+    private void setSatellites(int index, Integer satellites) {
+        if (this.satellites == null && satellites != null) {
+            this.satellites = new int[longitudes.length];
+            Arrays.fill(this.satellites, NO_SATELLITES);
+        }
+        if (this.satellites != null)
+            this.satellites[index] = satellites != null ? satellites : NO_SATELLITES;
+    }
+
+    private void write(int index, Wgs84Position position) {
+        longitudes[index] = encode(position.getLongitude());
+        latitudes[index] = encode(position.getLatitude());
+        elevations[index] = encode(position.getElevation());
+        speeds[index] = encode(position.getSpeed());
+        setTime(index, position.getTime());
+        setComment(index, position.getComment());
+        setHeading(index, position.getHeading());
+        setHdop(index, position.getHdop());
+        setVdop(index, position.getVdop());
+        setPdop(index, position.getPdop());
+        setSatellites(index, position.getSatellites());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void createViews() {
+        if (views == null)
+            views = (WeakReference<View>[]) new WeakReference[longitudes.length];
+    }
+
+    private View peekView(int index) {
+        if (views == null)
+            return null;
+        WeakReference<View> reference = views[index];
+        return reference != null ? reference.get() : null;
+    }
+
+    private View getView(int index) {
+        View view = peekView(index);
+        if (view == null) {
+            createViews();
+            view = new View();
+            attach(view, index);
+        }
+        return view;
+    }
+
+    private void attach(View view, int index) {
+        if (view.attached && peekView(view.index) == view)
+            views[view.index] = null;
+        view.index = index;
+        view.attached = true;
+        views[index] = new WeakReference<View>(view);
+    }
+
+    private View detach(int index) {
+        View view = getView(index);
+        view.detach();
+        views[index] = null;
+        return view;
+    }
+
+    private void bind(Wgs84Position position, int index) {
+        if (position instanceof View && ((View) position).getList() == this) {
+            createViews();
+            attach((View) position, index);
+        }
+    }
+
+    public Wgs84Position get(int index) {
+        checkIndex(index, size);
+        return getView(index);
+    }
+
+    public Wgs84Position set(int index, Wgs84Position position) {
+        checkIndex(index, size);
+        View previous = detach(index);
+        write(index, position);
+        bind(position, index);
+        modified(index);
+        return previous;
+    }
+
+    public void add(int index, Wgs84Position position) {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        moveRows(index, index + 1, size - index);
+        clearRows(index, index + 1);
+        size++;
+        write(index, position);
+        bind(position, index);
+        modCount++;
+        modified(index);
+    }
+
+    public boolean addAll(Collection<? extends Wgs84Position> positions) {
+        return addAll(size, positions);
+    }
+
+    public boolean addAll(int index, Collection<? extends Wgs84Position> positions) {
+        checkIndex(index, size + 1);
+        Object[] added = positions.toArray();
+        int count = added.length;
+        if (count == 0)
+            return false;
+
+        ensureCapacity(size + count);
+        moveRows(index, index + count, size - index);
+        clearRows(index, index + count);
+        size += count;
+        for (int i = 0; i < count; i++) {
+            Wgs84Position position = (Wgs84Position) added[i];
+            write(index + i, position);
+            bind(position, index + i);
+        }
+        modCount++;
+        modified(index);
+        return true;
+    }
+
+    public Wgs84Position remove(int index) {
+        checkIndex(index, size);
+        View previous = detach(index);
+        moveRows(index + 1, index, size - index - 1);
+        clearRows(size - 1, size);
+        size--;
+        modCount++;
+        modified(index);
+        return previous;
+    }
+
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return;
+        if (views != null) {
+            for (int i = fromIndex; i < toIndex; i++) {
+                View view = peekView(i);
+                if (view != null)
+                    view.detach();
+            }
+        }
+        moveRows(toIndex, fromIndex, size - toIndex);
+        clearRows(size - (toIndex - fromIndex), size);
+        size -= toIndex - fromIndex;
+        modCount++;
+        modified(fromIndex);
+    }
+
+    /**
+     * Creates a position that is not part of the list yet but that
+     * stays the same object once it is added to the list.
+     */
+    public Wgs84Position createPosition(Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String comment) {
+        View view = new View();
+        view.setLongitude(longitude);
+        view.setLatitude(latitude);
+        view.setElevation(elevation);
+        view.setSpeed(speed);
+        view.setTime(time);
+        view.setComment(comment);
+        return view;
+    }
+
+    private class View extends Wgs84Position {
+        // both are false and 0 while the super constructor runs
+        private boolean attached;
+        private int index;
+
+        private View() {
+            super(null, null, null, null, null, null);
+        }
+
+        private Wgs84PositionList getList() {
+            return Wgs84PositionList.this;
+        }
+
+        public double distanceTo(BaseNavigationPosition other) {
+            if (attached && other instanceof View && ((View) other).getList() == getList() && ((View) other).attached) {
+                int otherIndex = ((View) other).index;
+                return Geodesy.distance(longitudes[index], latitudes[index], longitudes[otherIndex], latitudes[otherIndex]);
+            }
+            return super.distanceTo(other);
+        }
+
+        private void detach() {
+            if (!attached)
+                return;
+            longitude = decode(longitudes[index]);
+            latitude = decode(latitudes[index]);
+            elevation = decode(elevations[index]);
+            super.setSpeed(decode(speeds[index]));
+            time = Wgs84PositionList.this.getTime(index);
+            comment = Wgs84PositionList.this.getComment(index);
+            heading = headings != null ? decode(headings[index]) : null;
+            hdop = hdops != null ? decode(hdops[index]) : null;
+            vdop = vdops != null ? decode(vdops[index]) : null;
+            pdop = pdops != null ? decode(pdops[index]) : null;
+            satellites = Wgs84PositionList.this.satellites != null && Wgs84PositionList.this.satellites[index] != NO_SATELLITES ?
+                    Wgs84PositionList.this.satellites[index] : null;
+            attached = false;
+        }
+
+        public Double getLongitude() {
+            return attached ? decode(longitudes[index]) : super.getLongitude();
+        }
+
+        public void setLongitude(Double longitude) {
+            if (attached) {
+                longitudes[index] = encode(longitude);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setLongitude(longitude);
+        }
+
+        public Double getLatitude() {
+            return attached ? decode(latitudes[index]) : super.getLatitude();
+        }
+
+        public void setLatitude(Double latitude) {
+            if (attached) {
+                latitudes[index] = encode(latitude);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setLatitude(latitude);
+        }
+
+        public Double getElevation() {
+            return attached ? decode(elevations[index]) : super.getElevation();
+        }
+
+        public void setElevation(Double elevation) {
+            if (attached) {
+                elevations[index] = encode(elevation);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setElevation(elevation);
+        }
+
+        public Double getSpeed() {
+            return attached ? decode(speeds[index]) : super.getSpeed();
+        }
+
+        public void setSpeed(Double speed) {
+            if (attached) {
+                speeds[index] = encode(speed);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setSpeed(speed);
+        }
+
+        public CompactCalendar getTime() {
+            return attached ? Wgs84PositionList.this.getTime(index) : super.getTime();
+        }
+
+        public void setTime(CompactCalendar time) {
+            if (attached) {
+                Wgs84PositionList.this.setTime(index, time);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setTime(time);
+        }
+
+        public String getComment() {
+            if (attached)
+                return Wgs84PositionList.this.getComment(index);
+            return super.getComment();
+        }
+
+        public void setComment(String comment) {
+            if (attached) {
+                Wgs84PositionList.this.setComment(index, comment);
+                if (comment != null)
+                    RouteComments.parseComment(this, comment);
+            } else
+                super.setComment(comment);
+        }
+
+        public Double getHeading() {
+            if (attached)
+                return headings != null ? decode(headings[index]) : null;
+            return super.getHeading();
+        }
+
+        public void setHeading(Double heading) {
+            if (attached) {
+                Wgs84PositionList.this.setHeading(index, heading);
+                Wgs84PositionList.this.modified(index);
+            } else
+                super.setHeading(heading);
+        }
+
+        public Double getHdop() {
+            if (attached)
+                return hdops != null ? decode(hdops[index]) : null;
+            return super.getHdop();
+        }
+
+        public void setHdop(Double hdop) {
+            if (attached)
+                Wgs84PositionList.this.setHdop(index, hdop);
+            else
+                super.setHdop(hdop);
+        }
+
+        public Double getVdop() {
+            if (attached)
+                return vdops != null ? decode(vdops[index]) : null;
+            return super.getVdop();
+        }
+
+        public void setVdop(Double vdop) {
+            if (attached)
+                Wgs84PositionList.this.setVdop(index, vdop);
+            else
+                super.setVdop(vdop);
+        }
+
+        public Double getPdop() {
+            if (attached)
+                return pdops != null ? decode(pdops[index]) : null;
+            return super.getPdop();
+        }
+
+        public void setPdop(Double pdop) {
+            if (attached)
+                Wgs84PositionList.this.setPdop(index, pdop);
+            else
+                super.setPdop(pdop);
+        }
+
+        public Integer getSatellites() {
+            if (attached) {
+                int[] column = Wgs84PositionList.this.satellites;
+                return column != null && column[index] != NO_SATELLITES ? column[index] : null;
+            }
+            return super.getSatellites();
+        }
+
+        public void setSatellites(Integer satellites) {
+            if (attached)
+                Wgs84PositionList.this.setSatellites(index, satellites);
+            else
+                super.setSatellites(satellites);
+        }
+
+        private boolean equals(Object o1, Object o2) {
+            return o1 != null ? o1.equals(o2) : o2 == null;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof View)) return false;
+
+            View that = (View) o;
+            return equals(getComment(), that.getComment()) &&
+                    equals(getElevation(), that.getElevation()) &&
+                    equals(getHeading(), that.getHeading()) &&
+                    equals(getLatitude(), that.getLatitude()) &&
+                    equals(getLongitude(), that.getLongitude()) &&
+                    equals(getTime(), that.getTime()) &&
+                    equals(getHdop(), that.getHdop()) &&
+                    equals(getPdop(), that.getPdop()) &&
+                    equals(getVdop(), that.getVdop()) &&
+                    equals(getSatellites(), that.getSatellites());
+        }
+
+        private int hashCode(Object o) {
+            return o != null ? o.hashCode() : 0;
+        }
+
+        public int hashCode() {
+            int result = hashCode(getLongitude());
+            result = 31 * result + hashCode(getLatitude());
+            result = 31 * result + hashCode(getElevation());
+            result = 31 * result + hashCode(getHeading());
+            result = 31 * result + hashCode(getComment());
+            result = 31 * result + hashCode(getTime());
+            result = 31 * result + hashCode(getHdop());
+            result = 31 * result + hashCode(getPdop());
+            result = 31 * result + hashCode(getVdop());
+            result = 31 * result + hashCode(getSatellites());
+            return result;
+        }
+    }
+}
@@ -46,6 +46,8 @@ public class Wgs84Route extends SimpleRoute<Wgs84Position, SimpleFormat> {
     }
 
     public Wgs84Position createPosition(Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String comment) {
+        if (positions instanceof Wgs84PositionList)
+            return ((Wgs84PositionList) positions).createPosition(longitude, latitude, elevation, speed, time, comment);
         return new Wgs84Position(longitude, latitude, elevation, speed, time, comment);
     }
 }
@@ -48,6 +48,16 @@ public abstract class XmlNavigationFormat<R extends BaseRoute> extends BaseNavig
         return buffer.toString();
     }
 
+    protected Recognition recognizeXml(FileHead head, String rootElement, String namespace) {
+        if (!head.isXml())
+            return Recognition.Mismatch;
+        if (head.getXmlRootElement() == null)
+            return Recognition.Possible;
+        if (!rootElement.equals(head.getXmlRootElement()))
+            return Recognition.Mismatch;
+        return namespace.equals(head.getXmlRootNamespace()) ? Recognition.Match : Recognition.Possible;
+    }
+
     public static CompactCalendar parseTime(XMLGregorianCalendar calendar) {
         if (calendar == null)
             return null;
@@ -124,7 +124,7 @@ public abstract class BcrFormat extends IniFileFormat<BcrRoute> {
         return null;
     }
 
-    boolean isSectionTitle(String line) {
+    protected boolean isSectionTitle(String line) {
         Matcher matcher = SECTION_TITLE_PATTERN.matcher(line);
         return matcher.matches();
     }
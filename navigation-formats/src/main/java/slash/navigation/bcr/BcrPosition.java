@@ -79,6 +79,7 @@ public class BcrPosition extends MercatorPosition {
 
     public void setElevation(Double elevation) {
         this.altitude = asAltitude(elevation);
+        modified();
     }
 
     public boolean isUnstructured() {
@@ -20,6 +20,8 @@
 
 package slash.navigation.copilot;
 
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.base.Wgs84Route;
 import slash.common.io.CompactCalendar;
@@ -40,6 +42,10 @@ public class CoPilot7Format extends CoPilotFormat {
         return "CoPilot 7 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognize(head.getLines(UTF16_ENCODING), head.isComplete());
+    }
+
     public List<Wgs84Route> read(InputStream source, CompactCalendar startDate) throws IOException {
         return read(source, startDate, UTF16_ENCODING);
     }
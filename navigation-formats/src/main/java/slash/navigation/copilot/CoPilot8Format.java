@@ -22,6 +22,8 @@ package slash.navigation.copilot;
 
 import slash.common.io.CompactCalendar;
 import slash.common.io.Transfer;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.base.Wgs84Route;
 
@@ -44,6 +46,10 @@ public class CoPilot8Format extends CoPilotFormat {
         return "CoPilot 8 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognize(head.getLines(UTF16_ENCODING), head.isComplete());
+    }
+
     public List<Wgs84Route> read(InputStream source, CompactCalendar startDate) throws IOException {
         return read(source, startDate, UTF16_ENCODING);
     }
@@ -78,6 +78,28 @@ public abstract class CoPilotFormat extends SimpleFormat<Wgs84Route> {
         return new Wgs84Position(first.getLongitude(), first.getLatitude(), null, null, null, "Start:" + first.getComment());
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognize(head.getLines(), head.isComplete());
+    }
+
+    protected Recognition recognize(List<String> lines, boolean complete) {
+        // mirrors the line checks of read() for the lines within the head
+        boolean foundPosition = false;
+        for (String line : lines) {
+            if (Transfer.trim(line) == null)
+                continue;
+
+            if (isDataVersion(line) || line.startsWith(END_TRIP) || line.startsWith(END_STOP_OPT) ||
+                    line.startsWith(START_TRIP) || line.startsWith(START_STOP) || line.startsWith(START_STOP_OPT)) {
+            } else if (line.startsWith(END_STOP)) {
+                foundPosition = true;
+            } else if (!isNameValue(line)) {
+                return Recognition.Mismatch;
+            }
+        }
+        return foundPosition || !complete ? Recognition.Possible : Recognition.Mismatch;
+    }
+
     public List<Wgs84Route> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
         List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
         Map<String, String> map = new HashMap<String, String>();
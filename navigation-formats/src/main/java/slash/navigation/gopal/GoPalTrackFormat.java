@@ -21,15 +21,11 @@
 package slash.navigation.gopal;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -50,12 +46,8 @@ public class GoPalTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private static final Logger log = Logger.getLogger(GoPalTrackFormat.class.getName());
 
     private static final char SEPARATOR_CHAR = ',';
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("yyyyMMdd HHmmss");
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HHmmss");
-    static {
-        DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("yyyyMMdd HHmmss");
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HHmmss");
 
     private static final Pattern LINE_PATTERN = Pattern.
             compile(BEGIN_OF_LINE +
@@ -110,13 +102,10 @@ public class GoPalTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
     }
 
     private CompactCalendar parseTime(String time) {
-        try {
-            Date parsed = TIME_FORMAT.parse(time);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = TIME_FORMAT.parse(time);
+        if (result == null)
             log.severe("Could not parse time '" + time + "'");
-        }
-        return null;
+        return result;
     }
 
     private CompactCalendar parseDateAndTime(String date, String time) {
@@ -125,13 +114,10 @@ public class GoPalTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
         if (date == null)
             return parseTime(time);
         String dateAndTime = date + " " + time;
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -170,13 +156,13 @@ public class GoPalTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private String formatTime(CompactCalendar time) {
         if (time == null)
             return "000000";
-        Calendar calendar = time.getCalendar();
-        return formatNumber(calendar.get(Calendar.HOUR_OF_DAY)) +
-               formatNumber(calendar.get(Calendar.MINUTE)) +
-               formatNumber(calendar.get(Calendar.SECOND));
+        int seconds = time.getMillisOfDay() / 1000;
+        return formatNumber(seconds / 3600) +
+               formatNumber(seconds / 60 % 60) +
+               formatNumber(seconds % 60);
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatPositionAsString(position.getLongitude());
         String latitude = Transfer.formatPositionAsString(position.getLatitude());
         String time = formatTime(position.getTime());
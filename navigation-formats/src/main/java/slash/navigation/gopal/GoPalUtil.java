@@ -20,7 +20,7 @@
 
 package slash.navigation.gopal;
 
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 
 import javax.xml.bind.*;
 import javax.xml.namespace.QName;
@@ -29,17 +29,17 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 class GoPalUtil {
-    private static final JAXBContext CONTEXT_3 = JaxbUtils.newContext(slash.navigation.gopal.binding3.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_5 = JaxbUtils.newContext(slash.navigation.gopal.binding5.ObjectFactory.class);
+    private static final PooledContext CONTEXT_3 = new PooledContext(slash.navigation.gopal.binding3.ObjectFactory.class);
+    private static final PooledContext CONTEXT_5 = new PooledContext(slash.navigation.gopal.binding5.ObjectFactory.class);
 
     private static final String GOPAL_NAMESPACE_URI = "";
 
     private static Unmarshaller newUnmarshaller3() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_3);
+        return CONTEXT_3.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller3() {
-        Marshaller marshaller = JaxbUtils.newMarshaller(CONTEXT_3);
+        Marshaller marshaller = CONTEXT_3.getMarshaller();
         try {
             marshaller.setProperty(Marshaller.JAXB_ENCODING, "ISO-8859-1");
         } catch (PropertyException e) {
@@ -49,11 +49,11 @@ class GoPalUtil {
     }
 
     private static Unmarshaller newUnmarshaller5() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_5);
+        return CONTEXT_5.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller5() {
-        return JaxbUtils.newMarshaller(CONTEXT_5);
+        return CONTEXT_5.getMarshaller();
     }
 
 
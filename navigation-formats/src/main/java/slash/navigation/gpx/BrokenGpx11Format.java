@@ -22,6 +22,7 @@ package slash.navigation.gpx;
 
 import slash.navigation.gpx.binding11.GpxType;
 import slash.common.io.CompactCalendar;
+import slash.navigation.base.PositionSink;
 
 import javax.xml.bind.JAXBException;
 import java.io.IOException;
@@ -60,4 +61,8 @@ public class BrokenGpx11Format extends Gpx11Format {
         }
         return null;
     }
+
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return pushRoutes(read(source, startDate), sink);
+    }
 }
\ No newline at end of file
@@ -23,6 +23,8 @@ package slash.navigation.gpx;
 import slash.common.io.CompactCalendar;
 import slash.common.io.Transfer;
 import slash.navigation.base.BaseNavigationFormat;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.gpx.binding10.Gpx;
 import slash.navigation.gpx.binding10.ObjectFactory;
@@ -61,6 +63,10 @@ public class Gpx10Format extends GpxFormat {
         return "GPS Exchange Format " + VERSION + " (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognizeXml(head, "gpx", GpxUtil.GPX_10_NAMESPACE_URI);
+    }
+
     List<GpxRoute> process(Gpx gpx) {
         if (gpx == null || !VERSION.equals(gpx.getVersion()))
             return null;
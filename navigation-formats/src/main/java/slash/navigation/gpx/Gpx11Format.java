@@ -23,6 +23,9 @@ package slash.navigation.gpx;
 import org.w3c.dom.Element;
 import slash.common.io.CompactCalendar;
 import slash.common.io.Transfer;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.gpx.binding11.*;
 import slash.navigation.gpx.garmin3.AutoroutePointT;
@@ -30,6 +33,7 @@ import slash.navigation.gpx.garmin3.RoutePointExtensionT;
 
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -53,13 +57,15 @@ public class Gpx11Format extends GpxFormat {
         return "GPS Exchange Format " + VERSION + " (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognizeXml(head, "gpx", GpxUtil.GPX_11_NAMESPACE_URI);
+    }
+
     List<GpxRoute> process(GpxType gpxType) {
         if (gpxType == null || !VERSION.equals(gpxType.getVersion()))
             return null;
 
-        boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour = gpxType.getCreator() != null &&
-                ("GPSTracker".equals(gpxType.getCreator()) ||
-                "nl.sogeti.android.gpstracker".equals(gpxType.getCreator()));
+        boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour = isSpeedInMeterPerSecond(gpxType.getCreator());
         List<GpxRoute> result = new ArrayList<GpxRoute>();
         GpxRoute wayPointsAsRoute = extractWayPoints(gpxType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour);
         if (wayPointsAsRoute != null)
@@ -69,16 +75,70 @@ public class Gpx11Format extends GpxFormat {
         return result;
     }
 
+    boolean isSpeedInMeterPerSecond(String creator) {
+        return creator != null &&
+                ("GPSTracker".equals(creator) ||
+                "nl.sogeti.android.gpstracker".equals(creator));
+    }
+
     public List<GpxRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         try {
-            GpxType gpxType = GpxUtil.unmarshal11(source);
-            return process(gpxType);
+            return new Gpx11StreamReader(this).read(source);
+        } catch (XMLStreamException e) {
+            log.fine("Error reading " + source + ": " + e.getMessage());
+            return null;
         } catch (JAXBException e) {
             log.fine("Error reading " + source + ": " + e.getMessage());
             return null;
         }
     }
 
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        try {
+            return new Gpx11StreamReader(this).read(source, sink);
+        } catch (XMLStreamException e) {
+            log.fine("Error reading " + source + ": " + e.getMessage());
+            return false;
+        } catch (JAXBException e) {
+            log.fine("Error reading " + source + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    GpxRoute createRoute(RouteCharacteristics characteristics, String name, String desc,
+                         List<GpxPosition> positions, Object... origins) {
+        return new GpxRoute(this, characteristics, name, asDescription(desc), positions, origins);
+    }
+
+    GpxPosition createPosition(WptType wptType, boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour, Object origin) {
+        return new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), getSpeed(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour), getHeading(wptType), parseTime(wptType.getTime()), asComment(wptType.getName(), wptType.getDesc()), wptType.getHdop(), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), origin);
+    }
+
+    private GpxPosition createPosition(WptType wptType, boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour) {
+        return createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour, wptType);
+    }
+
+    boolean hasGarminExtensions(RteType rteType) {
+        return rteType.getExtensions() != null && rteType.getExtensions().getAny().size() > 0;
+    }
+
+    void addAutoroutePoints(WptType wptType, List<GpxPosition> positions) {
+        ExtensionsType extensions = wptType.getExtensions();
+        if (extensions != null) {
+            for (Object any : extensions.getAny()) {
+                if (any instanceof JAXBElement) {
+                    Object anyValue = ((JAXBElement) any).getValue();
+                    if (anyValue instanceof RoutePointExtensionT) {
+                        RoutePointExtensionT routePoint = (RoutePointExtensionT) anyValue;
+                        for (AutoroutePointT autoroutePoint : routePoint.getRpt()) {
+                            positions.add(new GpxPosition(autoroutePoint.getLon(), autoroutePoint.getLat(), null, null, null, null, null, null, null, null, null, null));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private List<GpxRoute> extractRoutes(GpxType gpxType, boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour) {
         List<GpxRoute> result = new ArrayList<GpxRoute>();
 
@@ -90,7 +150,7 @@ public class Gpx11Format extends GpxFormat {
             result.add(new GpxRoute(this, RouteCharacteristics.Route, name, descriptions, positions, gpxType, rteType));
 
             // Garmin Extensions v3
-            if (rteType.getExtensions() != null && rteType.getExtensions().getAny().size() > 0) {
+            if (hasGarminExtensions(rteType)) {
                 List<GpxPosition> extendedPositions = extractRouteWithGarminExtensions(rteType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour);
                 result.add(new GpxRoute(this, RouteCharacteristics.Track, name, descriptions, extendedPositions, gpxType, rteType));
             }
@@ -125,7 +185,7 @@ public class Gpx11Format extends GpxFormat {
         List<GpxPosition> positions = new ArrayList<GpxPosition>();
         if (rteType != null) {
             for (WptType wptType : rteType.getRtept()) {
-                positions.add(new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), getSpeed(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour), getHeading(wptType), parseTime(wptType.getTime()), asComment(wptType.getName(), wptType.getDesc()), wptType.getHdop(), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType));
+                positions.add(createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour));
             }
         }
         return positions;
@@ -135,22 +195,8 @@ public class Gpx11Format extends GpxFormat {
         List<GpxPosition> positions = new ArrayList<GpxPosition>();
         if (rteType != null) {
             for (WptType wptType : rteType.getRtept()) {
-                positions.add(new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), getSpeed(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour), getHeading(wptType), parseTime(wptType.getTime()), asComment(wptType.getName(), wptType.getDesc()), wptType.getHdop(), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType));
-
-                ExtensionsType extensions = wptType.getExtensions();
-                if (extensions != null) {
-                    for (Object any : extensions.getAny()) {
-                        if (any instanceof JAXBElement) {
-                            Object anyValue = ((JAXBElement) any).getValue();
-                            if (anyValue instanceof RoutePointExtensionT) {
-                                RoutePointExtensionT routePoint = (RoutePointExtensionT) anyValue;
-                                for (AutoroutePointT autoroutePoint : routePoint.getRpt()) {
-                                    positions.add(new GpxPosition(autoroutePoint.getLon(), autoroutePoint.getLat(), null, null, null, null, null, null, null, null, null, null));
-                                }
-                            }
-                        }
-                    }
-                }
+                positions.add(createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour));
+                addAutoroutePoints(wptType, positions);
             }
         }
         return positions;
@@ -159,7 +205,7 @@ public class Gpx11Format extends GpxFormat {
     private List<GpxPosition> extractWayPoints(List<WptType> wptTypes, boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour) {
         List<GpxPosition> positions = new ArrayList<GpxPosition>();
         for (WptType wptType : wptTypes) {
-            positions.add(new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), getSpeed(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour), getHeading(wptType), parseTime(wptType.getTime()), asComment(wptType.getName(), wptType.getDesc()), wptType.getHdop(), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType));
+            positions.add(createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour));
         }
         return positions;
     }
@@ -169,7 +215,7 @@ public class Gpx11Format extends GpxFormat {
         if (trkType != null) {
             for (TrksegType trkSegType : trkType.getTrkseg()) {
                 for (WptType wptType : trkSegType.getTrkpt()) {
-                    positions.add(new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), getSpeed(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour), getHeading(wptType), parseTime(wptType.getTime()), asComment(wptType.getName(), wptType.getDesc()), wptType.getHdop(), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType));
+                    positions.add(createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour));
                 }
             }
         }
@@ -304,7 +350,7 @@ public class Gpx11Format extends GpxFormat {
             wptType.setExtensions(null);
     }
 
-    private WptType createWptType(GpxPosition position) {
+    WptType createWptType(GpxPosition position) {
         BigDecimal latitude = Transfer.formatPosition(position.getLatitude());
         BigDecimal longitude = Transfer.formatPosition(position.getLongitude());
         if(latitude == null || longitude == null)
@@ -327,58 +373,30 @@ public class Gpx11Format extends GpxFormat {
         return wptType;
     }
 
-    private List<WptType> createWayPoints(GpxRoute route) {
-        List<WptType> wptTypes = new ArrayList<WptType>();
-        for (GpxPosition position : route.getPositions()) {
-            WptType wptType = createWptType(position);
-            if (wptType != null)
-                wptTypes.add(wptType);
-        }
-        return wptTypes;
-    }
-
-    private List<RteType> createRoute(GpxRoute route) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<RteType> rteTypes = new ArrayList<RteType>();
+    RteType createRteType(GpxRoute route) {
         RteType rteType = route.getOrigin(RteType.class);
         if (rteType != null)
             rteType.getRtept().clear();
         else
-            rteType = objectFactory.createRteType();
+            rteType = new ObjectFactory().createRteType();
         if (isWriteName()) {
             rteType.setName(route.getName());
             rteType.setDesc(asDescription(route.getDescription()));
         }
-        rteTypes.add(rteType);
-        for (GpxPosition position : route.getPositions()) {
-            WptType wptType = createWptType(position);
-            if (wptType != null)
-                rteType.getRtept().add(wptType);
-        }
-        return rteTypes;
+        return rteType;
     }
 
-    private List<TrkType> createTrack(GpxRoute route) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<TrkType> trkTypes = new ArrayList<TrkType>();
+    TrkType createTrkType(GpxRoute route) {
         TrkType trkType = route.getOrigin(TrkType.class);
         if (trkType != null)
             trkType.getTrkseg().clear();
         else
-            trkType = objectFactory.createTrkType();
+            trkType = new ObjectFactory().createTrkType();
         if (isWriteName()) {
             trkType.setName(route.getName());
             trkType.setDesc(asDescription(route.getDescription()));
         }
-        trkTypes.add(trkType);
-        TrksegType trksegType = objectFactory.createTrksegType();
-        for (GpxPosition position : route.getPositions()) {
-            WptType wptType = createWptType(position);
-            if (wptType != null)
-                trksegType.getTrkpt().add(wptType);
-        }
-        trkType.getTrkseg().add(trksegType);
-        return trkTypes;
+        return trkType;
     }
 
     private GpxType recycleGpxType(GpxRoute route) {
@@ -409,10 +427,6 @@ public class Gpx11Format extends GpxFormat {
             metadataType.setName(route.getName());
             metadataType.setDesc(asDescription(route.getDescription()));
         }
-
-        gpxType.getWpt().addAll(createWayPoints(route));
-        gpxType.getRte().addAll(createRoute(route));
-        gpxType.getTrk().addAll(createTrack(route));
         return gpxType;
     }
 
@@ -428,36 +442,55 @@ public class Gpx11Format extends GpxFormat {
             gpxType = objectFactory.createGpxType();
         gpxType.setCreator(GENERATED_BY);
         gpxType.setVersion(VERSION);
+        return gpxType;
+    }
 
+    public void write(GpxRoute route, OutputStream target, int startIndex, int endIndex) {
+        try {
+            Gpx11StreamWriter writer = new Gpx11StreamWriter(this, target);
+            writer.writeStart(createGpxType(route));
+            writer.writeWayPoints(route);
+            writer.writeRoute(route);
+            writer.writeTrack(route);
+            writer.writeEnd();
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException(e);
+        } catch (JAXBException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public void write(List<GpxRoute> routes, OutputStream target) {
         for (GpxRoute route : routes) {
             switch (route.getCharacteristics()) {
                 case Waypoints:
-                    gpxType.getWpt().addAll(createWayPoints(route));
-                    break;
                 case Route:
-                    gpxType.getRte().addAll(createRoute(route));
-                    break;
                 case Track:
-                    gpxType.getTrk().addAll(createTrack(route));
                     break;
                 default:
                     throw new IllegalArgumentException("Unknown RouteCharacteristics " + route.getCharacteristics());
             }
         }
-        return gpxType;
-    }
 
-    public void write(GpxRoute route, OutputStream target, int startIndex, int endIndex) {
         try {
-            GpxUtil.marshal11(createGpxType(route), target);
-        } catch (JAXBException e) {
+            Gpx11StreamWriter writer = new Gpx11StreamWriter(this, target);
+            writer.writeStart(createGpxType(routes));
+            // the GPX schema requires all waypoints before all routes before all tracks
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(RouteCharacteristics.Waypoints))
+                    writer.writeWayPoints(route);
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(RouteCharacteristics.Route))
+                    writer.writeRoute(route);
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(RouteCharacteristics.Track))
+                    writer.writeTrack(route);
+            }
+            writer.writeEnd();
+        } catch (XMLStreamException e) {
             throw new IllegalArgumentException(e);
-        }
-    }
-
-    public void write(List<GpxRoute> routes, OutputStream target) {
-        try {
-            GpxUtil.marshal11(createGpxType(routes), target);
         } catch (JAXBException e) {
             throw new IllegalArgumentException(e);
         }
@@ -0,0 +1,642 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.gpx.binding11.*;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElementDecl;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Reads GPS Exchange Format 1.1 (.gpx) files with StAX and passes the positions
+ * on while parsing. Only the rare constructs the routes and positions cannot
+ * represent, like metadata, links and extensions of other namespaces than TrekBuddy,
+ * are unmarshalled with JAXB and kept as origins of routes and positions.
+ *
+ * @author Christian Pesch
+ */
+
+class Gpx11StreamReader {
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+    private static final Set<QName> JAXB_ELEMENTS = collectElementDeclarations(
+            slash.navigation.gpx.binding11.ObjectFactory.class,
+            slash.navigation.gpx.garmin3.ObjectFactory.class,
+            slash.navigation.gpx.routecatalog10.ObjectFactory.class);
+
+    private final Gpx11Format format;
+    private final ObjectFactory objectFactory = new ObjectFactory();
+    private Unmarshaller unmarshaller;
+    private DatatypeFactory datatypeFactory;
+    private Document document;
+
+    private XMLStreamReader reader;
+    private boolean unconsumedEvent;
+    private Handler handler;
+    private GpxType gpxType;
+    private boolean hasSpeedInMeterPerSecondInsteadOfKilometerPerHour;
+    private List<GpxPosition> wayPoints = new ArrayList<GpxPosition>();
+
+    Gpx11StreamReader(Gpx11Format format) {
+        this.format = format;
+    }
+
+    private static Set<QName> collectElementDeclarations(Class<?>... objectFactories) {
+        Set<QName> result = new HashSet<QName>();
+        for (Class<?> objectFactory : objectFactories) {
+            for (Method method : objectFactory.getMethods()) {
+                XmlElementDecl declaration = method.getAnnotation(XmlElementDecl.class);
+                if (declaration != null && declaration.scope() == XmlElementDecl.GLOBAL.class)
+                    result.add(new QName(declaration.namespace(), declaration.name()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Receives the routes as soon as their header is read and their positions
+     * while they are parsed.
+     */
+    interface Handler {
+        void startRoute(GpxRoute route) throws IOException;
+        void position(GpxPosition position) throws IOException;
+        void endRoute() throws IOException;
+    }
+
+    List<GpxRoute> read(InputStream source) throws IOException, XMLStreamException, JAXBException {
+        RouteHandler routeHandler = new RouteHandler();
+        if (!read(source, routeHandler))
+            return null;
+        return routeHandler.getRoutes();
+    }
+
+    boolean read(InputStream source, PositionSink sink) throws IOException, XMLStreamException, JAXBException {
+        SinkHandler sinkHandler = new SinkHandler(sink);
+        return read(source, sinkHandler) && sinkHandler.hasRoutes();
+    }
+
+    private boolean read(InputStream source, Handler handler) throws IOException, XMLStreamException, JAXBException {
+        this.handler = handler;
+        this.reader = inputFactory.createXMLStreamReader(source);
+        try {
+            if (!nextElement())
+                return false;
+            if (!isGpx11Element() || !"gpx".equals(reader.getLocalName()))
+                return false;
+
+            gpxType = objectFactory.createGpxType();
+            gpxType.setVersion(reader.getAttributeValue(null, "version"));
+            gpxType.setCreator(reader.getAttributeValue(null, "creator"));
+            if (!Gpx11Format.VERSION.equals(gpxType.getVersion()))
+                return false;
+            hasSpeedInMeterPerSecondInsteadOfKilometerPerHour = format.isSpeedInMeterPerSecond(gpxType.getCreator());
+
+            readGpx();
+            passWayPoints();
+            return true;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private void readGpx() throws IOException, XMLStreamException, JAXBException {
+        while (nextChildElement()) {
+            String name = isGpx11Element() ? reader.getLocalName() : null;
+            if ("metadata".equals(name))
+                gpxType.setMetadata(unmarshal(MetadataType.class));
+            else if ("wpt".equals(name))
+                wayPoints.add(readWayPoint());
+            else if ("rte".equals(name)) {
+                passWayPoints();
+                readRoute();
+            } else if ("trk".equals(name)) {
+                passWayPoints();
+                readTrack();
+            } else if ("extensions".equals(name))
+                gpxType.setExtensions(readExtensions());
+            else
+                skipElement();
+        }
+    }
+
+    private void passWayPoints() throws IOException {
+        // the schema places waypoints before routes and tracks, collect stray ones in another route
+        if (wayPoints.size() > 0) {
+            MetadataType metadataType = gpxType.getMetadata();
+            String name = metadataType != null ? metadataType.getName() : null;
+            String desc = metadataType != null ? metadataType.getDesc() : null;
+            handler.startRoute(format.createRoute(RouteCharacteristics.Waypoints, name, desc,
+                    new ArrayList<GpxPosition>(), gpxType));
+            for (GpxPosition position : wayPoints)
+                handler.position(position);
+            handler.endRoute();
+            wayPoints.clear();
+        }
+    }
+
+    private void readRoute() throws IOException, XMLStreamException, JAXBException {
+        RteType rteType = objectFactory.createRteType();
+        boolean routeStarted = false;
+        List<GpxPosition> extendedPositions = null;
+        while (nextChildElement()) {
+            String name = isGpx11Element() ? reader.getLocalName() : null;
+            if ("rtept".equals(name)) {
+                if (!routeStarted) {
+                    handler.startRoute(format.createRoute(RouteCharacteristics.Route, rteType.getName(), rteType.getDesc(),
+                            new ArrayList<GpxPosition>(), gpxType, rteType));
+                    routeStarted = true;
+                    // the extensions of the route may follow its points, decide at the end of the route
+                    if (rteType.getExtensions() == null || format.hasGarminExtensions(rteType))
+                        extendedPositions = new ArrayList<GpxPosition>();
+                }
+
+                WptType wptType = objectFactory.createWptType();
+                boolean keepOrigin = readWayPoint(wptType);
+                handler.position(format.createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour, keepOrigin ? wptType : null));
+
+                // Garmin Extensions v3
+                if (extendedPositions != null) {
+                    extendedPositions.add(format.createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour, keepOrigin ? wptType : null));
+                    format.addAutoroutePoints(wptType, extendedPositions);
+                }
+            } else if (!readRouteElement(name, rteType))
+                skipElement();
+        }
+
+        if (!routeStarted)
+            handler.startRoute(format.createRoute(RouteCharacteristics.Route, rteType.getName(), rteType.getDesc(),
+                    new ArrayList<GpxPosition>(), gpxType, rteType));
+        handler.endRoute();
+
+        if (extendedPositions != null && format.hasGarminExtensions(rteType)) {
+            handler.startRoute(format.createRoute(RouteCharacteristics.Track, rteType.getName(), rteType.getDesc(),
+                    new ArrayList<GpxPosition>(), gpxType, rteType));
+            for (GpxPosition position : extendedPositions)
+                handler.position(position);
+            handler.endRoute();
+        }
+    }
+
+    private boolean readRouteElement(String name, RteType rteType) throws XMLStreamException, JAXBException {
+        if ("name".equals(name))
+            rteType.setName(readText());
+        else if ("cmt".equals(name))
+            rteType.setCmt(readText());
+        else if ("desc".equals(name))
+            rteType.setDesc(readText());
+        else if ("src".equals(name))
+            rteType.setSrc(readText());
+        else if ("link".equals(name))
+            rteType.getLink().add(unmarshal(LinkType.class));
+        else if ("number".equals(name))
+            rteType.setNumber(parseInteger(readText()));
+        else if ("type".equals(name))
+            rteType.setType(readText());
+        else if ("extensions".equals(name))
+            rteType.setExtensions(readExtensions());
+        else
+            return false;
+        return true;
+    }
+
+    private void readTrack() throws IOException, XMLStreamException, JAXBException {
+        TrkType trkType = objectFactory.createTrkType();
+        boolean trackStarted = false;
+        while (nextChildElement()) {
+            String name = isGpx11Element() ? reader.getLocalName() : null;
+            if ("trkseg".equals(name)) {
+                while (nextChildElement()) {
+                    if (isGpx11Element() && "trkpt".equals(reader.getLocalName())) {
+                        if (!trackStarted) {
+                            handler.startRoute(format.createRoute(RouteCharacteristics.Track, trkType.getName(), trkType.getDesc(),
+                                    new ArrayList<GpxPosition>(), gpxType, trkType));
+                            trackStarted = true;
+                        }
+                        handler.position(readWayPoint());
+                    } else
+                        skipElement();
+                }
+            } else if (!readTrackElement(name, trkType))
+                skipElement();
+        }
+
+        if (!trackStarted)
+            handler.startRoute(format.createRoute(RouteCharacteristics.Track, trkType.getName(), trkType.getDesc(),
+                    new ArrayList<GpxPosition>(), gpxType, trkType));
+        handler.endRoute();
+    }
+
+    private boolean readTrackElement(String name, TrkType trkType) throws XMLStreamException, JAXBException {
+        if ("name".equals(name))
+            trkType.setName(readText());
+        else if ("cmt".equals(name))
+            trkType.setCmt(readText());
+        else if ("desc".equals(name))
+            trkType.setDesc(readText());
+        else if ("src".equals(name))
+            trkType.setSrc(readText());
+        else if ("link".equals(name))
+            trkType.getLink().add(unmarshal(LinkType.class));
+        else if ("number".equals(name))
+            trkType.setNumber(parseInteger(readText()));
+        else if ("type".equals(name))
+            trkType.setType(readText());
+        else if ("extensions".equals(name))
+            trkType.setExtensions(readExtensions());
+        else
+            return false;
+        return true;
+    }
+
+    private GpxPosition readWayPoint() throws XMLStreamException, JAXBException {
+        WptType wptType = objectFactory.createWptType();
+        boolean keepOrigin = readWayPoint(wptType);
+        return format.createPosition(wptType, hasSpeedInMeterPerSecondInsteadOfKilometerPerHour, keepOrigin ? wptType : null);
+    }
+
+    /**
+     * Reads a waypoint, route point or track point and returns if it contains
+     * more than a position can represent and thus needs to be kept as its origin.
+     */
+    private boolean readWayPoint(WptType wptType) throws XMLStreamException, JAXBException {
+        wptType.setLat(parseDecimal(reader.getAttributeValue(null, "lat")));
+        wptType.setLon(parseDecimal(reader.getAttributeValue(null, "lon")));
+
+        boolean keepOrigin = false;
+        while (nextChildElement()) {
+            String name = isGpx11Element() ? reader.getLocalName() : null;
+            if ("ele".equals(name))
+                wptType.setEle(parseDecimal(readText()));
+            else if ("time".equals(name))
+                wptType.setTime(parseTime(readText()));
+            else if ("name".equals(name))
+                wptType.setName(readText());
+            else if ("desc".equals(name))
+                wptType.setDesc(readText());
+            else if ("sat".equals(name))
+                wptType.setSat(parseInteger(readText()));
+            else if ("hdop".equals(name))
+                wptType.setHdop(parseDecimal(readText()));
+            else if ("vdop".equals(name))
+                wptType.setVdop(parseDecimal(readText()));
+            else if ("pdop".equals(name))
+                wptType.setPdop(parseDecimal(readText()));
+            else if ("extensions".equals(name)) {
+                wptType.setExtensions(readExtensions());
+                keepOrigin |= !hasOnlyTrekBuddyExtensions(wptType.getExtensions());
+            } else if (readWayPointElement(name, wptType))
+                keepOrigin = true;
+            else
+                skipElement();
+        }
+        return keepOrigin;
+    }
+
+    private boolean readWayPointElement(String name, WptType wptType) throws XMLStreamException, JAXBException {
+        if ("magvar".equals(name))
+            wptType.setMagvar(parseDecimal(readText()));
+        else if ("geoidheight".equals(name))
+            wptType.setGeoidheight(parseDecimal(readText()));
+        else if ("cmt".equals(name))
+            wptType.setCmt(readText());
+        else if ("src".equals(name))
+            wptType.setSrc(readText());
+        else if ("link".equals(name))
+            wptType.getLink().add(unmarshal(LinkType.class));
+        else if ("sym".equals(name))
+            wptType.setSym(readText());
+        else if ("type".equals(name))
+            wptType.setType(readText());
+        else if ("fix".equals(name))
+            wptType.setFix(readText());
+        else if ("ageofdgpsdata".equals(name))
+            wptType.setAgeofdgpsdata(parseDecimal(readText()));
+        else if ("dgpsid".equals(name)) {
+            BigInteger dgpsid = parseInteger(readText());
+            wptType.setDgpsid(dgpsid != null ? dgpsid.intValue() : null);
+        } else
+            return false;
+        return true;
+    }
+
+    private boolean hasOnlyTrekBuddyExtensions(ExtensionsType extensionsType) {
+        // speed and course are kept by the position and written again when there is no origin
+        for (Object any : extensionsType.getAny()) {
+            if (!(any instanceof Element))
+                return false;
+            Element element = (Element) any;
+            if (!GpxUtil.TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI.equals(element.getNamespaceURI()) ||
+                    !("speed".equals(element.getLocalName()) || "course".equals(element.getLocalName())))
+                return false;
+        }
+        return true;
+    }
+
+    private ExtensionsType readExtensions() throws XMLStreamException, JAXBException {
+        ExtensionsType extensionsType = objectFactory.createExtensionsType();
+        while (nextChildElement()) {
+            // like the lax wildcard of JAXB: known elements are bound, all others kept as DOM
+            if (JAXB_ELEMENTS.contains(reader.getName()))
+                extensionsType.getAny().add(unmarshal());
+            else
+                extensionsType.getAny().add(readElement());
+        }
+        return extensionsType;
+    }
+
+    private Element readElement() throws XMLStreamException {
+        Document document = getDocument();
+        Element element = document.createElementNS(emptyToNull(reader.getNamespaceURI()), qualifiedName(reader.getPrefix(), reader.getLocalName()));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix == null || prefix.length() == 0 ?
+                    XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                    qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+        }
+
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case START_ELEMENT:
+                    element.appendChild(readElement());
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    element.appendChild(document.createTextNode(reader.getText()));
+                    break;
+                case END_ELEMENT:
+                    return element;
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document in " + element.getTagName());
+                default:
+            }
+        }
+    }
+
+    private static String emptyToNull(String string) {
+        return string != null && string.length() > 0 ? string : null;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix != null && prefix.length() > 0 ? prefix + ":" + localName : localName;
+    }
+
+    private Document getDocument() throws XMLStreamException {
+        if (document == null) {
+            try {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                document = factory.newDocumentBuilder().newDocument();
+            } catch (ParserConfigurationException e) {
+                throw new XMLStreamException(e);
+            }
+        }
+        return document;
+    }
+
+    private <T> T unmarshal(Class<T> type) throws JAXBException {
+        T result = getUnmarshaller().unmarshal(reader, type).getValue();
+        // JAXB leaves the reader behind the end of the element
+        unconsumedEvent = true;
+        return result;
+    }
+
+    private Object unmarshal() throws JAXBException {
+        Object result = getUnmarshaller().unmarshal(reader);
+        unconsumedEvent = true;
+        return result;
+    }
+
+    private Unmarshaller getUnmarshaller() {
+        if (unmarshaller == null)
+            unmarshaller = GpxUtil.createUnmarshaller11();
+        return unmarshaller;
+    }
+
+    private boolean isGpx11Element() {
+        return GpxUtil.GPX_11_NAMESPACE_URI.equals(reader.getNamespaceURI());
+    }
+
+    private boolean nextElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == START_ELEMENT)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the start of the next child of the current element and
+     * returns false if the end of the current element is reached instead.
+     */
+    private boolean nextChildElement() throws XMLStreamException {
+        int event = unconsumedEvent ? reader.getEventType() : reader.next();
+        unconsumedEvent = false;
+        while (true) {
+            switch (event) {
+                case START_ELEMENT:
+                    return true;
+                case END_ELEMENT:
+                case END_DOCUMENT:
+                    return false;
+                default:
+                    event = reader.next();
+            }
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT)
+                depth++;
+            else if (event == END_ELEMENT)
+                depth--;
+            else if (event == END_DOCUMENT)
+                throw new XMLStreamException("Unexpected end of document");
+        }
+    }
+
+    private String readText() throws XMLStreamException {
+        // like JAXB text of nested elements is ignored
+        StringBuilder buffer = new StringBuilder();
+        int depth = 1;
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    if (depth == 1)
+                        buffer.append(reader.getText());
+                    break;
+                case START_ELEMENT:
+                    depth++;
+                    break;
+                case END_ELEMENT:
+                    if (--depth == 0)
+                        return buffer.toString();
+                    break;
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document");
+                default:
+            }
+        }
+    }
+
+    private static BigDecimal parseDecimal(String string) {
+        string = string != null ? string.trim() : null;
+        if (string == null || string.length() == 0)
+            return null;
+        try {
+            return new BigDecimal(string);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static BigInteger parseInteger(String string) {
+        string = string != null ? string.trim() : null;
+        if (string == null || string.length() == 0)
+            return null;
+        try {
+            return new BigInteger(string);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private XMLGregorianCalendar parseTime(String string) throws XMLStreamException {
+        string = string != null ? string.trim() : null;
+        if (string == null || string.length() == 0)
+            return null;
+        try {
+            if (datatypeFactory == null)
+                datatypeFactory = DatatypeFactory.newInstance();
+            return datatypeFactory.newXMLGregorianCalendar(string);
+        } catch (DatatypeConfigurationException e) {
+            throw new XMLStreamException(e);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private class RouteHandler implements Handler {
+        private final List<GpxRoute> routes = new ArrayList<GpxRoute>();
+        private GpxRoute route;
+
+        public void startRoute(GpxRoute route) {
+            this.route = route;
+            routes.add(route);
+        }
+
+        public void position(GpxPosition position) {
+            route.getPositions().add(position);
+        }
+
+        public void endRoute() {
+            route = null;
+        }
+
+        List<GpxRoute> getRoutes() {
+            // stray waypoints after routes and tracks belong to the waypoints before them
+            GpxRoute wayPointsAsRoute = null;
+            for (int i = 0; i < routes.size(); i++) {
+                GpxRoute route = routes.get(i);
+                if (!RouteCharacteristics.Waypoints.equals(route.getCharacteristics()))
+                    continue;
+                if (wayPointsAsRoute == null) {
+                    wayPointsAsRoute = route;
+                    if (i > 0) {
+                        routes.remove(i);
+                        routes.add(0, route);
+                    }
+                } else {
+                    wayPointsAsRoute.getPositions().addAll(route.getPositions());
+                    routes.remove(i--);
+                }
+            }
+            return routes;
+        }
+    }
+
+    private static class SinkHandler implements Handler {
+        private final PositionSink sink;
+        private boolean hasRoutes = false;
+
+        SinkHandler(PositionSink sink) {
+            this.sink = sink;
+        }
+
+        public void startRoute(GpxRoute route) throws IOException {
+            sink.startRoute(route.getCharacteristics(), route.getName());
+            hasRoutes = true;
+        }
+
+        public void position(GpxPosition position) throws IOException {
+            sink.position(position);
+        }
+
+        public void endRoute() throws IOException {
+            sink.endRoute();
+        }
+
+        boolean hasRoutes() {
+            return hasRoutes;
+        }
+    }
+}
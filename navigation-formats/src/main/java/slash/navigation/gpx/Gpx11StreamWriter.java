@@ -0,0 +1,431 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.gpx.binding11.*;
+import slash.navigation.jaxb.JaxbUtils;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Writes GPS Exchange Format 1.1 (.gpx) files with StAX position by position
+ * instead of marshalling a complete JAXB tree. Implements {@link PositionSink}
+ * to convert files without collecting their positions in memory.
+ *
+ * @author Christian Pesch
+ */
+
+public class Gpx11StreamWriter implements PositionSink {
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private static final String ENCODING = "UTF-8";
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"" + ENCODING + "\" standalone=\"yes\"?>";
+    private static final String INDENTATION = "    ";
+
+    private final Gpx11Format format;
+    private final OutputStream target;
+    private final XMLStreamWriter writer;
+    private final boolean formattedOutput = JaxbUtils.isFormattedOutput();
+    private Marshaller marshaller;
+    private IndentingStreamWriter fragmentWriter;
+    private int depth = 0;
+    private int namespaceCount = 0;
+    private boolean hasChildren = false;
+    private GpxType gpxType;
+    private RouteCharacteristics characteristics;
+
+    public Gpx11StreamWriter(Gpx11Format format, OutputStream target) throws XMLStreamException {
+        this.format = format;
+        this.target = target;
+        this.writer = outputFactory.createXMLStreamWriter(target, ENCODING);
+    }
+
+    public void writeStart(GpxType gpxType) throws XMLStreamException, JAXBException {
+        this.gpxType = gpxType;
+        // XMLStreamWriter#writeStartDocument cannot declare a standalone document like JAXB does
+        try {
+            target.write(DECLARATION.getBytes(ENCODING));
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+        // declare the namespaces once for the extensions of all positions
+        String[] uriToPrefix = GpxUtil.NAMESPACE_PREFIXES_11;
+        writer.setDefaultNamespace(GpxUtil.GPX_11_NAMESPACE_URI);
+        for (int i = 0; i < uriToPrefix.length; i += 2)
+            writer.setPrefix(uriToPrefix[i + 1], uriToPrefix[i]);
+        startElement("gpx");
+        writer.writeDefaultNamespace(GpxUtil.GPX_11_NAMESPACE_URI);
+        for (int i = 0; i < uriToPrefix.length; i += 2)
+            writer.writeNamespace(uriToPrefix[i + 1], uriToPrefix[i]);
+        writer.writeAttribute("version", gpxType.getVersion());
+        if (gpxType.getCreator() != null)
+            writer.writeAttribute("creator", gpxType.getCreator());
+
+        MetadataType metadataType = gpxType.getMetadata();
+        if (metadataType != null) {
+            if (isSimple(metadataType)) {
+                if (metadataType.getName() != null || metadataType.getDesc() != null) {
+                    startElement("metadata");
+                    writeElement("name", metadataType.getName());
+                    writeElement("desc", metadataType.getDesc());
+                    endElement();
+                }
+            } else
+                writeFragment(new JAXBElement<MetadataType>(new QName(GpxUtil.GPX_11_NAMESPACE_URI, "metadata"), MetadataType.class, metadataType));
+        }
+    }
+
+    private boolean isSimple(MetadataType metadataType) {
+        return metadataType.getAuthor() == null && metadataType.getCopyright() == null &&
+                metadataType.getLink().size() == 0 && metadataType.getTime() == null &&
+                metadataType.getKeywords() == null && metadataType.getBounds() == null &&
+                metadataType.getExtensions() == null;
+    }
+
+    public void writeWayPoints(GpxRoute route) throws XMLStreamException, JAXBException {
+        for (GpxPosition position : route.getPositions())
+            writeWayPoint("wpt", position);
+    }
+
+    public void writeRoute(GpxRoute route) throws XMLStreamException, JAXBException {
+        startElement("rte");
+        writeRouteHeader(format.createRteType(route));
+        for (GpxPosition position : route.getPositions())
+            writeWayPoint("rtept", position);
+        endElement();
+    }
+
+    public void writeTrack(GpxRoute route) throws XMLStreamException, JAXBException {
+        startElement("trk");
+        writeTrackHeader(format.createTrkType(route));
+        startElement("trkseg");
+        for (GpxPosition position : route.getPositions())
+            writeWayPoint("trkpt", position);
+        endElement();
+        endElement();
+    }
+
+    public void writeEnd() throws XMLStreamException, JAXBException {
+        try {
+            if (gpxType.getExtensions() != null)
+                writeExtensions(gpxType.getExtensions());
+            endElement();
+            if (formattedOutput)
+                writer.writeCharacters("\n");
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } finally {
+            try {
+                target.flush();
+                target.close();
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+        }
+    }
+
+    public void startRoute(RouteCharacteristics characteristics, String name) {
+        this.characteristics = characteristics;
+        try {
+            switch (characteristics) {
+                case Waypoints:
+                    break;
+                case Route:
+                    startElement("rte");
+                    if (format.isWriteName())
+                        writeElement("name", name);
+                    break;
+                case Track:
+                    startElement("trk");
+                    if (format.isWriteName())
+                        writeElement("name", name);
+                    startElement("trkseg");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown RouteCharacteristics " + characteristics);
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public void position(BaseNavigationPosition position) {
+        try {
+            switch (characteristics) {
+                case Waypoints:
+                    writeWayPoint("wpt", position.asGpxPosition());
+                    break;
+                case Route:
+                    writeWayPoint("rtept", position.asGpxPosition());
+                    break;
+                case Track:
+                    writeWayPoint("trkpt", position.asGpxPosition());
+                    break;
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException(e);
+        } catch (JAXBException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public void endRoute() {
+        try {
+            switch (characteristics) {
+                case Route:
+                    endElement();
+                    break;
+                case Track:
+                    endElement();
+                    endElement();
+                    break;
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException(e);
+        }
+        characteristics = null;
+    }
+
+    private void writeRouteHeader(RteType rteType) throws XMLStreamException, JAXBException {
+        writeElement("name", rteType.getName());
+        writeElement("cmt", rteType.getCmt());
+        writeElement("desc", rteType.getDesc());
+        writeElement("src", rteType.getSrc());
+        writeLinks(rteType.getLink());
+        writeElement("number", rteType.getNumber());
+        writeElement("type", rteType.getType());
+        if (rteType.getExtensions() != null)
+            writeExtensions(rteType.getExtensions());
+    }
+
+    private void writeTrackHeader(TrkType trkType) throws XMLStreamException, JAXBException {
+        writeElement("name", trkType.getName());
+        writeElement("cmt", trkType.getCmt());
+        writeElement("desc", trkType.getDesc());
+        writeElement("src", trkType.getSrc());
+        writeLinks(trkType.getLink());
+        writeElement("number", trkType.getNumber());
+        writeElement("type", trkType.getType());
+        if (trkType.getExtensions() != null)
+            writeExtensions(trkType.getExtensions());
+    }
+
+    private void writeWayPoint(String name, GpxPosition position) throws XMLStreamException, JAXBException {
+        WptType wptType = format.createWptType(position);
+        if (wptType == null)
+            return;
+
+        // the order of the elements is defined by the schema
+        startElement(name);
+        writer.writeAttribute("lat", wptType.getLat().toPlainString());
+        writer.writeAttribute("lon", wptType.getLon().toPlainString());
+        writeElement("ele", wptType.getEle());
+        writeElement("time", wptType.getTime());
+        writeElement("magvar", wptType.getMagvar());
+        writeElement("geoidheight", wptType.getGeoidheight());
+        writeElement("name", wptType.getName());
+        writeElement("cmt", wptType.getCmt());
+        writeElement("desc", wptType.getDesc());
+        writeElement("src", wptType.getSrc());
+        writeLinks(wptType.getLink());
+        writeElement("sym", wptType.getSym());
+        writeElement("type", wptType.getType());
+        writeElement("fix", wptType.getFix());
+        writeElement("sat", wptType.getSat());
+        writeElement("hdop", wptType.getHdop());
+        writeElement("vdop", wptType.getVdop());
+        writeElement("pdop", wptType.getPdop());
+        writeElement("ageofdgpsdata", wptType.getAgeofdgpsdata());
+        writeElement("dgpsid", wptType.getDgpsid() != null ? wptType.getDgpsid().toString() : null);
+        if (wptType.getExtensions() != null)
+            writeExtensions(wptType.getExtensions());
+        endElement();
+    }
+
+    private void writeLinks(List<LinkType> linkTypes) throws JAXBException, XMLStreamException {
+        for (LinkType linkType : linkTypes)
+            writeFragment(new JAXBElement<LinkType>(new QName(GpxUtil.GPX_11_NAMESPACE_URI, "link"), LinkType.class, linkType));
+    }
+
+    private void writeExtensions(ExtensionsType extensionsType) throws XMLStreamException, JAXBException {
+        startElement("extensions");
+        for (Object any : extensionsType.getAny()) {
+            if (any instanceof Element)
+                writeElement((Element) any);
+            else if (any instanceof JAXBElement && isSimpleValue(((JAXBElement) any).getValue())) {
+                JAXBElement element = (JAXBElement) any;
+                QName name = element.getName();
+                indent();
+                writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+                writer.writeCharacters(asString(element.getValue()));
+                writer.writeEndElement();
+                hasChildren = true;
+            } else
+                writeFragment(any);
+        }
+        endElement();
+    }
+
+    private boolean isSimpleValue(Object value) {
+        return value instanceof String || value instanceof BigDecimal || value instanceof BigInteger;
+    }
+
+    private String asString(Object value) {
+        return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+    }
+
+    private void writeElement(Element element) throws XMLStreamException {
+        indent();
+        writeDomElement(element);
+        hasChildren = true;
+    }
+
+    private void writeDomElement(Element element) throws XMLStreamException {
+        writeStartElement(element.getPrefix(), element.getLocalName() != null ? element.getLocalName() : element.getTagName(),
+                element.getNamespaceURI());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI()))
+                continue;
+            String localName = attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getName();
+            if (attribute.getNamespaceURI() != null)
+                writer.writeAttribute(attribute.getPrefix() != null ? attribute.getPrefix() : "", attribute.getNamespaceURI(), localName, attribute.getValue());
+            else
+                writer.writeAttribute(localName, attribute.getValue());
+        }
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    writeDomElement((Element) child);
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    writer.writeCharacters(child.getNodeValue());
+                    break;
+                default:
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        if (namespaceURI == null || namespaceURI.length() == 0) {
+            writer.writeStartElement(localName);
+            return;
+        }
+        // prefer the prefixes declared at the root over the ones of the element
+        String declaredPrefix = writer.getPrefix(namespaceURI);
+        if (declaredPrefix != null) {
+            writer.writeStartElement(declaredPrefix, localName, namespaceURI);
+            return;
+        }
+        if (prefix == null || prefix.length() == 0)
+            prefix = "ns" + (++namespaceCount);
+        writer.writeStartElement(prefix, localName, namespaceURI);
+        writer.setPrefix(prefix, namespaceURI);
+        writer.writeNamespace(prefix, namespaceURI);
+    }
+
+    private void writeFragment(Object jaxbElement) throws JAXBException, XMLStreamException {
+        indent();
+        if (formattedOutput) {
+            if (fragmentWriter == null)
+                fragmentWriter = new IndentingStreamWriter(writer, INDENTATION);
+            fragmentWriter.startFragment(depth);
+            getMarshaller().marshal(jaxbElement, fragmentWriter);
+        } else
+            getMarshaller().marshal(jaxbElement, writer);
+        hasChildren = true;
+    }
+
+    private Marshaller getMarshaller() {
+        if (marshaller == null)
+            marshaller = GpxUtil.createFragmentMarshaller11();
+        return marshaller;
+    }
+
+    private void writeElement(String name, Object value) throws XMLStreamException {
+        if (value == null)
+            return;
+        indent();
+        writer.writeStartElement(GpxUtil.GPX_11_NAMESPACE_URI, name);
+        if (value instanceof BigDecimal)
+            writer.writeCharacters(((BigDecimal) value).toPlainString());
+        else if (value instanceof XMLGregorianCalendar)
+            writer.writeCharacters(((XMLGregorianCalendar) value).toXMLFormat());
+        else
+            writer.writeCharacters(value.toString());
+        writer.writeEndElement();
+        hasChildren = true;
+    }
+
+    private void startElement(String name) throws XMLStreamException {
+        indent();
+        writer.writeStartElement(GpxUtil.GPX_11_NAMESPACE_URI, name);
+        depth++;
+        hasChildren = false;
+    }
+
+    private void endElement() throws XMLStreamException {
+        depth--;
+        if (hasChildren)
+            indent();
+        writer.writeEndElement();
+        hasChildren = true;
+    }
+
+    private void indent() throws XMLStreamException {
+        if (!formattedOutput)
+            return;
+        if (depth == 0 && !hasChildren) {
+            writer.writeCharacters("\n");
+            return;
+        }
+        StringBuilder buffer = new StringBuilder("\n");
+        for (int i = 0; i < depth; i++)
+            buffer.append(INDENTATION);
+        writer.writeCharacters(buffer.toString());
+    }
+}
@@ -23,47 +23,72 @@ package slash.navigation.gpx;
 import slash.navigation.gpx.binding10.Gpx;
 import slash.navigation.gpx.binding11.GpxType;
 import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 
 import javax.xml.bind.*;
 import javax.xml.namespace.QName;
 import java.io.*;
 
 public class GpxUtil {
-    private static final JAXBContext CONTEXT_10 = JaxbUtils.newContext(slash.navigation.gpx.binding10.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_11 = JaxbUtils.newContext(slash.navigation.gpx.binding11.ObjectFactory.class,
+    private static final PooledContext CONTEXT_10 = new PooledContext(slash.navigation.gpx.binding10.ObjectFactory.class);
+    private static final PooledContext CONTEXT_11 = new PooledContext(slash.navigation.gpx.binding11.ObjectFactory.class,
             slash.navigation.gpx.garmin3.ObjectFactory.class,
             slash.navigation.gpx.routecatalog10.ObjectFactory.class);
 
-    private static final String GPX_10_NAMESPACE_URI = "http://www.topografix.com/GPX/1/0";
-    private static final String GPX_11_NAMESPACE_URI = "http://www.topografix.com/GPX/1/1";
-    private static final String GARMIN_EXTENSIONS_3_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/GpxExtensions/v3";
+    static final String GPX_10_NAMESPACE_URI = "http://www.topografix.com/GPX/1/0";
+    static final String GPX_11_NAMESPACE_URI = "http://www.topografix.com/GPX/1/1";
+    static final String GARMIN_EXTENSIONS_3_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/GpxExtensions/v3";
     private static final String GARMIN_WAYPOINT_EXTENSIONS_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/WaypointExtension/v1";
     private static final String GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrackPointExtension/v1";
-    private static final String ROUTECATALOG_EXTENSIONS_1_NAMESPACE_URI = "http://www.routeconverter.de/xmlschemas/RouteCatalogExtensions/1.0";
-    private static final String TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI = "http://trekbuddy.net/2009/01/gpx/nmea";
+    static final String ROUTECATALOG_EXTENSIONS_1_NAMESPACE_URI = "http://www.routeconverter.de/xmlschemas/RouteCatalogExtensions/1.0";
+    static final String TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI = "http://trekbuddy.net/2009/01/gpx/nmea";
     private static final String XML_SCHEMA_INSTANCE_NAMESPACE_URI = "http://www.w3.org/2001/XMLSchema-instance";
 
+    /**
+     * Creates the contexts for GPX 1.0 and 1.1, the most common formats, in the background.
+     */
+    public static void createContextsInBackground() {
+        CONTEXT_10.createInBackground();
+        CONTEXT_11.createInBackground();
+    }
+
     public static Unmarshaller newUnmarshaller10() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_10);
+        return CONTEXT_10.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller10() {
-        return JaxbUtils.newMarshaller(CONTEXT_10);
+        return CONTEXT_10.getMarshaller();
     }
 
+    static final String[] NAMESPACE_PREFIXES_11 = new String[]{
+            XML_SCHEMA_INSTANCE_NAMESPACE_URI, "xsi",
+            GARMIN_EXTENSIONS_3_NAMESPACE_URI, "gpxtrx",
+            GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI, "gpxtpx",
+            GARMIN_WAYPOINT_EXTENSIONS_1_NAMESPACE_URI, "gpxx",
+            ROUTECATALOG_EXTENSIONS_1_NAMESPACE_URI, "rcxx",
+            TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI, "nmea"
+    };
+
     private static Unmarshaller newUnmarshaller11() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_11);
+        return CONTEXT_11.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller11() {
-        return JaxbUtils.newMarshaller(CONTEXT_11,
-                XML_SCHEMA_INSTANCE_NAMESPACE_URI, "xsi",
-                GARMIN_EXTENSIONS_3_NAMESPACE_URI, "gpxtrx",
-                GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI, "gpxtpx",
-                GARMIN_WAYPOINT_EXTENSIONS_1_NAMESPACE_URI, "gpxx",
-                ROUTECATALOG_EXTENSIONS_1_NAMESPACE_URI, "rcxx",
-                TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI, "nmea"
-        );
+        return CONTEXT_11.getMarshaller(NAMESPACE_PREFIXES_11);
+    }
+
+    // for the stream reader and writer which keep and configure their own instances
+    static Unmarshaller createUnmarshaller11() {
+        return JaxbUtils.newUnmarshaller(CONTEXT_11.getContext());
+    }
+
+    // for fragments below a gpx element that declares the namespaces already
+    static Marshaller createFragmentMarshaller11() {
+        String[] uriToPrefix = new String[NAMESPACE_PREFIXES_11.length + 2];
+        uriToPrefix[0] = GPX_11_NAMESPACE_URI;
+        uriToPrefix[1] = "";
+        System.arraycopy(NAMESPACE_PREFIXES_11, 0, uriToPrefix, 2, NAMESPACE_PREFIXES_11.length);
+        return JaxbUtils.newFragmentMarshaller(CONTEXT_11.getContext(), uriToPrefix);
     }
 
 
@@ -0,0 +1,216 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Indents the elements of a fragment that is written at a given depth of a
+ * document to the {@link XMLStreamWriter} of the document. All other calls
+ * are passed unchanged to keep the namespace bindings of the document.
+ *
+ * @author Christian Pesch
+ */
+
+class IndentingStreamWriter implements XMLStreamWriter {
+    private final XMLStreamWriter delegate;
+    private final String indentation;
+    private int depth = 0, level = 0;
+    private boolean hasChildren = false;
+
+    public IndentingStreamWriter(XMLStreamWriter delegate, String indentation) {
+        this.delegate = delegate;
+        this.indentation = indentation;
+    }
+
+    public void startFragment(int depth) {
+        this.depth = depth;
+        this.level = 0;
+        this.hasChildren = false;
+    }
+
+    private void indent() throws XMLStreamException {
+        StringBuilder buffer = new StringBuilder("\n");
+        for (int i = 0; i < depth; i++)
+            buffer.append(indentation);
+        delegate.writeCharacters(buffer.toString());
+    }
+
+    private void startElement() throws XMLStreamException {
+        // the document indents the root of the fragment
+        if (level > 0)
+            indent();
+        level++;
+        depth++;
+        hasChildren = false;
+    }
+
+    private void emptyElement() throws XMLStreamException {
+        if (level > 0)
+            indent();
+        hasChildren = true;
+    }
+
+    private void endElement() throws XMLStreamException {
+        level--;
+        depth--;
+        if (hasChildren)
+            indent();
+        hasChildren = true;
+    }
+
+    public void writeStartElement(String localName) throws XMLStreamException {
+        startElement();
+        delegate.writeStartElement(localName);
+    }
+
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        startElement();
+        delegate.writeStartElement(namespaceURI, localName);
+    }
+
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        startElement();
+        delegate.writeStartElement(prefix, localName, namespaceURI);
+    }
+
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        emptyElement();
+        delegate.writeEmptyElement(namespaceURI, localName);
+    }
+
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        emptyElement();
+        delegate.writeEmptyElement(prefix, localName, namespaceURI);
+    }
+
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        emptyElement();
+        delegate.writeEmptyElement(localName);
+    }
+
+    public void writeEndElement() throws XMLStreamException {
+        endElement();
+        delegate.writeEndElement();
+    }
+
+    public void writeEndDocument() throws XMLStreamException {
+        delegate.writeEndDocument();
+    }
+
+    public void close() throws XMLStreamException {
+        delegate.close();
+    }
+
+    public void flush() throws XMLStreamException {
+        delegate.flush();
+    }
+
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        delegate.writeAttribute(localName, value);
+    }
+
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        delegate.writeAttribute(prefix, namespaceURI, localName, value);
+    }
+
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        delegate.writeAttribute(namespaceURI, localName, value);
+    }
+
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        delegate.writeNamespace(prefix, namespaceURI);
+    }
+
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        delegate.writeDefaultNamespace(namespaceURI);
+    }
+
+    public void writeComment(String data) throws XMLStreamException {
+        delegate.writeComment(data);
+    }
+
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        delegate.writeProcessingInstruction(target);
+    }
+
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        delegate.writeProcessingInstruction(target, data);
+    }
+
+    public void writeCData(String data) throws XMLStreamException {
+        delegate.writeCData(data);
+    }
+
+    public void writeDTD(String dtd) throws XMLStreamException {
+        delegate.writeDTD(dtd);
+    }
+
+    public void writeEntityRef(String name) throws XMLStreamException {
+        delegate.writeEntityRef(name);
+    }
+
+    public void writeStartDocument() throws XMLStreamException {
+        delegate.writeStartDocument();
+    }
+
+    public void writeStartDocument(String version) throws XMLStreamException {
+        delegate.writeStartDocument(version);
+    }
+
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        delegate.writeStartDocument(encoding, version);
+    }
+
+    public void writeCharacters(String text) throws XMLStreamException {
+        delegate.writeCharacters(text);
+    }
+
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        delegate.writeCharacters(text, start, len);
+    }
+
+    public String getPrefix(String uri) throws XMLStreamException {
+        return delegate.getPrefix(uri);
+    }
+
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        delegate.setPrefix(prefix, uri);
+    }
+
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        delegate.setDefaultNamespace(uri);
+    }
+
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        delegate.setNamespaceContext(context);
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return delegate.getNamespaceContext();
+    }
+
+    public Object getProperty(String name) throws IllegalArgumentException {
+        return delegate.getProperty(name);
+    }
+}
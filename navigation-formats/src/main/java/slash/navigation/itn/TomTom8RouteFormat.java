@@ -39,8 +39,12 @@ public class TomTom8RouteFormat extends TomTomRouteFormat {
         return "Tom Tom 8 Route (*" + getExtension() + ")";
     }
 
+    protected String getEncoding() {
+        return UTF8_ENCODING;
+    }
+
     public List<TomTomRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
-        return read(source, startDate, UTF8_ENCODING);
+        return read(source, startDate, getEncoding());
     }
 
     protected boolean isIso885915ButReadWithUtf8(String string) {
@@ -55,6 +59,6 @@ public class TomTom8RouteFormat extends TomTomRouteFormat {
     }
 
     public void write(TomTomRoute route, OutputStream target, int startIndex, int endIndex) throws IOException {
-        write(route, target, UTF8_ENCODING, startIndex, endIndex);
+        write(route, target, getEncoding(), startIndex, endIndex);
     }
 }
\ No newline at end of file
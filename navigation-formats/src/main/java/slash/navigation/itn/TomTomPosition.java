@@ -76,6 +76,7 @@ public class TomTomPosition extends BaseNavigationPosition {
 
     public void setLongitude(Double longitude) {
         this.longitude = asInt(longitude);
+        modified();
     }
 
     public Double getLatitude() {
@@ -84,6 +85,7 @@ public class TomTomPosition extends BaseNavigationPosition {
 
     public void setLatitude(Double latitude) {
         this.latitude = asInt(latitude);
+        modified();
     }
 
     public String getComment() {
@@ -21,6 +21,8 @@
 package slash.navigation.itn;
 
 import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.base.TextNavigationFormat;
 import slash.navigation.util.RouteComments;
@@ -84,8 +86,33 @@ public abstract class TomTomRouteFormat extends TextNavigationFormat<TomTomRoute
         return new TomTomRoute(characteristics, name, (List<TomTomPosition>) positions);
     }
 
+    protected String getEncoding() {
+        return DEFAULT_ENCODING;
+    }
+
     protected abstract boolean isIso885915ButReadWithUtf8(String string);
 
+    public Recognition recognize(FileHead head) {
+        // mirrors the line checks of read() for the lines within the head
+        boolean foundPosition = false;
+        for (String line : head.getLines(getEncoding())) {
+            if (line.length() == 0 || line.startsWith("~"))
+                continue;
+            if (line.startsWith("\ufeff"))
+                line = line.substring(1);
+            if (line.startsWith("\357\273\277"))
+                line = line.substring(3);
+
+            if (isPosition(line)) {
+                if (isIso885915ButReadWithUtf8(parsePosition(line).getComment()))
+                    return Recognition.Mismatch;
+                foundPosition = true;
+            } else if (!isName(line))
+                return Recognition.Mismatch;
+        }
+        return foundPosition || !head.isComplete() ? Recognition.Possible : Recognition.Mismatch;
+    }
+
     public List<TomTomRoute> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
         List<TomTomPosition> positions = new ArrayList<TomTomPosition>();
 
@@ -172,7 +199,7 @@ public abstract class TomTomRouteFormat extends TextNavigationFormat<TomTomRoute
         }
         buffer.append(position.getComment());
         if (position.getTime() != null) {
-            buffer.append(" : ").append(RouteComments.TRIPMASTER_DATE.format(position.getTime().getTime()));
+            buffer.append(" : ").append(RouteComments.TRIPMASTER_DATE.format(position.getTime()));
             buffer.append(" - ").append(position.getElevation() != null ? position.getElevation() : 0).append(" m");
             buffer.append(" - ").append(position.getSpeed() != null ? position.getSpeed() : 0).append(" Km/h");
             buffer.append(" - ").append(position.getHeading() != null ? position.getHeading() : 0).append(" deg");
@@ -187,7 +214,7 @@ public abstract class TomTomRouteFormat extends TextNavigationFormat<TomTomRoute
         StringBuffer buffer = new StringBuffer();
         buffer.append(position.getComment());
         if (position.getTime() != null) {
-            buffer.append(" : ").append(RouteComments.TRIPMASTER_TIME.format(position.getTime().getTime()));
+            buffer.append(" : ").append(RouteComments.TRIPMASTER_TIME.format(position.getTime()));
             buffer.append(" - ").append(position.getElevation() != null ? position.getElevation() : 0).append(" m");
             buffer.append(" - ").append(position.getSpeed() != null ? position.getSpeed() : 0).append(" Km/h");
             buffer.append(" - ").append(position.getHeading() != null ? position.getHeading() : 0).append(" deg");
@@ -21,6 +21,7 @@
 package slash.navigation.klicktel;
 
 import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 import slash.navigation.klicktel.binding.KDRoute;
 import slash.navigation.klicktel.binding.ObjectFactory;
 import slash.navigation.base.XmlNavigationFormat;
@@ -30,16 +31,16 @@ import javax.xml.namespace.QName;
 import java.io.*;
 
 class KlickTelUtil {
-    private static final JAXBContext CONTEXT = JaxbUtils.newContext(ObjectFactory.class);
+    private static final PooledContext CONTEXT = new PooledContext(ObjectFactory.class);
 
     private static final String KLICKTEL_NAMESPACE_URI = "";
 
     private static Unmarshaller newUnmarshaller() {
-        return JaxbUtils.newUnmarshaller(CONTEXT);
+        return CONTEXT.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller() {
-        Marshaller marshaller = JaxbUtils.newMarshaller(CONTEXT);
+        Marshaller marshaller = CONTEXT.getMarshaller();
         try {
             marshaller.setProperty(JaxbUtils.JAXB_IMPL_HEADER, XmlNavigationFormat.HEADER_LINE);
         } catch (PropertyException e) {
@@ -21,9 +21,8 @@
 package slash.navigation.kml;
 
 import slash.common.io.CompactCalendar;
-import slash.navigation.kml.binding22beta.KmlType;
 
-import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -47,12 +46,11 @@ public class BrokenKml22BetaFormat extends Kml22BetaFormat {
         return false;
     }
 
-    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, JAXBException {
+    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, XMLStreamException {
         InputStreamReader reader = new InputStreamReader(source);
         try {
-            KmlType kmlType = KmlUtil.unmarshal22Beta(reader);
-            return process(kmlType, startDate);
-        } catch (JAXBException e) {
+            return process(new KmlStreamReader(this, KmlUtil.KML_22_BETA_NAMESPACE_URI).read(reader), startDate);
+        } catch (XMLStreamException e) {
             log.fine("Error reading broken KML 2.2 Beta from " + source + ": " + e.getMessage());
         }
         finally {
@@ -23,18 +23,17 @@ package slash.navigation.kml;
 import slash.common.io.CompactCalendar;
 import slash.common.io.ISO8601;
 import slash.common.io.Transfer;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
-import slash.navigation.googlemaps.GoogleMapsPosition;
 import slash.navigation.kml.binding20.*;
-import slash.navigation.util.RouteComments;
 
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -51,217 +50,23 @@ public class Kml20Format extends KmlFormat {
         return "Google Earth 3 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        // KML 2.0 documents may start with a Document or Folder element, too
+        Recognition recognition = recognizeXml(head, "kml", KmlUtil.KML_20_NAMESPACE_URI);
+        return recognition == Recognition.Mismatch && head.isXml() ? Recognition.Possible : recognition;
+    }
+
     public List<KmlRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         try {
             return internalRead(source, startDate);
-        } catch (JAXBException e) {
+        } catch (XMLStreamException e) {
             log.fine("Error reading KML 2.0 from " + source + ": " + e.getMessage());
             return null;
         }
     }
 
-    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, JAXBException {
-        Object o = KmlUtil.unmarshal20(source);
-        if (o instanceof Kml) {
-            Kml kml = (Kml) o;
-            return extractTracks(kml.getDocument(), kml.getFolder(), startDate);
-        }
-        if (o instanceof Document) {
-            Document document = (Document) o;
-            return extractTracks(document, null, startDate);
-        }
-        if (o instanceof Folder) {
-            Folder folder = (Folder) o;
-            return extractTracks(null, folder, startDate);
-        }
-        return null;
-    }
-
-    private List<KmlRoute> extractTracks(Document document, Folder folder, CompactCalendar startDate) {
-        List<Object> elements = null;
-        if (document != null && document.getDocumentOrFolderOrGroundOverlay().size() > 0)
-            elements = document.getDocumentOrFolderOrGroundOverlay();
-
-        if (folder != null && folder.getDocumentOrFolderOrGroundOverlay().size() > 0)
-            elements = folder.getDocumentOrFolderOrGroundOverlay();
-
-        if (elements == null)
-            return null;
-
-        List<KmlRoute> routes = extractTracks(extractName(elements), extractDescriptionList(elements), elements, startDate);
-        RouteComments.commentRoutePositions(routes);
-        return routes;
-    }
-
-    private JAXBElement findElement(List elements, String name) {
-        for (Object element : elements) {
-            if (element instanceof JAXBElement) {
-                JAXBElement jaxbElement = (JAXBElement) element;
-                if (name.equals(jaxbElement.getName().getLocalPart()))
-                    return jaxbElement;
-            }
-        }
-        return null;
-    }
-
-    private String extractName(List<Object> elements) {
-        JAXBElement name = findElement(elements, "name");
-        return name != null ? Transfer.trim((String) name.getValue()) : null;
-    }
-
-    private String extractDescription(List<Object> elements) {
-        JAXBElement name = findElement(elements, "description");
-        if (name == null)
-            return null;
-        String string = (String) name.getValue();
-        string = string.replace("&#160;", " ");
-        string = string.replace("&#169;", "(c)");
-        return string;
-    }
-
-    private String extractTime(TimeInstant timeInstant) {
-        return timeInstant != null ? timeInstant.getTimePosition() : null;
-    }
-
-    private Calendar extractTime(List<Object> elements) {
-        JAXBElement element = findElement(elements, "TimePeriod");
-        if (element == null)
-            return null;
-        TimePeriod timePeriod = (TimePeriod) element.getValue();
-        String time = "";
-        if (timePeriod.getBegin() != null)
-            time = extractTime(timePeriod.getBegin().getTimeInstant());
-        if (time == null && timePeriod.getEnd() != null)
-            time = extractTime(timePeriod.getEnd().getTimeInstant());
-        return time != null ? ISO8601.parse(time) : null;
-    }
-
-    private List<String> extractDescriptionList(List<Object> elements) {
-        JAXBElement name = findElement(elements, "description");
-        return name != null ? asDescription((String) name.getValue()) : null;
-    }
-
-    private List<Folder> findFolders(List<Object> elements) {
-        List<Folder> folders = new ArrayList<Folder>();
-        for (Object element : elements) {
-            if (element instanceof Folder) {
-                folders.add((Folder) element);
-            }
-        }
-        return folders;
-    }
-
-    private List<Placemark> findPlacemarks(List<Object> elements) {
-        List<Placemark> placemarks = new ArrayList<Placemark>();
-        for (Object element : elements) {
-            if (element instanceof Placemark) {
-                placemarks.add((Placemark) element);
-            }
-        }
-        return placemarks;
-    }
-
-    private List<NetworkLink> findNetworkLinks(List<Object> elements) {
-        List<NetworkLink> networkLinks = new ArrayList<NetworkLink>();
-        for (Object element : elements) {
-            if (element instanceof NetworkLink) {
-                networkLinks.add((NetworkLink) element);
-            }
-        }
-        return networkLinks;
-    }
-
-    private List<KmlRoute> extractTracks(String name, List<String> description, List<Object> elements, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<Placemark> placemarks = findPlacemarks(elements);
-        result.addAll(extractWayPointsAndTracksFromPlacemarks(name, description, placemarks, startDate));
-
-        List<NetworkLink> networkLinks = findNetworkLinks(elements);
-        result.addAll(extractWayPointsAndTracksFromNetworkLinks(networkLinks));
-
-        List<Folder> folders = findFolders(elements);
-        for (Folder folder : folders) {
-            List<Object> overlays = folder.getDocumentOrFolderOrGroundOverlay();
-            String folderName = concatPath(name, extractName(overlays));
-            result.addAll(extractTracks(folderName, description, overlays, startDate));
-        }
-
-        return result;
-    }
-
-    private List<KmlRoute> extractWayPointsAndTracksFromPlacemarks(String name, List<String> description, List<Placemark> placemarks, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<KmlPosition> wayPoints = new ArrayList<KmlPosition>();
-        for (Placemark placemark : placemarks) {
-            String placemarkName = asComment(extractName(placemark.getDescriptionOrNameOrSnippet()),
-                    extractDescription(placemark.getDescriptionOrNameOrSnippet()));
-
-            List<KmlPosition> positions = extractPositions(placemark.getDescriptionOrNameOrSnippet());
-            if (positions.size() == 1) {
-                // all placemarks with one position form one waypoint route
-                KmlPosition wayPoint = positions.get(0);
-                enrichPosition(wayPoint, extractTime(placemark.getDescriptionOrNameOrSnippet()), placemarkName, extractDescription(placemark.getDescriptionOrNameOrSnippet()), startDate);
-                wayPoints.add(wayPoint);
-            } else {
-                // each placemark with more than one position is one track
-                String routeName = concatPath(name, placemarkName);
-                List<String> routeDescription = extractDescriptionList(placemark.getDescriptionOrNameOrSnippet());
-                if (routeDescription == null)
-                    routeDescription = description;
-                RouteCharacteristics characteristics = parseCharacteristics(routeName, RouteCharacteristics.Track);
-                result.add(new KmlRoute(this, characteristics, routeName, routeDescription, positions));
-            }
-        }
-        if (wayPoints.size() != 0) {
-            RouteCharacteristics characteristics = parseCharacteristics(name, RouteCharacteristics.Waypoints);
-            result.add(0, new KmlRoute(this, characteristics, name, description, wayPoints));
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractWayPointsAndTracksFromNetworkLinks(List<NetworkLink> networkLinks) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-        for (NetworkLink networkLink : networkLinks) {
-            String url = networkLink.getUrl().getHref();
-            List<KmlRoute> routes = parseRouteFromUrl(url);
-            if (routes != null)
-                result.addAll(routes);
-        }
-        return result;
-    }
-
-    private List<KmlPosition> extractPositions(LineString lineString) {
-        List<KmlPosition> result = new ArrayList<KmlPosition>();
-        for (GoogleMapsPosition position : GoogleMapsPosition.parsePositions(lineString.getCoordinates())) {
-            result.add(asKmlPosition(position));
-        }
-        return result;
-    }
-
-    private List<KmlPosition> extractPositions(List<Object> elements) {
-        List<KmlPosition> result = new ArrayList<KmlPosition>();
-        for (Object element : elements) {
-            if (element instanceof Point) {
-                Point point = (Point) element;
-                result.add(asKmlPosition(GoogleMapsPosition.parsePosition(point.getCoordinates(), null)));
-            }
-            if (element instanceof LineString) {
-                LineString lineString = (LineString) element;
-                result.addAll(extractPositions(lineString));
-            }
-            if (element instanceof MultiGeometry) {
-                MultiGeometry multiGeometry = (MultiGeometry) element;
-                result.addAll(extractPositions(multiGeometry.getExtrudeOrTessellateOrAltitudeMode()));
-            }
-            if (element instanceof GeometryCollection) {
-                GeometryCollection geometryCollection = (GeometryCollection) element;
-                for (LineString lineString : geometryCollection.getLineString())
-                    result.addAll(extractPositions(lineString));
-            }
-        }
-        return result;
+    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, XMLStreamException {
+        return process(new KmlStreamReader(this, KmlUtil.KML_20_NAMESPACE_URI).read(source), startDate);
     }
 
     private Folder createWayPoints(KmlRoute route) {
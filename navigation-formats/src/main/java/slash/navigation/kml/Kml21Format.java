@@ -23,18 +23,16 @@ package slash.navigation.kml;
 import slash.common.io.CompactCalendar;
 import slash.common.io.ISO8601;
 import slash.common.io.Transfer;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.kml.binding21.*;
-import slash.navigation.util.RouteComments;
 
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -51,175 +49,23 @@ public class Kml21Format extends KmlFormat {
         return "Google Earth 4 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognizeXml(head, "kml", KmlUtil.KML_21_NAMESPACE_URI);
+    }
+
     public List<KmlRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         try {
             return internalRead(source, startDate);
-        } catch (JAXBException e) {
+        } catch (XMLStreamException e) {
             log.fine("Error reading KML 2.1 from " + source + ": " + e.getMessage());
             return null;
         }
     }
 
-    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, JAXBException {
-        KmlType kmlType = KmlUtil.unmarshal21(source);
-        return process(kmlType, startDate);
+    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, XMLStreamException {
+        return process(new KmlStreamReader(this, KmlUtil.KML_21_NAMESPACE_URI).read(source), startDate);
     }
 
-    protected List<KmlRoute> process(KmlType kmlType, CompactCalendar startDate) {
-        if (kmlType == null || kmlType.getFeature() == null)
-            return null;
-        return extractTracks(kmlType, startDate);
-    }
-
-
-    @SuppressWarnings({"UnusedDeclaration", "unchecked"})
-    private <T> List<JAXBElement<T>> find(List<JAXBElement<? extends FeatureType>> elements, String name, Class<T> resultClass) {
-        List<JAXBElement<T>> result = new ArrayList<JAXBElement<T>>();
-        for (JAXBElement<? extends FeatureType> element : elements) {
-            if (name.equals(element.getName().getLocalPart()))
-                result.add((JAXBElement<T>) element);
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractTracks(KmlType kmlType, CompactCalendar startDate) {
-        List<KmlRoute> routes = null;
-
-        FeatureType feature = kmlType.getFeature().getValue();
-        if (feature instanceof ContainerType) {
-            ContainerType containerType = (ContainerType) feature;
-            List<JAXBElement<? extends FeatureType>> features = null;
-            if (containerType instanceof FolderType)
-                features = ((FolderType) containerType).getFeature();
-            else if (containerType instanceof DocumentType)
-                features = ((DocumentType) containerType).getFeature();
-            routes = extractTracks(Transfer.trim(containerType.getName()), Transfer.trim(containerType.getDescription()), features, startDate);
-        }
-
-        if (feature instanceof PlacemarkType) {
-            PlacemarkType placemarkType = (PlacemarkType) feature;
-            String placemarkName = asComment(Transfer.trim(placemarkType.getName()),
-                    Transfer.trim(placemarkType.getDescription()));
-
-            List<KmlPosition> positions = extractPositions(placemarkType.getGeometry());
-            for (KmlPosition position : positions) {
-                enrichPosition(position, extractTime(placemarkType.getTimePrimitive()), placemarkName, placemarkType.getDescription(), startDate);
-            }
-            routes = Arrays.asList(new KmlRoute(this, RouteCharacteristics.Waypoints, placemarkName, null, positions));
-        }
-
-        if (routes != null)
-            RouteComments.commentRoutePositions(routes);
-        return routes;
-    }
-
-    private List<KmlRoute> extractTracks(String name, String description, List<JAXBElement<? extends FeatureType>> features, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<JAXBElement<PlacemarkType>> placemarks = find(features, "Placemark", PlacemarkType.class);
-        result.addAll(extractWayPointsAndTracksFromPlacemarks(name, description, placemarks, startDate));
-
-        List<JAXBElement<NetworkLinkType>> networkLinks = find(features, "NetworkLink", NetworkLinkType.class);
-        result.addAll(extractWayPointsAndTracksFromNetworkLinks(networkLinks));
-
-        List<JAXBElement<FolderType>> folders = find(features, "Folder", FolderType.class);
-        for (JAXBElement<FolderType> folder : folders) {
-            FolderType folderTypeValue = folder.getValue();
-            String folderName = concatPath(name, folderTypeValue.getName());
-            result.addAll(extractTracks(folderName, description, folderTypeValue.getFeature(), startDate));
-        }
-
-        List<JAXBElement<DocumentType>> documents = find(features, "Document", DocumentType.class);
-        for (JAXBElement<DocumentType> document : documents) {
-            DocumentType documentTypeValue = document.getValue();
-            String documentName = concatPath(name, documentTypeValue.getName());
-            result.addAll(extractTracks(documentName, description, documentTypeValue.getFeature(), startDate));
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractWayPointsAndTracksFromPlacemarks(String name, String description, List<JAXBElement<PlacemarkType>> placemarkTypes, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<KmlPosition> wayPoints = new ArrayList<KmlPosition>();
-        for (JAXBElement<PlacemarkType> placemarkType : placemarkTypes) {
-            PlacemarkType placemarkTypeValue = placemarkType.getValue();
-            String placemarkName = asComment(Transfer.trim(placemarkTypeValue.getName()),
-                    Transfer.trim(placemarkTypeValue.getDescription()));
-
-            List<KmlPosition> positions = extractPositions(placemarkTypeValue.getGeometry());
-            if (positions.size() == 1) {
-                // all placemarks with one position form one waypoint route
-                KmlPosition wayPoint = positions.get(0);
-                enrichPosition(wayPoint, extractTime(placemarkTypeValue.getTimePrimitive()), placemarkName, placemarkTypeValue.getDescription(), startDate);
-                wayPoints.add(wayPoint);
-            } else {
-                // each placemark with more than one position is one track
-                String routeName = concatPath(name, placemarkName);
-                List<String> routeDescription = asDescription(placemarkTypeValue.getDescription() != null ? placemarkTypeValue.getDescription() : description);
-                RouteCharacteristics characteristics = parseCharacteristics(routeName, RouteCharacteristics.Track);
-                result.add(new KmlRoute(this, characteristics, routeName, routeDescription, positions));
-            }
-        }
-        if (wayPoints.size() > 0) {
-            RouteCharacteristics characteristics = parseCharacteristics(name, RouteCharacteristics.Waypoints);
-            result.add(0, new KmlRoute(this, characteristics, name, asDescription(description), wayPoints));
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractWayPointsAndTracksFromNetworkLinks(List<JAXBElement<NetworkLinkType>> networkLinkTypes) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-        for (JAXBElement<NetworkLinkType> networkLinkType : networkLinkTypes) {
-            LinkType linkType = networkLinkType.getValue().getUrl();
-            if (linkType != null) {
-                String url = linkType.getHref();
-                List<KmlRoute> routes = parseRouteFromUrl(url);
-                if (routes != null)
-                    result.addAll(routes);
-            }
-        }
-        return result;
-    }
-
-    private List<KmlPosition> extractPositions(JAXBElement<? extends GeometryType> geometryType) {
-        List<KmlPosition> positions = new ArrayList<KmlPosition>();
-        if(geometryType != null) {
-            GeometryType geometryTypeValue = geometryType.getValue();
-            if (geometryTypeValue instanceof PointType) {
-                PointType point = (PointType) geometryTypeValue;
-                positions.addAll(asKmlPositions(point.getCoordinates()));
-            }
-            if (geometryTypeValue instanceof LineStringType) {
-                LineStringType lineString = (LineStringType) geometryTypeValue;
-                positions.addAll(asKmlPositions(lineString.getCoordinates()));
-            }
-            if (geometryTypeValue instanceof MultiGeometryType) {
-                MultiGeometryType multiGeometryType = (MultiGeometryType) geometryTypeValue;
-                List<JAXBElement<? extends GeometryType>> geometryTypes = multiGeometryType.getGeometry();
-                for (JAXBElement<? extends GeometryType> geometryType2 : geometryTypes) {
-                    positions.addAll(extractPositions(geometryType2));
-                }
-            }
-        }
-        return positions;
-    }
-
-    private Calendar extractTime(JAXBElement<? extends TimePrimitiveType> timePrimitiveType) {
-        if (timePrimitiveType != null) {
-            TimePrimitiveType timePrimitiveTypeValue = timePrimitiveType.getValue();
-            String time = "";
-            if (timePrimitiveTypeValue instanceof TimeSpanType) {
-                time = ((TimeSpanType) timePrimitiveTypeValue).getBegin();
-            } else if (timePrimitiveTypeValue instanceof TimeStampType) {
-                time = ((TimeStampType) timePrimitiveTypeValue).getWhen();
-            }
-            return ISO8601.parse(time);
-        }
-        return null;
-    }
-
-
     private FolderType createWayPoints(KmlRoute route) {
         ObjectFactory objectFactory = new ObjectFactory();
         FolderType folderType = objectFactory.createFolderType();
@@ -23,18 +23,16 @@ package slash.navigation.kml;
 import slash.common.io.CompactCalendar;
 import slash.common.io.ISO8601;
 import slash.common.io.Transfer;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.kml.binding22beta.*;
-import slash.navigation.util.RouteComments;
 
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Calendar;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -51,186 +49,23 @@ public class Kml22BetaFormat extends KmlFormat {
         return "Google Earth 4.2 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognizeXml(head, "kml", KmlUtil.KML_22_BETA_NAMESPACE_URI);
+    }
+
     public List<KmlRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         try {
             return internalRead(source, startDate);
-        } catch (JAXBException e) {
+        } catch (XMLStreamException e) {
             log.fine("Error reading KML 2.2 Beta from " + source + ": " + e.getMessage());
             return null;
         }
     }
 
-    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, JAXBException {
-        KmlType kmlType = KmlUtil.unmarshal22Beta(source);
-        return process(kmlType, startDate);
-    }
-
-    protected List<KmlRoute> process(KmlType kmlType, CompactCalendar startDate) {
-        if (kmlType == null || kmlType.getAbstractFeatureGroup() == null)
-            return null;
-        return extractTracks(kmlType, startDate);
-    }
-
-    @SuppressWarnings({"UnusedDeclaration", "unchecked"})
-    private <T> List<JAXBElement<T>> find(List<JAXBElement<? extends AbstractFeatureType>> elements, String name, Class<T> resultClass) {
-        List<JAXBElement<T>> result = new ArrayList<JAXBElement<T>>();
-        for (JAXBElement<? extends AbstractFeatureType> element : elements) {
-            if (name.equals(element.getName().getLocalPart()))
-                result.add((JAXBElement<T>) element);
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractTracks(KmlType kmlType, CompactCalendar startDate) {
-        List<KmlRoute> routes = null;
-
-        AbstractFeatureType feature = kmlType.getAbstractFeatureGroup().getValue();
-        if (feature instanceof AbstractContainerType) {
-            AbstractContainerType containerType = (AbstractContainerType) feature;
-            List<JAXBElement<? extends AbstractFeatureType>> features = null;
-            if (containerType instanceof FolderType)
-                features = ((FolderType) containerType).getAbstractFeatureGroup();
-            else if (containerType instanceof DocumentType)
-                features = ((DocumentType) containerType).getAbstractFeatureGroup();
-            routes = extractTracks(Transfer.trim(containerType.getNameElement()), Transfer.trim(containerType.getDescription()), features, startDate);
-        }
-
-        if (feature instanceof PlacemarkType) {
-            PlacemarkType placemarkType = (PlacemarkType) feature;
-            String placemarkName = asComment(Transfer.trim(placemarkType.getNameElement()),
-                    Transfer.trim(placemarkType.getDescription()));
-
-            List<KmlPosition> positions = extractPositions(placemarkType.getAbstractGeometryGroup());
-            for (KmlPosition position : positions) {
-                enrichPosition(position, extractTime(placemarkType.getAbstractTimePrimitiveGroup()), placemarkName, placemarkType.getDescription(), startDate);
-            }
-            routes = Arrays.asList(new KmlRoute(this, RouteCharacteristics.Waypoints, placemarkName, null, positions));
-        }
-
-        if (routes != null)
-            RouteComments.commentRoutePositions(routes);
-        return routes;
-    }
-
-    private List<KmlRoute> extractTracks(String name, String description, List<JAXBElement<? extends AbstractFeatureType>> features, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<JAXBElement<PlacemarkType>> placemarks = find(features, "Placemark", PlacemarkType.class);
-        result.addAll(extractWayPointsAndTracksFromPlacemarks(name, description, placemarks, startDate));
-
-        List<JAXBElement<NetworkLinkType>> networkLinks = find(features, "NetworkLink", NetworkLinkType.class);
-        result.addAll(extractWayPointsAndTracksFromNetworkLinks(networkLinks));
-
-        List<JAXBElement<FolderType>> folders = find(features, "Folder", FolderType.class);
-        for (JAXBElement<FolderType> folder : folders) {
-            FolderType folderTypeValue = folder.getValue();
-            String folderName = concatPath(name, folderTypeValue.getNameElement());
-            result.addAll(extractTracks(folderName, description, folderTypeValue.getAbstractFeatureGroup(), startDate));
-        }
-
-        List<JAXBElement<DocumentType>> documents = find(features, "Document", DocumentType.class);
-        for (JAXBElement<DocumentType> document : documents) {
-            DocumentType documentTypeValue = document.getValue();
-            String documentName = concatPath(name, documentTypeValue.getNameElement());
-            result.addAll(extractTracks(documentName, description, documentTypeValue.getAbstractFeatureGroup(), startDate));
-        }
-        return result;
-    }
-
-    private List<KmlRoute> extractWayPointsAndTracksFromPlacemarks(String name, String description, List<JAXBElement<PlacemarkType>> placemarkTypes, CompactCalendar startDate) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-
-        List<KmlPosition> wayPoints = new ArrayList<KmlPosition>();
-        for (JAXBElement<PlacemarkType> placemarkType : placemarkTypes) {
-            PlacemarkType placemarkTypeValue = placemarkType.getValue();
-            String placemarkName = asComment(Transfer.trim(placemarkTypeValue.getNameElement()),
-                    Transfer.trim(placemarkTypeValue.getDescription()));
-
-            List<KmlPosition> positions = extractPositions(placemarkTypeValue.getAbstractGeometryGroup());
-            if (positions.size() == 1) {
-                // all placemarks with one position form one waypoint route
-                KmlPosition wayPoint = positions.get(0);
-                enrichPosition(wayPoint, extractTime(placemarkTypeValue.getAbstractTimePrimitiveGroup()), placemarkName, placemarkTypeValue.getDescription(), startDate);
-                wayPoints.add(wayPoint);
-            } else {
-                // each placemark with more than one position is one track
-                String routeName = concatPath(name, placemarkName);
-                List<String> routeDescription = asDescription(placemarkTypeValue.getDescription() != null ? placemarkTypeValue.getDescription() : description);
-                RouteCharacteristics characteristics = parseCharacteristics(routeName, RouteCharacteristics.Track);
-                result.add(new KmlRoute(this, characteristics, routeName, routeDescription, positions));
-            }
-        }
-        if (wayPoints.size() > 0) {
-            RouteCharacteristics characteristics = parseCharacteristics(name, RouteCharacteristics.Waypoints);
-            result.add(0, new KmlRoute(this, characteristics, name, asDescription(description), wayPoints));
-        }
-        return result;
+    List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, XMLStreamException {
+        return process(new KmlStreamReader(this, KmlUtil.KML_22_BETA_NAMESPACE_URI).read(source), startDate);
     }
 
-    private List<KmlRoute> extractWayPointsAndTracksFromNetworkLinks(List<JAXBElement<NetworkLinkType>> networkLinkTypes) {
-        List<KmlRoute> result = new ArrayList<KmlRoute>();
-        for (JAXBElement<NetworkLinkType> networkLinkType : networkLinkTypes) {
-            Link link = networkLinkType.getValue().getLink();
-            if (link != null) {
-                String url = link.getHref();
-                List<KmlRoute> routes = parseRouteFromUrl(url);
-                if (routes != null)
-                    result.addAll(routes);
-            }
-
-            List<JAXBElement<?>> rest = networkLinkType.getValue().getRest();
-            for (JAXBElement<?> r : rest) {
-                Object rValue = r.getValue();
-                if (rValue instanceof LinkType) {
-                    LinkType linkType = (LinkType) rValue;
-                    String url = linkType.getHref();
-                    List<KmlRoute> routes = parseRouteFromUrl(url);
-                    if (routes != null)
-                        result.addAll(routes);
-                }
-            }
-        }
-        return result;
-    }
-
-    private List<KmlPosition> extractPositions(JAXBElement<? extends AbstractGeometryType> geometryType) {
-        List<KmlPosition> positions = new ArrayList<KmlPosition>();
-        if (geometryType == null)
-            return positions;
-        AbstractGeometryType geometryTypeValue = geometryType.getValue();
-        if (geometryTypeValue instanceof PointType) {
-            PointType point = (PointType) geometryTypeValue;
-            positions.addAll(asKmlPositions(point.getCoordinates()));
-        }
-        if (geometryTypeValue instanceof LineStringType) {
-            LineStringType lineString = (LineStringType) geometryTypeValue;
-            positions.addAll(asKmlPositions(lineString.getCoordinates()));
-        }
-        if (geometryTypeValue instanceof MultiGeometryType) {
-            MultiGeometryType multiGeometryType = (MultiGeometryType) geometryTypeValue;
-            List<JAXBElement<? extends AbstractGeometryType>> geometryTypes = multiGeometryType.getAbstractGeometryGroup();
-            for (JAXBElement<? extends AbstractGeometryType> geometryType2 : geometryTypes) {
-                positions.addAll(extractPositions(geometryType2));
-            }
-        }
-        return positions;
-    }
-
-    private Calendar extractTime(JAXBElement<? extends AbstractTimePrimitiveType> timePrimitiveType) {
-        if (timePrimitiveType != null) {
-            AbstractTimePrimitiveType timePrimitiveTypeValue = timePrimitiveType.getValue();
-            String time = "";
-            if (timePrimitiveTypeValue instanceof TimeSpanType) {
-                time = ((TimeSpanType) timePrimitiveTypeValue).getBegin();
-            } else if (timePrimitiveTypeValue instanceof TimeStampType) {
-                time = ((TimeStampType) timePrimitiveTypeValue).getWhen();
-            }
-            return ISO8601.parse(time);
-        }
-        return null;
-    }
-
-
     private FolderType createWayPoints(KmlRoute route) {
         ObjectFactory objectFactory = new ObjectFactory();
         FolderType folderType = objectFactory.createFolderType();
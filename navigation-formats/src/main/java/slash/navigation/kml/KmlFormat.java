@@ -22,19 +22,20 @@ package slash.navigation.kml;
 
 import slash.common.hex.HexDecoder;
 import slash.common.io.CompactCalendar;
+import slash.common.io.ISO8601;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.NavigationFileParser;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.base.BaseNavigationPosition;
 import slash.navigation.base.BaseRoute;
 import slash.navigation.googlemaps.GoogleMapsPosition;
+import slash.navigation.util.RouteComments;
 
-import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -78,7 +79,96 @@ public abstract class KmlFormat extends BaseKmlFormat {
         return new KmlRoute(this, characteristics, name, null, (List<KmlPosition>) positions);
     }
 
-    abstract List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, JAXBException;
+    abstract List<KmlRoute> internalRead(InputStream source, CompactCalendar startDate) throws IOException, XMLStreamException;
+
+    List<KmlRoute> process(KmlStreamReader.Feature feature, CompactCalendar startDate) {
+        List<KmlRoute> routes = null;
+
+        if (feature instanceof KmlStreamReader.Container) {
+            KmlStreamReader.Container container = (KmlStreamReader.Container) feature;
+            routes = extractTracks(Transfer.trim(container.getName()), Transfer.trim(container.getDescription()), container, startDate);
+        }
+
+        if (feature instanceof KmlStreamReader.Placemark) {
+            KmlStreamReader.Placemark placemark = (KmlStreamReader.Placemark) feature;
+            String placemarkName = asComment(Transfer.trim(placemark.getName()),
+                    Transfer.trim(placemark.getDescription()));
+
+            List<KmlPosition> positions = placemark.getPositions();
+            for (KmlPosition position : positions) {
+                enrichPosition(position, extractTime(placemark.getTime()), placemarkName, placemark.getDescription(), startDate);
+            }
+            routes = Arrays.asList(new KmlRoute(this, RouteCharacteristics.Waypoints, placemarkName, null, positions));
+        }
+
+        if (routes != null)
+            RouteComments.commentRoutePositions(routes);
+        return routes;
+    }
+
+    private List<KmlRoute> extractTracks(String name, String description, KmlStreamReader.Container container, CompactCalendar startDate) {
+        List<KmlRoute> result = new ArrayList<KmlRoute>();
+
+        result.addAll(extractWayPointsAndTracksFromPlacemarks(name, description, container.getPlacemarks(), startDate));
+
+        for (String url : container.getNetworkLinks())
+            result.addAll(parseRouteFromUrl(url));
+
+        for (KmlStreamReader.Container folder : container.getFolders()) {
+            String folderName = concatPath(name, folder.getName());
+            result.addAll(extractTracks(folderName, description, folder, startDate));
+        }
+
+        for (KmlStreamReader.Container document : container.getDocuments()) {
+            String documentName = concatPath(name, document.getName());
+            result.addAll(extractTracks(documentName, description, document, startDate));
+        }
+        return result;
+    }
+
+    private List<KmlRoute> extractWayPointsAndTracksFromPlacemarks(String name, String description, List<KmlStreamReader.Placemark> placemarks, CompactCalendar startDate) {
+        List<KmlRoute> result = new ArrayList<KmlRoute>();
+
+        List<KmlPosition> wayPoints = new ArrayList<KmlPosition>();
+        for (KmlStreamReader.Placemark placemark : placemarks) {
+            String placemarkName = asComment(Transfer.trim(placemark.getName()),
+                    Transfer.trim(placemark.getDescription()));
+
+            List<KmlPosition> positions = placemark.getPositions();
+            if (positions.size() == 1) {
+                // all placemarks with one position form one waypoint route
+                KmlPosition wayPoint = positions.get(0);
+                enrichPosition(wayPoint, extractTime(placemark.getTime()), placemarkName, placemark.getDescription(), startDate);
+                wayPoints.add(wayPoint);
+            } else {
+                // each placemark with more than one position is one track
+                String routeName = concatPath(name, placemarkName);
+                List<String> routeDescription = asDescription(placemark.getDescription() != null ? placemark.getDescription() : description);
+                RouteCharacteristics characteristics = parseCharacteristics(routeName, RouteCharacteristics.Track);
+                result.add(new KmlRoute(this, characteristics, routeName, routeDescription, positions));
+            }
+        }
+        if (wayPoints.size() > 0) {
+            RouteCharacteristics characteristics = parseCharacteristics(name, RouteCharacteristics.Waypoints);
+            result.add(0, new KmlRoute(this, characteristics, name, asDescription(description), wayPoints));
+        }
+        return result;
+    }
+
+    private Calendar extractTime(String time) {
+        return time != null ? ISO8601.parse(time) : null;
+    }
+
+    void setTimes(List<KmlPosition> positions, List<String> whens) {
+        for (int i = 0; i < whens.size() && i < positions.size(); i++) {
+            String when = whens.get(i);
+            if (when != null) {
+                Calendar calendar = ISO8601.parse(when);
+                if (calendar != null)
+                    positions.get(i).setTime(CompactCalendar.fromCalendar(calendar));
+            }
+        }
+    }
 
     protected KmlPosition asKmlPosition(GoogleMapsPosition position) {
         return new KmlPosition(position.getLongitude(), position.getLatitude(), position.getElevation(), null, null, position.getComment());
@@ -161,22 +251,13 @@ public abstract class KmlFormat extends BaseKmlFormat {
     }
 
     private static final Pattern TAVELLOG_DATE_PATTERN = Pattern.compile(".*Time:.*(\\d{4}/\\d{2}/\\d{2} \\d{2}:\\d{2}:\\d{2}).*");
-    private static final SimpleDateFormat TAVELLOG_DATE = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-    static {
-        TAVELLOG_DATE.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat TAVELLOG_DATE = new TimestampFormat("yyyy/MM/dd HH:mm:ss");
 
     private static final Pattern NAVIGON6310_TIME_AND_ELEVATION_PATTERN = Pattern.compile(".*(\\d{2}:\\d{2}:\\d{2}),([\\d\\.\\s]+)meter.*");
-    private static final SimpleDateFormat NAVIGON6310_TIME = new SimpleDateFormat("HH:mm:ss");
-    static {
-        NAVIGON6310_TIME.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat NAVIGON6310_TIME = new TimestampFormat("HH:mm:ss");
 
     private static final Pattern BT747_TIME_AND_ELEVATION_PATTERN = Pattern.compile(".*TIME:.*>(\\d{2}-.+-\\d{2} \\d{2}:\\d{2}:\\d{2})<.*>([\\d\\.\\s]+)m<.*");
-    private static final SimpleDateFormat BT747_DATE = new SimpleDateFormat("dd-MMMMM-yy HH:mm:ss");
-    static {
-        BT747_DATE.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat BT747_DATE = new TimestampFormat("dd-MMMMM-yy HH:mm:ss");
 
     private static final Pattern QSTARTZ_DATE_AND_SPEED_PATTERN = Pattern.compile(".*Date:\\s*(\\d{4}/\\d{2}/\\d{2}).*Time:\\s*(\\d{2}:\\d{2}:\\d{2}).*Speed:\\s*([\\d\\.]+)\\s*.*", Pattern.DOTALL);
 
@@ -185,48 +266,33 @@ public abstract class KmlFormat extends BaseKmlFormat {
             Matcher tavelLogMatcher = TAVELLOG_DATE_PATTERN.matcher(description);
             if (tavelLogMatcher.matches()) {
                 String timeString = tavelLogMatcher.group(1);
-                try {
-                    Date parsed = TAVELLOG_DATE.parse(timeString);
-                    position.setTime(CompactCalendar.fromDate(parsed));
-                }
-                catch (ParseException e) {
-                    // intentionally left empty;
-                }
+                CompactCalendar parsed = TAVELLOG_DATE.parse(timeString);
+                if (parsed != null)
+                    position.setTime(parsed);
             }
             Matcher navigonMatcher = NAVIGON6310_TIME_AND_ELEVATION_PATTERN.matcher(description);
             if (navigonMatcher.matches()) {
                 String timeString = navigonMatcher.group(1);
-                try {
-                    Date parsed = NAVIGON6310_TIME.parse(timeString);
-                    position.setTime(CompactCalendar.fromDate(parsed));
+                CompactCalendar parsed = NAVIGON6310_TIME.parse(timeString);
+                if (parsed != null) {
+                    position.setTime(parsed);
                     position.setStartDate(startDate);
                 }
-                catch (ParseException e) {
-                    // intentionally left empty;
-                }
             }
             Matcher bt747Matcher = BT747_TIME_AND_ELEVATION_PATTERN.matcher(description);
             if (bt747Matcher.matches()) {
                 String timeString = bt747Matcher.group(1);
-                try {
-                    Date parsed = BT747_DATE.parse(timeString);
-                    position.setTime(CompactCalendar.fromDate(parsed));
-                }
-                catch (ParseException e) {
-                    // intentionally left empty;
-                }
+                CompactCalendar parsed = BT747_DATE.parse(timeString);
+                if (parsed != null)
+                    position.setTime(parsed);
             }
             Matcher qstarzMatcher = QSTARTZ_DATE_AND_SPEED_PATTERN.matcher(description);
             if (qstarzMatcher.matches()) {
                 String dateString = qstarzMatcher.group(1);
                 String timeString = qstarzMatcher.group(2);
-                try {
-                    Date parsed = TAVELLOG_DATE.parse(dateString + " " + timeString);
-                    position.setTime(CompactCalendar.fromDate(parsed));
-                }
-                catch (ParseException e) {
-                    // intentionally left empty;
-                }
+                CompactCalendar parsed = TAVELLOG_DATE.parse(dateString + " " + timeString);
+                if (parsed != null)
+                    position.setTime(parsed);
             }
         }
     }
@@ -0,0 +1,500 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.kml;
+
+import slash.navigation.googlemaps.GoogleMapsPosition;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+/**
+ * Reads the features of Google Earth (.kml) files with StAX. The coordinates
+ * of points, line strings and tracks are parsed while they are read without
+ * building JAXB objects and without collecting them in a single string.
+ *
+ * @author Christian Pesch
+ */
+
+class KmlStreamReader {
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    static {
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+    private static final int COORDINATES_BUFFER_SIZE = 16 * 1024;
+
+    private final KmlFormat format;
+    private final String namespaceUri;
+    private XMLStreamReader reader;
+
+    KmlStreamReader(KmlFormat format, String namespaceUri) {
+        this.format = format;
+        this.namespaceUri = namespaceUri;
+    }
+
+    /**
+     * A folder, document or placemark of a KML file.
+     */
+    static abstract class Feature {
+        String name, description;
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    static class Container extends Feature {
+        private final List<Placemark> placemarks = new ArrayList<Placemark>();
+        private final List<String> networkLinks = new ArrayList<String>();
+        private final List<Container> folders = new ArrayList<Container>();
+        private final List<Container> documents = new ArrayList<Container>();
+        private boolean empty = true;
+
+        public List<Placemark> getPlacemarks() {
+            return placemarks;
+        }
+
+        public List<String> getNetworkLinks() {
+            return networkLinks;
+        }
+
+        public List<Container> getFolders() {
+            return folders;
+        }
+
+        public List<Container> getDocuments() {
+            return documents;
+        }
+    }
+
+    static class Placemark extends Feature {
+        private final List<KmlPosition> positions = new ArrayList<KmlPosition>();
+        private String time;
+
+        public List<KmlPosition> getPositions() {
+            return positions;
+        }
+
+        public String getTime() {
+            return time;
+        }
+    }
+
+    Feature read(InputStream source) throws XMLStreamException {
+        return read(inputFactory.createXMLStreamReader(source));
+    }
+
+    Feature read(Reader source) throws XMLStreamException {
+        return read(inputFactory.createXMLStreamReader(source));
+    }
+
+    private Feature read(XMLStreamReader reader) throws XMLStreamException {
+        this.reader = reader;
+        try {
+            if (!nextElement() || !isKmlElement())
+                return null;
+
+            String name = reader.getLocalName();
+            if ("kml".equals(name))
+                return isKml20() ? readKml20() : readKml();
+            // KML 2.0 allows documents and folders as root elements
+            if (isKml20() && ("Document".equals(name) || "Folder".equals(name))) {
+                Container container = readContainer();
+                return !container.empty ? container : null;
+            }
+            return null;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private boolean isKml20() {
+        return KmlUtil.KML_20_NAMESPACE_URI.equals(namespaceUri);
+    }
+
+    private boolean isKml22() {
+        return KmlUtil.KML_22_NAMESPACE_URI.equals(namespaceUri);
+    }
+
+    private Feature readKml20() throws XMLStreamException {
+        Container document = null, folder = null;
+        while (nextChildElement()) {
+            String name = isKmlElement() ? reader.getLocalName() : null;
+            if ("Document".equals(name))
+                document = readContainer();
+            else if ("Folder".equals(name))
+                folder = readContainer();
+            else
+                skipElement();
+        }
+        if (folder != null && !folder.empty)
+            return folder;
+        if (document != null && !document.empty)
+            return document;
+        return null;
+    }
+
+    private Feature readKml() throws XMLStreamException {
+        Feature feature = null;
+        boolean foundFeature = false;
+        while (nextChildElement()) {
+            String name = isKmlElement() ? reader.getLocalName() : null;
+            if (!foundFeature && ("Document".equals(name) || "Folder".equals(name))) {
+                feature = readContainer();
+                foundFeature = true;
+            } else if (!foundFeature && "Placemark".equals(name)) {
+                feature = readPlacemark();
+                foundFeature = true;
+            } else {
+                // other features like network links and overlays provide no positions
+                if (isFeature(name))
+                    foundFeature = true;
+                skipElement();
+            }
+        }
+        return feature;
+    }
+
+    private boolean isFeature(String name) {
+        return "NetworkLink".equals(name) || "GroundOverlay".equals(name) ||
+                "ScreenOverlay".equals(name) || "PhotoOverlay".equals(name);
+    }
+
+    private Container readContainer() throws XMLStreamException {
+        Container container = new Container();
+        while (nextChildElement()) {
+            container.empty = false;
+            String name = isKmlElement() ? reader.getLocalName() : null;
+            if ("name".equals(name))
+                container.name = readText();
+            else if ("description".equals(name))
+                container.description = readText();
+            else if ("Placemark".equals(name)) {
+                Placemark placemark = readPlacemark();
+                if (placemark != null)
+                    container.placemarks.add(placemark);
+            } else if ("NetworkLink".equals(name))
+                readNetworkLink(container.networkLinks);
+            else if ("Folder".equals(name))
+                container.folders.add(readContainer());
+            else if ("Document".equals(name) && !isKml20())
+                container.documents.add(readContainer());
+            else
+                skipElement();
+        }
+        return container;
+    }
+
+    private void readNetworkLink(List<String> networkLinks) throws XMLStreamException {
+        String atomLink = null;
+        List<String> links = new ArrayList<String>();
+        while (nextChildElement()) {
+            String name = isKmlElement() ? reader.getLocalName() : null;
+            if ("Url".equals(name) || ("Link".equals(name) && !isKml20() && !KmlUtil.KML_21_NAMESPACE_URI.equals(namespaceUri)))
+                readLink(links);
+            else if (KmlUtil.ATOM_2005_NAMESPACE_URI.equals(reader.getNamespaceURI()) && "link".equals(reader.getLocalName())) {
+                atomLink = reader.getAttributeValue(null, "href");
+                skipElement();
+            } else
+                skipElement();
+        }
+        if (atomLink != null)
+            networkLinks.add(atomLink);
+        networkLinks.addAll(links);
+    }
+
+    private void readLink(List<String> links) throws XMLStreamException {
+        while (nextChildElement()) {
+            if (isKmlElement() && "href".equals(reader.getLocalName()))
+                links.add(readText());
+            else
+                skipElement();
+        }
+    }
+
+    private Placemark readPlacemark() throws XMLStreamException {
+        Placemark placemark = new Placemark();
+        boolean hasGeometry = false;
+        while (nextChildElement()) {
+            String name = isKmlElement() || isKmlExtensionElement() ? reader.getLocalName() : null;
+            if ("name".equals(name))
+                placemark.name = readText();
+            else if ("description".equals(name))
+                placemark.description = readText();
+            else if ("TimeStamp".equals(name) && !isKml20())
+                placemark.time = readTimePrimitive("when");
+            else if ("TimeSpan".equals(name) && !isKml20())
+                placemark.time = readTimePrimitive("begin");
+            else if ("TimePeriod".equals(name) && isKml20())
+                placemark.time = readTimePeriod();
+            else if (isGeometry(name)) {
+                readGeometry(placemark.positions);
+                hasGeometry = true;
+            } else
+                skipElement();
+        }
+
+        // KML 2.0 descriptions contain escaped entities
+        if (isKml20() && placemark.description != null)
+            placemark.description = placemark.description.replace("&#160;", " ").replace("&#169;", "(c)");
+        // KML 2.2 ignores placemarks without geometry
+        if (isKml22() && !hasGeometry)
+            return null;
+        return placemark;
+    }
+
+    private boolean isGeometry(String name) {
+        return "Point".equals(name) || "LineString".equals(name) || "LinearRing".equals(name) ||
+                "Polygon".equals(name) || "MultiGeometry".equals(name) || "Model".equals(name) ||
+                "GeometryCollection".equals(name) || "Track".equals(name) || "MultiTrack".equals(name);
+    }
+
+    private String readTimePrimitive(String elementName) throws XMLStreamException {
+        String result = null;
+        while (nextChildElement()) {
+            if (isKmlElement() && elementName.equals(reader.getLocalName()))
+                result = readText();
+            else
+                skipElement();
+        }
+        return result;
+    }
+
+    private String readTimePeriod() throws XMLStreamException {
+        String begin = null, end = null;
+        boolean hasBegin = false;
+        while (nextChildElement()) {
+            String name = isKmlElement() ? reader.getLocalName() : null;
+            if ("begin".equals(name)) {
+                begin = readTimeInstant();
+                hasBegin = true;
+            } else if ("end".equals(name))
+                end = readTimeInstant();
+            else
+                skipElement();
+        }
+        if (!hasBegin)
+            return "";
+        return begin != null ? begin : end;
+    }
+
+    private String readTimeInstant() throws XMLStreamException {
+        String result = null;
+        while (nextChildElement()) {
+            if (isKmlElement() && "TimeInstant".equals(reader.getLocalName()))
+                result = readTimePrimitive("timePosition");
+            else
+                skipElement();
+        }
+        return result;
+    }
+
+    private void readGeometry(List<KmlPosition> positions) throws XMLStreamException {
+        String name = reader.getLocalName();
+        if (isKmlElement() && ("Point".equals(name) || "LineString".equals(name))) {
+            while (nextChildElement()) {
+                if (isKmlElement() && "coordinates".equals(reader.getLocalName()))
+                    readCoordinates(positions);
+                else
+                    skipElement();
+            }
+        } else if (isKmlElement() && "MultiGeometry".equals(name)) {
+            while (nextChildElement()) {
+                if (isKmlElement() || isKmlExtensionElement())
+                    readGeometry(positions);
+                else
+                    skipElement();
+            }
+        } else if (isKmlElement() && "GeometryCollection".equals(name)) {
+            while (nextChildElement()) {
+                if (isKmlElement() && "LineString".equals(reader.getLocalName()))
+                    readGeometry(positions);
+                else
+                    skipElement();
+            }
+        } else if (isKml22() && isKmlExtensionElement() && "Track".equals(name))
+            readTrack(positions);
+        else
+            skipElement();
+    }
+
+    private void readTrack(List<KmlPosition> positions) throws XMLStreamException {
+        List<KmlPosition> trackPositions = new ArrayList<KmlPosition>();
+        List<String> whens = new ArrayList<String>();
+        while (nextChildElement()) {
+            if (isKmlElement() && "when".equals(reader.getLocalName()))
+                whens.add(readText());
+            else if (isKmlExtensionElement() && "coord".equals(reader.getLocalName())) {
+                for (GoogleMapsPosition position : GoogleMapsPosition.parseExtensionPositions(readText()))
+                    trackPositions.add(format.asKmlPosition(position));
+            } else
+                skipElement();
+        }
+        format.setTimes(trackPositions, whens);
+        positions.addAll(trackPositions);
+    }
+
+    private void readCoordinates(List<KmlPosition> positions) throws XMLStreamException {
+        StringBuilder buffer = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                    if (depth == 1) {
+                        buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        if (buffer.length() > COORDINATES_BUFFER_SIZE)
+                            parseCompleteCoordinates(buffer, positions);
+                    }
+                    break;
+                case START_ELEMENT:
+                    depth++;
+                    break;
+                case END_ELEMENT:
+                    depth--;
+                    break;
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document");
+                default:
+            }
+        }
+        parseCoordinates(buffer.toString(), positions);
+    }
+
+    private void parseCompleteCoordinates(StringBuilder buffer, List<KmlPosition> positions) {
+        int boundary = findTupleBoundary(buffer);
+        if (boundary > 0) {
+            parseCoordinates(buffer.substring(0, boundary), positions);
+            buffer.delete(0, boundary);
+        }
+    }
+
+    /**
+     * Returns the start of the last tuple of coordinates which is separated from
+     * its predecessor by whitespace that is neither preceded nor followed by a comma.
+     */
+    static int findTupleBoundary(CharSequence buffer) {
+        for (int i = buffer.length() - 1; i > 0; i--) {
+            char c = buffer.charAt(i);
+            if (isWhitespace(c) || !isWhitespace(buffer.charAt(i - 1)) || c == ',')
+                continue;
+
+            int previous = i - 1;
+            while (previous >= 0 && isWhitespace(buffer.charAt(previous)))
+                previous--;
+            if (previous >= 0 && buffer.charAt(previous) != ',')
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(char c) {
+        // the whitespace of regular expressions
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private void parseCoordinates(String coordinates, List<KmlPosition> positions) {
+        for (GoogleMapsPosition position : GoogleMapsPosition.parsePositions(coordinates))
+            positions.add(format.asKmlPosition(position));
+    }
+
+    private boolean isKmlElement() {
+        return namespaceUri.equals(reader.getNamespaceURI());
+    }
+
+    private boolean isKmlExtensionElement() {
+        return KmlUtil.KML_22_EXT_NAMESPACE_URI.equals(reader.getNamespaceURI());
+    }
+
+    private boolean nextElement() throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == START_ELEMENT)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean nextChildElement() throws XMLStreamException {
+        while (true) {
+            switch (reader.next()) {
+                case START_ELEMENT:
+                    return true;
+                case END_ELEMENT:
+                case END_DOCUMENT:
+                    return false;
+                default:
+            }
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == START_ELEMENT)
+                depth++;
+            else if (event == END_ELEMENT)
+                depth--;
+            else if (event == END_DOCUMENT)
+                throw new XMLStreamException("Unexpected end of document");
+        }
+    }
+
+    private String readText() throws XMLStreamException {
+        StringBuilder buffer = new StringBuilder();
+        int depth = 1;
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                case ENTITY_REFERENCE:
+                    if (depth == 1)
+                        buffer.append(reader.getText());
+                    break;
+                case START_ELEMENT:
+                    depth++;
+                    break;
+                case END_ELEMENT:
+                    if (--depth == 0)
+                        return buffer.toString();
+                    break;
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document");
+                default:
+            }
+        }
+    }
+}
@@ -23,9 +23,11 @@ package slash.navigation.kml;
 import slash.common.io.CompactCalendar;
 import slash.common.io.NotClosingUnderlyingInputStream;
 import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 
-import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,6 +45,7 @@ import java.util.zip.*;
 
 public abstract class KmzFormat extends BaseKmlFormat {
     private static final Logger log = Logger.getLogger(KmzFormat.class.getName());
+    private static final byte[] ZIP_LOCAL_FILE_HEADER = new byte[]{'P', 'K', 3, 4};
     private final KmlFormat delegate;
 
     protected KmzFormat(KmlFormat delegate) {
@@ -69,6 +72,10 @@ public abstract class KmzFormat extends BaseKmlFormat {
         return delegate.createRoute(characteristics, name, positions);
     }
 
+    public Recognition recognize(FileHead head) {
+        return head.startsWith(ZIP_LOCAL_FILE_HEADER) ? Recognition.Match : Recognition.Mismatch;
+    }
+
     public List<KmlRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         List<KmlRoute> result = new ArrayList<KmlRoute>();
         ZipInputStream zip = new ZipInputStream(source);
@@ -79,7 +86,7 @@ public abstract class KmzFormat extends BaseKmlFormat {
                     List<KmlRoute> routes = delegate.internalRead(new NotClosingUnderlyingInputStream(zip), startDate);
                     if (routes != null)
                         result.addAll(routes);
-                } catch (JAXBException e) {
+                } catch (XMLStreamException e) {
                     log.fine("Error reading " + entry + " from " + source + ": " + e.getMessage());
                 }
                 zip.closeEntry();
@@ -20,7 +20,7 @@
 
 package slash.navigation.lmx;
 
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 import slash.navigation.lmx.binding.Lmx;
 
 import javax.xml.bind.*;
@@ -30,16 +30,16 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 class NokiaLandmarkExchangeUtil {
-    private static final JAXBContext CONTEXT = JaxbUtils.newContext(slash.navigation.lmx.binding.ObjectFactory.class);
+    private static final PooledContext CONTEXT = new PooledContext(slash.navigation.lmx.binding.ObjectFactory.class);
 
     private static final String LMX_NAMESPACE_URI = "http://www.nokia.com/schemas/location/landmarks/1/0";
 
     private static Unmarshaller newUnmarshaller() {
-        return JaxbUtils.newUnmarshaller(CONTEXT);
+        return CONTEXT.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller() {
-        return JaxbUtils.newMarshaller(CONTEXT,
+        return CONTEXT.getMarshaller(
                 LMX_NAMESPACE_URI, "lm"
         );
     }
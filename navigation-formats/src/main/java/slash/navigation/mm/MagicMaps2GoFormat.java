@@ -21,15 +21,12 @@
 package slash.navigation.mm;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -47,10 +44,7 @@ public class MagicMaps2GoFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private static final Logger log = Logger.getLogger(MagicMaps2GoFormat.class.getName());
     
     private static final char SEPARATOR_CHAR = ' ';
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("dd.MM.yy HH:mm:ss");
-    static {
-       DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("dd.MM.yy HH:mm:ss");
 
     private static final Pattern LINE_PATTERN = Pattern.
             compile(BEGIN_OF_LINE +
@@ -87,13 +81,10 @@ public class MagicMaps2GoFormat extends SimpleLineBasedFormat<SimpleRoute> {
         time = Transfer.trim(time);
         date = Transfer.trim(date);
         String dateAndTime = date + " " + time;
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -109,11 +100,11 @@ public class MagicMaps2GoFormat extends SimpleLineBasedFormat<SimpleRoute> {
                 Transfer.parseDouble(elevation), null, parseDateAndTime(date, time), null);
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 7);
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 7);
         String elevation = Transfer.formatDoubleAsString(position.getElevation(), 7);
-        String dateAndTime = position.getTime() != null ? DATE_AND_TIME_FORMAT.format(position.getTime().getTime()) : "00.00.00 00:00:=00";
+        String dateAndTime = position.getTime() != null ? DATE_AND_TIME_FORMAT.format(position.getTime()) : "00.00.00 00:00:=00";
         writer.println(latitude + SEPARATOR_CHAR + longitude + SEPARATOR_CHAR + elevation + SEPARATOR_CHAR + dateAndTime);
     }
 }
\ No newline at end of file
@@ -21,7 +21,9 @@
 package slash.navigation.mm;
 
 import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.FileHead;
 import slash.navigation.base.GkPosition;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.base.SimpleFormat;
 import slash.common.io.CompactCalendar;
@@ -63,6 +65,21 @@ public class MagicMapsPthFormat extends SimpleFormat<MagicMapsPthRoute> {
         return new MagicMapsPthRoute(characteristics, (List<GkPosition>) positions);
     }
 
+    public Recognition recognize(FileHead head) {
+        // mirrors the line checks of read() for the lines within the head
+        boolean foundPosition = false;
+        for (String line : head.getLines()) {
+            if (Transfer.trim(line) == null || line.startsWith("#") || isNameValue(line))
+                continue;
+
+            if (isPosition(line))
+                foundPosition = true;
+            else
+                return Recognition.Mismatch;
+        }
+        return foundPosition || !head.isComplete() ? Recognition.Possible : Recognition.Mismatch;
+    }
+
     public List<MagicMapsPthRoute> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
         List<GkPosition> positions = new ArrayList<GkPosition>();
 
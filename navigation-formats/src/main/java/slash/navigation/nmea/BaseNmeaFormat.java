@@ -20,22 +20,26 @@
 
 package slash.navigation.nmea;
 
+import slash.navigation.base.ChunkedLineReader;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.base.RouteCollector;
 import slash.navigation.base.SimpleFormat;
-import slash.common.hex.HexDecoder;
 import slash.common.hex.HexEncoder;
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.text.*;
 import java.util.*;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * The base of all NMEA-like formats.
@@ -48,23 +52,13 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     protected static Logger log = Logger.getLogger(BaseNmeaFormat.class.getName());
 
     static final String SEPARATOR = ",";
-    static final String BEGIN_OF_LINE = "^\\$GP";
-    static final String END_OF_LINE = "\\*[0-9A-Fa-f][0-9A-Fa-f]$";
+    private static final NmeaPosition GARBLED = new NmeaPosition(null, null, null, null, null, null, null, null, null);
 
-    private static final Pattern LINE_PATTERN = Pattern.compile("(^@.*|^\\$.*|" + BEGIN_OF_LINE + ".*" + END_OF_LINE + ")");
-
-    private static final DateFormat PRECISE_DATE_AND_TIME_FORMAT = new SimpleDateFormat("ddMMyy HHmmss.SSS");
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("ddMMyy HHmmss");
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("ddMMyy");
-    private static final DateFormat PRECISE_TIME_FORMAT = new SimpleDateFormat("HHmmss.SSS");
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HHmmss");
-    static {
-        PRECISE_DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-        PRECISE_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat PRECISE_DATE_AND_TIME_FORMAT = new TimestampFormat("ddMMyy HHmmss.SSS");
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("ddMMyy HHmmss");
+    private static final TimestampFormat DATE_FORMAT = new TimestampFormat("ddMMyy");
+    private static final TimestampFormat PRECISE_TIME_FORMAT = new TimestampFormat("HHmmss.SSS");
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HHmmss");
 
     private static final NumberFormat LONGITUDE_NUMBER_FORMAT = DecimalFormat.getNumberInstance(Locale.US);
     private static final NumberFormat LATITUDE_NUMBER_FORMAT = DecimalFormat.getNumberInstance(Locale.US);
@@ -93,45 +87,96 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
         return RouteCharacteristics.Track;
     }
 
-    public List<NmeaRoute> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
-        List<NmeaPosition> positions = new ArrayList<NmeaPosition>();
-
-        CompactCalendar originalStartDate = startDate;
+    public Recognition recognize(FileHead head) {
+        // mirrors the line checks of read() for the lines within the head
         int lineCount = 0;
-        NmeaPosition previous = null;
-        while (true) {
-            String line = reader.readLine();
-            if (line == null)
-                break;
+        boolean foundPosition = false;
+        NmeaSentence sentence = new NmeaSentence();
+        for (String line : head.getLines()) {
             if (Transfer.trim(line) == null)
                 continue;
 
             if (isValidLine(line)) {
-                if (isPosition(line)) {
-                    NmeaPosition position = parsePosition(line);
-                    if (isValidStartDate(position.getTime()))
-                        startDate = position.getTime();
-                    else
-                        position.setStartDate(startDate);
-
-                    if (haveDifferentLongitudeAndLatitude(previous, position)) {
-                        positions.add(position);
-                        previous = position;
-                    } else {
-                        mergePositions(previous, position, originalStartDate);
-                    }
-                }
+                if (sentence.tokenize(line) && isPosition(sentence))
+                    foundPosition = true;
             } else {
-                // exception for Mobile Navigator 6: accept that the first line may be garbled
                 if (lineCount++ > getGarbleCount())
-                    return null;
+                    return Recognition.Mismatch;
             }
         }
+        return foundPosition ? Recognition.Match : Recognition.Possible;
+    }
+
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return read(source, startDate, DEFAULT_ENCODING, sink);
+    }
 
-        if (positions.size() > 0)
-            return Arrays.asList(new NmeaRoute(this, getCharacteristics(), positions));
-        else
+    public List<NmeaRoute> read(BufferedReader reader, CompactCalendar startDate, String encoding) throws IOException {
+        RouteCollector<NmeaRoute> collector = new RouteCollector<NmeaRoute>(this);
+        if (!read(reader, startDate, encoding, collector))
             return null;
+        return collector.getRoutes();
+    }
+
+    protected boolean read(BufferedReader reader, CompactCalendar startDate, String encoding, PositionSink sink) throws IOException {
+        // the lines are parsed independently, the start date and the merging of positions depend on the lines before
+        ChunkedLineReader<NmeaPosition> lines = new ChunkedLineReader<NmeaPosition>(reader) {
+            protected LineParser<NmeaPosition> createLineParser() {
+                return new NmeaLineParser();
+            }
+        };
+
+        try {
+            CompactCalendar originalStartDate = startDate;
+            int lineCount = 0;
+            NmeaPosition previous = null;
+            NmeaPosition position;
+            while ((position = lines.read()) != null) {
+                if (position == GARBLED) {
+                    // exception for Mobile Navigator 6: accept that the first line may be garbled
+                    if (lineCount++ > getGarbleCount())
+                        return false;
+                    continue;
+                }
+
+                if (isValidStartDate(position.getTime()))
+                    startDate = position.getTime();
+                else
+                    position.setStartDate(startDate);
+
+                if (haveDifferentLongitudeAndLatitude(previous, position)) {
+                    // the previous position is complete once a position with other coordinates follows
+                    if (previous != null)
+                        sink.position(previous);
+                    else
+                        sink.startRoute(getCharacteristics(), null);
+                    previous = position;
+                } else {
+                    mergePositions(previous, position, originalStartDate);
+                }
+            }
+
+            if (previous == null)
+                return false;
+            sink.position(previous);
+            sink.endRoute();
+            return true;
+        }
+        finally {
+            lines.close();
+        }
+    }
+
+    private class NmeaLineParser implements ChunkedLineReader.LineParser<NmeaPosition> {
+        private final NmeaSentence sentence = new NmeaSentence();
+
+        public NmeaPosition parse(String line) {
+            if (Transfer.trim(line) == null)
+                return null;
+            if (!isValidLine(line))
+                return GARBLED;
+            return sentence.tokenize(line) && isPosition(sentence) ? parsePosition(sentence) : null;
+        }
     }
 
     boolean haveDifferentLongitudeAndLatitude(NmeaPosition predecessor, NmeaPosition successor) {
@@ -156,7 +201,7 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
             position.setLongitude(toBeMergedInto.getLongitude());
         if ((toBeMergedInto.getTime() != null) &&
                 (position.getTime() == null || isStartDateEqual(position.getTime(), originalStartDate) ||
-                        position.getTime().getCalendar().before(toBeMergedInto.getTime().getCalendar())))
+                        position.getTime().before(toBeMergedInto.getTime())))
             position.setTime(toBeMergedInto.getTime());
         if (Transfer.isEmpty(position.getHdop()) && !Transfer.isEmpty(toBeMergedInto.getHdop()))
             position.setHdop(toBeMergedInto.getHdop());
@@ -171,16 +216,14 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     private boolean isStartDateEqual(CompactCalendar compactCalendar1, CompactCalendar compactCalendar2) {
         if (compactCalendar1 == null || compactCalendar2 == null)
             return false;
-        Calendar calendar1 = compactCalendar1.getCalendar();
-        Calendar calendar2 = compactCalendar2.getCalendar();
-        return calendar1.get(Calendar.YEAR) == calendar2.get(Calendar.YEAR) &&
-                calendar1.get(Calendar.MONTH) == calendar2.get(Calendar.MONTH) &&
-                calendar1.get(Calendar.DAY_OF_MONTH) == calendar2.get(Calendar.DAY_OF_MONTH);
+        return compactCalendar1.isSameDay(compactCalendar2);
     }
 
     protected boolean isValidLine(String line) {
-        Matcher matcher = LINE_PATTERN.matcher(line);
-        return matcher.matches();
+        if (line.length() == 0)
+            return false;
+        char first = line.charAt(0);
+        return first == '@' || first == '$';
     }
 
     private byte computeChecksum(String line) {
@@ -191,42 +234,46 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
         return result;
     }
 
-    protected boolean hasValidChecksum(String line) {
-        String lineForChecksum = line.substring(1, line.length() - 3);
-        byte expected = computeChecksum(lineForChecksum);
-        String actualStr = line.substring(line.length() - 2);
-        byte[] actual = HexDecoder.decodeBytes(actualStr);
-        if (actual.length != 1 || actual[0] != expected) {
-            String expectedStr = HexEncoder.encodeByte(expected);
+    boolean hasValidChecksum(NmeaSentence sentence) {
+        if (!sentence.hasValidChecksum()) {
+            String line = sentence.getLine();
+            String expectedStr = HexEncoder.encodeByte((byte) sentence.getChecksum());
+            String actualStr = line.substring(line.length() - 2);
             log.severe("Checksum of '" + line + "' is invalid. Expected '" + expectedStr + "' but found '" + actualStr + "'");
             return preferences.getBoolean("ignoreInvalidChecksum", false);
         }
         return true;
     }
 
-    protected abstract boolean isPosition(String line);
+    protected boolean isPosition(String line) {
+        NmeaSentence sentence = new NmeaSentence();
+        return sentence.tokenize(line) && isPosition(sentence);
+    }
+
+    protected NmeaPosition parsePosition(String line) {
+        NmeaSentence sentence = new NmeaSentence();
+        if (!sentence.tokenize(line))
+            throw new IllegalArgumentException("'" + line + "' does not match");
+        return parsePosition(sentence);
+    }
+
+    abstract boolean isPosition(NmeaSentence sentence);
 
-    protected abstract NmeaPosition parsePosition(String line);
+    abstract NmeaPosition parsePosition(NmeaSentence sentence);
 
     protected CompactCalendar parseTime(String time) {
         time = Transfer.trim(time);
         if (time == null)
             return null;
         // 130441.89
-        try {
-            Date parsed = PRECISE_TIME_FORMAT.parse(time);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
-            // intentionally left empty
-        }
+        CompactCalendar result = PRECISE_TIME_FORMAT.parse(time);
+        if (result != null)
+            return result;
         // 130441
-        try {
-            Date parsed = TIME_FORMAT.parse(time);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        result = TIME_FORMAT.parse(time);
+        if (result == null)
             log.severe("Could not parse time '" + time + "'");
-        }
-        return null;
+        return result;
     }
 
     protected CompactCalendar parseDateAndTime(String date, String time) {
@@ -236,33 +283,27 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
             return parseTime(time);
         String dateAndTime = date + " " + time;
         // date: 160607 time: 130441.89
-        try {
-            Date parsed = PRECISE_DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
-            // intentionally left empty
-        }
+        CompactCalendar result = PRECISE_DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result != null)
+            return result;
         // date: 160607 time: 130441
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
 
     protected String formatTime(CompactCalendar time) {
         if (time == null)
             return "";
-        return PRECISE_TIME_FORMAT.format(time.getTime());
+        return PRECISE_TIME_FORMAT.format(time);
     }
 
     protected String formatDate(CompactCalendar date) {
         if (date == null)
             return "";
-        return DATE_FORMAT.format(date.getTime());
+        return DATE_FORMAT.format(date);
     }
 
     protected String formatLongitude(Double longitude) {
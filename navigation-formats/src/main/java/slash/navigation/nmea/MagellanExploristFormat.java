@@ -10,8 +10,6 @@ import java.text.NumberFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Reads and writes Magellan Explorist (.log) files.
@@ -29,17 +27,7 @@ public class MagellanExploristFormat extends BaseNmeaFormat {
 
     private static final String HEADER_LINE = "$PMGNFMT,%TRK,LAT,HEMI,LON,HEMI,ALT,UNIT,TIME,VALID,NAME,%META,ASCII";
     
-    private static final Pattern TRK_PATTERN = Pattern.
-            compile("^\\$PMGNTRK" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "(-?[\\d\\.]+)" + SEPARATOR +
-                    "M" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +     // UTC Time, hhmmss
-                    "[A]" + SEPARATOR +
-                    "(.*)" + SEPARATOR +            // Comment,
-                    "(\\d*)" +                      // Date, ddmmyy
-                    END_OF_LINE);
+    private static final int TRK = NmeaSentence.toSentenceId('T', 'R', 'K');
 
     private static final NumberFormat ALTITUDE_NUMBER_FORMAT = DecimalFormat.getNumberInstance(Locale.US);
 
@@ -64,27 +52,33 @@ public class MagellanExploristFormat extends BaseNmeaFormat {
         return new NmeaRoute(this, characteristics, (List<NmeaPosition>) positions);
     }
 
-    protected boolean isPosition(String line) {
-        Matcher matcher = TRK_PATTERN.matcher(line);
-        return matcher.matches() && hasValidChecksum(line);
+    // $PMGNTRK,4914.967,N,00651.208,E,000199,M,152224,A,KLLERTAL-RADWEG,210307*48
+    private boolean isTrk(NmeaSentence sentence) {
+        int count = sentence.getFieldCount();
+        return sentence.getSentenceId("PMGN") == TRK && count >= 11 &&
+                sentence.isDecimal(1, false, false) && sentence.isOneOf(2, "NS") &&
+                sentence.isDecimal(3, false, false) && sentence.isOneOf(4, "WE") &&
+                sentence.isDecimal(5, false, true) &&
+                sentence.isEqual(6, "M") &&
+                sentence.isDecimal(7, true, false) &&     // UTC Time, hhmmss
+                sentence.isEqual(8, "A") &&
+                sentence.isDigits(count - 1);             // Date, ddmmyy
     }
 
-    protected NmeaPosition parsePosition(String line) {
-        Matcher matcher = TRK_PATTERN.matcher(line);
-        if (matcher.matches()) {
-            String latitude = matcher.group(1);
-            String northOrSouth = matcher.group(2);
-            String longitude = matcher.group(3);
-            String westOrEast = matcher.group(4);
-            String altitude = matcher.group(5);
-            String time = matcher.group(6);
-            String comment = Transfer.toMixedCase(matcher.group(7));
-            String date = matcher.group(8);
-            return new NmeaPosition(Transfer.parseDouble(longitude), westOrEast, Transfer.parseDouble(latitude), northOrSouth,
-                    Double.parseDouble(altitude), null, null, parseDateAndTime(date, time), Transfer.trim(comment));
+    boolean isPosition(NmeaSentence sentence) {
+        return isTrk(sentence) && hasValidChecksum(sentence);
+    }
+
+    NmeaPosition parsePosition(NmeaSentence sentence) {
+        if (isTrk(sentence)) {
+            int count = sentence.getFieldCount();
+            // the comment may contain separators
+            String comment = Transfer.toMixedCase(sentence.getRange(9, count - 2));
+            return new NmeaPosition(sentence.getDouble(3), sentence.getDirection(4), sentence.getDouble(1), sentence.getDirection(2),
+                    sentence.getDouble(5), null, null, parseDateAndTime(sentence.getString(count - 1), sentence.getString(7)), Transfer.trim(comment));
         }
 
-        throw new IllegalArgumentException("'" + line + "' does not match");
+        throw new IllegalArgumentException("'" + sentence.getLine() + "' does not match");
     }
 
     protected void writeHeader(PrintWriter writer) {
@@ -31,8 +31,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.prefs.Preferences;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Reads and writes Magellan Route (.rte) files.
@@ -68,16 +66,7 @@ public class MagellanRouteFormat extends BaseNmeaFormat {
 
     private static final String HEADER_LINE = "$PMGNFMT,%RTE,NUM_MSG,ID,FLAG,NUM,NAME,WPT_NAME1,ICON1,WPT_NAME2,ICON2,CHKSUM ?%WPL,LAT,HEMI,LON,HEMI,ALT,UNIT,NAME,MSG,ICON,CHKSUM,%META,ASCII";
 
-    private static final Pattern WPL_PATTERN = Pattern.
-            compile("^\\$PMGNWPL" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "(-?[\\d\\.]+)" + SEPARATOR +
-                    "M" + SEPARATOR +
-                    "([^" + SEPARATOR + "]*)" + SEPARATOR +          // Comment
-                    "[^" + SEPARATOR + "]*" + SEPARATOR +            // copy of the comment above
-                    "a" +
-                    END_OF_LINE);
+    private static final int WPL = NmeaSentence.toSentenceId('W', 'P', 'L');
 
     public String getExtension() {
         return ".rte";
@@ -100,26 +89,28 @@ public class MagellanRouteFormat extends BaseNmeaFormat {
         return new NmeaRoute(this, characteristics, (List<NmeaPosition>) positions);
     }
 
-    protected boolean isPosition(String line) {
-        Matcher matcher = WPL_PATTERN.matcher(line);
-        return matcher.matches() && hasValidChecksum(line);
+    // $PMGNWPL,4809.43440,N,01135.06121,E,0,M,Muenchner-Freiheit,,a*10
+    private boolean isWpl(NmeaSentence sentence) {
+        return sentence.getSentenceId("PMGN") == WPL && sentence.getFieldCount() == 10 &&
+                sentence.isDecimal(1, false, false) && sentence.isOneOf(2, "NS") &&
+                sentence.isDecimal(3, false, false) && sentence.isOneOf(4, "WE") &&
+                sentence.isDecimal(5, false, true) &&
+                sentence.isEqual(6, "M") &&
+                sentence.isEqual(9, "a");                 // 7 is the comment, 8 a copy of it
     }
 
-    protected NmeaPosition parsePosition(String line) {
-        Matcher matcher = WPL_PATTERN.matcher(line);
-        if (matcher.matches()) {
-            String latitude = matcher.group(1);
-            String northOrSouth = matcher.group(2);
-            String longitude = matcher.group(3);
-            String westOrEast = matcher.group(4);
-            String altitude = matcher.group(5);
-            String comment = Transfer.toMixedCase(matcher.group(6));
-            return new NmeaPosition(Transfer.parseDouble(longitude), westOrEast, Transfer.parseDouble(latitude), northOrSouth,
-                    Double.parseDouble(altitude), null, null, null, Transfer.trim(comment));
-        }
-        throw new IllegalArgumentException("'" + line + "' does not match");
+    boolean isPosition(NmeaSentence sentence) {
+        return isWpl(sentence) && hasValidChecksum(sentence);
     }
 
+    NmeaPosition parsePosition(NmeaSentence sentence) {
+        if (isWpl(sentence)) {
+            String comment = Transfer.toMixedCase(sentence.getString(7));
+            return new NmeaPosition(sentence.getDouble(3), sentence.getDirection(4), sentence.getDouble(1), sentence.getDirection(2),
+                    sentence.getDouble(5), null, null, null, Transfer.trim(comment));
+        }
+        throw new IllegalArgumentException("'" + sentence.getLine() + "' does not match");
+    }
 
     protected String formatLongitude(Double longitude) {
         if (longitude == null)
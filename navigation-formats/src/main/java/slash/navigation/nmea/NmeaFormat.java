@@ -21,21 +21,18 @@
 package slash.navigation.nmea;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.BaseNavigationPosition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.util.Conversion;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Reads and writes NMEA 0183 Sentences (.nmea) files.
@@ -59,107 +56,16 @@ public class NmeaFormat extends BaseNmeaFormat {
         ALTITUDE_AND_SPEED_NUMBER_FORMAT.setMaximumIntegerDigits(6);
     }
 
-    private static final DateFormat DAY_FORMAT = new SimpleDateFormat("dd");
-    private static final DateFormat MONTH_FORMAT = new SimpleDateFormat("MM");
-    private static final DateFormat YEAR_FORMAT = new SimpleDateFormat("yy");
+    private static final TimestampFormat DAY_FORMAT = new TimestampFormat("dd");
+    private static final TimestampFormat MONTH_FORMAT = new TimestampFormat("MM");
+    private static final TimestampFormat YEAR_FORMAT = new TimestampFormat("yy");
 
-    static {
-        DAY_FORMAT.setTimeZone(CompactCalendar.UTC);
-        MONTH_FORMAT.setTimeZone(CompactCalendar.UTC);
-        YEAR_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
-
-    // $GPGGA,130441.89,5239.3154,N,00907.7011,E,1,08,1.25,16.76,M,46.79,M,,*6D
-    // $GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F
-    // $GPGGA,132713,5509.7861,N,00140.5854,W,1,07,1.0,98.9,M,,M,,*7d
-    private static final Pattern GGA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GGA" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "([\\d+])" + SEPARATOR +         // Fix quality, 0=invalid
-                    "([\\d]*)" + SEPARATOR +         // Number of satellites in view, 00 - 12
-                    "[\\d\\.]*" + SEPARATOR +
-                    "(-?[\\d\\.]*)" + SEPARATOR +    // Antenna Altitude above/below mean-sea-level (geoid)  
-                    "M" + SEPARATOR +
-                    "[-?\\d\\.]*" + SEPARATOR +
-                    "M?" + SEPARATOR +
-                    ".*" + SEPARATOR +
-                    ".*" +                           // Differential reference station ID, 0000-1023 
-                    END_OF_LINE);
-
-    // $GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,   ,A*76
-    // $GPRMC,140403.000,A,4837.5194,N,00903.4022,E,15.00,0.00,260707,,  *3E
-    // $GPRMC,172103.38,V,4424.5358,N,06812.3754,W,0.000,0.000,101010,0,W,N*3A
-    private static final Pattern RMC_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "RMC" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +     // UTC Time
-                    "[AV]" + SEPARATOR +            // Status, A=active, V=void
-                    "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([EW])" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +     // Speed over ground, knots
-                    "[\\d\\.]*" + SEPARATOR +
-                    "(\\d*)" + SEPARATOR +          // Date, ddmmyy
-                    "[\\d\\.]*" + SEPARATOR +
-                    "[\\d\\.]*" + SEPARATOR + "?" + // Magnetic variation 
-                    "[AEW]?" + SEPARATOR + "?" +    // E=East, W=West
-                    "([ADEMNS])?" +                 // Signal integrity, N=not valid
-                    END_OF_LINE);
-
-    // $GPWPL,5334.169,N,01001.920,E,STATN1*22
-    private static final Pattern WPL_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "WPL" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "(.*)" + 
-                    END_OF_LINE);
-
-    // $GPZDA,032910.542,07,08,2004,00,00*48
-    private static final Pattern ZDA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "ZDA" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR + // UTC Time
-                    "(\\d*)" + SEPARATOR +      // day
-                    "(\\d*)" + SEPARATOR +      // month
-                    "(\\d*)" + SEPARATOR +      // year
-                    "\\d*" + SEPARATOR +
-                    "\\d*" +
-                    END_OF_LINE);
-
-    // $GPVTG,0.00,T,,M,1.531,N,2.835,K,A*37
-    // $GPVTG,138.7,T,,M,014.2,N,026.3,K,A*00
-    private static final Pattern VTG_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "VTG" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +   // true course
-                    "T" + SEPARATOR +
-                    "[\\d\\.]*" + SEPARATOR +     // magnetic course
-                    "M" + SEPARATOR +     
-                    "([\\d\\.]*)" + SEPARATOR +
-                    "N" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +
-                    "K" + SEPARATOR +
-                    "A" +
-                    END_OF_LINE);
-
-    // $GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F
-    private static final Pattern GSA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GSA" + SEPARATOR +
-                    "[AM]" + SEPARATOR +         
-                    "([123])" + SEPARATOR +      // Fix, 1=Fix not available
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +  // PDOP
-                    "([\\d\\.]*)" + SEPARATOR +  // HDOP
-                    "([\\d\\.]*)" +              // VDOP
-                    END_OF_LINE);
+    private static final int GGA = NmeaSentence.toSentenceId('G', 'G', 'A');
+    private static final int RMC = NmeaSentence.toSentenceId('R', 'M', 'C');
+    private static final int WPL = NmeaSentence.toSentenceId('W', 'P', 'L');
+    private static final int ZDA = NmeaSentence.toSentenceId('Z', 'D', 'A');
+    private static final int VTG = NmeaSentence.toSentenceId('V', 'T', 'G');
+    private static final int GSA = NmeaSentence.toSentenceId('G', 'S', 'A');
 
     public String getExtension() {
         return ".nmea";
@@ -174,134 +80,193 @@ public class NmeaFormat extends BaseNmeaFormat {
         return new NmeaRoute(this, characteristics, (List<NmeaPosition>) positions);
     }
 
-    protected boolean isPosition(String line) {
-        Matcher rmcMatcher = RMC_PATTERN.matcher(line);
-        if (rmcMatcher.matches())
-            return hasValidChecksum(line) && !"N".equals(rmcMatcher.group(8));
+    boolean isPosition(NmeaSentence sentence) {
+        int id = sentence.getSentenceId("GP");
+        if (id == RMC)
+            return isRmc(sentence) && hasValidChecksum(sentence) && getRmcSignalIntegrity(sentence) != 'N';
+        if (id == GGA)
+            return isGga(sentence) && hasValidChecksum(sentence) && sentence.getChar(6) != '0';
+        if (id == WPL)
+            return isWpl(sentence) && hasValidChecksum(sentence);
+        if (id == ZDA)
+            return isZda(sentence) && hasValidChecksum(sentence);
+        if (id == VTG)
+            return isVtg(sentence) && hasValidChecksum(sentence);
+        return id == GSA && isGsa(sentence) && hasValidChecksum(sentence) && sentence.getChar(2) != '1';
+    }
 
-        Matcher ggaMatcher = GGA_PATTERN.matcher(line);
-        if (ggaMatcher.matches())
-            return hasValidChecksum(line) && !"0".equals(ggaMatcher.group(6));
+    // $GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,   ,A*76
+    // $GPRMC,140403.000,A,4837.5194,N,00903.4022,E,15.00,0.00,260707,,  *3E
+    // $GPRMC,172103.38,V,4424.5358,N,06812.3754,W,0.000,0.000,101010,0,W,N*3A
+    private boolean isRmc(NmeaSentence sentence) {
+        return sentence.getFieldCount() >= 12 &&
+                sentence.isDecimal(1, true, false) &&     // UTC Time
+                sentence.isOneOf(2, "AV") &&              // Status, A=active, V=void
+                sentence.isDecimal(3, false, false) && sentence.isOneOf(4, "NS") &&
+                sentence.isDecimal(5, false, false) && sentence.isOneOf(6, "EW") &&
+                sentence.isDecimal(7, true, false) &&     // Speed over ground, knots
+                sentence.isDecimal(8, true, false) &&
+                sentence.isDigits(9) &&                   // Date, ddmmyy
+                sentence.isDecimal(10, true, false) &&
+                getRmcSignalIntegrity(sentence) != -1;
+    }
+
+    /**
+     * Matches the rest of a RMC sentence: the magnetic variation, E=East or W=West and
+     * the signal integrity, N=not valid. The separators between them are optional.
+     *
+     * @return the signal integrity, 0 if there is none or -1 if the rest doesn't match
+     */
+    private int getRmcSignalIntegrity(NmeaSentence sentence) {
+        String rest = sentence.getRest(11);
+        int i = 0, length = rest.length();
+        while (i < length && ((rest.charAt(i) >= '0' && rest.charAt(i) <= '9') || rest.charAt(i) == '.'))
+            i++;
+        if (i < length && rest.charAt(i) == ',')
+            i++;
+        if (i < length && "AEW".indexOf(rest.charAt(i)) != -1)
+            i++;
+        if (i < length && rest.charAt(i) == ',')
+            i++;
+        int integrity = 0;
+        if (i < length && "ADEMNS".indexOf(rest.charAt(i)) != -1)
+            integrity = rest.charAt(i++);
+        return i == length ? integrity : -1;
+    }
+
+    // $GPGGA,130441.89,5239.3154,N,00907.7011,E,1,08,1.25,16.76,M,46.79,M,,*6D
+    // $GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F
+    // $GPGGA,132713,5509.7861,N,00140.5854,W,1,07,1.0,98.9,M,,M,,*7d
+    private boolean isGga(NmeaSentence sentence) {
+        return sentence.getFieldCount() >= 15 &&
+                sentence.isDecimal(1, true, false) &&
+                sentence.isDecimal(2, false, false) && sentence.isOneOf(3, "NS") &&
+                sentence.isDecimal(4, false, false) && sentence.isOneOf(5, "WE") &&
+                sentence.isOneOf(6, "0123456789+") &&     // Fix quality, 0=invalid
+                sentence.isDigits(7) &&                   // Number of satellites in view, 00 - 12
+                sentence.isDecimal(8, true, false) &&
+                sentence.isDecimal(9, true, true) &&      // Antenna Altitude above/below mean-sea-level (geoid)
+                sentence.isEqual(10, "M") &&
+                sentence.isAllOf(11, "-?0123456789.") &&
+                (sentence.isEmpty(12) || sentence.isEqual(12, "M"));
+    }
 
-        Matcher wplMatcher = WPL_PATTERN.matcher(line);
-        if (wplMatcher.matches())
-            return hasValidChecksum(line);
+    // $GPWPL,5334.169,N,01001.920,E,STATN1*22
+    private boolean isWpl(NmeaSentence sentence) {
+        return sentence.getFieldCount() >= 6 &&
+                sentence.isDecimal(1, false, false) && sentence.isOneOf(2, "NS") &&
+                sentence.isDecimal(3, false, false) && sentence.isOneOf(4, "WE");
+    }
 
-        Matcher zdaMatcher = ZDA_PATTERN.matcher(line);
-        if (zdaMatcher.matches())
-            return hasValidChecksum(line);
+    // $GPZDA,032910.542,07,08,2004,00,00*48
+    private boolean isZda(NmeaSentence sentence) {
+        return sentence.getFieldCount() == 7 &&
+                sentence.isDecimal(1, true, false) &&     // UTC Time
+                sentence.isDigits(2) &&                   // day
+                sentence.isDigits(3) &&                   // month
+                sentence.isDigits(4) &&                   // year
+                sentence.isDigits(5) &&
+                sentence.isDigits(6);
+    }
 
-        Matcher vtgMatcher = VTG_PATTERN.matcher(line);
-        if (vtgMatcher.matches())
-            return hasValidChecksum(line);
+    // $GPVTG,0.00,T,,M,1.531,N,2.835,K,A*37
+    // $GPVTG,138.7,T,,M,014.2,N,026.3,K,A*00
+    private boolean isVtg(NmeaSentence sentence) {
+        return sentence.getFieldCount() == 10 &&
+                sentence.isDecimal(1, true, false) &&     // true course
+                sentence.isEqual(2, "T") &&
+                sentence.isDecimal(3, true, false) &&     // magnetic course
+                sentence.isEqual(4, "M") &&
+                sentence.isDecimal(5, true, false) &&
+                sentence.isEqual(6, "N") &&
+                sentence.isDecimal(7, true, false) &&
+                sentence.isEqual(8, "K") &&
+                sentence.isEqual(9, "A");
+    }
 
-        Matcher gsaMatcher = GSA_PATTERN.matcher(line);
-        return gsaMatcher.matches() && hasValidChecksum(line) && !"1".equals(gsaMatcher.group(1));
+    // $GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F
+    private boolean isGsa(NmeaSentence sentence) {
+        if (sentence.getFieldCount() != 18 ||
+                !sentence.isOneOf(1, "AM") ||
+                !sentence.isOneOf(2, "123"))              // Fix, 1=Fix not available
+            return false;
+        for (int i = 3; i < 15; i++) {
+            if (!sentence.isDigits(i))
+                return false;
+        }
+        return sentence.isDecimal(15, true, false) &&     // PDOP
+                sentence.isDecimal(16, true, false) &&    // HDOP
+                sentence.isDecimal(17, true, false);      // VDOP
     }
 
-    protected NmeaPosition parsePosition(String line) {
-        Matcher rmcMatcher = RMC_PATTERN.matcher(line);
-        if (rmcMatcher.matches()) {
-            String time = rmcMatcher.group(1);
-            String latitude = rmcMatcher.group(2);
-            String northOrSouth = rmcMatcher.group(3);
-            String longitude = rmcMatcher.group(4);
-            String westOrEast = rmcMatcher.group(5);
+    NmeaPosition parsePosition(NmeaSentence sentence) {
+        int id = sentence.getSentenceId("GP");
+        if (id == RMC && isRmc(sentence)) {
             Double speed = null;
-            String speedStr = rmcMatcher.group(6);
-            if (speedStr != null) {
-                Double knots = Transfer.parseDouble(speedStr);
-                if (knots != null)
-                    speed = Conversion.knotsToKilometers(knots);
-            }
-            String date = rmcMatcher.group(7);
-            return new NmeaPosition(Transfer.parseDouble(longitude), westOrEast, Transfer.parseDouble(latitude), northOrSouth,
-                    null, speed, null, parseDateAndTime(date, time), null);
+            Double knots = sentence.getDouble(7);
+            if (knots != null)
+                speed = Conversion.knotsToKilometers(knots);
+            return new NmeaPosition(sentence.getDouble(5), sentence.getDirection(6), sentence.getDouble(3), sentence.getDirection(4),
+                    null, speed, null, parseDateAndTime(sentence.getString(9), sentence.getString(1)), null);
         }
 
-        Matcher ggaMatcher = GGA_PATTERN.matcher(line);
-        if (ggaMatcher.matches()) {
-            String time = ggaMatcher.group(1);
-            String latitude = ggaMatcher.group(2);
-            String northOrSouth = ggaMatcher.group(3);
-            String longitude = ggaMatcher.group(4);
-            String westOrEast = ggaMatcher.group(5);
-            String satellites = ggaMatcher.group(7);
-            String altitude = ggaMatcher.group(8);
-            NmeaPosition position = new NmeaPosition(Transfer.parseDouble(longitude), westOrEast, Transfer.parseDouble(latitude), northOrSouth,
-                    Transfer.parseDouble(altitude), null, null, parseTime(time), null);
-            position.setSatellites(Transfer.parseInt(satellites));
+        if (id == GGA && isGga(sentence)) {
+            NmeaPosition position = new NmeaPosition(sentence.getDouble(4), sentence.getDirection(5), sentence.getDouble(2), sentence.getDirection(3),
+                    sentence.getDouble(9), null, null, parseTime(sentence.getString(1)), null);
+            position.setSatellites(sentence.getInteger(7));
             return position;
         }
 
-        Matcher wplMatcher = WPL_PATTERN.matcher(line);
-        if (wplMatcher.matches()) {
-            String latitude = wplMatcher.group(1);
-            String northOrSouth = wplMatcher.group(2);
-            String longitude = wplMatcher.group(3);
-            String westOrEast = wplMatcher.group(4);
-            String comment = wplMatcher.group(5);
-            return new NmeaPosition(Transfer.parseDouble(longitude), westOrEast, Transfer.parseDouble(latitude), northOrSouth,
+        if (id == WPL && isWpl(sentence)) {
+            String comment = sentence.getRest(5);
+            return new NmeaPosition(sentence.getDouble(3), sentence.getDirection(4), sentence.getDouble(1), sentence.getDirection(2),
                     null, null, null, null, Transfer.trim(comment));
         }
 
-        Matcher zdaMatcher = ZDA_PATTERN.matcher(line);
-        if (zdaMatcher.matches()) {
-            String time = zdaMatcher.group(1);
-            String day = Transfer.trim(zdaMatcher.group(2));
-            String month = Transfer.trim(zdaMatcher.group(3));
-            String year = Transfer.trim(zdaMatcher.group(4));
-            String date = (day != null ? day : "") + (month != null ? month : "") + (year != null ? year : "");
-            return new NmeaPosition(null, null, null, null, null, null, null, parseDateAndTime(date, time), null);
+        if (id == ZDA && isZda(sentence)) {
+            String date = sentence.getString(2) + sentence.getString(3) + sentence.getString(4);
+            return new NmeaPosition(null, null, null, null, null, null, null, parseDateAndTime(date, sentence.getString(1)), null);
         }
 
-        Matcher vtgMatcher = VTG_PATTERN.matcher(line);
-        if (vtgMatcher.matches()) {
-            Double heading = Transfer.parseDouble(vtgMatcher.group(1));
-            boolean knots = false;
-            String speedStr = Transfer.trim(vtgMatcher.group(3));
-            if (speedStr == null) {
-                speedStr = Transfer.trim(vtgMatcher.group(2));
-                knots = true;
+        if (id == VTG && isVtg(sentence)) {
+            Double heading = sentence.getDouble(1);
+            Double speed = sentence.getDouble(7);
+            if (speed == null) {
+                speed = sentence.getDouble(5);
+                if (speed != null)
+                    speed = Conversion.knotsToKilometers(speed);
             }
-            Double speed = Transfer.parseDouble(speedStr);
-            if (knots && speed != null)
-                speed = Conversion.knotsToKilometers(speed);
             return new NmeaPosition(null, null, null, null, null, speed, heading, null, null);
         }
 
-        Matcher gsaMatcher = GSA_PATTERN.matcher(line);
-        if (gsaMatcher.matches()) {
-            String pdop = gsaMatcher.group(2);
-            String hdop = gsaMatcher.group(3);
-            String vdop = gsaMatcher.group(4);
+        if (id == GSA && isGsa(sentence)) {
             NmeaPosition position = new NmeaPosition(null, null, null, null, null, null, null, null, null);
-            position.setPdop(Transfer.parseDouble(pdop));
-            position.setHdop(Transfer.parseDouble(hdop));
-            position.setVdop(Transfer.parseDouble(vdop));
+            position.setPdop(sentence.getDouble(15));
+            position.setHdop(sentence.getDouble(16));
+            position.setVdop(sentence.getDouble(17));
             return position;
         }
 
-        throw new IllegalArgumentException("'" + line + "' does not match");
+        throw new IllegalArgumentException("'" + sentence.getLine() + "' does not match");
     }
 
     
     private String formatDay(CompactCalendar date) {
         if (date == null)
             return "";
-        return DAY_FORMAT.format(date.getTime());
+        return DAY_FORMAT.format(date);
     }
 
     private String formatMonth(CompactCalendar date) {
         if (date == null)
             return "";
-        return MONTH_FORMAT.format(date.getTime());
+        return MONTH_FORMAT.format(date);
     }
 
     private String formatYear(CompactCalendar date) {
         if (date == null)
             return "";
-        return YEAR_FORMAT.format(date.getTime());
+        return YEAR_FORMAT.format(date);
     }
 
     private String formatAltitude(Double altitude) {
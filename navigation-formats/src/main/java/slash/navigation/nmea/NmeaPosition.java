@@ -79,6 +79,7 @@ public class NmeaPosition extends BaseNavigationPosition {
             this.longitude = Math.abs(ddmm);
             this.westOrEast = ddmm >= 0.0 ? "E" : "W";
         }
+        modified();
     }
 
     public Double getLatitude() {
@@ -94,6 +95,7 @@ public class NmeaPosition extends BaseNavigationPosition {
             this.latitude = Math.abs(ddmm);
             this.northOrSouth = ddmm >= 0.0 ? "N" : "S";
         }
+        modified();
     }
 
     public Double getLongitudeAsDdmm() {
@@ -0,0 +1,290 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.nmea;
+
+import slash.common.io.Transfer;
+
+/**
+ * Splits a NMEA 0183 sentence like <code>$GPGGA,...*hh</code> into its fields in a single pass
+ * and computes the checksum on the way. The fields are accessed by index, the address field
+ * like <code>GPGGA</code> has the index 0.
+ * <p/>
+ * An instance is reused for many lines and must not be shared between threads.
+ *
+ * @author Christian Pesch
+ */
+
+class NmeaSentence {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+    private static final int MAXIMUM_INTEGER_DIGITS = 9;
+
+    private String line;
+    private int[] starts = new int[32];
+    private int count, end, checksum, expectedChecksum;
+
+    /**
+     * Tokenizes the given line.
+     *
+     * @param line the line to tokenize
+     * @return false if the line is not framed by <code>$</code> and <code>*hh</code>
+     */
+    boolean tokenize(String line) {
+        this.line = line;
+        this.count = 0;
+        int length = line.length();
+        if (length < 4 || line.charAt(0) != '$' || line.charAt(length - 3) != '*')
+            return false;
+        int high = Character.digit(line.charAt(length - 2), 16);
+        int low = Character.digit(line.charAt(length - 1), 16);
+        if (high == -1 || low == -1)
+            return false;
+
+        expectedChecksum = high << 4 | low;
+        end = length - 3;
+        int xor = 0;
+        addField(1);
+        for (int i = 1; i < end; i++) {
+            char c = line.charAt(i);
+            xor ^= c;
+            if (c == ',')
+                addField(i + 1);
+        }
+        checksum = xor & 0xff;
+        return true;
+    }
+
+    private void addField(int start) {
+        if (count == starts.length) {
+            int[] grown = new int[starts.length * 2];
+            System.arraycopy(starts, 0, grown, 0, starts.length);
+            starts = grown;
+        }
+        starts[count++] = start;
+    }
+
+    String getLine() {
+        return line;
+    }
+
+    int getFieldCount() {
+        return count;
+    }
+
+    boolean hasValidChecksum() {
+        return checksum == expectedChecksum;
+    }
+
+    int getChecksum() {
+        return checksum;
+    }
+
+    static int toSentenceId(char first, char second, char third) {
+        return first << 16 | second << 8 | third;
+    }
+
+    /**
+     * Returns the last three characters of an address field that consists of the given
+     * talker and three more characters packed into an int, or 0 if the address doesn't match.
+     *
+     * @param talker the talker like <code>GP</code> or <code>PMGN</code>
+     * @return the sentence id as created by {@link #toSentenceId(char, char, char)} or 0
+     */
+    int getSentenceId(String talker) {
+        if (count == 0 || getLength(0) != talker.length() + 3 || !line.startsWith(talker, 1))
+            return 0;
+        int start = 1 + talker.length();
+        return toSentenceId(line.charAt(start), line.charAt(start + 1), line.charAt(start + 2));
+    }
+
+    private int getStart(int index) {
+        return starts[index];
+    }
+
+    private int getEnd(int index) {
+        return index + 1 < count ? starts[index + 1] - 1 : end;
+    }
+
+    private int getLength(int index) {
+        return getEnd(index) - getStart(index);
+    }
+
+    boolean isEmpty(int index) {
+        return getLength(index) == 0;
+    }
+
+    /**
+     * Returns if the field consists of exactly the given string.
+     */
+    boolean isEqual(int index, String string) {
+        return getLength(index) == string.length() && line.startsWith(string, getStart(index));
+    }
+
+    /**
+     * Returns if the field consists of exactly one of the given characters.
+     */
+    boolean isOneOf(int index, String characters) {
+        return getLength(index) == 1 && characters.indexOf(line.charAt(getStart(index))) != -1;
+    }
+
+    /**
+     * Returns if the field consists only of the given characters.
+     */
+    boolean isAllOf(int index, String characters) {
+        for (int i = getStart(index), end = getEnd(index); i < end; i++) {
+            if (characters.indexOf(line.charAt(i)) == -1)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the field consists only of digits.
+     */
+    boolean isDigits(int index) {
+        for (int i = getStart(index), end = getEnd(index); i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns if the field consists only of digits and dots after an optional minus sign.
+     *
+     * @param index      the index of the field
+     * @param allowEmpty if the field or the part after the sign may be empty
+     * @param allowSign  if a leading minus sign is allowed
+     */
+    boolean isDecimal(int index, boolean allowEmpty, boolean allowSign) {
+        int start = getStart(index), end = getEnd(index);
+        if (allowSign && start < end && line.charAt(start) == '-')
+            start++;
+        if (start == end)
+            return allowEmpty;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if ((c < '0' || c > '9') && c != '.')
+                return false;
+        }
+        return true;
+    }
+
+    char getChar(int index) {
+        return isEmpty(index) ? 0 : line.charAt(getStart(index));
+    }
+
+    String getString(int index) {
+        return line.substring(getStart(index), getEnd(index));
+    }
+
+    /**
+     * Returns the given field and all fields after it including their separators.
+     */
+    String getRest(int index) {
+        return line.substring(getStart(index), end);
+    }
+
+    /**
+     * Returns the fields from the first to the last index including their separators.
+     */
+    String getRange(int firstIndex, int lastIndex) {
+        return line.substring(getStart(firstIndex), getEnd(lastIndex));
+    }
+
+    /**
+     * Returns the field with a single direction character <code>N</code>, <code>S</code>,
+     * <code>E</code> or <code>W</code> as a shared string.
+     */
+    String getDirection(int index) {
+        if (getLength(index) == 1) {
+            switch (line.charAt(getStart(index))) {
+                case 'N':
+                    return "N";
+                case 'S':
+                    return "S";
+                case 'E':
+                    return "E";
+                case 'W':
+                    return "W";
+            }
+        }
+        return getString(index);
+    }
+
+    /**
+     * Parses the field as a decimal number like {@link Transfer#parseDouble(String)}.
+     *
+     * @return the number or null if the field is empty
+     */
+    Double getDouble(int index) {
+        int start = getStart(index), end = getEnd(index);
+        if (start == end)
+            return null;
+
+        boolean negative = line.charAt(start) == '-';
+        long mantissa = 0;
+        int digits = 0, fractionDigits = -1;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits != -1)
+                    fractionDigits++;
+            } else if (c == '.' && fractionDigits == -1) {
+                fractionDigits = 0;
+            } else {
+                digits = -1;
+                break;
+            }
+        }
+
+        // numbers with an exact mantissa and power of ten are rounded correctly by a single division
+        if (digits > 0 && digits <= 15 && mantissa < MAXIMUM_EXACT_MANTISSA) {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+        return Transfer.parseDouble(line.substring(start, end));
+    }
+
+    /**
+     * Parses the field as an integer number like {@link Transfer#parseInt(String)}.
+     *
+     * @return the number or null if the field is empty
+     */
+    Integer getInteger(int index) {
+        int start = getStart(index), end = getEnd(index);
+        if (start == end)
+            return null;
+        if (end - start <= MAXIMUM_INTEGER_DIGITS && isDigits(index)) {
+            int value = 0;
+            for (int i = start; i < end; i++)
+                value = value * 10 + (line.charAt(i) - '0');
+            return value;
+        }
+        return Transfer.parseInt(line.substring(start, end));
+    }
+}
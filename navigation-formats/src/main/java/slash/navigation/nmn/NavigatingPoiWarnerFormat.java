@@ -80,7 +80,7 @@ public class NavigatingPoiWarnerFormat extends SimpleLineBasedFormat<SimpleRoute
                 null, null, null, Transfer.trim(comment));
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 7);
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 7);
         String comment = position.getComment();
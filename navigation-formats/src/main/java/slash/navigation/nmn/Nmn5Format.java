@@ -85,7 +85,7 @@ public class Nmn5Format extends NmnFormat {
         return string != null ? escapeSeparator(string) : "-";
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         NmnPosition nmnPosition = (NmnPosition) position;
         String longitude = Transfer.formatPositionAsString(nmnPosition.getLongitude());
         String latitude = Transfer.formatPositionAsString(nmnPosition.getLatitude());
@@ -84,7 +84,7 @@ public class Nmn6FavoritesFormat extends NmnFormat {
         return string != null ? string.replaceAll("[\\" + LEFT_BRACE + "|" + SEPARATOR + "|\\" + RIGHT_BRACE + "]", "").toUpperCase() : "";
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatPositionAsString(position.getLongitude());
         String latitude = Transfer.formatPositionAsString(position.getLatitude());
         String comment = formatForNmnFavorites(position.getComment());
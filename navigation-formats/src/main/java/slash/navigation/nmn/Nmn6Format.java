@@ -79,7 +79,7 @@ public class Nmn6Format extends NmnFormat {
         return string != null ? string.replaceAll("[\\" + LEFT_BRACE + "|" + SEPARATOR + "|\\" + RIGHT_BRACE + "]", ";") : "";
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatPositionAsString(position.getLongitude());
         String latitude = Transfer.formatPositionAsString(position.getLatitude());
         String comment = formatForNmn6(position.getComment());
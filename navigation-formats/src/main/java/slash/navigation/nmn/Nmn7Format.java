@@ -20,6 +20,9 @@
 
 package slash.navigation.nmn;
 
+import slash.navigation.base.FileHead;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.nmn.binding7.ObjectFactory;
@@ -57,6 +60,14 @@ public class Nmn7Format extends NmnFormat {
         return preferences.getInt("maximumNmn7PositionCount", 48 /* ApplicationSettings.xml: <RouteTargets>50</RouteTargets> */);
     }
 
+    public Recognition recognize(FileHead head) {
+        // the root element is without namespace thus no signature
+        if (!head.isXml())
+            return Recognition.Mismatch;
+        String rootElement = head.getXmlRootElement();
+        return rootElement == null || rootElement.equals("Route") ? Recognition.Possible : Recognition.Mismatch;
+    }
+
     protected boolean isPosition(String line) {
         throw new UnsupportedOperationException();
     }
@@ -83,8 +94,11 @@ public class Nmn7Format extends NmnFormat {
         }
     }
 
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return pushRoutes(read(source, startDate), sink);
+    }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         throw new UnsupportedOperationException();
     }
 
@@ -20,7 +20,7 @@
 
 package slash.navigation.nmn;
 
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 import slash.navigation.nmn.binding7.ObjectFactory;
 import slash.navigation.nmn.binding7.Route;
 
@@ -29,16 +29,16 @@ import javax.xml.namespace.QName;
 import java.io.*;
 
 class Nmn7Util {
-    private static final JAXBContext CONTEXT = JaxbUtils.newContext(ObjectFactory.class);
+    private static final PooledContext CONTEXT = new PooledContext(ObjectFactory.class);
 
     private static final String NMN7_NAMESPACE_URI = "";
 
     private static Unmarshaller newUnmarshaller() {
-        return JaxbUtils.newUnmarshaller(CONTEXT);
+        return CONTEXT.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller() {
-        Marshaller marshaller = JaxbUtils.newMarshaller(CONTEXT);
+        Marshaller marshaller = CONTEXT.getMarshaller();
         try {
             marshaller.setProperty(Marshaller.JAXB_ENCODING, "ISO-8859-1");
         } catch (PropertyException e) {
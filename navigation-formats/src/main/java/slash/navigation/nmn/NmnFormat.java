@@ -22,6 +22,7 @@ package slash.navigation.nmn;
 
 import slash.navigation.base.*;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -51,6 +52,10 @@ public abstract class NmnFormat extends SimpleLineBasedFormat<NmnRoute> {
         return new NmnRoute(this, characteristics, null, (List<NmnPosition>) positions);
     }
 
+    protected List<Wgs84Position> createPositionList() {
+        return new ArrayList<Wgs84Position>();
+    }
+
     public BaseNavigationPosition getDuplicateFirstPosition(BaseRoute<BaseNavigationPosition, BaseNavigationFormat> route) {
         List<BaseNavigationPosition> positions = route.getPositions();
         BaseNavigationPosition first = positions.get(0);
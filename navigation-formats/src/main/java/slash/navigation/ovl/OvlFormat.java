@@ -109,7 +109,7 @@ public class OvlFormat extends IniFileFormat<OvlRoute> implements MultipleRoutes
         return null;
     }
 
-    boolean isSectionTitle(String line) {
+    protected boolean isSectionTitle(String line) {
         Matcher matcher = SECTION_TITLE_PATTERN.matcher(line);
         return matcher.matches();
     }
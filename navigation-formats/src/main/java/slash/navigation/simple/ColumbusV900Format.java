@@ -21,14 +21,11 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -49,14 +46,9 @@ public abstract class ColumbusV900Format extends SimpleLineBasedFormat<SimpleRou
     protected static final String VOICE_POSITION = "V";
     protected static final String POI_POSITION = "C";
 
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("yyMMdd HHmmss");
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyMMdd");
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HHmmss");
-    static {
-        DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("yyMMdd HHmmss");
+    private static final TimestampFormat DATE_FORMAT = new TimestampFormat("yyMMdd");
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HHmmss");
 
     public String getExtension() {
         return ".csv";
@@ -90,13 +82,10 @@ public abstract class ColumbusV900Format extends SimpleLineBasedFormat<SimpleRou
         if(date == null || time == null)
             return null;
         String dateAndTime = date + " " + time;
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
     protected String removeZeros(String string) {
@@ -118,13 +107,13 @@ public abstract class ColumbusV900Format extends SimpleLineBasedFormat<SimpleRou
     protected String formatDate(CompactCalendar date) {
         if (date == null)
             return "";
-        return DATE_FORMAT.format(date.getTime());
+        return DATE_FORMAT.format(date);
     }
 
     protected String formatTime(CompactCalendar time) {
         if (time == null)
             return "";
-        return TIME_FORMAT.format(time.getTime());
+        return TIME_FORMAT.format(time);
     }
 
     protected String formatLineType(String comment) {
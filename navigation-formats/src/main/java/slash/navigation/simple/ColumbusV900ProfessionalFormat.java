@@ -115,7 +115,7 @@ public class ColumbusV900ProfessionalFormat extends ColumbusV900Format {
         return position;
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String date = fillWithZeros(formatDate(position.getTime()), 6);
         String time = fillWithZeros(formatTime(position.getTime()), 6);
         String latitude = Transfer.formatDoubleAsString(Math.abs(position.getLatitude()), 6);
@@ -101,7 +101,7 @@ public class GlopusFormat extends SimpleLineBasedFormat<SimpleRoute> {
         throw new IllegalArgumentException("'" + line + "' does not match");
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 7);
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 7);
         String comment = position.getComment();
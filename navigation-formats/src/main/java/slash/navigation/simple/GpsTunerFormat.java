@@ -116,7 +116,7 @@ public class GpsTunerFormat extends SimpleLineBasedFormat<SimpleRoute> {
         return Long.toString(time.getTimeInMillis() / 1000);
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatPositionAsString(position.getLongitude());
         String latitude = Transfer.formatPositionAsString(position.getLatitude());
         String altitude = Transfer.formatElevationAsString(position.getElevation());
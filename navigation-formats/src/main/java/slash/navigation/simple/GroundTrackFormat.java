@@ -21,14 +21,11 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -58,12 +55,7 @@ public class GroundTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
                     ".*" +
                     END_OF_LINE);
 
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss.SSS");
-
-    static {
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setLenient(false);
-    }
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HH:mm:ss.SSS", false);
 
     public String getName() {
         return "groundtrack vom SondenMonitor (*" + getExtension() + ")";
@@ -98,13 +90,10 @@ public class GroundTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
         time = Transfer.trim(time);
         if (time == null)
             return null;
-        try {
-            Date parsed = TIME_FORMAT.parse(time);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = TIME_FORMAT.parse(time);
+        if (result == null)
             log.severe("Could not parse time '" + time + "'");
-        }
-        return null;
+        return result;
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -125,7 +114,7 @@ public class GroundTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private String formatTime(CompactCalendar time) {
         if (time == null)
             return "";
-        return TIME_FORMAT.format(time.getTime());
+        return TIME_FORMAT.format(time);
     }
 
     private String fillWithSpaces(String string, int length) {
@@ -136,7 +125,7 @@ public class GroundTrackFormat extends SimpleLineBasedFormat<SimpleRoute> {
         return buffer.toString();
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String latitude = Transfer.formatDoubleAsString(Math.abs(position.getLatitude()), 6);
         String longitude = Transfer.formatDoubleAsString(Math.abs(position.getLongitude()), 6);
         String elevation = position.getElevation() != null ? Transfer.formatElevationAsString(position.getElevation()) : "0.0";
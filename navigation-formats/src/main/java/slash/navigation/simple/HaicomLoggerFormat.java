@@ -21,12 +21,12 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
 import java.text.*;
-import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
@@ -49,14 +49,9 @@ public class HaicomLoggerFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private static final String SEPARATOR = ",";
     private static final String HEADER_LINE = "INDEX,RCR,DATE,TIME,LATITUDE,N/S,LONGITUDE,E/W,ALTITUDE,COURSE,SPEED,";
 
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("yy/MM/dd HH:mm:ss");
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yy/MM/dd");
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
-    static {
-        DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("yy/MM/dd HH:mm:ss");
+    private static final TimestampFormat DATE_FORMAT = new TimestampFormat("yy/MM/dd");
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HH:mm:ss");
 
     private static final NumberFormat LONGITUDE_NUMBER_FORMAT = DecimalFormat.getNumberInstance(Locale.US);
     private static final NumberFormat LATITUDE_NUMBER_FORMAT = DecimalFormat.getNumberInstance(Locale.US);
@@ -120,13 +115,10 @@ public class HaicomLoggerFormat extends SimpleLineBasedFormat<SimpleRoute> {
         if(date == null || time == null)
             return null;
         String dateAndTime = date + " " + time;
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -165,20 +157,20 @@ public class HaicomLoggerFormat extends SimpleLineBasedFormat<SimpleRoute> {
     String formatTime(CompactCalendar time) {
         if (time == null)
             return "";
-        return TIME_FORMAT.format(time.getTime());
+        return TIME_FORMAT.format(time);
     }
 
     String formatDate(CompactCalendar date) {
         if (date == null)
             return "";
-        return DATE_FORMAT.format(date.getTime());
+        return DATE_FORMAT.format(date);
     }
 
     protected void writeHeader(PrintWriter writer) {
         writer.println(HEADER_LINE);
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = formatLongitude(Math.abs(position.getLongitude()));
         String westOrEast = position.getLongitude() >= 0.0 ? "E" : "W";
         String latitude = formatLatititude(Math.abs(position.getLatitude()));
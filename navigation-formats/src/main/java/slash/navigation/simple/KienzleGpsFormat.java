@@ -21,13 +21,11 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -45,10 +43,7 @@ public class KienzleGpsFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private static final char SEPARATOR_CHAR = ';';
     private static final String HEADER_LINE = "Position;X;Y;Empfnger;Land;PLZ;Ort;Strasse;Hausnummer;Planankunft;Zusatzinfos";
 
-    private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm");
-    static {
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HH:mm");
 
     private static final Pattern LINE_PATTERN = Pattern.
             compile(BEGIN_OF_LINE +
@@ -98,12 +93,7 @@ public class KienzleGpsFormat extends SimpleLineBasedFormat<SimpleRoute> {
     private CompactCalendar parseTime(String string) {
         if (string == null)
             return null;
-        try {
-            Date parsed = TIME_FORMAT.parse(string);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
-            return null;
-        }
+        return TIME_FORMAT.parse(string);
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -131,7 +121,7 @@ public class KienzleGpsFormat extends SimpleLineBasedFormat<SimpleRoute> {
         return position;
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         throw new UnsupportedOperationException();
     }
 }
\ No newline at end of file
@@ -79,7 +79,7 @@ public class KompassFormat extends SimpleLineBasedFormat<SimpleRoute> {
                 Transfer.parseDouble(elevation), null, null, null);
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 7);
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 7);
         String elevation = position.getElevation() != null ? Transfer.formatDoubleAsString(position.getElevation(), 1) : "0.0";
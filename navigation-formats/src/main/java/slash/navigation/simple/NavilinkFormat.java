@@ -22,6 +22,7 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.navigation.base.*;
 
 import java.io.BufferedReader;
@@ -30,7 +31,6 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -52,10 +52,7 @@ import java.util.List;
 public class NavilinkFormat extends SimpleFormat<Wgs84Route> {
     private static final int HEADER_SIZE = 64;
     private static final int SBP_RECORD_LENGTH = 32;
-    private static final SimpleDateFormat TRACK_NAME_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    static {
-        TRACK_NAME_DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat TRACK_NAME_DATE_FORMAT = new TimestampFormat("yyyy-MM-dd HH:mm:ss");
 
     public String getName() {
         return "Navilink (*" + getExtension() + ")";
@@ -229,7 +226,7 @@ public class NavilinkFormat extends SimpleFormat<Wgs84Route> {
 
                 if ((activeRoute == null) || (isTrackStart(sbpRecordByteBuffer))) {
                     activeRoute = createRoute(RouteCharacteristics.Track,
-                            TRACK_NAME_DATE_FORMAT.format(position.getTime().getTime()),
+                            TRACK_NAME_DATE_FORMAT.format(position.getTime()),
                             new ArrayList<BaseNavigationPosition>());
                     resultRouteList.add(activeRoute);
                 }
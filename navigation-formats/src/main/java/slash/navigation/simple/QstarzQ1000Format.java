@@ -21,14 +21,11 @@
 package slash.navigation.simple;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.*;
 
 import java.io.PrintWriter;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -70,14 +67,9 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<SimpleRoute> {
                     SPACE + "([\\d\\.]+)" + "[^" + SEPARATOR_CHAR + "]*" + SEPARATOR_CHAR +
                     END_OF_LINE);
 
-    private static final DateFormat DATE_AND_TIME_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-    private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd");
-    private static final DateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
-    static {
-        DATE_AND_TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-        DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-        TIME_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat DATE_AND_TIME_FORMAT = new TimestampFormat("yyyy/MM/dd HH:mm:ss");
+    private static final TimestampFormat DATE_FORMAT = new TimestampFormat("yyyy/MM/dd");
+    private static final TimestampFormat TIME_FORMAT = new TimestampFormat("HH:mm:ss");
 
     public String getName() {
         return "Qstarz BT-Q1000 (*" + getExtension() + ")";
@@ -119,13 +111,10 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<SimpleRoute> {
         if(date == null || time == null)
             return null;
         String dateAndTime = date + " " + time;
-        try {
-            Date parsed = DATE_AND_TIME_FORMAT.parse(dateAndTime);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
+        CompactCalendar result = DATE_AND_TIME_FORMAT.parse(dateAndTime);
+        if (result == null)
             log.severe("Could not parse date and time '" + dateAndTime + "'");
-        }
-        return null;
+        return result;
     }
 
     protected Wgs84Position parsePosition(String line, CompactCalendar startDate) {
@@ -161,18 +150,16 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<SimpleRoute> {
     private String formatTime(CompactCalendar time) {
         if (time == null)
             return "";
-        return TIME_FORMAT.format(time.getTime());
+        return TIME_FORMAT.format(time);
     }
 
     private String formatDate(CompactCalendar date) {
         if (date == null)
             return "";
-        return DATE_FORMAT.format(date.getTime());
+        return DATE_FORMAT.format(date);
     }
 
-    private Wgs84Position previousPosition = null;
-
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String date = formatDate(position.getTime());
         String time = formatTime(position.getTime());
         String latitude = Transfer.formatDoubleAsString(Math.abs(position.getLatitude()), 6);
@@ -184,10 +171,7 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<SimpleRoute> {
         String hdop = position.getHdop() != null ? Transfer.formatAccuracyAsString(position.getHdop()) : "0.0";
         String satellites = position.getSatellites() != null ? Transfer.formatIntAsString(position.getSatellites()) : "0";
 
-        if (firstPosition)
-            previousPosition = null;
         String distance = previousPosition != null ? Transfer.formatElevationAsString(position.calculateDistance(previousPosition)) : "0.0";
-        previousPosition = position;
 
         writer.println(Integer.toString(index + 1) + SEPARATOR_CHAR + "T" + SEPARATOR_CHAR +
                 date + SEPARATOR_CHAR + time + SEPARATOR_CHAR + "SPS" + SEPARATOR_CHAR +
@@ -80,7 +80,7 @@ public class Route66Format extends SimpleLineBasedFormat<SimpleRoute> {
         return string != null ? string.replaceAll("\\" + SEPARATOR_CHAR, "").toUpperCase() : "";
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 6);
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 6);
         String comment = formatForRoute66(position.getComment());
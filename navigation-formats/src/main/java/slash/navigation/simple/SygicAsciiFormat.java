@@ -44,7 +44,7 @@ public class SygicAsciiFormat extends SygicFormat {
         return false;
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         throw new UnsupportedOperationException();
     }
 }
\ No newline at end of file
@@ -19,6 +19,9 @@
 */
 package slash.navigation.simple;
 
+import slash.navigation.base.FileHead;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.SimpleRoute;
 import slash.navigation.base.Wgs84Position;
 import slash.common.io.CompactCalendar;
@@ -45,10 +48,18 @@ public class SygicUnicodeFormat extends SygicFormat {
         return "Sygic POI Unicode (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognize(head.getLines(UTF16_ENCODING), head.isComplete());
+    }
+
     public List<SimpleRoute> read(InputStream source, CompactCalendar startDate) throws IOException {
         return read(source, startDate, UTF16_ENCODING);
     }
 
+    public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+        return read(source, startDate, UTF16_ENCODING, sink);
+    }
+
     public void write(SimpleRoute route, OutputStream target, int startIndex, int endIndex) throws IOException {
         write(route, target, UTF16LE_ENCODING, startIndex, endIndex);
     }
@@ -68,7 +79,7 @@ public class SygicUnicodeFormat extends SygicFormat {
         writer.println();
     }
 
-    protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String longitude = Transfer.formatDoubleAsString(position.getLongitude(), 6);
         String latitude = Transfer.formatDoubleAsString(position.getLatitude(), 6);
         String comment = formatForSygic(position.getComment());
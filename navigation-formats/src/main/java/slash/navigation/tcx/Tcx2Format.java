@@ -21,6 +21,8 @@
 package slash.navigation.tcx;
 
 import slash.common.io.CompactCalendar;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.gpx.GpxPosition;
 import slash.navigation.gpx.GpxRoute;
@@ -47,6 +49,10 @@ public class Tcx2Format extends TcxFormat {
         return "Training Center Database 2 (*" + getExtension() + ")";
     }
 
+    public Recognition recognize(FileHead head) {
+        return recognizeXml(head, "TrainingCenterDatabase", TcxUtil.TCX_2_NAMESPACE_URI);
+    }
+
 
     private Double convertLongitude(PositionT positionT) {
         return positionT != null ? positionT.getLongitudeDegrees() : null;
@@ -20,33 +20,33 @@
 
 package slash.navigation.tcx;
 
-import slash.navigation.jaxb.JaxbUtils;
+import slash.navigation.jaxb.PooledContext;
 
 import javax.xml.bind.*;
 import javax.xml.namespace.QName;
 import java.io.*;
 
 class TcxUtil {
-    private static final JAXBContext CONTEXT_1 = JaxbUtils.newContext(slash.navigation.tcx.binding1.ObjectFactory.class);
-    private static final JAXBContext CONTEXT_2 = JaxbUtils.newContext(slash.navigation.tcx.binding2.ObjectFactory.class);
+    private static final PooledContext CONTEXT_1 = new PooledContext(slash.navigation.tcx.binding1.ObjectFactory.class);
+    private static final PooledContext CONTEXT_2 = new PooledContext(slash.navigation.tcx.binding2.ObjectFactory.class);
 
-    private static final String TCX_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v1";
-    private static final String TCX_2_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2";
+    static final String TCX_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v1";
+    static final String TCX_2_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2";
 
     private static Unmarshaller newUnmarshaller1() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_1);
+        return CONTEXT_1.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller1() {
-        return JaxbUtils.newMarshaller(CONTEXT_1);
+        return CONTEXT_1.getMarshaller();
     }
 
     private static Unmarshaller newUnmarshaller2() {
-        return JaxbUtils.newUnmarshaller(CONTEXT_2);
+        return CONTEXT_2.getUnmarshaller();
     }
 
     private static Marshaller newMarshaller2() {
-        return JaxbUtils.newMarshaller(CONTEXT_2);
+        return CONTEXT_2.getMarshaller();
     }
 
 
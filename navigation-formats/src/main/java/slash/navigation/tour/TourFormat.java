@@ -141,7 +141,7 @@ public class TourFormat extends IniFileFormat<TourRoute> {
         return new ArrayList<TourPosition>(Arrays.asList(positionArray));
     }
 
-    boolean isSectionTitle(String line) {
+    protected boolean isSectionTitle(String line) {
         Matcher matcher = SECTION_TITLE_PATTERN.matcher(line);
         return matcher.matches();
     }
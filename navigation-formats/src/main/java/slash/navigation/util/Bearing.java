@@ -81,6 +81,11 @@ public class Bearing {
      */
     private static final double deg = Math.toDegrees(1.0);
 
+    /**
+     * quantities computed by {@link #calculate}
+     */
+    static final int DISTANCE = 0, AZIMUTH = 1, BACK_AZIMUTH = 2;
+
     public Bearing(double azimuth, double backazimuth, double distance) {
         this.azimuth = azimuth;
         this.backazimuth = backazimuth;
@@ -143,8 +148,27 @@ public class Bearing {
      */
     public static Bearing calculateBearing(double longitude1, double latitude1,
                                            double longitude2, double latitude2) {
+        double[] result = new double[3];
+        inverse(longitude1, latitude1, longitude2, latitude2, DISTANCE, result);
+        return new Bearing(result[AZIMUTH], result[BACK_AZIMUTH], result[DISTANCE]);
+    }
+
+    /**
+     * Computes only one of the quantities of {@link #calculateBearing} without
+     * allocating a Bearing.
+     *
+     * @param quantity one of DISTANCE, AZIMUTH or BACK_AZIMUTH
+     * @return the distance in meters or the azimuth or back azimuth in degrees
+     */
+    static double calculate(double longitude1, double latitude1,
+                            double longitude2, double latitude2, int quantity) {
+        return inverse(longitude1, latitude1, longitude2, latitude2, quantity, null);
+    }
+
+    private static double inverse(double longitude1, double latitude1,
+                                  double longitude2, double latitude2, int quantity, double[] result) {
         if ((latitude1 == latitude2) && (longitude1 == longitude2))
-            return new Bearing(0, 0, 0);
+            return found(0, 0, 0, quantity, result);
 
         // Algorithm from National Geodetic Survey, FORTRAN program "inverse,"
         // subroutine "INVER1," by L. PFEIFER and JOHN G. GERGEN.
@@ -211,12 +235,14 @@ public class Bearing {
             X = ((E * CY * C + CZ) * SY * C + Y) * SA;
             X = (1. - C) * X * F + GLON2 - GLON1;
             if(count++ > 100000)
-                return new Bearing(0, 0, 0);
+                return found(0, 0, 0, quantity, result);
             //IF(DABS(D-X).GT.EPS) GO TO 100
         } while (Math.abs(D - X) > EPS);
 
-        FAZ = Math.atan2(TU1, TU2);
-        BAZ = Math.atan2(CU1 * SX, BAZ * CX - SU1 * CU2) + Math.PI;
+        if (quantity != DISTANCE || result != null) {
+            FAZ = Math.atan2(TU1, TU2);
+            BAZ = Math.atan2(CU1 * SX, BAZ * CX - SU1 * CU2) + Math.PI;
+        }
         X = Math.sqrt((1. / R / R - 1.) * C2A + 1.) + 1.;
         X = (X - 2.) / X;
         C = 1. - X;
@@ -231,7 +257,23 @@ public class Bearing {
             azimuth += 360.0;  // reset azs from -180 to 180 to 0 to 360
         }
         double backazimuth = BAZ * deg;  // radians to degrees; already in 0 to 360 range
-        return new Bearing(azimuth, backazimuth, Transfer.roundMeterToMillimeterPrecision(S));
+        return found(azimuth, backazimuth, Transfer.roundMeterToMillimeterPrecision(S), quantity, result);
+    }
+
+    private static double found(double azimuth, double backazimuth, double distance, int quantity, double[] result) {
+        if (result != null) {
+            result[AZIMUTH] = azimuth;
+            result[BACK_AZIMUTH] = backazimuth;
+            result[DISTANCE] = distance;
+        }
+        switch (quantity) {
+            case AZIMUTH:
+                return azimuth;
+            case BACK_AZIMUTH:
+                return backazimuth;
+            default:
+                return distance;
+        }
     }
 }
 
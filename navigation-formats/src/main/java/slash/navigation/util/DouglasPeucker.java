@@ -0,0 +1,307 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.Wgs84PositionList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Searches the significant positions with the Douglas-Peucker-Algorithm.
+ * <p/>
+ * The positions are projected once to longitude and latitude in radians and the
+ * distance to the line between the two ends of a range is approximated on the plane
+ * that is scaled with the cosine of their mean latitude. Ranges are processed from an
+ * explicit stack and large tracks distribute independent ranges to all processors.
+ *
+ * @author Christian Pesch
+ */
+
+class DouglasPeucker {
+    private static final double EARTH_RADIUS = 6371000.0;
+    private static final int MAXIMUM_TASK_RANGE = 20000;
+    private static final int MINIMUM_TASK_RANGE = 2000;
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor;
+
+    private final double[] longitudes, latitudes;
+    private final double threshold;
+    private int[] stack = new int[32];
+    private int stackSize;
+    private double mostDistantDistance;
+
+    private DouglasPeucker(double[] longitudes, double[] latitudes, double threshold) {
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+        this.threshold = threshold;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(PROCESSORS, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "DouglasPeucker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * @param threshold the threshold for significance in meter
+     * @return the significant positions with the first and the last position
+     */
+    static BitSet getSignificantPositions(List<? extends BaseNavigationPosition> positions, double threshold) {
+        int size = positions.size();
+        BitSet significant = new BitSet(size);
+        if (size == 0)
+            return significant;
+
+        double[] longitudes = new double[size], latitudes = new double[size];
+        project(positions, longitudes, latitudes);
+        significant.set(0);
+        significant.set(size - 1);
+
+        DouglasPeucker simplification = new DouglasPeucker(longitudes, latitudes, threshold / EARTH_RADIUS);
+        if (PROCESSORS > 1 && size > 2 * MAXIMUM_TASK_RANGE)
+            simplification.simplifyInParallel(0, size - 1, significant);
+        else
+            simplification.simplify(0, size - 1, significant, null, null);
+        return significant;
+    }
+
+    /**
+     * Records for every position between from and to (both exclusive) the largest threshold at
+     * which it is still significant, which is at most the given maximum, and the tree of ranges
+     * that the algorithm splits. Positions that are never significant get 0.
+     *
+     * @param significance receives the thresholds in meter
+     * @param distances    receives for the positions that split a range their distance in meter
+     * @param lefts        receives for the positions that split a range the position that splits
+     *                     the range before them or -1
+     * @param rights       receives for the positions that split a range the position that splits
+     *                     the range after them or -1
+     * @return the position that splits the range from from to to or -1
+     */
+    static int calculateSignificance(double[] longitudes, double[] latitudes, int from, int to, double maximum,
+                                     double[] significance, double[] distances, int[] lefts, int[] rights) {
+        return new DouglasPeucker(longitudes, latitudes, 0.0).calculateSignificance(from, to, maximum,
+                significance, distances, lefts, rights);
+    }
+
+    /**
+     * @return the largest distance in meter of the positions from first (inclusive) to last
+     *         (exclusive) to the line from from to to
+     */
+    static double calculateMaximumDistance(double[] longitudes, double[] latitudes, int from, int to,
+                                           int first, int last) {
+        DouglasPeucker simplification = new DouglasPeucker(longitudes, latitudes, 0.0);
+        int index = simplification.findMostDistantPosition(from, to, first, last);
+        return index != -1 ? simplification.mostDistantDistance * EARTH_RADIUS : 0.0;
+    }
+
+    static void project(List<? extends BaseNavigationPosition> positions, double[] longitudes, double[] latitudes) {
+        Wgs84PositionList columns = positions instanceof Wgs84PositionList ? (Wgs84PositionList) positions : null;
+        double offset = 0.0, previous = Double.NaN;
+        for (int i = 0; i < longitudes.length; i++) {
+            double longitude, latitude;
+            if (columns != null) {
+                boolean hasCoordinates = columns.hasCoordinates(i);
+                longitude = hasCoordinates ? columns.getLongitude(i) : Double.NaN;
+                latitude = hasCoordinates ? columns.getLatitude(i) : Double.NaN;
+            } else {
+                BaseNavigationPosition position = positions.get(i);
+                boolean hasCoordinates = position.hasCoordinates();
+                longitude = hasCoordinates ? position.getLongitude() : Double.NaN;
+                latitude = hasCoordinates ? position.getLatitude() : Double.NaN;
+            }
+
+            // unwrap the longitudes so that tracks crossing the date line stay continuous
+            if (!Double.isNaN(longitude)) {
+                if (!Double.isNaN(previous)) {
+                    double delta = longitude - previous;
+                    if (delta > 180.0)
+                        offset -= 360.0;
+                    else if (delta < -180.0)
+                        offset += 360.0;
+                }
+                previous = longitude;
+            }
+            longitudes[i] = Math.toRadians(longitude + offset);
+            latitudes[i] = Math.toRadians(latitude);
+        }
+    }
+
+    private void push(int from, int to) {
+        if (stackSize + 2 > stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        stack[stackSize++] = from;
+        stack[stackSize++] = to;
+    }
+
+    private int calculateSignificance(int from, int to, double maximum, double[] significance,
+                                      double[] distances, int[] lefts, int[] rights) {
+        // the ranges are stacked with the position that splits their parent range and their maximum
+        int[] parents = new int[stack.length / 2];
+        double[] maximums = new double[stack.length / 2];
+        int result = -1;
+        push(from, to);
+        parents[0] = -1;
+        maximums[0] = maximum;
+        while (stackSize > 0) {
+            int parent = parents[stackSize / 2 - 1];
+            maximum = maximums[stackSize / 2 - 1];
+            to = stack[--stackSize];
+            from = stack[--stackSize];
+
+            int index = to - from < 2 ? -1 : findMostDistantPosition(from, to);
+            if (parent == -1)
+                result = index;
+            else if (parent == to)
+                lefts[parent] = index;
+            else
+                rights[parent] = index;
+            if (index == -1) {
+                Arrays.fill(significance, from + 1, to, 0.0);
+                continue;
+            }
+
+            // a position cannot be significant at a larger threshold than the one of the range it splits
+            double distance = mostDistantDistance * EARTH_RADIUS;
+            double threshold = Math.min(distance, maximum);
+            significance[index] = threshold;
+            distances[index] = distance;
+            push(index, to);
+            push(from, index);
+            if (stackSize / 2 > parents.length) {
+                parents = Arrays.copyOf(parents, stack.length / 2);
+                maximums = Arrays.copyOf(maximums, stack.length / 2);
+            }
+            parents[stackSize / 2 - 2] = index;
+            maximums[stackSize / 2 - 2] = threshold;
+            parents[stackSize / 2 - 1] = index;
+            maximums[stackSize / 2 - 1] = threshold;
+        }
+        return result;
+    }
+
+    private void simplify(int from, int to, BitSet significant,
+                          ExecutorService executor, List<Future<BitSet>> tasks) {
+        push(from, to);
+        while (stackSize > 0) {
+            to = stack[--stackSize];
+            from = stack[--stackSize];
+            int range = to - from;
+            if (range < 2)
+                continue;
+
+            if (executor != null && range <= MAXIMUM_TASK_RANGE && range >= MINIMUM_TASK_RANGE) {
+                tasks.add(executor.submit(new Task(from, to)));
+                continue;
+            }
+
+            int index = findMostDistantPosition(from, to);
+            if (index != -1) {
+                significant.set(index);
+                push(index, to);
+                push(from, index);
+            }
+        }
+    }
+
+    private void simplifyInParallel(int from, int to, BitSet significant) {
+        List<Future<BitSet>> tasks = new ArrayList<Future<BitSet>>();
+        simplify(from, to, significant, getExecutor(), tasks);
+        for (Future<BitSet> task : tasks) {
+            try {
+                significant.or(task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching significant positions", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not search significant positions", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * @return the index of the position between from and to with the largest distance
+     *         to the line from from to to if it exceeds the threshold or -1
+     */
+    private int findMostDistantPosition(int from, int to) {
+        return findMostDistantPosition(from, to, from + 1, to);
+    }
+
+    private int findMostDistantPosition(int from, int to, int first, int last) {
+        double longitudeA = longitudes[from], latitudeA = latitudes[from];
+        double longitudeB = longitudes[to], latitudeB = latitudes[to];
+        double scale = Math.cos((latitudeA + latitudeB) / 2.0);
+        double deltaX = (longitudeB - longitudeA) * scale, deltaY = latitudeB - latitudeA;
+        double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+
+        // compare the squares of the cross products to avoid the division for every position
+        double maximum = threshold * threshold * (lengthSquared > 0.0 ? lengthSquared : 1.0);
+        int maximumIndex = -1;
+        for (int i = first; i < last; i++) {
+            double x = (longitudes[i] - longitudeA) * scale, y = latitudes[i] - latitudeA;
+            double distance;
+            if (lengthSquared > 0.0) {
+                double cross = deltaX * y - deltaY * x;
+                distance = cross * cross;
+            } else
+                distance = x * x + y * y;
+            if (distance > maximum) {
+                maximum = distance;
+                maximumIndex = i;
+            }
+        }
+        if (maximumIndex != -1)
+            mostDistantDistance = Math.sqrt(lengthSquared > 0.0 ? maximum / lengthSquared : maximum);
+        return maximumIndex;
+    }
+
+    private class Task implements Callable<BitSet> {
+        private final int from, to;
+
+        private Task(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public BitSet call() {
+            BitSet significant = new BitSet(to + 1);
+            new DouglasPeucker(longitudes, latitudes, threshold).simplify(from, to, significant, null, null);
+            return significant;
+        }
+    }
+}
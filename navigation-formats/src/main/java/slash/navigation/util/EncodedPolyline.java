@@ -0,0 +1,109 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.Wgs84Position;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes positions with the encoded polyline algorithm of Google Maps which
+ * transfers a position with a few characters instead of its decimal coordinates.
+ *
+ * @author Christian Pesch
+ */
+
+public class EncodedPolyline {
+    private static final double PRECISION = 1.0e5;
+
+    private EncodedPolyline() {
+    }
+
+    /**
+     * Encodes the coordinates of the given positions which all have coordinates.
+     */
+    public static String encode(List<? extends BaseNavigationPosition> positions) {
+        StringBuilder buffer = new StringBuilder(positions.size() * 8);
+        long previousLatitude = 0, previousLongitude = 0;
+        for (BaseNavigationPosition position : positions) {
+            long latitude = Math.round(position.getLatitude() * PRECISION);
+            long longitude = Math.round(position.getLongitude() * PRECISION);
+            encodeSigned(latitude - previousLatitude, buffer);
+            encodeSigned(longitude - previousLongitude, buffer);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Encodes the same zoom level for the given number of positions.
+     */
+    public static String encodeLevels(int count, int level) {
+        StringBuilder buffer = new StringBuilder(count);
+        for (int i = 0; i < count; i++)
+            encodeUnsigned(level, buffer);
+        return buffer.toString();
+    }
+
+    private static void encodeSigned(long value, StringBuilder buffer) {
+        encodeUnsigned(value < 0 ? ~(value << 1) : value << 1, buffer);
+    }
+
+    private static void encodeUnsigned(long value, StringBuilder buffer) {
+        while (value >= 0x20) {
+            buffer.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>= 5;
+        }
+        buffer.append((char) (value + 63));
+    }
+
+    public static List<Wgs84Position> decode(String encoded) {
+        List<Wgs84Position> result = new ArrayList<Wgs84Position>();
+        int index = 0;
+        long latitude = 0, longitude = 0;
+        long[] value = new long[1];
+        while (index < encoded.length()) {
+            index = decodeSigned(encoded, index, value);
+            latitude += value[0];
+            index = decodeSigned(encoded, index, value);
+            longitude += value[0];
+            result.add(new Wgs84Position(longitude / PRECISION, latitude / PRECISION, null, null, null, null));
+        }
+        return result;
+    }
+
+    private static int decodeSigned(String encoded, int index, long[] value) {
+        long result = 0;
+        int shift = 0, character;
+        do {
+            if (index >= encoded.length())
+                throw new IllegalArgumentException("Incomplete encoded polyline " + encoded);
+            character = encoded.charAt(index++) - 63;
+            result |= (long) (character & 0x1f) << shift;
+            shift += 5;
+        } while (character >= 0x20);
+        value[0] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+        return index;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.common.io.Transfer;
+
+/**
+ * Computes distances and azimuths on the WGS-84 ellipsoid without allocating objects.
+ * <p/>
+ * The exact functions solve the inverse problem after Vincenty like {@link Bearing}.
+ * The functions with a maximum error approximate short segments on the tangent plane
+ * with the radii of curvature at the mean latitude and fall back to Vincenty when
+ * the estimated error of the approximation exceeds the given maximum error.
+ *
+ * @author Christian Pesch
+ */
+
+public class Geodesy {
+    private static final double SEMI_MAJOR_AXIS = Bearing.EARTH_RADIUS;
+    private static final double FLATTENING = 1.0 / 298.257223563;
+    private static final double ECCENTRICITY_SQUARED = FLATTENING * (2.0 - FLATTENING);
+    private static final double MAXIMUM_APPROXIMATION_DISTANCE = 20000.0;
+    private static final double APPROXIMATION_ERROR_FACTOR = 0.25 / (SEMI_MAJOR_AXIS * SEMI_MAJOR_AXIS);
+
+    private Geodesy() {
+    }
+
+    /**
+     * Computes the distance between two positions like {@link Bearing#calculateBearing}.
+     *
+     * @return the distance in meters or NaN if a coordinate is NaN
+     */
+    public static double distance(double longitude1, double latitude1, double longitude2, double latitude2) {
+        if (isNaN(longitude1, latitude1, longitude2, latitude2))
+            return Double.NaN;
+        return Bearing.calculate(longitude1, latitude1, longitude2, latitude2, Bearing.DISTANCE);
+    }
+
+    /**
+     * Computes the distance between two positions and approximates it if the
+     * estimated error does not exceed the given maximum error.
+     *
+     * @param maximumError the maximum error in meters
+     * @return the distance in meters or NaN if a coordinate is NaN
+     */
+    public static double distance(double longitude1, double latitude1, double longitude2, double latitude2,
+                                  double maximumError) {
+        if (isNaN(longitude1, latitude1, longitude2, latitude2))
+            return Double.NaN;
+
+        double meanLatitude = Math.toRadians((latitude1 + latitude2) / 2.0);
+        double sinus = Math.sin(meanLatitude);
+        double cosinus = Math.cos(meanLatitude);
+        double w2 = 1.0 - ECCENTRICITY_SQUARED * sinus * sinus;
+        double w = Math.sqrt(w2);
+        double primeVerticalRadius = SEMI_MAJOR_AXIS / w;
+        double meridionalRadius = SEMI_MAJOR_AXIS * (1.0 - ECCENTRICITY_SQUARED) / (w2 * w);
+
+        double deltaLongitude = longitude2 - longitude1;
+        if (deltaLongitude > 180.0)
+            deltaLongitude -= 360.0;
+        else if (deltaLongitude < -180.0)
+            deltaLongitude += 360.0;
+        double north = meridionalRadius * Math.toRadians(latitude2 - latitude1);
+        double east = primeVerticalRadius * cosinus * Math.toRadians(deltaLongitude);
+        double distance = Math.sqrt(north * north + east * east);
+
+        if (distance <= MAXIMUM_APPROXIMATION_DISTANCE &&
+                APPROXIMATION_ERROR_FACTOR * distance * distance * distance <= maximumError * cosinus * cosinus)
+            return Transfer.roundMeterToMillimeterPrecision(distance);
+        return Bearing.calculate(longitude1, latitude1, longitude2, latitude2, Bearing.DISTANCE);
+    }
+
+    /**
+     * Computes the azimuth from the first to the second position.
+     *
+     * @return the azimuth in degrees, 0 = north, clockwise positive or NaN if a coordinate is NaN
+     */
+    public static double azimuth(double longitude1, double latitude1, double longitude2, double latitude2) {
+        if (isNaN(longitude1, latitude1, longitude2, latitude2))
+            return Double.NaN;
+        return Bearing.calculate(longitude1, latitude1, longitude2, latitude2, Bearing.AZIMUTH);
+    }
+
+    /**
+     * Computes the back azimuth from the second to the first position.
+     *
+     * @return the back azimuth in degrees, 0 = north, clockwise positive or NaN if a coordinate is NaN
+     */
+    public static double backAzimuth(double longitude1, double latitude1, double longitude2, double latitude2) {
+        if (isNaN(longitude1, latitude1, longitude2, latitude2))
+            return Double.NaN;
+        return Bearing.calculate(longitude1, latitude1, longitude2, latitude2, Bearing.BACK_AZIMUTH);
+    }
+
+    /**
+     * Computes the distances between all neighbouring positions.
+     *
+     * @param distances receives at index <code>i</code> the distance between the positions at
+     *                  <code>i - 1</code> and <code>i</code>, 0 at index 0 and NaN if a coordinate is NaN
+     */
+    public static void distances(double[] longitudes, double[] latitudes, double[] distances) {
+        distances(longitudes, latitudes, 0, distances.length, distances, 0.0);
+    }
+
+    /**
+     * Computes the distances between the neighbouring positions from the given index
+     * (inclusive) to the given index (exclusive) like {@link #distances(double[], double[], double[])}
+     * and approximates them if the estimated error does not exceed the given maximum error.
+     */
+    public static void distances(double[] longitudes, double[] latitudes, int fromIndex, int toIndex,
+                                 double[] distances, double maximumError) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            if (i == 0)
+                distances[0] = 0.0;
+            else if (maximumError > 0.0)
+                distances[i] = distance(longitudes[i - 1], latitudes[i - 1], longitudes[i], latitudes[i], maximumError);
+            else
+                distances[i] = distance(longitudes[i - 1], latitudes[i - 1], longitudes[i], latitudes[i]);
+        }
+    }
+
+    private static boolean isNaN(double longitude1, double latitude1, double longitude2, double latitude2) {
+        return Double.isNaN(longitude1) || Double.isNaN(latitude1) || Double.isNaN(longitude2) || Double.isNaN(latitude2);
+    }
+}
@@ -0,0 +1,426 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.navigation.base.BaseNavigationPosition;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A grid over the positions and the segments between consecutive positions
+ * of a list that answers range queries and searches for the nearest position
+ * or segment without visiting every position.
+ * <p/>
+ * Updating the index with a modified list only reindexes the positions
+ * between the first and the last modification.
+ *
+ * @author Christian Pesch
+ */
+
+public class PositionIndex {
+    private static final double MAXIMUM_INCREMENTAL_FRACTION = 0.25;
+    private static final int POSITIONS_PER_CELL = 8;
+    private static final int MAXIMUM_SEGMENT_CELLS = 16;
+
+    private BaseNavigationPosition[] positions = new BaseNavigationPosition[0];
+    private double[] longitudes = new double[0], latitudes = new double[0];
+    private double cellSize = 1.0;
+    private final Map<Long, Cell> positionCells = new HashMap<Long, Cell>();
+    private final Map<Long, Cell> segmentCells = new HashMap<Long, Cell>();
+    // segments that would cover too many cells are searched linearly
+    private final Cell largeSegments = new Cell();
+    private int minimumX, maximumX, minimumY, maximumY;
+
+    public synchronized int size() {
+        return positions.length;
+    }
+
+    public synchronized BaseNavigationPosition getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Brings the index up to date with the given positions which are compared
+     * by identity and coordinates with the ones of the previous update.
+     */
+    public synchronized void update(List<? extends BaseNavigationPosition> positions) {
+        int size = positions.size();
+        BaseNavigationPosition[] newPositions = positions.toArray(new BaseNavigationPosition[size]);
+        double[] newLongitudes = new double[size], newLatitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            BaseNavigationPosition position = newPositions[i];
+            boolean hasCoordinates = position.hasCoordinates();
+            newLongitudes[i] = hasCoordinates ? position.getLongitude() : Double.NaN;
+            newLatitudes[i] = hasCoordinates ? position.getLatitude() : Double.NaN;
+        }
+
+        int previousSize = this.positions.length;
+        int minimumSize = Math.min(size, previousSize);
+        int prefix = 0;
+        while (prefix < minimumSize && isSame(prefix, newPositions, newLongitudes, newLatitudes, prefix))
+            prefix++;
+        if (prefix == size && size == previousSize)
+            return;
+        int suffix = 0;
+        while (suffix < minimumSize - prefix &&
+                isSame(previousSize - 1 - suffix, newPositions, newLongitudes, newLatitudes, size - 1 - suffix))
+            suffix++;
+
+        if (size - prefix - suffix > size * MAXIMUM_INCREMENTAL_FRACTION)
+            index(newPositions, newLongitudes, newLatitudes);
+        else
+            index(prefix, suffix, newPositions, newLongitudes, newLatitudes);
+    }
+
+    private boolean isSame(int index, BaseNavigationPosition[] newPositions,
+                           double[] newLongitudes, double[] newLatitudes, int newIndex) {
+        return positions[index] == newPositions[newIndex] &&
+                Double.compare(longitudes[index], newLongitudes[newIndex]) == 0 &&
+                Double.compare(latitudes[index], newLatitudes[newIndex]) == 0;
+    }
+
+    private void index(BaseNavigationPosition[] newPositions, double[] newLongitudes, double[] newLatitudes) {
+        positions = newPositions;
+        longitudes = newLongitudes;
+        latitudes = newLatitudes;
+        positionCells.clear();
+        segmentCells.clear();
+        largeSegments.clear();
+        minimumX = minimumY = Integer.MAX_VALUE;
+        maximumX = maximumY = Integer.MIN_VALUE;
+
+        double west = Double.POSITIVE_INFINITY, east = Double.NEGATIVE_INFINITY;
+        double south = Double.POSITIVE_INFINITY, north = Double.NEGATIVE_INFINITY;
+        int count = 0;
+        for (int i = 0; i < positions.length; i++) {
+            if (Double.isNaN(longitudes[i]))
+                continue;
+            west = Math.min(west, longitudes[i]);
+            east = Math.max(east, longitudes[i]);
+            south = Math.min(south, latitudes[i]);
+            north = Math.max(north, latitudes[i]);
+            count++;
+        }
+        cellSize = calculateCellSize(east - west, north - south, count);
+
+        for (int i = 0; i < positions.length; i++)
+            addPosition(i);
+        for (int i = 0; i < positions.length - 1; i++)
+            addSegment(i);
+    }
+
+    private static double calculateCellSize(double width, double height, int count) {
+        int cells = Math.max(1, count / POSITIONS_PER_CELL);
+        double cellSize = width > 0.0 && height > 0.0 ? Math.sqrt(width * height / cells) : Math.max(width, height) / cells;
+        return cellSize > 0.0 ? Math.max(cellSize, 0.0000001) : 1.0;
+    }
+
+    private void index(int prefix, int suffix, BaseNavigationPosition[] newPositions,
+                       double[] newLongitudes, double[] newLatitudes) {
+        int previousSize = positions.length, size = newPositions.length, delta = size - previousSize;
+        // the modified positions are from prefix to changedTo (exclusive) before and to size - suffix after
+        int changedTo = previousSize - suffix;
+
+        for (int i = prefix; i < changedTo; i++)
+            removePosition(i);
+        for (int i = Math.max(prefix - 1, 0); i < Math.min(changedTo, previousSize - 1); i++)
+            removeSegment(i);
+        if (delta != 0) {
+            for (Cell cell : positionCells.values())
+                cell.shift(changedTo, delta);
+            for (Cell cell : segmentCells.values())
+                cell.shift(changedTo, delta);
+            largeSegments.shift(changedTo, delta);
+        }
+
+        positions = newPositions;
+        longitudes = newLongitudes;
+        latitudes = newLatitudes;
+        for (int i = prefix; i < size - suffix; i++)
+            addPosition(i);
+        for (int i = Math.max(prefix - 1, 0); i < Math.min(size - suffix, size - 1); i++)
+            addSegment(i);
+    }
+
+    private int getCell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long getKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private void extend(int x, int y) {
+        minimumX = Math.min(minimumX, x);
+        maximumX = Math.max(maximumX, x);
+        minimumY = Math.min(minimumY, y);
+        maximumY = Math.max(maximumY, y);
+    }
+
+    private void addPosition(int index) {
+        if (Double.isNaN(longitudes[index]))
+            return;
+        int x = getCell(longitudes[index]), y = getCell(latitudes[index]);
+        long key = getKey(x, y);
+        Cell cell = positionCells.get(key);
+        if (cell == null) {
+            cell = new Cell();
+            positionCells.put(key, cell);
+        }
+        cell.add(index);
+        extend(x, y);
+    }
+
+    private void removePosition(int index) {
+        if (Double.isNaN(longitudes[index]))
+            return;
+        long key = getKey(getCell(longitudes[index]), getCell(latitudes[index]));
+        Cell cell = positionCells.get(key);
+        if (cell != null && cell.remove(index) && cell.size == 0)
+            positionCells.remove(key);
+    }
+
+    private void addSegment(int index) {
+        if (Double.isNaN(longitudes[index]) || Double.isNaN(longitudes[index + 1]))
+            return;
+        int fromX = getCell(Math.min(longitudes[index], longitudes[index + 1]));
+        int toX = getCell(Math.max(longitudes[index], longitudes[index + 1]));
+        int fromY = getCell(Math.min(latitudes[index], latitudes[index + 1]));
+        int toY = getCell(Math.max(latitudes[index], latitudes[index + 1]));
+        if (toX - fromX >= MAXIMUM_SEGMENT_CELLS || toY - fromY >= MAXIMUM_SEGMENT_CELLS) {
+            largeSegments.add(index);
+            return;
+        }
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                long key = getKey(x, y);
+                Cell cell = segmentCells.get(key);
+                if (cell == null) {
+                    cell = new Cell();
+                    segmentCells.put(key, cell);
+                }
+                cell.add(index);
+            }
+        }
+        extend(fromX, fromY);
+        extend(toX, toY);
+    }
+
+    private void removeSegment(int index) {
+        if (Double.isNaN(longitudes[index]) || Double.isNaN(longitudes[index + 1]))
+            return;
+        if (largeSegments.remove(index))
+            return;
+        int fromX = getCell(Math.min(longitudes[index], longitudes[index + 1]));
+        int toX = getCell(Math.max(longitudes[index], longitudes[index + 1]));
+        int fromY = getCell(Math.min(latitudes[index], latitudes[index + 1]));
+        int toY = getCell(Math.max(latitudes[index], latitudes[index + 1]));
+        for (int x = fromX; x <= toX; x++) {
+            for (int y = fromY; y <= toY; y++) {
+                long key = getKey(x, y);
+                Cell cell = segmentCells.get(key);
+                if (cell != null && cell.remove(index) && cell.size == 0)
+                    segmentCells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the given position which is found by identity or -1.
+     */
+    public synchronized int getIndex(BaseNavigationPosition position) {
+        if (!position.hasCoordinates())
+            return -1;
+        Cell cell = positionCells.get(getKey(getCell(position.getLongitude()), getCell(position.getLatitude())));
+        if (cell != null) {
+            for (int i = 0; i < cell.size; i++) {
+                int index = cell.indices[i];
+                if (positions[index] == position)
+                    return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the positions within the bounding box like
+     * {@link Positions#contains(BaseNavigationPosition, BaseNavigationPosition, BaseNavigationPosition)}.
+     */
+    public synchronized BitSet getPositionsWithin(BaseNavigationPosition northEastCorner,
+                                                  BaseNavigationPosition southWestCorner) {
+        double west = southWestCorner.getLongitude(), east = northEastCorner.getLongitude();
+        double south = southWestCorner.getLatitude(), north = northEastCorner.getLatitude();
+        BitSet result = new BitSet(positions.length);
+        int fromX = Math.max(getCell(west), minimumX), toX = Math.min(getCell(east), maximumX);
+        int fromY = Math.max(getCell(south), minimumY), toY = Math.min(getCell(north), maximumY);
+        if (fromX > toX || fromY > toY)
+            return result;
+
+        if ((long) (toX - fromX + 1) * (toY - fromY + 1) > positionCells.size()) {
+            for (Cell cell : positionCells.values())
+                addPositionsWithin(cell, west, east, south, north, result);
+        } else {
+            for (int x = fromX; x <= toX; x++) {
+                for (int y = fromY; y <= toY; y++) {
+                    Cell cell = positionCells.get(getKey(x, y));
+                    if (cell != null)
+                        addPositionsWithin(cell, west, east, south, north, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addPositionsWithin(Cell cell, double west, double east, double south, double north, BitSet result) {
+        for (int i = 0; i < cell.size; i++) {
+            int index = cell.indices[i];
+            double longitude = longitudes[index], latitude = latitudes[index];
+            if (longitude > west && longitude < east && latitude > south && latitude < north)
+                result.set(index);
+        }
+    }
+
+    /**
+     * Returns the index of the position that is nearest to the given coordinates or -1.
+     */
+    public synchronized int getNearestPosition(double longitude, double latitude) {
+        return new Search(longitude, latitude, false).find(positionCells);
+    }
+
+    /**
+     * Returns the index of the first position of the segment that is nearest to the
+     * given coordinates or -1.
+     */
+    public synchronized int getNearestSegment(double longitude, double latitude) {
+        Search search = new Search(longitude, latitude, true);
+        search.visit(largeSegments);
+        return search.find(segmentCells);
+    }
+
+    private class Search {
+        private final double longitude, latitude, scale;
+        private final boolean segments;
+        private int nearest = -1;
+        private double nearestDistance = Double.POSITIVE_INFINITY;
+
+        private Search(double longitude, double latitude, boolean segments) {
+            this.longitude = longitude;
+            this.latitude = latitude;
+            this.segments = segments;
+            // distances are compared in degrees of latitude
+            this.scale = Math.cos(Math.toRadians(latitude));
+        }
+
+        private int find(Map<Long, Cell> cells) {
+            if (cells.isEmpty())
+                return nearest;
+            int centerX = getCell(longitude), centerY = getCell(latitude);
+            long rings = Math.max(Math.max((long) centerX - minimumX, (long) maximumX - centerX),
+                    Math.max((long) centerY - minimumY, (long) maximumY - centerY));
+            for (int ring = 0; ring <= rings; ring++) {
+                // the cells of the ring are at least ring - 1 cells away
+                double minimumDistance = Math.max(ring - 1, 0) * cellSize * scale;
+                if (minimumDistance * minimumDistance > nearestDistance)
+                    break;
+
+                if ((2L * ring + 1) * (2L * ring + 1) > cells.size()) {
+                    for (Cell cell : cells.values())
+                        visit(cell);
+                    break;
+                }
+                for (int x = centerX - ring; x <= centerX + ring; x++) {
+                    visit(cells.get(getKey(x, centerY - ring)));
+                    if (ring > 0)
+                        visit(cells.get(getKey(x, centerY + ring)));
+                }
+                for (int y = centerY - ring + 1; y < centerY + ring; y++) {
+                    visit(cells.get(getKey(centerX - ring, y)));
+                    visit(cells.get(getKey(centerX + ring, y)));
+                }
+            }
+            return nearest;
+        }
+
+        private void visit(Cell cell) {
+            if (cell == null)
+                return;
+            for (int i = 0; i < cell.size; i++) {
+                int index = cell.indices[i];
+                double distance = segments ? getSegmentDistance(index) : getDistance(index);
+                if (distance < nearestDistance || distance == nearestDistance && index < nearest) {
+                    nearestDistance = distance;
+                    nearest = index;
+                }
+            }
+        }
+
+        private double getDistance(int index) {
+            double x = (longitudes[index] - longitude) * scale, y = latitudes[index] - latitude;
+            return x * x + y * y;
+        }
+
+        private double getSegmentDistance(int index) {
+            double fromX = (longitudes[index] - longitude) * scale, fromY = latitudes[index] - latitude;
+            double toX = (longitudes[index + 1] - longitude) * scale, toY = latitudes[index + 1] - latitude;
+            double deltaX = toX - fromX, deltaY = toY - fromY;
+            double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+            double fraction = lengthSquared > 0.0 ? -(fromX * deltaX + fromY * deltaY) / lengthSquared : 0.0;
+            fraction = Math.max(0.0, Math.min(1.0, fraction));
+            double x = fromX + fraction * deltaX, y = fromY + fraction * deltaY;
+            return x * x + y * y;
+        }
+    }
+
+    private static class Cell {
+        private int[] indices = new int[4];
+        private int size;
+
+        private void add(int index) {
+            if (size == indices.length)
+                indices = Arrays.copyOf(indices, size * 2);
+            indices[size++] = index;
+        }
+
+        private boolean remove(int index) {
+            for (int i = 0; i < size; i++) {
+                if (indices[i] == index) {
+                    indices[i] = indices[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void shift(int from, int delta) {
+            for (int i = 0; i < size; i++)
+                if (indices[i] >= from)
+                    indices[i] += delta;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+}
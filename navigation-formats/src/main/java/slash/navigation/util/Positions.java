@@ -25,7 +25,7 @@ import slash.common.io.Transfer;
 import slash.navigation.base.BaseNavigationPosition;
 import slash.navigation.base.Wgs84Position;
 
-import java.util.Calendar;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -37,36 +37,6 @@ import java.util.List;
 public class Positions {
     private static final double DIV_BY_ZERO_AVOIDANCE_OFFSET = 0.000000000001;
 
-    private static int[] douglasPeuckerSimplify(List<? extends BaseNavigationPosition> positions, int from, int to, double threshold) {
-        // find the point with the maximum distance
-        BaseNavigationPosition pointA = positions.get(from);
-        BaseNavigationPosition pointB = positions.get(to);
-        int maximumDistanceIndex = -1;
-        double maximumDistance = 0.0;
-        for (int i = from + 1; i < to; i++) {
-            BaseNavigationPosition position = positions.get(i);
-            if (position.hasCoordinates()) {
-                double distance = Math.abs(position.calculateOrthogonalDistance(pointA, pointB));
-                if (distance > maximumDistance) {
-                    maximumDistance = distance;
-                    maximumDistanceIndex = i;
-                }
-            }
-        }
-
-        // if maximum distance is greater than threshold, recursively simplify
-        if ((maximumDistanceIndex != -1) && (maximumDistance > threshold)) {
-            int[] res1 = douglasPeuckerSimplify(positions, from, maximumDistanceIndex, threshold);
-            int[] res2 = douglasPeuckerSimplify(positions, maximumDistanceIndex, to, threshold);
-
-            int[] result = new int[res1.length - 1 + res2.length];
-            System.arraycopy(res1, 0, result, 0, res1.length - 1);
-            System.arraycopy(res2, 0, result, res1.length - 1, res2.length);
-            return result;
-        } else
-            return new int[]{from, to};
-    }
-
     /**
      * Search the significant positions with the Douglas-Peucker-Algorithm.
      * <p/>
@@ -77,7 +47,23 @@ public class Positions {
      * @return an array of indices to the original list of positions with the significant positions
      */
     public static int[] getSignificantPositions(List<? extends BaseNavigationPosition> positions, double threshold) {
-        return douglasPeuckerSimplify(positions, 0, positions.size() - 1, threshold);
+        BitSet significant = getSignificantPositionSet(positions, threshold);
+        int[] result = new int[significant.cardinality()];
+        int index = 0;
+        for (int i = significant.nextSetBit(0); i >= 0; i = significant.nextSetBit(i + 1))
+            result[index++] = i;
+        return result;
+    }
+
+    /**
+     * Search the significant positions with the Douglas-Peucker-Algorithm.
+     *
+     * @param positions the original list of positions
+     * @param threshold determines the threshold for significance in meter
+     * @return the set of indices to the original list of positions with the significant positions
+     */
+    public static BitSet getSignificantPositionSet(List<? extends BaseNavigationPosition> positions, double threshold) {
+        return DouglasPeucker.getSignificantPositions(positions, threshold);
     }
 
     public static CompactCalendar interpolateTime(BaseNavigationPosition position, BaseNavigationPosition previous, BaseNavigationPosition beforePrevious) {
@@ -116,7 +102,7 @@ public class Positions {
 
     public static Wgs84Position northEast(List<? extends BaseNavigationPosition> positions) {
         double minimumLongitude = 180.0, minimumLatitude = 180.0;
-        Calendar minimumTime = null;
+        CompactCalendar minimumTime = null;
         for (BaseNavigationPosition position : positions) {
             Double longitude = position.getLongitude();
             if (longitude == null)
@@ -131,17 +117,15 @@ public class Positions {
             CompactCalendar time = position.getTime();
             if (time == null)
                 continue;
-            Calendar calendar = time.getCalendar();
-            if (minimumTime == null || calendar.before(minimumTime))
-                minimumTime = calendar;
+            if (minimumTime == null || time.before(minimumTime))
+                minimumTime = time;
         }
-        return new Wgs84Position(minimumLongitude, minimumLatitude, null, null,
-                minimumTime != null ? CompactCalendar.fromCalendar(minimumTime) : null, null);
+        return new Wgs84Position(minimumLongitude, minimumLatitude, null, null, minimumTime, null);
     }
 
     public static Wgs84Position southWest(List<? extends BaseNavigationPosition> positions) {
         double maximumLongitude = -180.0, maximumLatitude = -180.0;
-        Calendar maximumTime = null;
+        CompactCalendar maximumTime = null;
         for (BaseNavigationPosition position : positions) {
             Double longitude = position.getLongitude();
             if (longitude == null)
@@ -156,12 +140,10 @@ public class Positions {
             CompactCalendar time = position.getTime();
             if (time == null)
                 continue;
-            Calendar calendar = time.getCalendar();
-            if (maximumTime == null || calendar.after(maximumTime))
-                maximumTime = calendar;
+            if (maximumTime == null || time.after(maximumTime))
+                maximumTime = time;
         }
-        return new Wgs84Position(maximumLongitude, maximumLatitude, null, null,
-                maximumTime != null ? CompactCalendar.fromCalendar(maximumTime) : null, null);
+        return new Wgs84Position(maximumLongitude, maximumLatitude, null, null, maximumTime, null);
     }
 
     public static boolean contains(BaseNavigationPosition northEastCorner,
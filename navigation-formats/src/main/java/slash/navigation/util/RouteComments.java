@@ -21,16 +21,15 @@
 package slash.navigation.util;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.common.io.Transfer;
 import slash.navigation.base.BaseNavigationFormat;
 import slash.navigation.base.BaseNavigationPosition;
 import slash.navigation.base.BaseRoute;
 import slash.navigation.base.Wgs84Position;
+import slash.navigation.base.Wgs84PositionList;
 import slash.navigation.itn.TomTomPosition;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -85,11 +84,20 @@ public abstract class RouteComments {
     private static final String POSITION = "Position";
     private static final Pattern POSITION_PATTERN = Pattern.compile("(.*)" + POSITION + ".*(\\d+)(.*)");
 
-    private static String getPositionComment(int index) {
+    public static String getPositionComment(int index) {
         return POSITION + " " + (index + 1);
     }
 
+    public static boolean isMissingComment(String comment) {
+        return comment == null || "(null)".equals(comment);
+    }
+
     public static void commentPositions(List<? extends BaseNavigationPosition> positions) {
+        if (positions instanceof Wgs84PositionList) {
+            ((Wgs84PositionList) positions).commentPositions();
+            return;
+        }
+
         for (int i = 0; i < positions.size(); i++) {
             BaseNavigationPosition position = positions.get(i);
             String original = position.getComment();
@@ -100,17 +108,21 @@ public abstract class RouteComments {
     }
 
     private static String getPositionComment(BaseNavigationPosition position, int index) {
-        if (position.getComment() == null || "(null)".equals(position.getComment())) {
+        return getPositionComment(position.getComment(), index);
+    }
+
+    public static String getPositionComment(String comment, int index) {
+        if (isMissingComment(comment)) {
             return getPositionComment(index);
         } else {
-            Matcher matcher = POSITION_PATTERN.matcher(position.getComment());
+            Matcher matcher = POSITION_PATTERN.matcher(comment);
             if (matcher.matches()) {
                 String prefix = Transfer.trim(matcher.group(1));
                 String postfix = Transfer.trim(matcher.group(3));
                 return (prefix != null ? prefix : "") + getPositionComment(index) + (postfix != null ? postfix : "");
             }
         }
-        return position.getComment();
+        return comment;
     }
 
     private static final Pattern NUMBER_PATTERN = Pattern.compile("(\\d*)(.*)");
@@ -248,12 +260,8 @@ public abstract class RouteComments {
     }
 
 
-    public static final SimpleDateFormat TRIPMASTER_TIME = new SimpleDateFormat("HH:mm:ss");
-    public static final SimpleDateFormat TRIPMASTER_DATE = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
-    static {
-        TRIPMASTER_TIME.setTimeZone(CompactCalendar.UTC);
-        TRIPMASTER_DATE.setTimeZone(CompactCalendar.UTC);
-    }
+    public static final TimestampFormat TRIPMASTER_TIME = new TimestampFormat("HH:mm:ss");
+    public static final TimestampFormat TRIPMASTER_DATE = new TimestampFormat("dd/MM/yyyy HH:mm:ss");
 
     private static final String TIME = "\\d{1,2}:\\d{2}:\\d{2}";
     private static final String DATE = "\\d{2}/\\d{2}/\\d{4}";
@@ -297,10 +305,7 @@ public abstract class RouteComments {
      * = 1000466:4889529 (@365.8m 090314 07:36:52 - 090314 08:02:04)
      */
     private static final String COMMENT_SEPARATOR = "(\\+|-|\\*|=)";
-    private static final SimpleDateFormat LOGPOS_DATE = new SimpleDateFormat("yyMMdd HH:mm:ss");
-    static {
-        LOGPOS_DATE.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat LOGPOS_DATE = new TimestampFormat("yyMMdd HH:mm:ss");
     private static final Pattern LOGPOS_1_PATTERN = Pattern.compile("(" + DATE_WITHOUT_SEPARATOR + " " + TIME + "): " +
             COMMENT_SEPARATOR + " (.+) \\(?@(" + DOUBLE + "|\\?)m \\(?((s=(\\d+) d=(\\d+))?.*)\\)");
     private static final Pattern LOGPOS_2_PATTERN = Pattern.compile("(" + DATE_WITHOUT_SEPARATOR + " " + TIME + "): " +
@@ -314,23 +319,12 @@ public abstract class RouteComments {
             "(" + TTTRACKLOG_REASONS + ") .*");
 
 
-    private static CompactCalendar parse(String string, DateFormat dateFormat) {
-        if (string == null)
-            return null;
-        try {
-            Date parsed = dateFormat.parse(string);
-            return CompactCalendar.fromDate(parsed);
-        } catch (ParseException e) {
-            return null;
-        }
-    }
-
     private static CompactCalendar parseTripmaster14Time(String string) {
-        return parse(string, TRIPMASTER_TIME);
+        return TRIPMASTER_TIME.parse(string);
     }
 
     private static CompactCalendar parseTripmaster18Date(String string) {
-        return parse(string, TRIPMASTER_DATE);
+        return TRIPMASTER_DATE.parse(string);
     }
 
     public static Double parseTripmasterHeading(String string) {
@@ -342,7 +336,7 @@ public abstract class RouteComments {
     }
 
     private static CompactCalendar parseLogposDate(String string) {
-        return parse(string, LOGPOS_DATE);
+        return LOGPOS_DATE.parse(string);
     }
 
     private static CompactCalendar parseTTTracklogTime(String string) {
@@ -356,9 +350,74 @@ public abstract class RouteComments {
         return !Transfer.isEmpty(aDouble) ? aDouble : null;
     }
 
+    static final int TRIPMASTER_14 = 1;
+    static final int TRIPMASTER_SHORT_STARTEND = 1 << 1;
+    static final int TRIPMASTER_SHORT = 1 << 2;
+    static final int TRIPMASTER_LONG = 1 << 3;
+    static final int LOGPOS = 1 << 4;
+    static final int TTTRACKLOG = 1 << 5;
+    static final int ROUTECONVERTER_STARTEND = 1 << 6;
+    static final int ROUTECONVERTER_INTERMEDIATE = 1 << 7;
+    static final int ALL_COMMENTS = (1 << 8) - 1;
+    private static final int MINIMUM_COMMENT_LENGTH = 10;
+
+    /**
+     * Classifies a comment by its length, its first and last characters and the separators
+     * it contains. Returns the groups of comment patterns that may match the comment, which
+     * is a superset of the groups that actually do, or 0 for the common plain text comments.
+     */
+    static int classifyComment(String comment) {
+        int length = comment.length();
+        if (length < MINIMUM_COMMENT_LENGTH || comment.indexOf(':') == -1)
+            return 0;
+
+        char first = comment.charAt(0);
+        char last = comment.charAt(length - 1);
+        boolean startsWithDigit = first >= '0' && first <= '9';
+        boolean hasDash = comment.indexOf(" - ") != -1;
+        boolean hasSpeed = hasDash && comment.indexOf("m/h") != -1;
+        boolean hasDegree = hasSpeed && comment.indexOf(" deg") != -1;
+        boolean startsWithStartOrEnd = first == 'S' || first == 'E' || first == 'F';
+
+        int result = 0;
+        if (hasDegree) {
+            result |= ROUTECONVERTER_INTERMEDIATE;
+            if (startsWithStartOrEnd)
+                result |= ROUTECONVERTER_STARTEND;
+        }
+        if (startsWithDigit) {
+            if (hasDash && last == 'm')
+                result |= TRIPMASTER_SHORT;
+            if (hasSpeed)
+                result |= TRIPMASTER_LONG;
+            if (last == ')')
+                result |= LOGPOS;
+            if (comment.charAt(2) == ':')
+                result |= TTTRACKLOG;
+        } else if (hasDash) {
+            result |= TRIPMASTER_14;
+            if (startsWithStartOrEnd && last == 'm')
+                result |= TRIPMASTER_SHORT_STARTEND;
+        }
+        return result;
+    }
+
+    private static Matcher match(Pattern pattern, String comment, boolean candidate) {
+        if (!candidate)
+            return null;
+        Matcher matcher = pattern.matcher(comment);
+        return matcher.matches() ? matcher : null;
+    }
+
     public static void parseComment(BaseNavigationPosition position, String comment) {
-        Matcher matcher = TRIPMASTER_14_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        int candidates = classifyComment(comment);
+        if (candidates != 0)
+            parseComment(position, comment, candidates);
+    }
+
+    static void parseComment(BaseNavigationPosition position, String comment, int candidates) {
+        Matcher matcher = match(TRIPMASTER_14_PATTERN, comment, (candidates & TRIPMASTER_14) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster14Time(matcher.group(2)));
             position.setElevation(parseDouble(matcher.group(3)));
 
@@ -377,8 +436,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_18_SHORT_STARTEND_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_18_SHORT_STARTEND_PATTERN, comment, (candidates & TRIPMASTER_SHORT_STARTEND) != 0);
+        if (matcher != null) {
             String dateStr = Transfer.trim(matcher.group(4));
             String timeStr = Transfer.trim(matcher.group(5));
             position.setTime(parseTripmaster18Date(dateStr + " " + timeStr));
@@ -398,8 +457,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_18_SHORT_WAYPOINT_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_18_SHORT_WAYPOINT_PATTERN, comment, (candidates & TRIPMASTER_SHORT) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster14Time(matcher.group(1)));
             position.setElevation(parseDouble(matcher.group(2)));
 
@@ -411,8 +470,8 @@ public abstract class RouteComments {
 
         }
 
-        matcher = TRIPMASTER_25_SHORT_WAYPOINT_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_25_SHORT_WAYPOINT_PATTERN, comment, (candidates & TRIPMASTER_SHORT) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster14Time(Transfer.trim(matcher.group(1))));
             position.setElevation(parseDouble(matcher.group(3)));
 
@@ -431,8 +490,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_25_SHORT_STARTEND_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_25_SHORT_STARTEND_PATTERN, comment, (candidates & TRIPMASTER_SHORT) != 0);
+        if (matcher != null) {
             String dateStr = Transfer.trim(matcher.group(4));
             String timeStr = Transfer.trim(matcher.group(5));
             position.setTime(parseTripmaster18Date(dateStr + " " + timeStr));
@@ -446,8 +505,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_MIDDLE_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_MIDDLE_PATTERN, comment, (candidates & TRIPMASTER_SHORT) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster14Time(Transfer.trim(matcher.group(1))));
             position.setElevation(parseDouble(matcher.group(4)));
 
@@ -464,8 +523,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_LONG_NO_REASON_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_LONG_NO_REASON_PATTERN, comment, (candidates & TRIPMASTER_LONG) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster14Time(Transfer.trim(matcher.group(1))));
             position.setSpeed(parseDouble(matcher.group(6)));
             position.setElevation(parseDouble(matcher.group(3)));
@@ -480,8 +539,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TRIPMASTER_LONG_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TRIPMASTER_LONG_PATTERN, comment, (candidates & TRIPMASTER_LONG) != 0);
+        if (matcher != null) {
             position.setTime(parseTripmaster18Date(matcher.group(3)));
             if (position.getTime() == null)
                 position.setTime(parseTripmaster14Time(matcher.group(1)));
@@ -501,8 +560,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = LOGPOS_2_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(LOGPOS_2_PATTERN, comment, (candidates & LOGPOS) != 0);
+        if (matcher != null) {
             position.setTime(parseLogposDate(matcher.group(1)));
             position.setSpeed(parseDouble(matcher.group(5)));
 
@@ -514,8 +573,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = LOGPOS_1_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(LOGPOS_1_PATTERN, comment, (candidates & LOGPOS) != 0);
+        if (matcher != null) {
             position.setTime(parseLogposDate(matcher.group(1)));
             Double elevation;
             try {
@@ -534,8 +593,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = TTTRACKLOG_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(TTTRACKLOG_PATTERN, comment, (candidates & TTTRACKLOG) != 0);
+        if (matcher != null) {
             position.setTime(parseTTTracklogTime(matcher.group(1)));
             position.setSpeed(parseDouble(matcher.group(5)));
             Double elevation = parseDouble(matcher.group(6));
@@ -548,8 +607,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = ROUTECONVERTER_STARTEND_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(ROUTECONVERTER_STARTEND_PATTERN, comment, (candidates & ROUTECONVERTER_STARTEND) != 0);
+        if (matcher != null) {
             String dateStr = Transfer.trim(matcher.group(4));
             String timeStr = Transfer.trim(matcher.group(5));
             position.setTime(parseTripmaster18Date(dateStr + " " + timeStr));
@@ -566,8 +625,8 @@ public abstract class RouteComments {
             }
         }
 
-        matcher = ROUTECONVERTER_INTERMEDIATE_PATTERN.matcher(comment);
-        if (matcher.matches()) {
+        matcher = match(ROUTECONVERTER_INTERMEDIATE_PATTERN, comment, (candidates & ROUTECONVERTER_INTERMEDIATE) != 0);
+        if (matcher != null) {
             String timeStr = Transfer.trim(matcher.group(2));
             position.setTime(parseTripmaster14Time(timeStr));
             position.setElevation(parseDouble(matcher.group(3)));
@@ -0,0 +1,182 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.navigation.base.BaseNavigationPosition;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Records for every position of a list the largest threshold at which the
+ * Douglas-Peucker-Algorithm still finds it significant, so that the significant
+ * positions for any threshold are found with a single pass over the list.
+ * <p/>
+ * The index keeps the tree of ranges that the algorithm splits. Updating it with a
+ * modified list recomputes only the smallest range around the modification whose
+ * enclosing ranges are still split by the same positions.
+ *
+ * @author Christian Pesch
+ */
+
+public class SignificanceIndex {
+    private static final double MAXIMUM_INCREMENTAL_FRACTION = 0.25;
+
+    private BaseNavigationPosition[] positions = new BaseNavigationPosition[0];
+    private double[] longitudes = new double[0], latitudes = new double[0];
+    private double[] significance = new double[0], distances = new double[0];
+    private int[] lefts = new int[0], rights = new int[0];
+    private int root = -1;
+
+    public synchronized int size() {
+        return positions.length;
+    }
+
+    /**
+     * Brings the index up to date with the given positions which are compared
+     * by identity and coordinates with the ones of the previous update.
+     */
+    public synchronized void update(List<? extends BaseNavigationPosition> positions) {
+        int size = positions.size();
+        BaseNavigationPosition[] newPositions = positions.toArray(new BaseNavigationPosition[size]);
+        double[] newLongitudes = new double[size], newLatitudes = new double[size];
+        DouglasPeucker.project(positions, newLongitudes, newLatitudes);
+
+        int previousSize = this.positions.length;
+        int minimumSize = Math.min(size, previousSize);
+        int prefix = 0;
+        while (prefix < minimumSize && isSame(prefix, newPositions, newLongitudes, newLatitudes, prefix))
+            prefix++;
+        if (prefix == size && size == previousSize)
+            return;
+        int suffix = 0;
+        while (suffix < minimumSize - prefix &&
+                isSame(previousSize - 1 - suffix, newPositions, newLongitudes, newLatitudes, size - 1 - suffix))
+            suffix++;
+
+        if (prefix == 0 || suffix == 0 || size - prefix - suffix > size * MAXIMUM_INCREMENTAL_FRACTION)
+            calculate(newLongitudes, newLatitudes);
+        else
+            calculate(prefix, suffix, newLongitudes, newLatitudes);
+        this.positions = newPositions;
+        this.longitudes = newLongitudes;
+        this.latitudes = newLatitudes;
+    }
+
+    private boolean isSame(int index, BaseNavigationPosition[] newPositions,
+                           double[] newLongitudes, double[] newLatitudes, int newIndex) {
+        return positions[index] == newPositions[newIndex] &&
+                Double.compare(longitudes[index], newLongitudes[newIndex]) == 0 &&
+                Double.compare(latitudes[index], newLatitudes[newIndex]) == 0;
+    }
+
+    private void allocate(int size) {
+        significance = new double[size];
+        distances = new double[size];
+        lefts = new int[size];
+        rights = new int[size];
+        Arrays.fill(lefts, -1);
+        Arrays.fill(rights, -1);
+    }
+
+    private void calculate(double[] newLongitudes, double[] newLatitudes) {
+        int size = newLongitudes.length;
+        allocate(size);
+        root = -1;
+        if (size == 0)
+            return;
+        significance[0] = Double.POSITIVE_INFINITY;
+        significance[size - 1] = Double.POSITIVE_INFINITY;
+        if (size > 1)
+            root = DouglasPeucker.calculateSignificance(newLongitudes, newLatitudes, 0, size - 1,
+                Double.POSITIVE_INFINITY, significance, distances, lefts, rights);
+    }
+
+    private void calculate(int prefix, int suffix, double[] newLongitudes, double[] newLatitudes) {
+        int previousSize = significance.length, size = newLongitudes.length, delta = size - previousSize;
+        // the modified positions are from prefix to changedTo (exclusive) before and to size - suffix after
+        int changedTo = previousSize - suffix;
+
+        // descend to the smallest range that contains the modification as long as
+        // the modified positions do not change the position that splits a range
+        int from = 0, to = previousSize - 1, split = root, parent = -1;
+        while (split != -1 && (split < prefix || split >= changedTo) &&
+                DouglasPeucker.calculateMaximumDistance(newLongitudes, newLatitudes, from, to + delta,
+                        prefix, size - suffix) < distances[split]) {
+            parent = split;
+            if (split >= changedTo) {
+                to = split;
+                split = lefts[split];
+            } else {
+                from = split;
+                split = rights[split];
+            }
+        }
+
+        double[] previousSignificance = significance, previousDistances = distances;
+        int[] previousLefts = lefts, previousRights = rights;
+        allocate(size);
+        for (int i = 0; i <= from; i++)
+            copy(previousSignificance, previousDistances, previousLefts, previousRights, i, i, prefix, changedTo, delta);
+        for (int i = to; i < previousSize; i++)
+            copy(previousSignificance, previousDistances, previousLefts, previousRights, i, i + delta, prefix, changedTo, delta);
+
+        int newSplit = DouglasPeucker.calculateSignificance(newLongitudes, newLatitudes, from, to + delta,
+                parent != -1 ? previousSignificance[parent] : Double.POSITIVE_INFINITY,
+                significance, distances, lefts, rights);
+        if (parent == -1)
+            root = newSplit;
+        else {
+            root = shift(root, prefix, changedTo, delta);
+            if (parent == to)
+                lefts[parent + delta] = newSplit;
+            else
+                rights[parent] = newSplit;
+        }
+    }
+
+    private void copy(double[] previousSignificance, double[] previousDistances, int[] previousLefts, int[] previousRights,
+                      int index, int newIndex, int prefix, int changedTo, int delta) {
+        significance[newIndex] = previousSignificance[index];
+        distances[newIndex] = previousDistances[index];
+        lefts[newIndex] = shift(previousLefts[index], prefix, changedTo, delta);
+        rights[newIndex] = shift(previousRights[index], prefix, changedTo, delta);
+    }
+
+    private static int shift(int index, int prefix, int changedTo, int delta) {
+        return index >= changedTo ? index + delta : index < prefix ? index : -1;
+    }
+
+    /**
+     * Returns the positions that are significant at the given threshold like
+     * {@link Positions#getSignificantPositionSet(List, double)}.
+     *
+     * @param threshold determines the threshold for significance in meter
+     */
+    public synchronized BitSet getSignificantPositions(double threshold) {
+        BitSet result = new BitSet(significance.length);
+        for (int i = 0; i < significance.length; i++)
+            if (significance[i] > threshold)
+                result.set(i);
+        return result;
+    }
+}
@@ -21,12 +21,12 @@
 package slash.navigation.wbt;
 
 import slash.common.io.CompactCalendar;
+import slash.common.io.TimestampFormat;
 import slash.navigation.base.*;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
@@ -38,10 +38,7 @@ import java.util.List;
  */
 
 public abstract class WintecWbt201Format extends SimpleFormat<Wgs84Route> {
-    private static final SimpleDateFormat TRACK_NAME_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    static {
-        TRACK_NAME_DATE_FORMAT.setTimeZone(CompactCalendar.UTC);
-    }
+    private static final TimestampFormat TRACK_NAME_DATE_FORMAT = new TimestampFormat("yyyy-MM-dd HH:mm:ss");
 
     public String getName() {
         return "Wintec WBT-201 (*" + getExtension() + ")";
@@ -83,6 +80,16 @@ public abstract class WintecWbt201Format extends SimpleFormat<Wgs84Route> {
 
     protected abstract boolean checkFormatDescriptor(ByteBuffer sourceHeader) throws IOException;
 
+    public Recognition recognize(FileHead head) {
+        if (head.getLength() < getHeaderSize())
+            return head.isComplete() ? Recognition.Mismatch : Recognition.Possible;
+        try {
+            return checkFormatDescriptor(head.getBytes(getHeaderSize())) ? Recognition.Match : Recognition.Mismatch;
+        } catch (IOException e) {
+            return Recognition.Possible;
+        }
+    }
+
     protected abstract List<Wgs84Route> read(ByteBuffer source) throws IOException;
 
     public List<Wgs84Route> read(InputStream source, CompactCalendar startDate) throws IOException {
@@ -172,7 +179,7 @@ public abstract class WintecWbt201Format extends SimpleFormat<Wgs84Route> {
 
                 // trackname = time of first point
                 BaseNavigationPosition newPoint = createWaypoint(time, latitude, longitude, altitude, 0, true);
-                track.setName(TRACK_NAME_DATE_FORMAT.format(newPoint.getTime().getTime()));
+                track.setName(TRACK_NAME_DATE_FORMAT.format(newPoint.getTime()));
             }
 
             if ((trackFlag & 2) == 2) {
@@ -21,6 +21,8 @@
 package slash.navigation.wbt;
 
 import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.base.Wgs84Route;
 
 import java.io.IOException;
@@ -47,6 +49,12 @@ public class WintecWbt202TesFormat extends WintecWbt201Format {
         return ".tes";
     }
 
+    public Recognition recognize(FileHead head) {
+        // without a header checking the first positions is only a plausibility check
+        Recognition recognition = super.recognize(head);
+        return recognition == Recognition.Match ? Recognition.Possible : recognition;
+    }
+
     protected int getHeaderSize() {
         // this means files with less than 3 positions are not recognized
         return 3 * 16; 
@@ -0,0 +1,106 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChunkedLineReaderTest {
+    private static BufferedReader createLines(int count) {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            buffer.append(i).append("\n");
+        return new BufferedReader(new StringReader(buffer.toString()));
+    }
+
+    private static ChunkedLineReader<Integer> createReader(int lineCount, int threshold, int chunkSize, final int failingLine) {
+        return new ChunkedLineReader<Integer>(createLines(lineCount), threshold, chunkSize, 4) {
+            protected LineParser<Integer> createLineParser() {
+                return new LineParser<Integer>() {
+                    public Integer parse(String line) {
+                        int value = Integer.parseInt(line);
+                        if (value == failingLine)
+                            throw new IllegalArgumentException(line);
+                        return value % 3 == 0 ? null : value;
+                    }
+                };
+            }
+        };
+    }
+
+    private static List<Integer> readAll(ChunkedLineReader<Integer> reader) throws IOException {
+        List<Integer> result = new ArrayList<Integer>();
+        try {
+            Integer value;
+            while ((value = reader.read()) != null)
+                result.add(value);
+        }
+        finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    @Test
+    public void testReadsSameResultsInSameOrder() throws IOException {
+        List<Integer> expected = readAll(createReader(10000, Integer.MAX_VALUE, 1, -1));
+        assertEquals(6666, expected.size());
+        for (int threshold : new int[]{0, 1, 100, 9999, 10000}) {
+            for (int chunkSize : new int[]{1, 7, 1000, 20000}) {
+                assertEquals(expected, readAll(createReader(10000, threshold, chunkSize, -1)));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertEquals(0, readAll(createReader(0, 0, 10, -1)).size());
+        assertEquals(0, readAll(createReader(0, 10, 10, -1)).size());
+    }
+
+    @Test
+    public void testThrowsExceptionAtLine() throws IOException {
+        for (int threshold : new int[]{0, 10, 5000}) {
+            ChunkedLineReader<Integer> reader = createReader(10000, threshold, 64, 1001);
+            try {
+                Integer value, last = null;
+                try {
+                    while ((value = reader.read()) != null)
+                        last = value;
+                    fail("IllegalArgumentException expected");
+                } catch (IllegalArgumentException e) {
+                    assertEquals("1001", e.getMessage());
+                    assertEquals(new Integer(1000), last);
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+    }
+}
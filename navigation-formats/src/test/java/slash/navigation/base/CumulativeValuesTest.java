@@ -0,0 +1,176 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.common.io.CompactCalendar;
+import slash.navigation.simple.GlopusFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CumulativeValuesTest {
+    private Wgs84Route createRoute(int count) {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < count; i++)
+            positions.add(createPosition(i));
+        return new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, positions);
+    }
+
+    private Wgs84Position createPosition(int i) {
+        Double elevation = i % 7 == 3 ? null : 100.0 + (i * 37) % 50;
+        CompactCalendar time = i % 5 == 2 ? null : CompactCalendar.fromMillis(1000000L + i * 1000L - (i % 11 == 4 ? 5000 : 0));
+        Double longitude = i % 13 == 6 ? null : 10.0 + i * 0.001;
+        return new Wgs84Position(longitude, 50.0 + (i % 17) * 0.0005, elevation, null, time, "Position " + i);
+    }
+
+    private double naiveDistance(List<Wgs84Position> positions, int startIndex, int endIndex) {
+        double result = 0;
+        for (int i = startIndex + 1; i <= endIndex; i++) {
+            Double distance = positions.get(i - 1).calculateDistance(positions.get(i));
+            if (distance != null)
+                result += distance;
+        }
+        return result;
+    }
+
+    private double naiveElevation(List<Wgs84Position> positions, int endIndex, boolean ascend) {
+        double result = 0;
+        for (int i = 1; i <= endIndex; i++) {
+            Double elevation = positions.get(i - 1).calculateElevation(positions.get(i));
+            if (elevation != null && (ascend ? elevation > 0 : elevation < 0))
+                result += Math.abs(elevation);
+        }
+        return result;
+    }
+
+    private long naiveTime(List<Wgs84Position> positions) {
+        Long minimum = null, maximum = null, previous = null;
+        long total = 0;
+        for (Wgs84Position position : positions) {
+            if (position.getTime() == null)
+                continue;
+            long millis = position.getTime().getTimeInMillis();
+            if (previous != null && millis - previous > 0)
+                total += millis - previous;
+            if (minimum == null || millis < minimum)
+                minimum = millis;
+            if (maximum == null || millis > maximum)
+                maximum = millis;
+            previous = millis;
+        }
+        return Math.max(minimum != null ? maximum - minimum : 0, total);
+    }
+
+    private void assertCumulativeValues(Wgs84Route route) {
+        List<Wgs84Position> positions = route.getPositions();
+        int last = positions.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            assertEquals(naiveDistance(positions, 0, i), route.getDistance(0, i), 0.0);
+            assertEquals(naiveElevation(positions, i, true), route.getElevationAscend(0, i), 0.0);
+            assertEquals(naiveElevation(positions, i, false), route.getElevationDescend(0, i), 0.0);
+        }
+        assertEquals(naiveDistance(positions, 3, last), route.getDistance(3, last), 0.0);
+        double[] distances = route.getDistancesFromStart(2, last);
+        for (int i = 2; i <= last; i++)
+            assertEquals(naiveDistance(positions, 0, i), distances[i - 2], 0.0);
+        double[] selected = route.getDistancesFromStart(new int[]{last, 1, 4});
+        assertEquals(naiveDistance(positions, 0, 1), selected[0], 0.0);
+        assertEquals(naiveDistance(positions, 0, 4), selected[1], 0.0);
+        assertEquals(naiveDistance(positions, 0, last), selected[2], 0.0);
+        assertEquals(naiveTime(positions), route.getTime());
+    }
+
+    @Test
+    public void testValuesAfterModifications() {
+        Wgs84Route route = createRoute(40);
+        assertCumulativeValues(route);
+
+        route.add(5, createPosition(100));
+        assertCumulativeValues(route);
+
+        route.remove(17);
+        assertCumulativeValues(route);
+
+        route.up(20, 10);
+        route.down(2, 6);
+        assertCumulativeValues(route);
+
+        route.revert();
+        assertCumulativeValues(route);
+
+        route.getPositions().add(route.getPositions().remove(3));
+        route.getPositions().add(10, createPosition(200));
+        assertCumulativeValues(route);
+
+        route.getPositions().get(8).setElevation(1000.0);
+        route.invalidateCumulativeValues(8);
+        assertCumulativeValues(route);
+
+        route.ensureIncreasingTime();
+        assertCumulativeValues(route);
+
+        while (route.getPositionCount() > 6)
+            route.remove(route.getPositionCount() / 2);
+        assertCumulativeValues(route);
+    }
+
+    private void assertValuesAfterPositionSetters(Wgs84Route route) {
+        assertCumulativeValues(route);
+
+        List<Wgs84Position> positions = route.getPositions();
+        positions.get(12).setLongitude(10.5);
+        assertCumulativeValues(route);
+
+        positions.get(20).setLatitude(50.2);
+        positions.get(3).setElevation(2000.0);
+        assertCumulativeValues(route);
+
+        positions.get(30).setTime(CompactCalendar.fromMillis(9000000L));
+        assertCumulativeValues(route);
+
+        positions.get(25).setComment("Position 25 @1234m");
+        assertCumulativeValues(route);
+    }
+
+    @Test
+    public void testValuesAfterPositionSetters() {
+        assertValuesAfterPositionSetters(createRoute(40));
+    }
+
+    @Test
+    public void testValuesAfterPositionSettersOnPositionList() {
+        Wgs84Route route = createRoute(40);
+        Wgs84PositionList positions = new Wgs84PositionList();
+        positions.addAll(route.getPositions());
+        assertValuesAfterPositionSetters(new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, positions));
+    }
+
+    @Test
+    public void testEmptyRoute() {
+        Wgs84Route route = createRoute(0);
+        assertEquals(0.0, route.getDistance(), 0.0);
+        assertEquals(0, route.getTime());
+        assertEquals(0.0, route.getDistancesFromStart(new int[]{0})[0], 0.0);
+    }
+}
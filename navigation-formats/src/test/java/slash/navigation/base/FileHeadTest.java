@@ -0,0 +1,120 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.navigation.gpx.Gpx10Format;
+import slash.navigation.gpx.Gpx11Format;
+import slash.navigation.kml.Kml22Format;
+import slash.navigation.kml.Kmz22Format;
+import slash.navigation.nmea.NmeaFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import static org.junit.Assert.*;
+
+public class FileHeadTest {
+    private static final String GPX_11 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- comment -->\n" +
+            "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\" creator=\"test\">\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"/>\n</gpx>\n";
+
+    private FileHead head(String string) throws UnsupportedEncodingException {
+        return new FileHead(string.getBytes("ISO8859-1"), true);
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        FileHead head = FileHead.read(new ByteArrayInputStream(new byte[]{1, 2, 3}), 2);
+        assertEquals(2, head.getLength());
+        assertFalse(head.isComplete());
+        assertTrue(head.startsWith(new byte[]{1, 2}));
+        assertFalse(head.startsWith(new byte[]{1, 2, 3}));
+
+        head = FileHead.read(new ByteArrayInputStream(new byte[]{1, 2, 3}), 10);
+        assertEquals(3, head.getLength());
+        assertTrue(head.isComplete());
+    }
+
+    @Test
+    public void testLines() throws UnsupportedEncodingException {
+        assertEquals(3, head("a\nb\r\nc").getLines().size());
+        assertEquals("c", head("a\nb\r\nc").getLines().get(2));
+        assertEquals(2, new FileHead("a\rb\nc".getBytes("ISO8859-1"), false).getLines().size());
+    }
+
+    @Test
+    public void testXmlRootElement() throws UnsupportedEncodingException {
+        FileHead head = head(GPX_11);
+        assertTrue(head.isXml());
+        assertEquals("gpx", head.getXmlRootElement());
+        assertEquals("http://www.topografix.com/GPX/1/1", head.getXmlRootNamespace());
+    }
+
+    @Test
+    public void testXmlRootElementWithPrefix() throws UnsupportedEncodingException {
+        FileHead head = head("<!DOCTYPE kml [ <!ENTITY a 'b'> ]><kml:kml xmlns='x' xmlns:kml='http://www.opengis.net/kml/2.2'>");
+        assertTrue(head.isXml());
+        assertEquals("kml", head.getXmlRootElement());
+        assertEquals("http://www.opengis.net/kml/2.2", head.getXmlRootNamespace());
+    }
+
+    @Test
+    public void testXmlRootElementInUtf16() throws UnsupportedEncodingException {
+        FileHead head = new FileHead(GPX_11.getBytes("UTF-16LE"), true);
+        assertTrue(head.isXml());
+        assertEquals("gpx", head.getXmlRootElement());
+    }
+
+    @Test
+    public void testCutOffXmlRootElement() throws UnsupportedEncodingException {
+        FileHead head = new FileHead("<?xml version=\"1.0\"?><gpx version".getBytes("ISO8859-1"), false);
+        assertTrue(head.isXml());
+        assertNull(head.getXmlRootElement());
+        assertNull(head.getXmlRootNamespace());
+    }
+
+    @Test
+    public void testNoXml() throws UnsupportedEncodingException {
+        FileHead head = head("$GPGGA,180114,4808.9490,N,00928.9610,E,1,05,12.6,00616.6,M,048.0,M,,*49\n");
+        assertFalse(head.isXml());
+        assertNull(head.getXmlRootElement());
+    }
+
+    @Test
+    public void testRecognizeGpx() throws UnsupportedEncodingException {
+        FileHead head = head(GPX_11);
+        assertEquals(Recognition.Match, new Gpx11Format().recognize(head));
+        assertEquals(Recognition.Possible, new Gpx10Format().recognize(head));
+        assertEquals(Recognition.Mismatch, new Kml22Format().recognize(head));
+        assertEquals(Recognition.Mismatch, new Kmz22Format().recognize(head));
+        assertEquals(Recognition.Mismatch, new NmeaFormat().recognize(head));
+    }
+
+    @Test
+    public void testRecognizeNmea() throws UnsupportedEncodingException {
+        FileHead head = head("$GPGGA,180114,4808.9490,N,00928.9610,E,1,05,12.6,00616.6,M,048.0,M,,*49\n");
+        assertEquals(Recognition.Match, new NmeaFormat().recognize(head));
+        assertEquals(Recognition.Mismatch, new Gpx11Format().recognize(head));
+    }
+}
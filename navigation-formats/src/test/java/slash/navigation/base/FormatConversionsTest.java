@@ -0,0 +1,124 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.navigation.babel.BabelFormat;
+import slash.navigation.gpx.Gpx10Format;
+import slash.navigation.gpx.GpxPosition;
+import slash.navigation.gpx.GpxRoute;
+import slash.navigation.nmea.NmeaFormat;
+import slash.navigation.nmea.NmeaPosition;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class FormatConversionsTest {
+    private static Set<NavigationFormat> getFormats() {
+        Set<NavigationFormat> formats = new LinkedHashSet<NavigationFormat>(NavigationFormats.getReadFormats());
+        formats.addAll(NavigationFormats.getWriteFormats());
+        return formats;
+    }
+
+    private static String getFormatName(NavigationFormat format) {
+        return format instanceof BabelFormat ? "Gpx10Format" : format.getClass().getSimpleName();
+    }
+
+    private static Method getMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void testPositionConversionsMatchMethodNames() throws Exception {
+        BaseNavigationPosition[] positions = new BaseNavigationPosition[]{
+                new Wgs84Position(10.0, 50.0, 100.0, 5.0, null, "Wgs84"),
+                new GpxPosition(10.0, 50.0, 100.0, 5.0, null, "Gpx"),
+                new NmeaPosition(10.0, 50.0, 100.0, 5.0, null, "Nmea")
+        };
+        for (NavigationFormat format : getFormats()) {
+            String methodName = "as" + getFormatName(format).replace("Format", "Position").replaceAll("[0-9]", "");
+            for (BaseNavigationPosition position : positions) {
+                Method method = getMethod(position.getClass(), methodName);
+                if (method == null) {
+                    try {
+                        NavigationFormats.asFormat(position, format);
+                        fail("Conversion to " + format + " not expected");
+                    } catch (IOException e) {
+                        // expected
+                    }
+                } else {
+                    BaseNavigationPosition expected = (BaseNavigationPosition) method.invoke(position);
+                    BaseNavigationPosition actual = NavigationFormats.asFormat(position, format);
+                    assertEquals(methodName, expected.getClass(), actual.getClass());
+                    assertEquals(methodName, expected.getComment(), actual.getComment());
+                    assertEquals(methodName, expected == position, actual == position);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRouteConversionsMatchMethodNames() throws Exception {
+        for (NavigationFormat format : getFormats()) {
+            String methodName = "as" + getFormatName(format);
+            GpxRoute route = new GpxRoute(new Gpx10Format());
+            route.add(0, new GpxPosition(10.0, 50.0, 100.0, 5.0, null, "Gpx"));
+            Method method = getMethod(route.getClass(), methodName);
+            if (method == null) {
+                try {
+                    NavigationFormats.asFormat(route, format);
+                    fail("Conversion to " + format + " not expected");
+                } catch (IOException e) {
+                    // expected
+                }
+            } else {
+                BaseRoute expected = (BaseRoute) method.invoke(route);
+                BaseRoute actual = NavigationFormats.asFormat(route, format);
+                assertEquals(methodName, expected.getClass(), actual.getClass());
+                assertEquals(methodName, expected.getFormat().getClass(), actual.getFormat().getClass());
+            }
+        }
+    }
+
+    @Test
+    public void testConvertPositionList() throws IOException {
+        List<BaseNavigationPosition> positions = new ArrayList<BaseNavigationPosition>();
+        NmeaPosition nmea = new NmeaPosition(10.0, 50.0, 100.0, 5.0, null, "Nmea");
+        positions.add(nmea);
+        positions.add(new GpxPosition(11.0, 51.0, 101.0, 6.0, null, "Gpx"));
+
+        List<BaseNavigationPosition> result = NavigationFormats.asFormat(positions, new NmeaFormat());
+        assertEquals(2, result.size());
+        assertSame(nmea, result.get(0));
+        assertEquals(NmeaPosition.class, result.get(1).getClass());
+        assertEquals("Gpx", result.get(1).getComment());
+    }
+}
@@ -0,0 +1,231 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.common.io.CompactCalendar;
+import slash.navigation.copilot.CoPilot7Format;
+import slash.navigation.copilot.CoPilot8Format;
+import slash.navigation.gopal.GoPalTrackFormat;
+import slash.navigation.gpx.Gpx11Format;
+import slash.navigation.nmea.NmeaFormat;
+import slash.navigation.simple.SygicUnicodeFormat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NavigationFileParserTest {
+    private static final String GPX_11 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\" creator=\"test\">\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"><name>a</name></wpt>\n" +
+            "<wpt lat=\"3.0\" lon=\"4.0\"><name>b</name></wpt>\n</gpx>\n";
+    private static final String NMEA = "$GPGGA,180114,4808.9490,N,00928.9610,E,1,05,12.6,00616.6,M,048.0,M,,*49\n" +
+            "$GPGGA,180115,4808.9500,N,00928.9620,E,1,05,12.6,00616.6,M,048.0,M,,*43\n";
+
+    private File createFile(String string) throws IOException {
+        File file = File.createTempFile("parser", ".tmp");
+        file.deleteOnExit();
+        OutputStream output = new FileOutputStream(file);
+        try {
+            output.write(string.getBytes("ISO8859-1"));
+        }
+        finally {
+            output.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testReadGpxFile() throws IOException {
+        NavigationFileParser parser = new NavigationFileParser();
+        assertTrue(parser.read(createFile(GPX_11)));
+        assertEquals(Gpx11Format.class, parser.getFormat().getClass());
+        assertEquals(2, parser.getTheRoute().getPositionCount());
+    }
+
+    @Test
+    public void testReadNmeaFileAfterFailingFormats() throws IOException {
+        NavigationFileParser parser = new NavigationFileParser();
+        assertTrue(parser.read(createFile(NMEA)));
+        assertEquals(NmeaFormat.class, parser.getFormat().getClass());
+        assertEquals(2, parser.getTheRoute().getPositionCount());
+    }
+
+    private void writeAndReadFormat(SimpleFormat format) throws IOException {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < 5; i++) {
+            Wgs84Position position = new Wgs84Position(9.4 + i * 0.001, 48.1 + i * 0.001, 400.0 + i, 10.0,
+                    CompactCalendar.fromMillis(1234567890000L + i * 1000L), "Position " + i);
+            position.setSatellites(5);
+            positions.add(position);
+        }
+        Wgs84Route route = new Wgs84Route(format, RouteCharacteristics.Track, positions);
+
+        File file = File.createTempFile("parser", format.getExtension());
+        file.deleteOnExit();
+        NavigationFileParser parser = new NavigationFileParser();
+        parser.write(route, format, false, false, file);
+
+        assertTrue(parser.read(file));
+        assertEquals(format.getClass(), parser.getFormat().getClass());
+        assertEquals(5, parser.getTheRoute().getPositionCount());
+    }
+
+    @Test
+    public void testReadCoPilot7File() throws IOException {
+        writeAndReadFormat(new CoPilot7Format());
+    }
+
+    @Test
+    public void testReadCoPilot8File() throws IOException {
+        writeAndReadFormat(new CoPilot8Format());
+    }
+
+    @Test
+    public void testReadSygicUnicodeFile() throws IOException {
+        writeAndReadFormat(new SygicUnicodeFormat());
+    }
+
+    @Test
+    public void testReadGoPalTrackFile() throws IOException {
+        writeAndReadFormat(new GoPalTrackFormat());
+    }
+
+    @Test
+    public void testReadFileWithMismatchingRecognition() throws IOException {
+        NavigationFormat misrecognizing = new Gpx11Format() {
+            public Recognition recognize(FileHead head) {
+                return Recognition.Mismatch;
+            }
+        };
+        List<NavigationFormat> formats = new ArrayList<NavigationFormat>();
+        for (NavigationFormat format : NavigationFormats.getReadFormats()) {
+            if (format.getClass().equals(Gpx11Format.class))
+                format = misrecognizing;
+            // leave no other format that reads the file
+            else if (format instanceof Gpx11Format)
+                continue;
+            formats.add(format);
+        }
+
+        NavigationFileParser parser = new NavigationFileParser();
+        assertTrue(parser.read(createFile(GPX_11), formats));
+        assertSame(misrecognizing, parser.getFormat());
+        assertEquals(2, parser.getTheRoute().getPositionCount());
+    }
+
+    @Test
+    public void testReadUnknownFile() throws IOException {
+        NavigationFileParser parser = new NavigationFileParser();
+        assertFalse(parser.read(createFile("no navigation data\n")));
+    }
+
+    private static class CountingPositionSink implements PositionSink {
+        private int routeCount = 0, positionCount = 0;
+        private boolean inRoute = false;
+
+        public void startRoute(RouteCharacteristics characteristics, String name) {
+            assertFalse(inRoute);
+            inRoute = true;
+            routeCount++;
+        }
+
+        public void position(BaseNavigationPosition position) {
+            assertTrue(inRoute);
+            positionCount++;
+        }
+
+        public void endRoute() {
+            assertTrue(inRoute);
+            inRoute = false;
+        }
+    }
+
+    @Test
+    public void testReadNmeaFileIntoSink() throws IOException {
+        CountingPositionSink sink = new CountingPositionSink();
+        NavigationFormat format = new NavigationFileParser().read(createFile(NMEA), NavigationFormats.getReadFormats(), sink);
+        assertEquals(NmeaFormat.class, format.getClass());
+        assertEquals(1, sink.routeCount);
+        assertEquals(2, sink.positionCount);
+        assertFalse(sink.inRoute);
+    }
+
+    @Test
+    public void testReadGpxFileIntoSink() throws IOException {
+        CountingPositionSink sink = new CountingPositionSink();
+        NavigationFormat format = new NavigationFileParser().read(createFile(GPX_11), NavigationFormats.getReadFormats(), sink);
+        assertEquals(Gpx11Format.class, format.getClass());
+        assertEquals(1, sink.routeCount);
+        assertEquals(2, sink.positionCount);
+    }
+
+    @Test
+    public void testReadUnknownFileIntoSink() throws IOException {
+        CountingPositionSink sink = new CountingPositionSink();
+        assertNull(new NavigationFileParser().read(createFile("no navigation data\n"), NavigationFormats.getReadFormats(), sink));
+        assertEquals(0, sink.routeCount);
+    }
+
+    @Test
+    public void testReadFileIntoSinkReadsOnce() throws IOException {
+        final int[] readCount = new int[1];
+        NavigationFormat counting = new Gpx11Format() {
+            public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+                readCount[0]++;
+                return super.read(source, startDate, sink);
+            }
+        };
+        List<NavigationFormat> formats = new ArrayList<NavigationFormat>();
+        formats.add(counting);
+
+        CountingPositionSink sink = new CountingPositionSink();
+        assertSame(counting, new NavigationFileParser().read(createFile(GPX_11), formats, sink));
+        assertEquals(1, readCount[0]);
+        assertEquals(1, sink.routeCount);
+        assertEquals(2, sink.positionCount);
+    }
+
+    @Test
+    public void testReadFileIntoSinkStopsAfterFailureWithRoutes() throws IOException {
+        NavigationFormat failing = new Gpx11Format() {
+            public boolean read(InputStream source, CompactCalendar startDate, PositionSink sink) throws IOException {
+                sink.startRoute(RouteCharacteristics.Waypoints, null);
+                sink.endRoute();
+                return false;
+            }
+        };
+        List<NavigationFormat> formats = new ArrayList<NavigationFormat>();
+        formats.add(failing);
+        formats.add(new Gpx11Format());
+
+        CountingPositionSink sink = new CountingPositionSink();
+        assertNull(new NavigationFileParser().read(createFile(GPX_11), formats, sink));
+        assertEquals(1, sink.routeCount);
+        assertEquals(0, sink.positionCount);
+    }
+}
@@ -9,7 +9,7 @@ import slash.navigation.simple.*;
 
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class NavigationFormatsTest {
 
@@ -46,4 +46,33 @@ public class NavigationFormatsTest {
         assertEquals(BrokenHaicomLoggerFormat.class, formats.get(6).getClass());
         assertEquals(NmeaFormat.class, formats.get(7).getClass());
     }
+
+    @Test
+    public void testGetReadFormatsPreferredByExtensionContainsEachFormatOnce() {
+        List<NavigationFormat> formats = NavigationFormats.getReadFormatsPreferredByExtension(".csv");
+        assertEquals(NavigationFormats.getReadFormats().size(), formats.size());
+        assertTrue(formats.containsAll(NavigationFormats.getReadFormats()));
+    }
+
+    @Test
+    public void testFormatsAreShared() {
+        assertSame(NavigationFormats.getReadFormats(), NavigationFormats.getReadFormats());
+        assertSame(NavigationFormats.getReadFormats().get(0), NavigationFormats.getReadFormatsSortedByName().get(
+                NavigationFormats.getReadFormatsSortedByName().indexOf(NavigationFormats.getReadFormats().get(0))));
+        assertSame(NavigationFormats.getWriteFormatsSortedByName(), NavigationFormats.getWriteFormatsSortedByName());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFormatsAreImmutable() {
+        NavigationFormats.getReadFormats().clear();
+    }
+
+    @Test
+    public void testGetFormatByClassName() {
+        assertEquals(NmeaFormat.class, NavigationFormats.getFormatByClassName("NmeaFormat").getClass());
+        assertSame(NavigationFormats.getFormatByClassName("NmeaFormat"),
+                NavigationFormats.getFormatByClassName(NmeaFormat.class.getName()));
+        assertSame(NavigationFormats.getFormatByClassName("NmeaFormat"), NavigationFormats.getReadFormats().get(0));
+        assertNull(NavigationFormats.getFormatByClassName("NoFormat"));
+    }
 }
@@ -0,0 +1,359 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.common.io.CompactCalendar;
+import slash.navigation.simple.GlopusFormat;
+import slash.navigation.util.RouteComments;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Wgs84PositionListTest {
+    private static Wgs84Position createPosition(int i) {
+        Double elevation = i % 7 == 3 ? null : 100.0 + (i * 37) % 50;
+        CompactCalendar time = i % 5 == 2 ? null : CompactCalendar.fromMillisAndTimeZone(1000000L + i * 1000L,
+                i % 9 == 1 ? "Europe/Berlin" : "UTC");
+        Double longitude = i % 13 == 6 ? null : 10.0 + i * 0.001;
+        Wgs84Position position = new Wgs84Position(longitude, 50.0 + (i % 17) * 0.0005, elevation,
+                i % 3 == 0 ? null : i * 0.5, time, i % 4 == 1 ? null : "Position " + i);
+        if (i % 6 == 5) {
+            position.setHeading(i * 1.5);
+            position.setHdop(1.0 + i);
+            position.setVdop(2.0 + i);
+            position.setPdop(3.0 + i);
+            position.setSatellites(i % 12);
+        }
+        return position;
+    }
+
+    private static String describe(Wgs84Position position) {
+        return position.getLongitude() + "/" + position.getLatitude() + "/" + position.getElevation() + "/" +
+                position.getSpeed() + "/" + position.getTime() + "/" + position.getComment() + "/" +
+                position.getHeading() + "/" + position.getHdop() + "/" + position.getVdop() + "/" +
+                position.getPdop() + "/" + position.getSatellites();
+    }
+
+    private static void assertSameValues(List<Wgs84Position> expected, List<Wgs84Position> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals("index " + i, describe(expected.get(i)), describe(actual.get(i)));
+    }
+
+    @Test
+    public void testStoresAllValues() {
+        List<Wgs84Position> expected = new ArrayList<Wgs84Position>();
+        Wgs84PositionList list = new Wgs84PositionList(1);
+        for (int i = 0; i < 100; i++) {
+            expected.add(createPosition(i));
+            list.add(createPosition(i));
+        }
+        assertSameValues(expected, list);
+
+        for (int i = 0; i < 100; i++) {
+            Wgs84Position position = expected.get(i);
+            assertEquals(position.hasCoordinates(), list.hasCoordinates(i));
+            if (position.hasCoordinates()) {
+                assertEquals(position.getLongitude(), list.getLongitude(i), 0.0);
+                assertEquals(position.getLatitude(), list.getLatitude(i), 0.0);
+            }
+            assertEquals(position.getElevation() != null, list.hasElevation(i));
+            assertEquals(position.getTime() != null, list.hasTime(i));
+            if (position.getTime() != null)
+                assertEquals(position.getTime().getTimeInMillis(), list.getTimeInMillis(i));
+        }
+    }
+
+    @Test
+    public void testSameValuesAsArrayList() {
+        Random random = new Random(42);
+        List<Wgs84Position> expected = new ArrayList<Wgs84Position>();
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int step = 0; step < 5000; step++) {
+            int i = step % 100;
+            switch (expected.size() < 5 ? 0 : random.nextInt(7)) {
+                case 0:
+                case 1:
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.add(index, createPosition(i));
+                    list.add(index, createPosition(i));
+                    break;
+                case 2:
+                    index = random.nextInt(expected.size());
+                    assertEquals(describe(expected.remove(index)), describe(list.remove(index)));
+                    break;
+                case 3:
+                    index = random.nextInt(expected.size());
+                    assertEquals(describe(expected.set(index, createPosition(i))), describe(list.set(index, createPosition(i))));
+                    break;
+                case 4:
+                    index = random.nextInt(expected.size());
+                    int other = random.nextInt(expected.size());
+                    Collections.swap(expected, index, other);
+                    Collections.swap(list, index, other);
+                    break;
+                case 5:
+                    index = random.nextInt(expected.size());
+                    expected.get(index).setLongitude(i * 0.1);
+                    expected.get(index).setTime(null);
+                    expected.get(index).setSatellites(i);
+                    list.get(index).setLongitude(i * 0.1);
+                    list.get(index).setTime(null);
+                    list.get(index).setSatellites(i);
+                    break;
+                case 6:
+                    index = random.nextInt(expected.size());
+                    int to = Math.min(expected.size(), index + random.nextInt(3));
+                    expected.subList(index, to).clear();
+                    list.subList(index, to).clear();
+                    break;
+            }
+            assertSameValues(expected, list);
+        }
+    }
+
+    @Test
+    public void testRemovedPositionKeepsValues() {
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int i = 0; i < 10; i++)
+            list.add(createPosition(i));
+        Wgs84Position fifth = list.get(5);
+        String values = describe(fifth);
+
+        assertSame(fifth, list.remove(5));
+        list.remove(0);
+        list.add(0, createPosition(20));
+        assertEquals(values, describe(fifth));
+
+        fifth.setComment("removed");
+        assertEquals("removed", fifth.getComment());
+        assertEquals(9, list.size());
+    }
+
+    @Test
+    public void testViewsAreNotPinned() {
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int i = 0; i < 10; i++)
+            list.add(createPosition(i));
+        String values = describe(list.get(3));
+        WeakReference<Wgs84Position> view = new WeakReference<Wgs84Position>(list.get(3));
+
+        for (int i = 0; i < 10 && view.get() != null; i++)
+            System.gc();
+        assertNull(view.get());
+        assertEquals(values, describe(list.get(3)));
+    }
+
+    @Test
+    public void testCommentPositionsLikeArrayList() {
+        List<Wgs84Position> expected = new ArrayList<Wgs84Position>();
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int i = 0; i < 40; i++) {
+            expected.add(createPosition(i));
+            list.add(createPosition(i));
+        }
+        expected.get(7).setComment("(null)");
+        list.get(7).setComment("(null)");
+        Wgs84Position kept = list.get(9);
+
+        RouteComments.commentPositions(expected);
+        RouteComments.commentPositions(list);
+        assertSameValues(expected, list);
+        assertEquals(RouteComments.getPositionComment(9), kept.getComment());
+
+        expected.add(3, expected.remove(20));
+        list.add(3, list.remove(20));
+        expected.remove(11);
+        list.remove(11);
+        assertSameValues(expected, list);
+
+        RouteComments.commentPositions(expected);
+        RouteComments.commentPositions(list);
+        assertSameValues(expected, list);
+        assertSame(kept, list.get(10));
+        assertEquals(RouteComments.getPositionComment(10), kept.getComment());
+
+        assertSame(kept, list.remove(10));
+        assertEquals(RouteComments.getPositionComment(10), kept.getComment());
+    }
+
+    @Test
+    public void testPositionsStayTheSameObjects() {
+        List<Wgs84Position> positions = new Wgs84PositionList();
+        Wgs84Route route = new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, positions);
+        List<Wgs84Position> created = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < 6; i++) {
+            Wgs84Position position = route.createPosition(10.0 + i, 50.0, null, null, null, "Position " + i);
+            route.add(i, position);
+            created.add(position);
+        }
+        for (int i = 0; i < 6; i++)
+            assertSame(created.get(i), route.getPosition(i));
+
+        route.top(3, 0);
+        route.bottom(0, 0);
+        route.up(4, 2);
+        route.down(1, 3);
+        route.revert();
+        Collections.swap(positions, 0, 5);
+
+        assertEquals(6, positions.size());
+        for (Wgs84Position position : created) {
+            int index = route.getIndex(position);
+            assertSame(position, route.getPosition(index));
+        }
+
+        Wgs84Position removed = route.remove(2);
+        route.add(0, removed);
+        assertSame(removed, route.getPosition(0));
+    }
+
+    @Test
+    public void testBulkOperations() {
+        List<Wgs84Position> expectedPositions = new ArrayList<Wgs84Position>();
+        Wgs84Route expected = new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, expectedPositions);
+        Wgs84PositionList actualPositions = new Wgs84PositionList();
+        Wgs84Route actual = new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, actualPositions);
+        for (int i = 0; i < 20; i++) {
+            expectedPositions.add(createPosition(i));
+            actualPositions.add(createPosition(i));
+        }
+
+        List<Wgs84Position> added = new ArrayList<Wgs84Position>();
+        for (int i = 100; i < 105; i++)
+            added.add(createPosition(i));
+        expected.addAll(7, added);
+        actual.addAll(7, added);
+        assertSameValues(expectedPositions, actualPositions);
+
+        List<Wgs84Position> views = new ArrayList<Wgs84Position>(actualPositions);
+        int[] indices = new int[]{24, 0, 3, 4, 5, 17};
+        List<Wgs84Position> expectedRemoved = expected.removeAll(indices);
+        List<Wgs84Position> actualRemoved = actual.removeAll(indices);
+        assertSameValues(expectedRemoved, actualRemoved);
+        assertSameValues(expectedPositions, actualPositions);
+        assertEquals(19, actualPositions.size());
+
+        int[] sorted = new int[]{0, 3, 4, 5, 17, 24};
+        expected.addAll(sorted, expectedRemoved);
+        actual.addAll(sorted, actualRemoved);
+        assertSameValues(expectedPositions, actualPositions);
+        for (int i = 0; i < views.size(); i++)
+            assertSame(views.get(i), actualPositions.get(i));
+
+        int[] permutation = new int[actualPositions.size()];
+        for (int i = 0; i < permutation.length; i++)
+            permutation[i] = (i * 7) % permutation.length;
+        expected.applyPermutation(permutation);
+        actual.applyPermutation(permutation);
+        assertSameValues(expectedPositions, actualPositions);
+        for (int i = 0; i < views.size(); i++)
+            assertSame(views.get(permutation[i]), actualPositions.get(i));
+
+        assertSameValues(expected.removeRange(2, 9), actual.removeRange(2, 9));
+        assertSameValues(expectedPositions, actualPositions);
+        assertCumulativeValues(expected, actual);
+    }
+
+    @Test
+    public void testEquals() {
+        Wgs84PositionList list = new Wgs84PositionList();
+        list.add(createPosition(1));
+        list.add(createPosition(1));
+        list.add(createPosition(2));
+        assertEquals(list.get(0), list.get(1));
+        assertEquals(list.get(0).hashCode(), list.get(1).hashCode());
+        assertFalse(list.get(0).equals(list.get(2)));
+        assertFalse(list.get(0).equals(createPosition(1)));
+        assertEquals(0, list.indexOf(list.get(1)));
+    }
+
+    @Test
+    public void testCumulativeValues() {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int i = 0; i < 500; i++) {
+            positions.add(createPosition(i));
+            list.add(createPosition(i));
+        }
+        Wgs84Route expected = new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, positions);
+        Wgs84Route actual = new Wgs84Route(new GlopusFormat(), RouteCharacteristics.Track, list);
+        assertCumulativeValues(expected, actual);
+
+        // modifications of the positions that bypass the route
+        list.get(100).setLongitude(12.0);
+        list.get(200).setElevation(500.0);
+        list.get(300).setTime(CompactCalendar.fromMillis(5000000L));
+        positions.get(100).setLongitude(12.0);
+        positions.get(200).setElevation(500.0);
+        positions.get(300).setTime(CompactCalendar.fromMillis(5000000L));
+        expected.invalidateCumulativeValues(100);
+        assertCumulativeValues(expected, actual);
+
+        list.remove(50);
+        positions.remove(50);
+        expected.invalidateCumulativeValues(50);
+        assertCumulativeValues(expected, actual);
+    }
+
+    @Test
+    public void testSettersOfViewsAreModifications() {
+        Wgs84PositionList list = new Wgs84PositionList();
+        for (int i = 0; i < 5; i++)
+            list.add(createPosition(i));
+        Wgs84Position view = list.get(3);
+
+        long modificationCount = list.getModificationCount();
+        view.setSpeed(12.0);
+        assertEquals(3, list.getFirstModifiedIndex(modificationCount));
+        modificationCount = list.getModificationCount();
+        view.setHeading(90.0);
+        assertEquals(3, list.getFirstModifiedIndex(modificationCount));
+        modificationCount = list.getModificationCount();
+        view.setTime(CompactCalendar.fromMillis(5000000L));
+        assertEquals(3, list.getFirstModifiedIndex(modificationCount));
+    }
+
+    @Test
+    public void testCalculateDistancesOfEmptyRange() {
+        Wgs84PositionList list = new Wgs84PositionList();
+        list.calculateDistances(0, 0, new double[0]);
+        list.add(createPosition(1));
+        list.calculateDistances(1, 1, new double[0]);
+    }
+
+    private void assertCumulativeValues(Wgs84Route expected, Wgs84Route actual) {
+        assertEquals(expected.getTime(), actual.getTime());
+        assertEquals(expected.getDistance(), actual.getDistance(), 0.0);
+        int count = expected.getPositionCount();
+        for (int i = 0; i < count; i += 37) {
+            assertEquals(expected.getDistance(0, i), actual.getDistance(0, i), 0.0);
+            assertEquals(expected.getElevationAscend(0, i), actual.getElevationAscend(0, i), 0.0);
+            assertEquals(expected.getElevationDescend(0, i), actual.getElevationDescend(0, i), 0.0);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Calendar;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static slash.common.TestCase.*;
 
 public class BcrRouteTest {
@@ -206,6 +207,47 @@ public class BcrRouteTest {
         assertPositions();
     }
 
+    @Test
+    public void testRemoveAll() {
+        initialize();
+        assertEquals(2, route.removeAll(new int[]{2, 0}).size());
+        assertPositions(b);
+    }
+
+    @Test
+    public void testRemoveAllWithDuplicateIndices() {
+        initialize();
+        try {
+            route.removeAll(new int[]{2, 0, 2});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertPositions(a, b, c);
+    }
+
+    @Test
+    public void testApplyPermutation() {
+        initialize();
+        route.applyPermutation(new int[]{2, 0, 1});
+        assertPositions(c, a, b);
+    }
+
+    @Test
+    public void testApplyPermutationWithRepeatedOrInvalidIndices() {
+        initialize();
+        int[][] permutations = new int[][]{{0, 0, 1}, {0, 1, 3}, {-1, 0, 1}};
+        for (int[] permutation : permutations) {
+            try {
+                route.applyPermutation(permutation);
+                fail("IllegalArgumentException expected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            assertPositions(a, b, c);
+        }
+    }
+
     @Test
     public void testCalculateDistance() {
         assertDoubleEquals(1.1131, a.calculateDistance(b));
@@ -356,6 +398,19 @@ public class BcrRouteTest {
         assertPositions(c, a, c, b, a, c, a);
     }
 
+    @Test
+    public void testRemoveDuplicatesAfterPositionWithoutCoordinates() {
+        BcrPosition none = new BcrPosition(null, null, null, null, null, "none");
+        List<BcrPosition> positions = route.getPositions();
+        positions.clear();
+        positions.add(a);
+        positions.add(none);
+        positions.add(b);
+        positions.add(b);
+        route.removeDuplicates();
+        assertPositions(a, b);
+    }
+
     @Test
     public void testEnsureIncreasingTime() {
         List<BcrPosition> positions = route.getPositions();
@@ -0,0 +1,197 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import slash.navigation.base.BaseNavigationPosition;
+import slash.navigation.base.NavigationTestCase;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Gpx11StreamTest extends NavigationTestCase {
+    private static final String GPX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:nmea=\"http://trekbuddy.net/2009/01/gpx/nmea\"\n" +
+            "     xmlns:gpxx=\"http://www.garmin.com/xmlschemas/GpxExtensions/v3\" version=\"1.1\" creator=\"Test\">\n" +
+            "  <metadata><name>Metadata</name><desc>Description</desc></metadata>\n" +
+            "  <wpt lat=\"53.1\" lon=\"10.1\"><ele>12.5</ele><time>2010-03-04T05:06:07Z</time><name>First</name><sym>Flag</sym></wpt>\n" +
+            "  <wpt lat=\"53.2\" lon=\"10.2\"><name>Second</name></wpt>\n" +
+            "  <rte><name>Route</name>\n" +
+            "    <extensions><gpxx:RouteExtension><gpxx:IsAutoNamed>false</gpxx:IsAutoNamed></gpxx:RouteExtension></extensions>\n" +
+            "    <rtept lat=\"53.3\" lon=\"10.3\"><name>Start</name>\n" +
+            "      <extensions><gpxx:RoutePointExtension><gpxx:rpt lat=\"53.35\" lon=\"10.35\"/></gpxx:RoutePointExtension></extensions>\n" +
+            "    </rtept>\n" +
+            "    <rtept lat=\"53.4\" lon=\"10.4\"><name>End</name></rtept>\n" +
+            "  </rte>\n" +
+            "  <trk><name>Track</name><trkseg>\n" +
+            "    <trkpt lat=\"53.5\" lon=\"10.5\"><ele>1</ele><hdop>1.5</hdop><sat>7</sat>\n" +
+            "      <extensions><nmea:speed>12.5</nmea:speed><nmea:course>90.0</nmea:course></extensions></trkpt>\n" +
+            "    <trkpt lat=\"53.6\" lon=\"10.6\"><!-- comment --><ele>2</ele></trkpt>\n" +
+            "  </trkseg><trkseg><trkpt lat=\"53.7\" lon=\"10.7\"/></trkseg></trk>\n" +
+            "  <wpt lat=\"53.8\" lon=\"10.8\"><name>Late</name></wpt>\n" +
+            "</gpx>\n";
+
+    private List<GpxRoute> readWithJaxb(String string) throws JAXBException {
+        return new Gpx11Format().process(GpxUtil.unmarshal11(string));
+    }
+
+    private List<GpxRoute> readWithStax(String string) throws IOException {
+        return new Gpx11Format().read(new ByteArrayInputStream(string.getBytes("UTF-8")), null);
+    }
+
+    private void assertRoutesEquals(List<GpxRoute> expected, List<GpxRoute> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            GpxRoute expectedRoute = expected.get(i);
+            GpxRoute actualRoute = actual.get(i);
+            assertEquals(expectedRoute.getCharacteristics(), actualRoute.getCharacteristics());
+            assertEquals(expectedRoute.getName(), actualRoute.getName());
+            assertEquals(expectedRoute.getDescription(), actualRoute.getDescription());
+            assertEquals(expectedRoute.getPositionCount(), actualRoute.getPositionCount());
+            for (int j = 0; j < expectedRoute.getPositionCount(); j++) {
+                GpxPosition expectedPosition = expectedRoute.getPosition(j);
+                GpxPosition actualPosition = actualRoute.getPosition(j);
+                assertEquals(expectedPosition.getLongitude(), actualPosition.getLongitude());
+                assertEquals(expectedPosition.getLatitude(), actualPosition.getLatitude());
+                assertEquals(expectedPosition.getElevation(), actualPosition.getElevation());
+                assertEquals(expectedPosition.getSpeed(), actualPosition.getSpeed());
+                assertEquals(expectedPosition.getHeading(), actualPosition.getHeading());
+                assertEquals(expectedPosition.getTime(), actualPosition.getTime());
+                assertEquals(expectedPosition.getComment(), actualPosition.getComment());
+                assertEquals(expectedPosition.getHdop(), actualPosition.getHdop());
+                assertEquals(expectedPosition.getSatellites(), actualPosition.getSatellites());
+            }
+        }
+    }
+
+    public void testReadLikeJaxb() throws Exception {
+        List<GpxRoute> expected = readWithJaxb(GPX);
+        List<GpxRoute> actual = readWithStax(GPX);
+        assertRoutesEquals(expected, actual);
+
+        assertEquals(4, actual.size());
+        assertEquals(RouteCharacteristics.Waypoints, actual.get(0).getCharacteristics());
+        assertEquals("Metadata", actual.get(0).getName());
+        assertEquals(3, actual.get(0).getPositionCount());
+        assertEquals("Late", actual.get(0).getPosition(2).getComment());
+        assertEquals(RouteCharacteristics.Route, actual.get(1).getCharacteristics());
+        assertEquals(2, actual.get(1).getPositionCount());
+        assertEquals(RouteCharacteristics.Track, actual.get(2).getCharacteristics());
+        assertEquals("Route", actual.get(2).getName());
+        assertEquals(3, actual.get(2).getPositionCount());
+        assertEquals(10.35, actual.get(2).getPosition(1).getLongitude());
+        assertEquals("Track", actual.get(3).getName());
+        assertEquals(3, actual.get(3).getPositionCount());
+        assertEquals(12.5, actual.get(3).getPosition(0).getSpeed());
+        assertEquals(90.0, actual.get(3).getPosition(0).getHeading());
+    }
+
+    public void testReadEmptyRouteAndTrack() throws Exception {
+        String gpx = "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\"><rte><name>R</name></rte><trk/></gpx>";
+        assertRoutesEquals(readWithJaxb(gpx), readWithStax(gpx));
+    }
+
+    public void testReadRouteExtensionsAfterRoutePoints() throws Exception {
+        String gpx = "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:gpxx=\"http://www.garmin.com/xmlschemas/GpxExtensions/v3\" version=\"1.1\">" +
+                "<rte><name>Route</name>" +
+                "<rtept lat=\"53.3\" lon=\"10.3\"><extensions><gpxx:RoutePointExtension><gpxx:rpt lat=\"53.35\" lon=\"10.35\"/></gpxx:RoutePointExtension></extensions></rtept>" +
+                "<rtept lat=\"53.4\" lon=\"10.4\"/>" +
+                "<extensions><gpxx:RouteExtension><gpxx:IsAutoNamed>false</gpxx:IsAutoNamed></gpxx:RouteExtension></extensions>" +
+                "</rte></gpx>";
+        List<GpxRoute> actual = readWithStax(gpx);
+        assertRoutesEquals(readWithJaxb(gpx), actual);
+        assertEquals(2, actual.size());
+        assertEquals(RouteCharacteristics.Track, actual.get(1).getCharacteristics());
+        assertEquals(3, actual.get(1).getPositionCount());
+    }
+
+    public void testReadOtherVersionOrNamespace() throws Exception {
+        assertNull(readWithStax("<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.0\"/>"));
+        assertNull(readWithStax("<gpx xmlns=\"http://www.topografix.com/GPX/1/0\" version=\"1.1\"/>"));
+        assertNull(readWithStax("<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\">"));
+        assertEquals(0, readWithStax("<gpx xmlns=\"http://www.topografix.com/GPX/1/1\"/>").size());
+    }
+
+    public void testReadIntoSink() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        boolean result = new Gpx11Format().read(new ByteArrayInputStream(GPX.getBytes("UTF-8")), null, new PositionSink() {
+            public void startRoute(RouteCharacteristics characteristics, String name) {
+                events.add(characteristics + ":" + name);
+            }
+
+            public void position(BaseNavigationPosition position) {
+                events.add(position.getComment());
+            }
+
+            public void endRoute() {
+                events.add("end");
+            }
+        });
+        assertTrue(result);
+        assertEquals("Waypoints:Metadata", events.get(0));
+        assertEquals("First", events.get(1));
+        assertEquals("Second", events.get(2));
+        assertEquals("end", events.get(3));
+        assertEquals("Route:Route", events.get(4));
+        assertEquals("Waypoints:Metadata", events.get(events.size() - 3));
+        assertEquals("Late", events.get(events.size() - 2));
+    }
+
+    public void testWriteAndReadWithJaxb() throws Exception {
+        Gpx11Format format = new Gpx11Format();
+        List<GpxRoute> routes = readWithStax(GPX);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        format.write(routes, target);
+        String written = target.toString("UTF-8");
+        assertTrue(written.contains("<nmea:speed>12.5</nmea:speed>"));
+        assertTrue(written.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"));
+        assertTrue(written.endsWith("</gpx>\n"));
+        // the namespaces are declared once at the gpx element and not for every fragment
+        assertEquals(written.indexOf("xmlns:gpxtrx="), written.lastIndexOf("xmlns:gpxtrx="));
+        assertEquals(written.indexOf("xmlns:nmea="), written.lastIndexOf("xmlns:nmea="));
+        assertTrue(written.contains("\n                <gpxtrx:RoutePointExtension>\n                    <gpxtrx:rpt "));
+        assertRoutesEquals(readWithJaxb(written), readWithStax(written));
+        List<GpxRoute> read = readWithStax(written);
+        // the route with Garmin extensions is read once more as a track
+        assertEquals(5, read.size());
+        assertRoutesEquals(routes.subList(0, 3), read.subList(0, 3));
+        assertRoutesEquals(routes.subList(3, 4), read.subList(4, 5));
+    }
+
+    public void testWriteIntoSink() throws Exception {
+        Gpx11Format format = new Gpx11Format();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        Gpx11StreamWriter writer = new Gpx11StreamWriter(format, target);
+        writer.writeStart(new slash.navigation.gpx.binding11.ObjectFactory().createGpxType());
+        assertTrue(format.read(new ByteArrayInputStream(GPX.getBytes("UTF-8")), null, writer));
+        writer.writeEnd();
+        List<GpxRoute> routes = readWithJaxb(target.toString("UTF-8"));
+        assertEquals(4, routes.size());
+        assertEquals(3, routes.get(0).getPositionCount());
+        assertEquals("Track", routes.get(3).getName());
+        assertEquals(3, routes.get(3).getPositionCount());
+    }
+}
@@ -22,6 +22,8 @@ package slash.navigation.itn;
 
 import org.junit.Test;
 import slash.common.io.CompactCalendar;
+import slash.navigation.base.FileHead;
+import slash.navigation.base.Recognition;
 import slash.navigation.util.RouteComments;
 
 import java.io.IOException;
@@ -252,5 +254,18 @@ public class TomTomRouteFormatTest {
         assertDoubleEquals(248.9, position.getHeading());
         assertDoubleEquals(61.3, position.getSpeed());
     }
+
+    @Test
+    public void testRecognizeWithEncodingOfReader() throws IOException {
+        String route = "\ufeff\"Stra\u00dfe\"\n1046348|5364352|M\u00fcnchen|4|\n";
+        FileHead utf8 = new FileHead(route.getBytes("UTF-8"), true);
+        FileHead iso88591 = new FileHead(route.substring(1).getBytes("ISO8859-1"), true);
+
+        TomTomRouteFormat tomTom8 = new TomTom8RouteFormat();
+        assertEquals(Recognition.Possible, tomTom8.recognize(utf8));
+        assertEquals(Recognition.Mismatch, tomTom8.recognize(iso88591));
+        assertEquals(Recognition.Possible, format.recognize(utf8));
+        assertEquals(Recognition.Possible, format.recognize(iso88591));
+    }
 }
 
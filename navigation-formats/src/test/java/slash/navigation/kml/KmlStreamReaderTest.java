@@ -0,0 +1,170 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.kml;
+
+import slash.navigation.base.NavigationTestCase;
+import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.googlemaps.GoogleMapsPosition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class KmlStreamReaderTest extends NavigationTestCase {
+    private static final String KML_22 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<kml xmlns=\"http://www.opengis.net/kml/2.2\" xmlns:gx=\"http://www.google.com/kml/ext/2.2\">\n" +
+            "<Document><name>Top</name><description>Description</description>\n" +
+            " <Placemark><name>W1</name><Point><coordinates>10,50,1</coordinates></Point></Placemark>\n" +
+            " <Placemark><name>Route</name><LineString><coordinates>1,1,0 2,2,0</coordinates></LineString></Placemark>\n" +
+            " <Placemark><name>W2</name><TimeStamp><when>2010-01-02T03:04:05Z</when></TimeStamp><Point><coordinates>11,51</coordinates></Point></Placemark>\n" +
+            " <Placemark><name>Empty</name></Placemark>\n" +
+            " <Folder><name>Inner</name>\n" +
+            "  <Placemark><name>Track</name><gx:Track>\n" +
+            "   <when>2010-01-02T03:04:05Z</when><when>2010-01-02T03:04:06Z</when>\n" +
+            "   <gx:coord>3 3 30</gx:coord><gx:coord>4 4 40</gx:coord>\n" +
+            "  </gx:Track></Placemark>\n" +
+            " </Folder>\n" +
+            " <Document><name>Nested</name><Placemark><name>Multi</name><MultiGeometry>\n" +
+            "  <LineString><coordinates>5,5 6,6</coordinates></LineString><Point><coordinates>7,7</coordinates></Point>\n" +
+            " </MultiGeometry></Placemark></Document>\n" +
+            "</Document></kml>\n";
+
+    private static final String KML_20 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<Folder xmlns=\"http://earth.google.com/kml/2.0\"><name>Root</name>\n" +
+            " <Placemark><name>W1</name><TimePeriod><begin><TimeInstant><timePosition>2010-01-02T03:04:05Z</timePosition></TimeInstant></begin></TimePeriod>" +
+            "<Point><coordinates>10,50,1</coordinates></Point></Placemark>\n" +
+            " <Placemark><name>Line</name><GeometryCollection><LineString><coordinates>1,1 2,2 3,3</coordinates></LineString></GeometryCollection></Placemark>\n" +
+            "</Folder>\n";
+
+    private static String createKml21(String coordinates) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<kml xmlns=\"http://earth.google.com/kml/2.1\"><Placemark><name>Long</name>" +
+                "<LineString><coordinates>" + coordinates + "</coordinates></LineString></Placemark></kml>\n";
+    }
+
+    private static String createCoordinates(int count) {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            buffer.append(i % 180).append(".").append(i % 1000).append(", ");
+            buffer.append(i % 90).append(".").append(i % 997);
+            if (i % 3 == 0)
+                buffer.append(",").append(i % 1000);
+            buffer.append(i % 2 == 0 ? "\n  " : " ");
+        }
+        return buffer.toString();
+    }
+
+    private static ByteArrayInputStream asStream(String string, String encoding) throws IOException {
+        return new ByteArrayInputStream(string.getBytes(encoding));
+    }
+
+    public void testReadNestedContainers() throws IOException {
+        List<KmlRoute> routes = new Kml22Format().read(asStream(KML_22, "UTF-8"), null);
+        assertNotNull(routes);
+        assertEquals(4, routes.size());
+
+        KmlRoute wayPoints = routes.get(0);
+        assertEquals(RouteCharacteristics.Waypoints, wayPoints.getCharacteristics());
+        assertEquals("Top", wayPoints.getName());
+        assertEquals(2, wayPoints.getPositionCount());
+        assertEquals("W1", wayPoints.getPositions().get(0).getComment());
+        assertEquals("W2", wayPoints.getPositions().get(1).getComment());
+        assertNull(wayPoints.getPositions().get(0).getTime());
+        assertNotNull(wayPoints.getPositions().get(1).getTime());
+
+        assertEquals("Top/Route", routes.get(1).getName());
+        assertEquals(2, routes.get(1).getPositionCount());
+
+        KmlRoute track = routes.get(2);
+        assertEquals("Top/Inner/Track", track.getName());
+        assertEquals(2, track.getPositionCount());
+        assertDoubleEquals(3.0, track.getPositions().get(0).getLongitude());
+        assertDoubleEquals(40.0, track.getPositions().get(1).getElevation());
+        assertEquals(1000, track.getPositions().get(1).getTime().getTimeInMillis() -
+                track.getPositions().get(0).getTime().getTimeInMillis());
+
+        assertEquals("Top/Nested/Multi", routes.get(3).getName());
+        assertEquals(3, routes.get(3).getPositionCount());
+    }
+
+    public void testReadKml20Folder() throws IOException {
+        List<KmlRoute> routes = new Kml20Format().read(asStream(KML_20, "UTF-8"), null);
+        assertNotNull(routes);
+        assertEquals(2, routes.size());
+        assertEquals("Root", routes.get(0).getName());
+        assertEquals(1, routes.get(0).getPositionCount());
+        assertNotNull(routes.get(0).getPositions().get(0).getTime());
+        assertEquals("Root/Line", routes.get(1).getName());
+        assertEquals(3, routes.get(1).getPositionCount());
+    }
+
+    public void testReadLongCoordinatesInChunks() throws IOException {
+        String coordinates = createCoordinates(20000);
+        List<GoogleMapsPosition> expected = GoogleMapsPosition.parsePositions(coordinates);
+        List<KmlRoute> routes = new Kml21Format().read(asStream(createKml21(coordinates), "UTF-8"), null);
+        assertNotNull(routes);
+        assertEquals(1, routes.size());
+        List<KmlPosition> positions = routes.get(0).getPositions();
+        assertEquals(expected.size(), positions.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLongitude(), positions.get(i).getLongitude());
+            assertEquals(expected.get(i).getLatitude(), positions.get(i).getLatitude());
+            assertEquals(expected.get(i).getElevation(), positions.get(i).getElevation());
+        }
+    }
+
+    public void testFindTupleBoundary() {
+        assertEquals(-1, KmlStreamReader.findTupleBoundary(""));
+        assertEquals(-1, KmlStreamReader.findTupleBoundary("1,2,3"));
+        assertEquals(6, KmlStreamReader.findTupleBoundary("1,2,3 4,5,6"));
+        assertEquals(9, KmlStreamReader.findTupleBoundary("1, 2, 3\n 4, 5"));
+        assertEquals(6, KmlStreamReader.findTupleBoundary("1,2,3 4 ,5"));
+        assertEquals(-1, KmlStreamReader.findTupleBoundary("1, 2, 3 "));
+    }
+
+    public void testReadBrokenLittleEndian() throws IOException {
+        String kml = createKml21("1,1 2,2 3,3");
+        List<KmlRoute> routes = new BrokenKml21LittleEndianFormat().read(asStream(kml, "UTF-16LE"), null);
+        assertNotNull(routes);
+        assertEquals(1, routes.size());
+        assertEquals(3, routes.get(0).getPositionCount());
+    }
+
+    public void testReadKmz() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(bytes);
+        zip.putNextEntry(new ZipEntry("doc.kml"));
+        zip.write(createKml21("1,1 2,2").getBytes("UTF-8"));
+        zip.closeEntry();
+        zip.putNextEntry(new ZipEntry("files/image.png"));
+        zip.write(new byte[]{1, 2, 3});
+        zip.closeEntry();
+        zip.close();
+
+        List<KmlRoute> routes = new Kmz21Format().read(new ByteArrayInputStream(bytes.toByteArray()), null);
+        assertNotNull(routes);
+        assertEquals(1, routes.size());
+        assertEquals(2, routes.get(0).getPositionCount());
+    }
+}
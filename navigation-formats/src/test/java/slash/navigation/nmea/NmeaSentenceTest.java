@@ -0,0 +1,333 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.nmea;
+
+import org.junit.Test;
+import slash.common.hex.HexEncoder;
+import slash.common.io.Transfer;
+import slash.navigation.util.Conversion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NmeaSentenceTest {
+    private static final String[] SENTENCES = {
+            "$GPGGA,130441.89,5239.3154,N,00907.7011,E,1,08,1.25,16.76,M,46.79,M,,*6D",
+            "$GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F",
+            "$GPGGA,132713,5509.7861,N,00140.5854,W,1,07,1.0,98.9,M,,M,,*7d",
+            "$GPGGA,123613.957,,,,,0,00,,,M,0.0,M,,0000*59",
+            "$GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,   ,A*76",
+            "$GPRMC,140403.000,A,4837.5194,N,00903.4022,E,15.00,0.00,260707,,  *3E",
+            "$GPRMC,172103.38,V,4424.5358,N,06812.3754,W,0.000,0.000,101010,0,W,N*3A",
+            "$GPRMC,175947.000,A,4812.0597,N,01136.4663,E,0.0,163.8,010907,,,A*62",
+            "$GPWPL,5334.169,N,01001.920,E,STATN1*22",
+            "$GPWPL,4837.4374,N,903.4036,E,Comment, with separator *4C",
+            "$GPZDA,032910.542,07,08,2004,00,00*48",
+            "$GPVTG,0.00,T,,M,1.531,N,2.835,K,A*37",
+            "$GPVTG,138.7,T,,M,014.2,N,,K,A*00",
+            "$GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F",
+            "$PMGNTRK,4914.967,N,00651.208,E,000199,M,152224,A,KLLERTAL-RADWEG,210307*48",
+            "$PMGNTRK,5159.928,N,00528.243,E,-0008,M,093405.33,A,comment, with separator,250408*79",
+            "$PMGNWPL,4808.98261,N,01135.84141,E,0,M,Ifflandstrasse,,a*65",
+            "$PMGNWPL,4816.4647,N,01133.7043,E,0,M,1-startpunkt,Startpunkt Kreuzung,a*6D"
+    };
+    private static final String MUTATIONS = ",.-+0159ANSEWMKTVa? ";
+
+    private final NmeaFormat nmeaFormat = new NmeaFormat();
+    private final MagellanExploristFormat exploristFormat = new MagellanExploristFormat();
+    private final MagellanRouteFormat routeFormat = new MagellanRouteFormat();
+
+    private static String withChecksum(String body) {
+        byte checksum = 0;
+        for (int i = 0; i < body.length(); i++)
+            checksum ^= body.charAt(i);
+        return "$" + body + "*" + HexEncoder.encodeByte(checksum);
+    }
+
+    private static List<String> mutate(String line) {
+        String body = line.substring(1, line.length() - 3);
+        List<String> result = new ArrayList<String>();
+        result.add(withChecksum(body));
+        for (int i = 0; i < body.length(); i++) {
+            result.add(withChecksum(body.substring(0, i) + body.substring(i + 1)));
+            for (int j = 0; j < MUTATIONS.length(); j++) {
+                String prefix = body.substring(0, i), suffix = body.substring(i + 1);
+                result.add(withChecksum(prefix + MUTATIONS.charAt(j) + suffix));
+                result.add(withChecksum(prefix + MUTATIONS.charAt(j) + body.charAt(i) + suffix));
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testTokenize() {
+        NmeaSentence sentence = new NmeaSentence();
+        assertTrue(sentence.tokenize("$GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F"));
+        assertTrue(sentence.hasValidChecksum());
+        assertEquals(18, sentence.getFieldCount());
+        assertEquals(NmeaSentence.toSentenceId('G', 'S', 'A'), sentence.getSentenceId("GP"));
+        assertEquals(0, sentence.getSentenceId("PMGN"));
+        assertEquals("GPGSA", sentence.getString(0));
+        assertTrue(sentence.isEmpty(3));
+        assertEquals("15", sentence.getString(6));
+        assertEquals(15, sentence.getInteger(6).intValue());
+        assertEquals(1.5, sentence.getDouble(17), 0.0);
+        assertNull(sentence.getDouble(3));
+        assertEquals("4.7,4.4,1.5", sentence.getRest(15));
+
+        assertTrue(sentence.tokenize("$GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3f"));
+        assertTrue(sentence.hasValidChecksum());
+        assertTrue(sentence.tokenize("$GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3E"));
+        assertFalse(sentence.hasValidChecksum());
+        assertEquals(0x3F, sentence.getChecksum());
+
+        assertFalse(sentence.tokenize("$GPRMC,132713,A,5509.7861,N,00140.5854,W,2.1,278.3,010110,,*e"));
+        assertFalse(sentence.tokenize("$GPGSA,A,3*G0"));
+        assertFalse(sentence.tokenize("@Sonygps/ver1.0/wgs-84"));
+        assertFalse(sentence.tokenize("$*0"));
+        assertTrue(sentence.tokenize("$*00"));
+        assertEquals(1, sentence.getFieldCount());
+        assertTrue(sentence.isEmpty(0));
+    }
+
+    @Test
+    public void testGetDouble() {
+        NmeaSentence sentence = new NmeaSentence();
+        String[] numbers = {"0", "-0", "5.", ".5", "0000.0001", "4837.4374", "-022.4", "12345678901234.5",
+                "123456789012345678", "0.30000000000000004", "1.2.3", ".", "-", "--1", "999999999999999"};
+        for (String number : numbers) {
+            sentence.tokenize(withChecksum("GPXXX," + number));
+            Object expected, actual;
+            try {
+                expected = Transfer.parseDouble(number);
+            } catch (NumberFormatException e) {
+                expected = e.getClass();
+            }
+            try {
+                actual = sentence.getDouble(1);
+            } catch (NumberFormatException e) {
+                actual = e.getClass();
+            }
+            assertEquals(number, expected, actual);
+        }
+    }
+
+    @Test
+    public void testSameResultsAsRegularExpressions() {
+        int positions = 0;
+        for (String seed : SENTENCES) {
+            for (String line : mutate(seed)) {
+                assertEquals(line, RegularExpressions.isNmeaPosition(line), nmeaFormat.isPosition(line));
+                assertEquals(line, RegularExpressions.isExploristPosition(line), exploristFormat.isPosition(line));
+                assertEquals(line, RegularExpressions.isRoutePosition(line), routeFormat.isPosition(line));
+
+                if (nmeaFormat.isPosition(line)) {
+                    assertEquals(line, RegularExpressions.parseNmeaPosition(nmeaFormat, line), describe(nmeaFormat, line));
+                    positions++;
+                }
+                if (exploristFormat.isPosition(line)) {
+                    assertEquals(line, RegularExpressions.parseExploristPosition(exploristFormat, line), describe(exploristFormat, line));
+                    positions++;
+                }
+                if (routeFormat.isPosition(line)) {
+                    assertEquals(line, RegularExpressions.parseRoutePosition(line), describe(routeFormat, line));
+                    positions++;
+                }
+            }
+        }
+        assertTrue(positions > 1000);
+    }
+
+    private static String describe(BaseNmeaFormat format, String line) {
+        try {
+            return describe(format.parsePosition(line));
+        } catch (NumberFormatException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String describe(NmeaPosition position) {
+        return position.getLongitude() + " " + position.getWestOrEast() + " " +
+                position.getLatitude() + " " + position.getNorthOrSouth() + " " +
+                position.getElevation() + " " + position.getSpeed() + " " + position.getHeading() + " " +
+                (position.getTime() != null ? position.getTime().getTimeInMillis() : null) + " " +
+                position.getComment() + " " + position.getSatellites() + " " +
+                position.getPdop() + " " + position.getHdop() + " " + position.getVdop();
+    }
+
+    /**
+     * The regular expressions the formats used before the tokenizer.
+     */
+    private static class RegularExpressions {
+        private static final String SEPARATOR = ",";
+        private static final String BEGIN_OF_LINE = "^\\$GP";
+        private static final String END_OF_LINE = "\\*[0-9A-Fa-f][0-9A-Fa-f]$";
+
+        private static final Pattern GGA_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "GGA" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
+                        "([\\d+])" + SEPARATOR + "([\\d]*)" + SEPARATOR + "[\\d\\.]*" + SEPARATOR +
+                        "(-?[\\d\\.]*)" + SEPARATOR + "M" + SEPARATOR + "[-?\\d\\.]*" + SEPARATOR +
+                        "M?" + SEPARATOR + ".*" + SEPARATOR + ".*" + END_OF_LINE);
+        private static final Pattern RMC_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "RMC" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR + "[AV]" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([EW])" + SEPARATOR +
+                        "([\\d\\.]*)" + SEPARATOR + "[\\d\\.]*" + SEPARATOR + "(\\d*)" + SEPARATOR +
+                        "[\\d\\.]*" + SEPARATOR + "[\\d\\.]*" + SEPARATOR + "?" +
+                        "[AEW]?" + SEPARATOR + "?" + "([ADEMNS])?" + END_OF_LINE);
+        private static final Pattern WPL_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "WPL" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR + "(.*)" + END_OF_LINE);
+        private static final Pattern ZDA_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "ZDA" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR +
+                        "(\\d*)" + SEPARATOR + "(\\d*)" + SEPARATOR + "(\\d*)" + SEPARATOR +
+                        "\\d*" + SEPARATOR + "\\d*" + END_OF_LINE);
+        private static final Pattern VTG_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "VTG" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR + "T" + SEPARATOR +
+                        "[\\d\\.]*" + SEPARATOR + "M" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR + "N" + SEPARATOR +
+                        "([\\d\\.]*)" + SEPARATOR + "K" + SEPARATOR + "A" + END_OF_LINE);
+        private static final Pattern GSA_PATTERN = Pattern.
+                compile(BEGIN_OF_LINE + "GSA" + SEPARATOR + "[AM]" + SEPARATOR + "([123])" + SEPARATOR +
+                        "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR +
+                        "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR +
+                        "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR + "\\d*" + SEPARATOR +
+                        "([\\d\\.]*)" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR + "([\\d\\.]*)" + END_OF_LINE);
+        private static final Pattern TRK_PATTERN = Pattern.
+                compile("^\\$PMGNTRK" + SEPARATOR + "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR + "(-?[\\d\\.]+)" + SEPARATOR +
+                        "M" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR + "[A]" + SEPARATOR +
+                        "(.*)" + SEPARATOR + "(\\d*)" + END_OF_LINE);
+        private static final Pattern MAGELLAN_WPL_PATTERN = Pattern.
+                compile("^\\$PMGNWPL" + SEPARATOR + "([\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
+                        "([\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR + "(-?[\\d\\.]+)" + SEPARATOR +
+                        "M" + SEPARATOR + "([^" + SEPARATOR + "]*)" + SEPARATOR +
+                        "[^" + SEPARATOR + "]*" + SEPARATOR + "a" + END_OF_LINE);
+
+        static boolean isNmeaPosition(String line) {
+            Matcher rmcMatcher = RMC_PATTERN.matcher(line);
+            if (rmcMatcher.matches())
+                return !"N".equals(rmcMatcher.group(8));
+            Matcher ggaMatcher = GGA_PATTERN.matcher(line);
+            if (ggaMatcher.matches())
+                return !"0".equals(ggaMatcher.group(6));
+            if (WPL_PATTERN.matcher(line).matches() || ZDA_PATTERN.matcher(line).matches() ||
+                    VTG_PATTERN.matcher(line).matches())
+                return true;
+            Matcher gsaMatcher = GSA_PATTERN.matcher(line);
+            return gsaMatcher.matches() && !"1".equals(gsaMatcher.group(1));
+        }
+
+        static boolean isExploristPosition(String line) {
+            return TRK_PATTERN.matcher(line).matches();
+        }
+
+        static boolean isRoutePosition(String line) {
+            return MAGELLAN_WPL_PATTERN.matcher(line).matches();
+        }
+
+        static String parseNmeaPosition(BaseNmeaFormat format, String line) {
+            try {
+                Matcher matcher = RMC_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    Double knots = Transfer.parseDouble(matcher.group(6));
+                    return describe(new NmeaPosition(Transfer.parseDouble(matcher.group(4)), matcher.group(5),
+                            Transfer.parseDouble(matcher.group(2)), matcher.group(3), null,
+                            knots != null ? Conversion.knotsToKilometers(knots) : null, null,
+                            format.parseDateAndTime(matcher.group(7), matcher.group(1)), null));
+                }
+                matcher = GGA_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    NmeaPosition position = new NmeaPosition(Transfer.parseDouble(matcher.group(4)), matcher.group(5),
+                            Transfer.parseDouble(matcher.group(2)), matcher.group(3), Transfer.parseDouble(matcher.group(8)),
+                            null, null, format.parseTime(matcher.group(1)), null);
+                    position.setSatellites(Transfer.parseInt(matcher.group(7)));
+                    return describe(position);
+                }
+                matcher = WPL_PATTERN.matcher(line);
+                if (matcher.matches())
+                    return describe(new NmeaPosition(Transfer.parseDouble(matcher.group(3)), matcher.group(4),
+                            Transfer.parseDouble(matcher.group(1)), matcher.group(2), null, null, null, null,
+                            Transfer.trim(matcher.group(5))));
+                matcher = ZDA_PATTERN.matcher(line);
+                if (matcher.matches())
+                    return describe(new NmeaPosition(null, null, null, null, null, null, null,
+                            format.parseDateAndTime(matcher.group(2) + matcher.group(3) + matcher.group(4), matcher.group(1)), null));
+                matcher = VTG_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    Double speed = Transfer.parseDouble(matcher.group(3));
+                    if (speed == null) {
+                        speed = Transfer.parseDouble(matcher.group(2));
+                        if (speed != null)
+                            speed = Conversion.knotsToKilometers(speed);
+                    }
+                    return describe(new NmeaPosition(null, null, null, null, null, speed,
+                            Transfer.parseDouble(matcher.group(1)), null, null));
+                }
+                matcher = GSA_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    NmeaPosition position = new NmeaPosition(null, null, null, null, null, null, null, null, null);
+                    position.setPdop(Transfer.parseDouble(matcher.group(2)));
+                    position.setHdop(Transfer.parseDouble(matcher.group(3)));
+                    position.setVdop(Transfer.parseDouble(matcher.group(4)));
+                    return describe(position);
+                }
+                throw new IllegalArgumentException("'" + line + "' does not match");
+            } catch (NumberFormatException e) {
+                return e.getClass().getName();
+            }
+        }
+
+        static String parseExploristPosition(BaseNmeaFormat format, String line) {
+            Matcher matcher = TRK_PATTERN.matcher(line);
+            assertTrue(matcher.matches());
+            try {
+                return describe(new NmeaPosition(Transfer.parseDouble(matcher.group(3)), matcher.group(4),
+                        Transfer.parseDouble(matcher.group(1)), matcher.group(2), Double.parseDouble(matcher.group(5)),
+                        null, null, format.parseDateAndTime(matcher.group(8), matcher.group(6)),
+                        Transfer.trim(Transfer.toMixedCase(matcher.group(7)))));
+            } catch (NumberFormatException e) {
+                return e.getClass().getName();
+            }
+        }
+
+        static String parseRoutePosition(String line) {
+            Matcher matcher = MAGELLAN_WPL_PATTERN.matcher(line);
+            assertTrue(matcher.matches());
+            try {
+                return describe(new NmeaPosition(Transfer.parseDouble(matcher.group(3)), matcher.group(4),
+                        Transfer.parseDouble(matcher.group(1)), matcher.group(2), Double.parseDouble(matcher.group(5)),
+                        null, null, null, Transfer.trim(Transfer.toMixedCase(matcher.group(6)))));
+            } catch (NumberFormatException e) {
+                return e.getClass().getName();
+            }
+        }
+    }
+}
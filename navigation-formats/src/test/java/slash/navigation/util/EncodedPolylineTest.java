@@ -0,0 +1,69 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+import slash.navigation.base.Wgs84Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class EncodedPolylineTest {
+    private static Wgs84Position position(double longitude, double latitude) {
+        return new Wgs84Position(longitude, latitude, null, null, null, null);
+    }
+
+    @Test
+    public void testEncode() {
+        List<Wgs84Position> positions = Arrays.asList(position(-120.2, 38.5), position(-120.95, 40.7), position(-126.453, 43.252));
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", EncodedPolyline.encode(positions));
+        assertEquals("", EncodedPolyline.encode(new ArrayList<Wgs84Position>()));
+    }
+
+    @Test
+    public void testEncodeLevels() {
+        assertEquals("PPP", EncodedPolyline.encodeLevels(3, 17));
+        assertEquals("?", EncodedPolyline.encodeLevels(1, 0));
+    }
+
+    @Test
+    public void testDecode() {
+        List<Wgs84Position> positions = EncodedPolyline.decode("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+        assertEquals(3, positions.size());
+        assertEquals(-126.453, positions.get(2).getLongitude(), 0.0);
+        assertEquals(43.252, positions.get(2).getLatitude(), 0.0);
+
+        Random random = new Random(5);
+        List<Wgs84Position> expected = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < 1000; i++)
+            expected.add(position(random.nextDouble() * 360.0 - 180.0, random.nextDouble() * 180.0 - 90.0));
+        List<Wgs84Position> actual = EncodedPolyline.decode(EncodedPolyline.encode(expected));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0.000005);
+            assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0.000005);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeodesyTest {
+
+    @Test
+    public void testSameAsBearing() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            double longitude1 = random.nextDouble() * 360.0 - 180.0, latitude1 = random.nextDouble() * 170.0 - 85.0;
+            double longitude2 = longitude1 + random.nextGaussian(), latitude2 = latitude1 + random.nextGaussian() / 2.0;
+            Bearing bearing = Bearing.calculateBearing(longitude1, latitude1, longitude2, latitude2);
+            assertEquals(bearing.getDistance(), Geodesy.distance(longitude1, latitude1, longitude2, latitude2), 0.0);
+            assertEquals(bearing.getAngle(), Geodesy.azimuth(longitude1, latitude1, longitude2, latitude2), 0.0);
+            assertEquals(bearing.getBackAzimuth(), Geodesy.backAzimuth(longitude1, latitude1, longitude2, latitude2), 0.0);
+        }
+    }
+
+    @Test
+    public void testNaN() {
+        assertTrue(Double.isNaN(Geodesy.distance(Double.NaN, 53.5, 10.0, 53.6)));
+        assertTrue(Double.isNaN(Geodesy.distance(10.0, 53.5, 10.0, Double.NaN, 1.0)));
+        assertTrue(Double.isNaN(Geodesy.azimuth(10.0, Double.NaN, 10.0, 53.6)));
+    }
+
+    @Test
+    public void testApproximationWithinMaximumError() {
+        Random random = new Random(11);
+        double[] maximumErrors = new double[]{0.001, 0.01, 1.0, 100.0};
+        for (int i = 0; i < 100000; i++) {
+            double longitude1 = random.nextDouble() * 360.0 - 180.0, latitude1 = random.nextDouble() * 178.0 - 89.0;
+            double scale = Math.pow(10.0, -4.0 + random.nextDouble() * 5.0);
+            double longitude2 = longitude1 + random.nextGaussian() * scale, latitude2 = latitude1 + random.nextGaussian() * scale;
+            if (Math.abs(latitude2) > 89.5)
+                continue;
+            double exact = Geodesy.distance(longitude1, latitude1, longitude2, latitude2);
+            double maximumError = maximumErrors[i % maximumErrors.length];
+            double approximated = Geodesy.distance(longitude1, latitude1, longitude2, latitude2, maximumError);
+            assertEquals(exact, approximated, maximumError + 0.0002);
+        }
+    }
+
+    @Test
+    public void testApproximationAcrossDateLine() {
+        double exact = Geodesy.distance(179.9995, 10.0, -179.9995, 10.0);
+        assertEquals(exact, Geodesy.distance(179.9995, 10.0, -179.9995, 10.0, 0.01), 0.01);
+        assertTrue(exact < 200.0);
+    }
+
+    @Test
+    public void testDistances() {
+        double[] longitudes = new double[]{10.0, 10.001, Double.NaN, 10.003, 10.01};
+        double[] latitudes = new double[]{53.0, 53.001, 53.002, 53.003, 53.01};
+        double[] distances = new double[5];
+        Geodesy.distances(longitudes, latitudes, distances);
+        assertEquals(0.0, distances[0], 0.0);
+        assertEquals(Geodesy.distance(10.0, 53.0, 10.001, 53.001), distances[1], 0.0);
+        assertTrue(Double.isNaN(distances[2]));
+        assertTrue(Double.isNaN(distances[3]));
+        assertEquals(Geodesy.distance(10.003, 53.003, 10.01, 53.01), distances[4], 0.0);
+
+        double[] approximated = new double[5];
+        Geodesy.distances(longitudes, latitudes, 1, 5, approximated, 0.01);
+        assertEquals(0.0, approximated[0], 0.0);
+        assertEquals(distances[1], approximated[1], 0.01);
+        assertEquals(distances[4], approximated[4], 0.01);
+    }
+}
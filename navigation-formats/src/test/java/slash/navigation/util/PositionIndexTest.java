@@ -0,0 +1,149 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+import slash.navigation.base.Wgs84Position;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PositionIndexTest {
+    private static Wgs84Position position(double longitude, double latitude) {
+        return new Wgs84Position(longitude, latitude, null, null, null, null);
+    }
+
+    private static List<Wgs84Position> createTrack(Random random, int count) {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        double longitude = 10.0, latitude = 53.0, heading = 0.0;
+        for (int i = 0; i < count; i++) {
+            heading += random.nextGaussian() * 0.2;
+            longitude += Math.sin(heading) * 0.0002;
+            latitude += Math.cos(heading) * 0.0001;
+            positions.add(position(longitude, latitude));
+        }
+        // a jump that creates a segment across many cells
+        positions.get(count / 2).setLongitude(longitude + 1.0);
+        return positions;
+    }
+
+    private static double distance(Wgs84Position position, double longitude, double latitude) {
+        double scale = Math.cos(Math.toRadians(latitude));
+        double x = (position.getLongitude() - longitude) * scale, y = position.getLatitude() - latitude;
+        return x * x + y * y;
+    }
+
+    private static double distance(Wgs84Position from, Wgs84Position to, double longitude, double latitude) {
+        double scale = Math.cos(Math.toRadians(latitude));
+        double fromX = (from.getLongitude() - longitude) * scale, fromY = from.getLatitude() - latitude;
+        double deltaX = (to.getLongitude() - from.getLongitude()) * scale, deltaY = to.getLatitude() - from.getLatitude();
+        double lengthSquared = deltaX * deltaX + deltaY * deltaY;
+        double fraction = lengthSquared > 0.0 ? -(fromX * deltaX + fromY * deltaY) / lengthSquared : 0.0;
+        fraction = Math.max(0.0, Math.min(1.0, fraction));
+        double x = fromX + fraction * deltaX, y = fromY + fraction * deltaY;
+        return x * x + y * y;
+    }
+
+    private static void assertQueries(List<Wgs84Position> positions, PositionIndex index, Random random) {
+        assertEquals(positions.size(), index.size());
+        for (int i = 0; i < 10; i++) {
+            Wgs84Position position = positions.get(random.nextInt(positions.size()));
+            double longitude = position.getLongitude() + random.nextGaussian() * 0.01;
+            double latitude = position.getLatitude() + random.nextGaussian() * 0.01;
+
+            int nearestPosition = 0, nearestSegment = 0;
+            for (int j = 1; j < positions.size(); j++) {
+                if (distance(positions.get(j), longitude, latitude) < distance(positions.get(nearestPosition), longitude, latitude))
+                    nearestPosition = j;
+                if (j < positions.size() - 1 &&
+                        distance(positions.get(j), positions.get(j + 1), longitude, latitude) <
+                                distance(positions.get(nearestSegment), positions.get(nearestSegment + 1), longitude, latitude))
+                    nearestSegment = j;
+            }
+            assertEquals(nearestPosition, index.getNearestPosition(longitude, latitude));
+            // adjacent segments are equally near to the position they share
+            int segment = index.getNearestSegment(longitude, latitude);
+            assertEquals(distance(positions.get(nearestSegment), positions.get(nearestSegment + 1), longitude, latitude),
+                    distance(positions.get(segment), positions.get(segment + 1), longitude, latitude), 1.0e-15);
+            assertEquals(nearestPosition, index.getIndex(positions.get(nearestPosition)));
+
+            Wgs84Position northEast = position(longitude + 0.005, latitude + 0.003);
+            Wgs84Position southWest = position(longitude - 0.005, latitude - 0.003);
+            BitSet expected = new BitSet();
+            for (int j = 0; j < positions.size(); j++)
+                if (Positions.contains(northEast, southWest, positions.get(j)))
+                    expected.set(j);
+            assertEquals(expected, index.getPositionsWithin(northEast, southWest));
+        }
+    }
+
+    @Test
+    public void testQueries() {
+        Random random = new Random(5);
+        List<Wgs84Position> positions = createTrack(random, 5000);
+        positions.add(1000, new Wgs84Position(null, null, null, null, null, null));
+        PositionIndex index = new PositionIndex();
+        index.update(positions);
+        assertEquals(-1, index.getIndex(positions.get(1000)));
+        positions.remove(1000);
+        index.update(positions);
+        assertQueries(positions, index, random);
+
+        PositionIndex empty = new PositionIndex();
+        empty.update(new ArrayList<Wgs84Position>());
+        assertEquals(-1, empty.getNearestPosition(10.0, 53.0));
+        assertEquals(-1, empty.getNearestSegment(10.0, 53.0));
+        assertEquals(0, empty.getPositionsWithin(position(11.0, 54.0), position(9.0, 52.0)).cardinality());
+    }
+
+    @Test
+    public void testQueriesAfterModifications() {
+        Random random = new Random(7);
+        List<Wgs84Position> positions = createTrack(random, 2000);
+        PositionIndex index = new PositionIndex();
+        index.update(positions);
+
+        for (int i = 0; i < 200; i++) {
+            int position = random.nextInt(positions.size());
+            Wgs84Position previous = positions.get(position);
+            switch (random.nextInt(4)) {
+                case 0:
+                    positions.remove(position);
+                    break;
+                case 1:
+                    positions.add(position, position(previous.getLongitude() + 0.0001, previous.getLatitude()));
+                    break;
+                case 2:
+                    previous.setLongitude(previous.getLongitude() + random.nextGaussian() * 0.01);
+                    break;
+                default:
+                    positions.subList(position, Math.min(position + 5, positions.size())).clear();
+                    break;
+            }
+            index.update(positions);
+            assertQueries(positions, index, random);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+import slash.navigation.base.Wgs84Position;
+import slash.navigation.base.Wgs84PositionList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PositionsTest {
+    private static Wgs84Position position(double longitude, double latitude) {
+        return new Wgs84Position(longitude, latitude, null, null, null, null);
+    }
+
+    @Test
+    public void testSignificantPositionsOfLineWithSpike() {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < 10; i++)
+            positions.add(position(10.0 + i * 0.001, 53.0));
+        positions.add(position(10.0105, 53.001));
+        for (int i = 11; i < 20; i++)
+            positions.add(position(10.0 + i * 0.001, 53.0));
+
+        assertArrayEquals(new int[]{0, 9, 10, 11, 19}, Positions.getSignificantPositions(positions, 10.0));
+        assertArrayEquals(new int[]{0, 19}, Positions.getSignificantPositions(positions, 200.0));
+    }
+
+    @Test
+    public void testSignificantPositionsAcrossDateLine() {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        for (int i = 0; i < 10; i++)
+            positions.add(position(179.9955 + i * 0.001 - (i > 4 ? 360.0 : 0.0), -17.0));
+        assertArrayEquals(new int[]{0, 9}, Positions.getSignificantPositions(positions, 1.0));
+    }
+
+    @Test
+    public void testSignificantPositionsWithoutCoordinates() {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        positions.add(position(10.0, 53.0));
+        positions.add(new Wgs84Position(null, null, null, null, null, null));
+        positions.add(position(10.002, 53.0));
+        assertArrayEquals(new int[]{0, 2}, Positions.getSignificantPositions(positions, 1.0));
+        assertArrayEquals(new int[0], Positions.getSignificantPositions(new ArrayList<Wgs84Position>(), 1.0));
+        assertArrayEquals(new int[]{0}, Positions.getSignificantPositions(positions.subList(0, 1), 1.0));
+    }
+
+    @Test
+    public void testInsignificantPositionsAreWithinThreshold() {
+        Random random = new Random(5);
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        Wgs84PositionList columns = new Wgs84PositionList();
+        double longitude = 10.0, latitude = 53.0, heading = 0.0;
+        for (int i = 0; i < 150000; i++) {
+            heading += random.nextGaussian() * 0.2;
+            longitude += Math.sin(heading) * 0.0002;
+            latitude += Math.cos(heading) * 0.0001;
+            positions.add(position(longitude, latitude));
+            columns.add(position(longitude, latitude));
+        }
+
+        double threshold = 25.0;
+        BitSet significant = Positions.getSignificantPositionSet(positions, threshold);
+        assertEquals(significant, Positions.getSignificantPositionSet(columns, threshold));
+        assertTrue(significant.get(0));
+        assertTrue(significant.get(positions.size() - 1));
+        assertTrue(significant.cardinality() < positions.size() / 2);
+
+        int previous = 0;
+        for (int i = significant.nextSetBit(1); i >= 0; i = significant.nextSetBit(i + 1)) {
+            for (int j = previous + 1; j < i; j++) {
+                double distance = Math.abs(positions.get(j).calculateOrthogonalDistance(positions.get(previous), positions.get(i)));
+                assertTrue("index " + j + " distance " + distance, distance <= threshold * 1.01);
+            }
+            previous = i;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import slash.navigation.itn.TomTomPosition;
+
+/**
+ * Measures the time RouteComments#parseComment spends per position
+ * with and without the classification of the comment.
+ *
+ * @author Christian Pesch
+ */
+public class RouteCommentsBenchmark {
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURE_ITERATIONS = 50;
+    private static final String[] PLAIN_COMMENTS = new String[]{
+            "Hamburg/Uhlenhorst", "Position 17", "Borkum - Anleger", "Finkenau, Hamburg, Uhlenhorst (Hamburg)",
+            "L339/Wuppertaler Strasse", "Trackpoint 4711"
+    };
+
+    private static long run(String[] comments, boolean classify) {
+        TomTomPosition position = new TomTomPosition((Integer) null, null, null);
+        long start = System.nanoTime();
+        for (String comment : comments) {
+            if (classify)
+                RouteComments.parseComment(position, comment);
+            else
+                RouteComments.parseComment(position, comment, RouteComments.ALL_COMMENTS);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static double measure(String[] comments, boolean classify) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            run(comments, classify);
+        long nanos = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; i++)
+            nanos += run(comments, classify);
+        return (double) nanos / MEASURE_ITERATIONS / comments.length;
+    }
+
+    private static String[] repeat(String[] comments, int count) {
+        String[] result = new String[comments.length * count];
+        for (int i = 0; i < result.length; i++)
+            result[i] = comments[i % comments.length];
+        return result;
+    }
+
+    private static void report(String name, String[] comments) {
+        System.out.println(String.format("%-10s all patterns: %8.1f ns/position  classified: %8.1f ns/position",
+                name, measure(comments, false), measure(comments, true)));
+    }
+
+    public static void main(String[] args) {
+        report("plain", repeat(PLAIN_COMMENTS, 1000));
+        report("tripmaster", repeat(RouteCommentsTest.COMMENTS, 200));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+import slash.navigation.itn.TomTomPosition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RouteCommentsTest {
+    static final String[] COMMENTS = new String[]{
+            "Abstand 6 - 11:32:26 - 34 m - Bahrenfeld",
+            "Punkt - 12:01:38 - 10.9 m - Holm DE (Pinneberg)",
+            "Richtung 316 - 11:32:26 - 34 m - Bahrenfeld",
+            "Start : Noyal-Sur-Vilaine - 23/11/2006 - 08:50:26 - 37.2 m - 0.4 Km",
+            "Start : Weil Der Stadt - 27/12/2006 - 13:35:13 - 430.5 m - 0.0 km",
+            "Ende : Herrenberg - 14:03:45 - 437.4 m - 25.5 km",
+            "Finish : Cesson-Sevigne - 09:03:23 - 51.9 m - 8.6 Km",
+            "09:02:43 - 47.5 m",
+            "23:33:44 - -2.5 m",
+            "15:01:20 - Start : 26/02/2010 15:01:20 - 10.2 m",
+            "16:22:22 - Ende : 26/02/2010 16:22:22 - 9.8 m",
+            "15:05:00 - Kurs 173 - 10.4 m",
+            "15:08:43 - Dauer 0:07:33 - 23.5 m",
+            "09:01:31 - Cape 125: Cesson-Sevigne - 62.0 m - 7.1 Km",
+            "13:35:50 - Kurs 83 : Weil Der Stadt - 411.4 m - 0.0 km",
+            "13:36:13 - Wpt : Weil Der Stadt - 408.5 m - 0.1 km - 25 km/h",
+            "08:51:25 - Km 1.4: Acigne - 26.5 m - 1.4 km - 69 Km/h",
+            "18:51:45 - Hohenfelde (Hamburg) - 42.0 m - 0.2 Km - 2 Km/h - 5",
+            "18:51:59 - Dur. 0:05:55 : Hohenfelde (Hamburg) - 41.0 m - 0.2 Km - 5 Km/h - 6",
+            "09:34:55 - Start : 30/09/2007 09:34:55 : Abtsgmuend - 369.2 m - 0.0 km - 0 km/h - 6",
+            "20:15:11 - Finish : 31/08/2007 20:15:11 : Altona-Altstadt - 24.6 m - 10.3 Km - 7 Km/h - 7",
+            "08:45:54 - Start : 04/04/2009 08:45:54 - 12.7 m - 0.0 Km - 5 Km/h - 11",
+            "080629 07:33:00: + Eschelbach (Rhein-Neckar-Kreis); L612 @196.9m (s=66 d=91)",
+            "081012 19:00:47: * 17159970:-4176126 @?m (s=12 d=170)",
+            "090314 08:05:55: * 1000462:4889518 @365.8m (s=1 d=193)",
+            "090314 07:36:52: = 1000466:4889529 (@365.8m 090314 07:36:52 - 090314 08:02:04)",
+            "090314 07:36:52: - Rottstuecker (Wiesloch); K4174 Horrenberger Strasse (s=66 d=6)",
+            "12:23:10 Start (#1)",
+            "13:31 v=54.5 alt=79 (#3634)",
+            "13:58 0.7 min Pause (#5444)",
+            "15:04 0.7 min Pause 48.2m (#1377)",
+            "Start : Los : 07/08/2004 03:29:10 - 47.4 m - 0.0 Km/h - 0.0 deg",
+            "Finish : Los : 07/08/2004 03:29:10 - 82.4 m - 61.3 Km/h - 248.9 deg - 1354 Km",
+            "Weiter : 03:29:10 - 47.4 m - 61.3 Km/h - 248.9 deg - 5 Km",
+            "12:00:00 : 03:29:10 - 47.4 m - 61.3 Km/h - 248.9 deg",
+            "Course 327",
+            "Hamburg/Uhlenhorst",
+            "Position 17",
+            "Borkum - Anleger",
+            "12:00",
+            ""
+    };
+
+    private void assertParsedEqually(String comment) {
+        TomTomPosition filtered = new TomTomPosition((Integer) null, null, null);
+        RouteComments.parseComment(filtered, comment);
+        TomTomPosition unfiltered = new TomTomPosition((Integer) null, null, null);
+        RouteComments.parseComment(unfiltered, comment, RouteComments.ALL_COMMENTS);
+
+        assertEquals(comment, unfiltered.getTime(), filtered.getTime());
+        assertEquals(comment, unfiltered.getElevation(), filtered.getElevation());
+        assertEquals(comment, unfiltered.getSpeed(), filtered.getSpeed());
+        assertEquals(comment, unfiltered.getHeading(), filtered.getHeading());
+        assertEquals(comment, unfiltered.getReason(), filtered.getReason());
+        assertEquals(comment, unfiltered.getCity(), filtered.getCity());
+    }
+
+    @Test
+    public void testPrefilterParsesLikeAllPatterns() {
+        for (String comment : COMMENTS) {
+            for (int i = 0; i <= comment.length(); i++) {
+                assertParsedEqually(comment.substring(0, i));
+                assertParsedEqually(comment.substring(i));
+            }
+        }
+    }
+
+    @Test
+    public void testClassifyComment() {
+        assertEquals(0, RouteComments.classifyComment("Hamburg/Uhlenhorst"));
+        assertEquals(0, RouteComments.classifyComment("Borkum - Anleger"));
+        assertEquals(0, RouteComments.classifyComment("12:00"));
+        assertEquals(RouteComments.TRIPMASTER_14,
+                RouteComments.classifyComment("Abstand 6 - 11:32:26 - 34 m - Bahrenfeld"));
+        assertEquals(RouteComments.TRIPMASTER_SHORT | RouteComments.TTTRACKLOG,
+                RouteComments.classifyComment("09:02:43 - 47.5 m"));
+        assertEquals(RouteComments.LOGPOS,
+                RouteComments.classifyComment("090314 08:05:55: * 1000462:4889518 @365.8m (s=1 d=193)"));
+        int routeConverter = RouteComments.classifyComment("Start : Los : 07/08/2004 03:29:10 - 47.4 m - 0.0 Km/h - 0.0 deg");
+        assertTrue((routeConverter & RouteComments.ROUTECONVERTER_STARTEND) != 0);
+        assertTrue((routeConverter & RouteComments.ROUTECONVERTER_INTERMEDIATE) != 0);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.util;
+
+import org.junit.Test;
+import slash.navigation.base.Wgs84Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SignificanceIndexTest {
+    private static final double[] THRESHOLDS = {1.0, 10.0, 100.0, 1000.0};
+
+    private static Wgs84Position position(double longitude, double latitude) {
+        return new Wgs84Position(longitude, latitude, null, null, null, null);
+    }
+
+    private static List<Wgs84Position> createTrack(Random random, int count) {
+        List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
+        double longitude = 10.0, latitude = 53.0, heading = 0.0;
+        for (int i = 0; i < count; i++) {
+            heading += random.nextGaussian() * 0.2;
+            longitude += Math.sin(heading) * 0.0002;
+            latitude += Math.cos(heading) * 0.0001;
+            positions.add(position(longitude, latitude));
+        }
+        return positions;
+    }
+
+    private static void assertSignificantPositions(List<Wgs84Position> positions, SignificanceIndex index) {
+        assertEquals(positions.size(), index.size());
+        for (double threshold : THRESHOLDS)
+            assertEquals("threshold " + threshold, Positions.getSignificantPositionSet(positions, threshold),
+                    index.getSignificantPositions(threshold));
+    }
+
+    @Test
+    public void testSignificantPositions() {
+        List<Wgs84Position> positions = createTrack(new Random(5), 20000);
+        SignificanceIndex index = new SignificanceIndex();
+        index.update(positions);
+        assertSignificantPositions(positions, index);
+
+        index.update(new ArrayList<Wgs84Position>());
+        assertEquals(0, index.size());
+        assertEquals(0, index.getSignificantPositions(1.0).cardinality());
+        index.update(positions.subList(0, 1));
+        assertTrue(index.getSignificantPositions(1.0).get(0));
+    }
+
+    @Test
+    public void testSignificantPositionsAfterModifications() {
+        Random random = new Random(7);
+        List<Wgs84Position> positions = createTrack(random, 5000);
+        SignificanceIndex index = new SignificanceIndex();
+        index.update(positions);
+
+        for (int i = 0; i < 500; i++) {
+            int position = 1 + random.nextInt(positions.size() - 2);
+            Wgs84Position previous = positions.get(position);
+            switch (random.nextInt(4)) {
+                case 0:
+                    positions.remove(position);
+                    break;
+                case 1:
+                    positions.add(position, position(previous.getLongitude() + 0.0001, previous.getLatitude()));
+                    break;
+                case 2:
+                    previous.setLongitude(previous.getLongitude() + random.nextGaussian() * (i % 10 == 0 ? 0.1 : 0.001));
+                    break;
+                default:
+                    positions.subList(position, Math.min(position + 5, positions.size() - 1)).clear();
+                    break;
+            }
+            index.update(positions);
+            assertSignificantPositions(positions, index);
+        }
+    }
+}
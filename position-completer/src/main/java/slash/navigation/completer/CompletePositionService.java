@@ -29,6 +29,7 @@ import java.io.IOException;
 
 /**
  * Helps to complete positions with elevation, postal address and populated place information.
+ * A single instance may be shared by many threads.
  *
  * @author Christian Pesch
  */
@@ -54,6 +55,57 @@ public class CompletePositionService {
         return elevation;
     }
 
+    /**
+     * Starts to download the elevation data for the given positions in the background.
+     */
+    public void prefetchElevationsFor(double[] longitudes, double[] latitudes) {
+        hgtFiles.prefetch(hgtFiles.createFileKeys(longitudes, latitudes));
+    }
+
+    private static int[] getMissingIndices(double[] elevations) {
+        int count = 0;
+        for (double elevation : elevations)
+            if (Double.isNaN(elevation))
+                count++;
+        int[] indices = new int[count];
+        count = 0;
+        for (int i = 0; i < elevations.length; i++)
+            if (Double.isNaN(elevations[i]))
+                indices[count++] = i;
+        return indices;
+    }
+
+    private static double[] select(double[] values, int[] indices) {
+        double[] result = new double[indices.length];
+        for (int i = 0; i < indices.length; i++)
+            result[i] = values[indices[i]];
+        return result;
+    }
+
+    /**
+     * Returns the elevations for the given positions. The HGT files are queried
+     * tile by tile, only the remaining positions are asked from geonames.org in
+     * batches and finally from earthtools.org. Positions without elevation
+     * result in {@link Double#NaN}.
+     */
+    public double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        double[] elevations = hgtFiles.getElevationsFor(longitudes, latitudes);
+
+        int[] missing = getMissingIndices(elevations);
+        if (missing.length > 0) {
+            double[] geoNamesElevations = geoNamesService.getElevationsFor(select(longitudes, missing), select(latitudes, missing));
+            for (int i = 0; i < missing.length; i++)
+                elevations[missing[i]] = geoNamesElevations[i];
+        }
+
+        for (int index : getMissingIndices(elevations)) {
+            Integer elevation = earthToolsService.getElevationFor(longitudes[index], latitudes[index]);
+            if (elevation != null)
+                elevations[index] = elevation;
+        }
+        return elevations;
+    }
+
     public String getCommentFor(double longitude, double latitude) throws IOException {
         String comment = googleMapsService.getLocationFor(longitude, latitude);
         if (comment == null)
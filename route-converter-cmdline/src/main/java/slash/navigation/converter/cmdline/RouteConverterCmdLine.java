@@ -62,11 +62,8 @@ public class RouteConverterCmdLine {
     }
 
     private BaseNavigationFormat findFormat(String formatName) {
-        List<NavigationFormat> formats = NavigationFormats.getWriteFormats();
-        for(NavigationFormat format : formats)
-            if(formatName.equals(format.getClass().getSimpleName()))
-                return (BaseNavigationFormat) format;
-        return null;
+        NavigationFormat format = NavigationFormats.getFormatByClassName(formatName);
+        return format != null && format.isSupportsWriting() ? (BaseNavigationFormat) format : null;
     }
 
     private void run(String[] args) {
@@ -44,6 +44,7 @@ import slash.navigation.converter.gui.panels.BrowsePanel;
 import slash.navigation.converter.gui.panels.ConvertPanel;
 import slash.navigation.converter.gui.panels.ElevationPanel;
 import slash.navigation.gpx.Gpx11Format;
+import slash.navigation.gpx.GpxUtil;
 import slash.navigation.gui.*;
 
 import javax.help.CSH;
@@ -145,6 +146,7 @@ public class RouteConverter extends SingleFrameApplication {
 
     protected void startup() {
         log.info("Started " + getTitle() + " on " + Platform.getPlatform() + " with " + Platform.getJvm() + " and " + Platform.getMaximumMemory() + " MByte heap");
+        GpxUtil.createContextsInBackground();
         show();
         checkJreVersion();
         new Updater().implicitCheck(frame);
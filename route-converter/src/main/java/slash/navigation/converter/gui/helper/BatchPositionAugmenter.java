@@ -35,7 +35,9 @@ import slash.navigation.gui.Constants;
 import slash.navigation.util.RouteComments;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 
 /**
  * Helps to augment a batch of positions with geocoded coordinates, elevation,
@@ -46,6 +48,7 @@ import java.text.MessageFormat;
  */
 
 public class BatchPositionAugmenter {
+    private static final int ELEVATION_BATCH_SIZE = 100;
     private JFrame frame;
 
     public BatchPositionAugmenter(JFrame frame) {
@@ -203,6 +206,63 @@ public class BatchPositionAugmenter {
         executeOperation(positionsTable, positionsModel, rows, true, predicate,
                 new Operation() {
                     private CompletePositionService completePositionService = new CompletePositionService();
+                    private int[] sortedRows = sort(rows);
+                    private int[] batchIndices = new int[0];
+                    private double[] batchElevations = new double[0];
+                    private boolean prefetched = false;
+
+                    private int[] sort(int[] rows) {
+                        int[] result = rows.clone();
+                        Arrays.sort(result);
+                        return result;
+                    }
+
+                    private void prefetchElevations() {
+                        double[] longitudes = new double[sortedRows.length];
+                        double[] latitudes = new double[sortedRows.length];
+                        int count = 0;
+                        for (int row : sortedRows) {
+                            BaseNavigationPosition position = positionsModel.getPosition(row);
+                            if (predicate.shouldOverwrite(position)) {
+                                longitudes[count] = position.getLongitude();
+                                latitudes[count] = position.getLatitude();
+                                count++;
+                            }
+                        }
+                        completePositionService.prefetchElevationsFor(Arrays.copyOf(longitudes, count), Arrays.copyOf(latitudes, count));
+                    }
+
+                    private void fetchElevations(int index) throws IOException {
+                        if (!prefetched) {
+                            prefetchElevations();
+                            prefetched = true;
+                        }
+
+                        int start = Arrays.binarySearch(sortedRows, index);
+                        if (start < 0)
+                            start = -start - 1;
+                        int end = Math.min(start + ELEVATION_BATCH_SIZE, sortedRows.length);
+
+                        int[] indices = new int[end - start];
+                        double[] longitudes = new double[end - start];
+                        double[] latitudes = new double[end - start];
+                        int count = 0;
+                        for (int i = start; i < end; i++) {
+                            BaseNavigationPosition position = positionsModel.getPosition(sortedRows[i]);
+                            if (predicate.shouldOverwrite(position)) {
+                                indices[count] = sortedRows[i];
+                                longitudes[count] = position.getLongitude();
+                                latitudes[count] = position.getLatitude();
+                                count++;
+                            }
+                        }
+
+                        batchIndices = Arrays.copyOf(indices, count);
+                        batchElevations = new double[count];
+                        Arrays.fill(batchElevations, Double.NaN);
+                        // on failure the batch stays without elevations to avoid repeating it for every position
+                        batchElevations = completePositionService.getElevationsFor(Arrays.copyOf(longitudes, count), Arrays.copyOf(latitudes, count));
+                    }
 
                     public String getName() {
                         return "ElevationPositionAugmenter";
@@ -213,10 +273,18 @@ public class BatchPositionAugmenter {
                     }
 
                     public boolean run(int index, BaseNavigationPosition position) throws Exception {
-                        Integer elevation = completePositionService.getElevationFor(position.getLongitude(), position.getLatitude());
-                        if (elevation != null)
-                            positionsModel.edit(elevation.doubleValue(), index, PositionColumns.ELEVATION_COLUMN_INDEX, false, true);
-                        return elevation != null;
+                        int batchIndex = Arrays.binarySearch(batchIndices, index);
+                        if (batchIndex < 0) {
+                            fetchElevations(index);
+                            batchIndex = Arrays.binarySearch(batchIndices, index);
+                            if (batchIndex < 0)
+                                return false;
+                        }
+
+                        double elevation = batchElevations[batchIndex];
+                        if (!Double.isNaN(elevation))
+                            positionsModel.edit(elevation, index, PositionColumns.ELEVATION_COLUMN_INDEX, false, true);
+                        return !Double.isNaN(elevation);
                     }
 
                     public String getErrorMessage() {
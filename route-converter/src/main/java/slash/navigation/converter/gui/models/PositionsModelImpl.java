@@ -161,6 +161,8 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
             default:
                 throw new IllegalArgumentException("Row " + rowIndex + ", column " + columnIndex + " does not exist");
         }
+        if (isAffectingCumulativeValues(columnIndex))
+            getRoute().invalidateCumulativeValues(rowIndex);
         if (fireEvent)
             fireTableRowsUpdated(rowIndex, rowIndex, columnIndex);
     }
@@ -212,13 +214,25 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
     }
 
     public void add(int rowIndex, List<BaseNavigationPosition> positions) {
-        for (int i = positions.size() - 1; i >= 0; i--) {
-            BaseNavigationPosition position = positions.get(i);
-            getRoute().add(rowIndex, position);
-        }
+        getRoute().addAll(rowIndex, positions);
         fireTableRowsInserted(rowIndex, rowIndex - 1 + positions.size());
     }
 
+    public void add(int[] rows, List<BaseNavigationPosition> positions, final boolean fireEvent) {
+        getRoute().addAll(rows, positions);
+        if (fireEvent)
+            new ContinousRange(rows, new RangeOperation() {
+                public void performOnIndex(int index) {
+                }
+                public void performOnRange(int firstIndex, int lastIndex) {
+                    fireTableRowsInserted(firstIndex, lastIndex);
+                }
+                public boolean isInterrupted() {
+                    return false;
+                }
+            }).performMonotonicallyIncreasing();
+    }
+
     public int[] createRowIndices(int from, int to) {
         int[] rows = new int[to - from];
         int count = 0;
@@ -228,26 +242,34 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
     }
 
     public void remove(int firstIndex, int lastIndex) {
-        remove(createRowIndices(firstIndex, lastIndex));
+        remove(firstIndex, lastIndex, true);
+    }
+
+    public List<BaseNavigationPosition> remove(int firstIndex, int lastIndex, boolean fireEvent) {
+        List<BaseNavigationPosition> removed = getRoute().removeRange(firstIndex, lastIndex);
+        if (fireEvent && firstIndex < lastIndex)
+            fireTableRowsDeleted(firstIndex, lastIndex - 1);
+        return removed;
     }
 
     public void remove(int[] rowIndices) {
         remove(rowIndices, true);
     }
 
-    public void remove(int[] rows, final boolean fireEvent) {
-        new ContinousRange(rows, new RangeOperation() {
-            public void performOnIndex(int index) {
-                getRoute().remove(index);
-            }
-            public void performOnRange(int firstIndex, int lastIndex) {
-                if (fireEvent)
+    public List<BaseNavigationPosition> remove(int[] rows, final boolean fireEvent) {
+        List<BaseNavigationPosition> removed = getRoute().removeAll(rows);
+        if (fireEvent)
+            new ContinousRange(rows, new RangeOperation() {
+                public void performOnIndex(int index) {
+                }
+                public void performOnRange(int firstIndex, int lastIndex) {
                     fireTableRowsDeleted(firstIndex, lastIndex);
-            }
-            public boolean isInterrupted() {
-                return false;
-            }
-        }).performMonotonicallyDecreasing();
+                }
+                public boolean isInterrupted() {
+                    return false;
+                }
+            }).performMonotonicallyDecreasing();
+        return removed;
     }
 
     public void revert() {
@@ -256,61 +278,105 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
         fireTableRowsUpdated(-1, -1);
     }
 
+    private int[] createPartitionPermutation(int[] rows, boolean rowsFirst) {
+        int[] permutation = new int[getRowCount()];
+        int index = rowsFirst ? 0 : permutation.length - rows.length;
+        for (int row : rows)
+            permutation[index++] = row;
+        index = rowsFirst ? rows.length : 0;
+        for (int i = 0, next = 0; i < permutation.length; i++) {
+            if (next < rows.length && rows[next] == i)
+                next++;
+            else
+                permutation[index++] = i;
+        }
+        return permutation;
+    }
+
+    private int[] createMovePermutation(int[] rows, int delta) {
+        int[] permutation = new int[getRowCount()];
+        for (int i = 0; i < permutation.length; i++)
+            permutation[i] = i;
+        for (int row : rows) {
+            int moved = permutation[row];
+            if (delta > 0)
+                System.arraycopy(permutation, row + 1, permutation, row, delta);
+            else
+                System.arraycopy(permutation, row + delta, permutation, row + delta + 1, -delta);
+            permutation[row + delta] = moved;
+        }
+        return permutation;
+    }
+
+    private static int[] invert(int[] permutation) {
+        int[] inverted = new int[permutation.length];
+        for (int i = 0; i < permutation.length; i++)
+            inverted[permutation[i]] = i;
+        return inverted;
+    }
+
     public void top(int[] rowIndices) {
         Arrays.sort(rowIndices);
 
-        for (int i = 0; i < rowIndices.length; i++) {
-            getRoute().top(rowIndices[i], i);
-        }
+        getRoute().applyPermutation(createPartitionPermutation(rowIndices, true));
         fireTableRowsUpdated(0, rowIndices[rowIndices.length - 1]);
     }
 
     public void topDown(int[] rows) {
-        int[] reverted = Range.revert(rows);
+        Arrays.sort(rows);
 
-        for (int i = 0; i < reverted.length; i++) {
-            getRoute().down(reverted.length - i - 1, reverted[i]);
-        }
-        fireTableRowsUpdated(0, reverted[0]);
+        getRoute().applyPermutation(invert(createPartitionPermutation(rows, true)));
+        fireTableRowsUpdated(0, rows[rows.length - 1]);
     }
 
     public void up(int[] rowIndices, int delta) {
         Arrays.sort(rowIndices);
 
-        for (int row : rowIndices) {
-            getRoute().up(row, row - delta);
-            fireTableRowsUpdated(row - delta, row);
-        }
+        getRoute().applyPermutation(createMovePermutation(rowIndices, -delta));
+        fireTableRowsUpdated(rowIndices[0] - delta, rowIndices[rowIndices.length - 1]);
     }
 
     public void down(int[] rowIndices, int delta) {
         int[] reverted = Range.revert(rowIndices);
 
-        for (int row : reverted) {
-            getRoute().down(row, row + delta);
-            fireTableRowsUpdated(row, row + delta);
-        }
+        getRoute().applyPermutation(createMovePermutation(reverted, delta));
+        fireTableRowsUpdated(reverted[reverted.length - 1], reverted[0] + delta);
     }
 
     public void bottom(int[] rowIndices) {
-        int[] reverted = Range.revert(rowIndices);
+        Arrays.sort(rowIndices);
 
-        for (int i = 0; i < reverted.length; i++) {
-            getRoute().bottom(reverted[i], i);
-            fireTableRowsUpdated(reverted[i], getRowCount() - 1 - i);
-        }
+        getRoute().applyPermutation(createPartitionPermutation(rowIndices, false));
+        fireTableRowsUpdated(rowIndices[0], getRowCount() - 1);
     }
 
     public void bottomUp(int[] rows) {
         Arrays.sort(rows);
 
-        for (int i = 0; i < rows.length; i++) {
-            getRoute().up(getRowCount() - rows.length + i, rows[i]);
-        }
+        getRoute().applyPermutation(invert(createPartitionPermutation(rows, false)));
         fireTableRowsUpdated(rows[0], getRowCount() - 1);
     }
 
     public void fireTableRowsUpdated(int firstIndex, int lastIndex, int columnIndex) {
         fireTableChanged(new TableModelEvent(this, firstIndex, lastIndex, columnIndex, TableModelEvent.UPDATE));
     }
+
+    private boolean isAffectingCumulativeValues(int columnIndex) {
+        switch (columnIndex) {
+            case TableModelEvent.ALL_COLUMNS:
+            case PositionColumns.TIME_COLUMN_INDEX:
+            case PositionColumns.LONGITUDE_COLUMN_INDEX:
+            case PositionColumns.LATITUDE_COLUMN_INDEX:
+            case PositionColumns.ELEVATION_COLUMN_INDEX:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void fireTableChanged(TableModelEvent e) {
+        if (getRoute() != null && (e.getType() != TableModelEvent.UPDATE || isAffectingCumulativeValues(e.getColumn())))
+            getRoute().invalidateCumulativeValues(e.getFirstRow());
+        super.fireTableChanged(e);
+    }
 }
\ No newline at end of file
@@ -1,9 +1,7 @@
 package slash.navigation.converter.gui.undo;
 
 import slash.common.io.CompactCalendar;
-import slash.common.io.ContinousRange;
 import slash.common.io.Range;
-import slash.common.io.RangeOperation;
 import slash.navigation.base.*;
 import slash.navigation.converter.gui.models.PositionsModel;
 import slash.navigation.converter.gui.models.PositionsModelImpl;
@@ -11,7 +9,6 @@ import slash.navigation.gui.UndoManager;
 
 import javax.swing.event.TableModelListener;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -133,10 +130,7 @@ public class UndoPositionsModel implements PositionsModel {
     }
 
     void add(int row, List<BaseNavigationPosition> positions, boolean fireEvent, boolean trackUndo) {
-        for (int i = positions.size() - 1; i >= 0; i--) {
-            BaseNavigationPosition position = positions.get(i);
-            getRoute().add(row, position);
-        }
+        getRoute().addAll(row, positions);
         if (fireEvent)
             delegate.fireTableRowsInserted(row, row - 1 + positions.size());
         if (trackUndo)
@@ -151,34 +145,25 @@ public class UndoPositionsModel implements PositionsModel {
         remove(rowIndices, true, true);
     }
 
+    void add(int[] rows, List<BaseNavigationPosition> positions) {
+        delegate.add(rows, positions, true);
+    }
+
     void remove(int from, int to, boolean fireEvent, boolean trackUndo) {
-        int[] rows = delegate.createRowIndices(from, to);
-        remove(rows, fireEvent, trackUndo);
-    }
-
-    void remove(int[] rows, final boolean fireEvent, final boolean trackUndo) {
-        final RemovePositions edit = new RemovePositions(this);
-
-        new ContinousRange(rows, new RangeOperation() {
-            private List<BaseNavigationPosition> removed = new ArrayList<BaseNavigationPosition>();
-
-            public void performOnIndex(int index) {
-                removed.add(0, getRoute().remove(index));
-            }
-            public void performOnRange(int firstIndex, int lastIndex) {
-                if (fireEvent)
-                    delegate.fireTableRowsDeleted(firstIndex, lastIndex);
-                if (trackUndo)
-                    edit.add(firstIndex, new ArrayList<BaseNavigationPosition>(removed));
-                removed.clear();
-            }
-            public boolean isInterrupted() {
-                return false;
-            }
-        }).performMonotonicallyDecreasing();
+        List<BaseNavigationPosition> removed = delegate.remove(from, to, fireEvent);
+        if (trackUndo) {
+            int[] rows = delegate.createRowIndices(from, to);
+            Arrays.sort(rows);
+            undoManager.addEdit(new RemovePositions(this, rows, removed));
+        }
+    }
 
+    void remove(int[] rows, boolean fireEvent, boolean trackUndo) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        List<BaseNavigationPosition> removed = delegate.remove(rows, fireEvent);
         if (trackUndo)
-            undoManager.addEdit(edit);
+            undoManager.addEdit(new RemovePositions(this, sorted, removed));
     }
 
     public void revert() {
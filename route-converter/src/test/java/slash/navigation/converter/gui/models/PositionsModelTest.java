@@ -27,6 +27,8 @@ import slash.navigation.bcr.BcrRoute;
 import slash.navigation.bcr.MTP0607Format;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -82,4 +84,123 @@ public class PositionsModelTest {
         assertEquals("a", model.getPosition(0).getComment());
         assertEquals("e", model.getPosition(1).getComment());
     }
+
+    private static final int MOVE_COUNT = 10;
+    // contiguous and non-contiguous selections that leave room to move up or down by two rows
+    private static final int[][] MOVE_SELECTIONS = new int[][]{{3}, {2, 3, 4}, {7, 2, 5}, {3, 5, 6}, {2, 3, 7}};
+
+    @SuppressWarnings("unchecked")
+    private List<BcrPosition> initializeForMove() {
+        List<BcrPosition> positions = route.getPositions();
+        positions.clear();
+        for (int i = 0; i < MOVE_COUNT; i++)
+            positions.add(new BcrPosition(i, i, 0, "p" + i));
+        model.setRoute(route);
+        return new ArrayList<BcrPosition>(positions);
+    }
+
+    private void assertPositions(List<BcrPosition> expected) {
+        assertEquals(expected.size(), model.getRowCount());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals("at index:" + i, expected.get(i).getComment(), model.getPosition(i).getComment());
+    }
+
+    // the moves as they were done before: one neighbour swap at a time
+
+    private List<BcrPosition> topOneByOne(List<BcrPosition> positions, int[] rows) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            for (int index = sorted[i]; index > i; index--)
+                Collections.swap(positions, index, index - 1);
+        return positions;
+    }
+
+    private List<BcrPosition> upOneByOne(List<BcrPosition> positions, int[] rows, int delta) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        for (int row : sorted)
+            for (int index = row; index > row - delta; index--)
+                Collections.swap(positions, index, index - 1);
+        return positions;
+    }
+
+    private List<BcrPosition> downOneByOne(List<BcrPosition> positions, int[] rows, int delta) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        for (int i = sorted.length - 1; i >= 0; i--)
+            for (int index = sorted[i]; index < sorted[i] + delta; index++)
+                Collections.swap(positions, index, index + 1);
+        return positions;
+    }
+
+    private List<BcrPosition> bottomOneByOne(List<BcrPosition> positions, int[] rows) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            for (int index = sorted[sorted.length - 1 - i]; index < positions.size() - 1 - i; index++)
+                Collections.swap(positions, index, index + 1);
+        return positions;
+    }
+
+    @Test
+    public void testTopLikeOneByOne() {
+        for (int[] rows : MOVE_SELECTIONS) {
+            List<BcrPosition> positions = initializeForMove();
+            model.top(rows.clone());
+            assertPositions(topOneByOne(positions, rows));
+        }
+        List<BcrPosition> positions = initializeForMove();
+        model.top(new int[]{0, 1, 9});
+        assertPositions(topOneByOne(positions, new int[]{0, 1, 9}));
+    }
+
+    @Test
+    public void testUpLikeOneByOne() {
+        for (int delta = 1; delta <= 2; delta++) {
+            for (int[] rows : MOVE_SELECTIONS) {
+                List<BcrPosition> positions = initializeForMove();
+                model.up(rows.clone(), delta);
+                assertPositions(upOneByOne(positions, rows, delta));
+            }
+        }
+    }
+
+    @Test
+    public void testDownLikeOneByOne() {
+        for (int delta = 1; delta <= 2; delta++) {
+            for (int[] rows : MOVE_SELECTIONS) {
+                List<BcrPosition> positions = initializeForMove();
+                model.down(rows.clone(), delta);
+                assertPositions(downOneByOne(positions, rows, delta));
+            }
+        }
+    }
+
+    @Test
+    public void testBottomLikeOneByOne() {
+        for (int[] rows : MOVE_SELECTIONS) {
+            List<BcrPosition> positions = initializeForMove();
+            model.bottom(rows.clone());
+            assertPositions(bottomOneByOne(positions, rows));
+        }
+        List<BcrPosition> positions = initializeForMove();
+        model.bottom(new int[]{0, 8, 9});
+        assertPositions(bottomOneByOne(positions, new int[]{0, 8, 9}));
+    }
+
+    @Test
+    public void testTopDownAndBottomUpRestoreOrder() {
+        PositionsModelImpl impl = (PositionsModelImpl) model;
+        for (int[] rows : MOVE_SELECTIONS) {
+            List<BcrPosition> positions = initializeForMove();
+            impl.top(rows.clone());
+            impl.topDown(rows.clone());
+            assertPositions(positions);
+
+            impl.bottom(rows.clone());
+            impl.bottomUp(rows.clone());
+            assertPositions(positions);
+        }
+    }
 }